@@ -0,0 +1,102 @@
+package com.aerospike.dsl.benchmark;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.evaluator.CompiledPredicate;
+import com.aerospike.dsl.evaluator.ExpressionEvaluator;
+import com.aerospike.dsl.evaluator.LocalRecord;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Benchmarks of filtering 1024 records: {@link ExpressionEvaluator#test(LocalRecord)}, which interprets
+ * the expression, compared with {@link CompiledPredicate} and with a handwritten predicate of the same
+ * expression. Every eighth record has no bin {@code a}, so its comparisons are unknown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+    private static final int RECORDS = 1024;
+
+    private static final Map<String, String> EXPRESSIONS = Map.of(
+            "comparison", "$.a > 500",
+            "logical", "$.a > 100 and $.f < 0.5 or $.s == 'x'",
+            "arithmetic", "$.a * 2 + $.b > 1000");
+    private static final Map<String, Predicate<LocalRecord>> HANDWRITTEN = Map.of(
+            "comparison", localRecord -> localRecord.getBin("a") instanceof Long a && a > 500,
+            "logical", localRecord -> localRecord.getBin("a") instanceof Long a && a > 100
+                    && localRecord.getBin("f") instanceof Double f && f < 0.5
+                    || "x".equals(localRecord.getBin("s")),
+            "arithmetic", localRecord -> localRecord.getBin("a") instanceof Long a
+                    && localRecord.getBin("b") instanceof Long b && a * 2 + b > 1000);
+
+    @Param({"comparison", "logical", "arithmetic"})
+    public String expression;
+
+    private final LocalRecord[] records = new LocalRecord[RECORDS];
+    private ExpressionEvaluator evaluator;
+    private CompiledPredicate compiled;
+    private Predicate<LocalRecord> handwritten;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < RECORDS; i++) {
+            Map<String, Object> bins = new HashMap<>();
+            if (i % 8 != 0) bins.put("a", (long) i);
+            bins.put("b", (long) (i * 7 % 500));
+            bins.put("f", (i % 10) / 10.0);
+            bins.put("s", i % 3 == 0 ? "x" : "y");
+            records[i] = LocalRecord.of(bins);
+        }
+        evaluator = ExpressionEvaluator.of(new DSLParserImpl().parseExpression(
+                ExpressionContext.of(EXPRESSIONS.get(expression))));
+        compiled = evaluator.compile();
+        handwritten = HANDWRITTEN.get(expression);
+    }
+
+    @Benchmark
+    public int interpreted() {
+        int count = 0;
+        for (LocalRecord localRecord : records) {
+            if (evaluator.test(localRecord)) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int count = 0;
+        for (LocalRecord localRecord : records) {
+            if (compiled.test(localRecord)) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int handwritten() {
+        int count = 0;
+        for (LocalRecord localRecord : records) {
+            if (handwritten.test(localRecord)) count++;
+        }
+        return count;
+    }
+}
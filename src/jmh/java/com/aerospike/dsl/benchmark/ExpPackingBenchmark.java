@@ -0,0 +1,80 @@
+package com.aerospike.dsl.benchmark;
+
+import com.aerospike.dsl.client.cdt.ListReturnType;
+import com.aerospike.dsl.client.cdt.MapReturnType;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.exp.ListExp;
+import com.aerospike.dsl.client.exp.MapExp;
+import com.aerospike.dsl.client.util.Packer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of packing an expression with an IN list and a map literal: {@link Exp#build(Exp)}, which packs
+ * into the thread local buffer and copies the bytes out, compared with {@link Exp#buildExact(Exp)}, which counts
+ * the size first and packs into an array of exactly that size, and with packing directly with {@link Packer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpPackingBenchmark {
+
+    /**
+     * Number of elements of the IN list and entries of the map literal
+     */
+    @Param({"16", "1024"})
+    public int elements;
+
+    private Exp exp;
+
+    @Setup
+    public void setup() {
+        List<String> names = new ArrayList<>();
+        Map<String, Long> limits = new TreeMap<>();
+        for (int i = 0; i < elements; i++) {
+            names.add("name" + i);
+            limits.put("limit" + i, (long) i);
+        }
+        exp = Exp.and(
+                Exp.eq(ListExp.getByValue(ListReturnType.EXISTS, Exp.stringBin("name"), Exp.val(names)),
+                        Exp.val(true)),
+                Exp.eq(MapExp.getByKey(MapReturnType.VALUE, Exp.Type.INT, Exp.val("limit1"), Exp.val(limits)),
+                        Exp.intBin("limit")));
+    }
+
+    @Benchmark
+    public Expression build() {
+        return Exp.build(exp);
+    }
+
+    @Benchmark
+    public Expression buildExact() {
+        return Exp.buildExact(exp);
+    }
+
+    @Benchmark
+    public byte[] packAndCopy() {
+        Packer packer = new Packer();
+        exp.pack(packer);
+        return packer.toByteArray();
+    }
+}
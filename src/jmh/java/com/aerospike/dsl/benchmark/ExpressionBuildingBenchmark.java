@@ -0,0 +1,74 @@
+package com.aerospike.dsl.benchmark;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.aerospike.dsl.benchmark.ExpressionCorpus.INDEX_CONTEXT;
+
+/**
+ * Benchmarks of building results from an already parsed expression tree: {@code VisitorUtils.buildExpr}
+ * with and without secondary indexes, packing with {@link Exp#build(Exp)}, and the whole pipeline
+ * from DSL string to packed {@link Expression}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBuildingBenchmark {
+
+    @Param
+    public ExpressionCorpus expression;
+
+    private final DSLParserImpl parser = new DSLParserImpl();
+    private ExpressionContext context;
+    private ParsedExpression parsedExpression;
+    private ParsedExpression parsedExpressionWithIndexes;
+    private Exp exp;
+
+    @Setup
+    public void setup() {
+        context = ExpressionContext.of(expression.getDsl());
+        parsedExpression = parser.parseExpression(context);
+        parsedExpressionWithIndexes = parser.parseExpression(context, INDEX_CONTEXT);
+        exp = parsedExpression.getResult(null).getExp();
+    }
+
+    @Benchmark
+    public ParseResult buildExpr() {
+        return parsedExpression.getResult(null);
+    }
+
+    @Benchmark
+    public ParseResult buildExprWithIndexes() {
+        return parsedExpressionWithIndexes.getResult(null);
+    }
+
+    @Benchmark
+    public Expression pack() {
+        return Exp.build(exp);
+    }
+
+    @Benchmark
+    public Expression fullPipeline() {
+        return Exp.build(parser.parseExpression(context).getResult().getExp());
+    }
+}
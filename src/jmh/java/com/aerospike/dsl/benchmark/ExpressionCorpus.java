@@ -0,0 +1,53 @@
+package com.aerospike.dsl.benchmark;
+
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.client.query.IndexType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * DSL expressions used by benchmarks, from simple comparisons to deep CDT paths, control structures
+ * and large IN lists.
+ */
+public enum ExpressionCorpus {
+
+    SIMPLE_COMPARISON("$.intBin1 > 100"),
+    LOGICAL("$.intBin1 > 100 and ($.strBin1 == 'a' or $.intBin2 < 5) and not($.boolBin1 == true)"),
+    ARITHMETIC("($.intBin1 + $.intBin2) * 2 > $.intBin3 - 10"),
+    METADATA("$.ttl() < 3600 and $.deviceSize() > 1024"),
+    DEEP_CDT_PATH("$.mapBin1.a.bb.bcc.[5].[#-1].get(type: INT) > 200"),
+    LET_WHEN("let (x = $.intBin1 + 1, y = ${x} * 2) then "
+            + "(when (${y} > 100 => 'high', ${y} > 10 => 'mid', default => 'low') == 'high')"),
+    LARGE_IN_LIST("$.intBin1 in [" + IntStream.range(0, 200)
+            .mapToObj(i -> String.valueOf(i * 7))
+            .collect(Collectors.joining(", ")) + "]");
+
+    public static final String NAMESPACE = "test";
+    /**
+     * Expression with placeholders of different types, including one within a CDT path
+     */
+    public static final String PLACEHOLDERS =
+            "$.intBin1 > ?0 and $.strBin1 == ?1 and $.listBin1.[0].get(type: INT) < ?2";
+    /**
+     * Secondary indexes on bins used by the corpus
+     */
+    public static final IndexContext INDEX_CONTEXT = IndexContext.of(NAMESPACE, List.of(
+            Index.builder().namespace(NAMESPACE).bin("intBin1").indexType(IndexType.NUMERIC)
+                    .binValuesRatio(10).build(),
+            Index.builder().namespace(NAMESPACE).bin("strBin1").indexType(IndexType.STRING)
+                    .binValuesRatio(100).build()
+    ));
+
+    private final String dsl;
+
+    ExpressionCorpus(String dsl) {
+        this.dsl = dsl;
+    }
+
+    public String getDsl() {
+        return dsl;
+    }
+}
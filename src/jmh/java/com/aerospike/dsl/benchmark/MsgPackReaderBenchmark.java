@@ -0,0 +1,111 @@
+package com.aerospike.dsl.benchmark;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.client.cdt.MapOrder;
+import com.aerospike.dsl.client.util.MsgPackReader;
+import com.aerospike.dsl.client.util.Packer;
+import com.aerospike.dsl.client.util.Unpacker;
+import com.aerospike.dsl.evaluator.ExpressionEvaluator;
+import com.aerospike.dsl.evaluator.LocalRecord;
+import com.aerospike.dsl.evaluator.PackedValue;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of reading one value from a packed nested map with {@link MsgPackReader}, compared with
+ * unpacking the map with {@link Unpacker}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgPackReaderBenchmark {
+
+    private static final byte[] ADDRESS = "address".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CITY = "city".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Number of entries of the map, each holding a nested map, about 100 bytes per entry
+     */
+    @Param({"16", "512"})
+    public int entries;
+
+    private byte[] packed;
+    private final MsgPackReader reader = new MsgPackReader(new byte[0]);
+    private ExpressionEvaluator evaluator;
+    private LocalRecord packedRecord;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> profile = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            profile.put("field" + i, Map.of("name", "value" + i, "count", i, "tags", List.of("a", "b", i)));
+        }
+        profile.put("address", Map.of("street", "Main", "city", "Paris", "zip", 75001));
+        packed = Packer.pack(profile, MapOrder.UNORDERED);
+        evaluator = ExpressionEvaluator.of(new DSLParserImpl().parseExpression(
+                ExpressionContext.of("$.profile.address.city == 'Paris'")));
+        packedRecord = LocalRecord.of(Map.of("profile", PackedValue.of(packed)));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object unpackObject() {
+        Map<Object, Object> profile = (Map<Object, Object>) Unpacker.unpackObject(packed, 0, packed.length);
+        return ((Map<Object, Object>) profile.get("address")).get("city");
+    }
+
+    @Benchmark
+    public boolean readerLookup() {
+        reader.reset(packed, 0, packed.length);
+        return findKey(ADDRESS) && findKey(CITY) && reader.readString().equals("Paris");
+    }
+
+    @Benchmark
+    public int readerSkipAll() {
+        reader.reset(packed, 0, packed.length);
+        reader.skipValue();
+        return reader.getPosition();
+    }
+
+    @Benchmark
+    public boolean evaluatePacked() {
+        return evaluator.test(packedRecord);
+    }
+
+    @Benchmark
+    public boolean evaluateUnpacked() {
+        Object profile = Unpacker.unpackObject(packed, 0, packed.length);
+        return evaluator.test(LocalRecord.of(Map.of("profile", profile)));
+    }
+
+    private boolean findKey(byte[] key) {
+        int count = reader.enterMap();
+        for (int i = 0; i < count; i++) {
+            int length = reader.readRawLength();
+            boolean isKey = reader.contentEquals(key, length);
+            reader.skipBytes(length);
+            if (isKey) return true;
+            reader.skipValue();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package com.aerospike.dsl.benchmark;
+
+import com.aerospike.dsl.client.cdt.CTX;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of converting paths to CDT context with {@link DSLParserImpl#parseCTX(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseCtxBenchmark {
+
+    @Param({"$.listBin1.[0]", "$.mapBin1.a.bb.bcc.[5].[#-1]"})
+    public String path;
+
+    private final DSLParserImpl parser = new DSLParserImpl();
+
+    @Benchmark
+    public CTX[] parseCTX() {
+        return parser.parseCTX(path);
+    }
+}
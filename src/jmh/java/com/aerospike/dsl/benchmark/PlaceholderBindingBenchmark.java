@@ -0,0 +1,78 @@
+package com.aerospike.dsl.benchmark;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.aerospike.dsl.benchmark.ExpressionCorpus.INDEX_CONTEXT;
+import static com.aerospike.dsl.benchmark.ExpressionCorpus.PLACEHOLDERS;
+
+/**
+ * Benchmarks of binding different placeholder values to an expression parsed once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceholderBindingBenchmark {
+
+    private static final int VALUES_COUNT = 64;
+
+    private final PlaceholderValues[] values = new PlaceholderValues[VALUES_COUNT];
+    private ParsedExpression parsedExpression;
+    private ParsedExpression parsedExpressionWithIndexes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        DSLParserImpl parser = new DSLParserImpl();
+        parsedExpression = parser.parseExpression(ExpressionContext.of(PLACEHOLDERS));
+        parsedExpressionWithIndexes = parser.parseExpression(ExpressionContext.of(PLACEHOLDERS), INDEX_CONTEXT);
+        for (int i = 0; i < VALUES_COUNT; i++) {
+            values[i] = PlaceholderValues.of(i * 1000, "value" + i, i);
+        }
+    }
+
+    private PlaceholderValues nextValues() {
+        next = (next + 1) & (VALUES_COUNT - 1);
+        return values[next];
+    }
+
+    @Benchmark
+    public ParseResult getResult() {
+        return parsedExpression.getResult(nextValues());
+    }
+
+    @Benchmark
+    public ParseResult getResultWithIndexes() {
+        return parsedExpressionWithIndexes.getResult(nextValues());
+    }
+
+    @Benchmark
+    public Expression getResultAndPack() {
+        return Exp.build(parsedExpression.getResult(nextValues()).getExp());
+    }
+
+    @Benchmark
+    public Expression getExpression() {
+        return parsedExpression.getExpression(nextValues());
+    }
+}
@@ -0,0 +1,62 @@
+package com.aerospike.dsl.impl;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.benchmark.ExpressionCorpus;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.visitor.ExpressionConditionVisitor;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the parsing stages: lexing and parsing into ANTLR parse tree, building the expression tree,
+ * and the whole {@link DSLParserImpl#parseExpression(ExpressionContext)} without cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param
+    public ExpressionCorpus expression;
+
+    private final DSLParserImpl parser = new DSLParserImpl();
+    private String dsl;
+    private ParseTree parseTree;
+
+    @Setup
+    public void setup() {
+        dsl = expression.getDsl();
+        parseTree = parser.getParseTree(dsl);
+    }
+
+    @Benchmark
+    public ParseTree parseTree() {
+        return parser.getParseTree(dsl);
+    }
+
+    @Benchmark
+    public AbstractPart buildExpressionTree() {
+        return new ExpressionConditionVisitor().visit(parseTree);
+    }
+
+    @Benchmark
+    public ParsedExpression parseExpression() {
+        return parser.parseExpression(ExpressionContext.of(dsl));
+    }
+}
@@ -0,0 +1,35 @@
+package com.aerospike.dsl;
+
+import com.aerospike.dsl.annotation.Beta;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * This class stores result of parsing a single input of a batch, either {@link ParsedExpression}
+ * or the {@link DslParseException} that occurred.
+ */
+@Beta
+@AllArgsConstructor
+@Getter
+public class BatchParseResult {
+
+    /**
+     * Input the result belongs to
+     */
+    private final ExpressionContext input;
+    /**
+     * Parsed expression. Null if parsing failed
+     */
+    private final ParsedExpression parsedExpression;
+    /**
+     * Exception that occurred during parsing. Null if parsing succeeded
+     */
+    private final DslParseException exception;
+
+    /**
+     * @return Whether the input was parsed successfully
+     */
+    public boolean isSuccess() {
+        return exception == null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.aerospike.dsl;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.query.Filter;
+import lombok.Getter;
+
+/**
+ * Compiled form of a DSL expression stored in {@link CompiledExpressionStore}: fingerprint of the normalized
+ * expression, secondary index {@link Filter} and packed filter {@link Expression}, with positions of placeholder
+ * values if the expression has placeholders.
+ */
+@Beta
+public class CompiledExpression {
+
+    /**
+     * Fingerprint of the expression, see {@link NormalizedExpression#getFingerprint()}
+     */
+    @Getter
+    private final String fingerprint;
+    /**
+     * Secondary index {@link Filter} built for the expression, can be null
+     */
+    @Getter
+    private final Filter filter;
+    // Null if there is no filter expression
+    private final ExpressionTemplate template;
+
+    CompiledExpression(String fingerprint, Filter filter, ExpressionTemplate template) {
+        this.fingerprint = fingerprint;
+        this.filter = filter;
+        this.template = template;
+    }
+
+    /**
+     * @return Packed filter {@link Expression} of an expression without placeholders, or null if there is no
+     * filter expression, see {@link #getExpression(PlaceholderValues)}
+     * @throws IllegalArgumentException If the expression has placeholders
+     */
+    public Expression getExpression() {
+        return getExpression(null);
+    }
+
+    /**
+     * Produce packed filter {@link Expression} by inserting the given values into the stored bytes.
+     *
+     * @param placeholderValues Values with the same types as the ones the expression was compiled with,
+     *                          can be null if the expression has no placeholders
+     * @return Packed filter {@link Expression}, or null if there is no filter expression
+     * @throws IllegalArgumentException If there is no value for a placeholder
+     */
+    public Expression getExpression(PlaceholderValues placeholderValues) {
+        if (template == null) return null;
+
+        return template.bind(placeholderValues == null ? PlaceholderValues.of() : placeholderValues);
+    }
+
+    ExpressionTemplate getTemplate() {
+        return template;
+    }
+}
@@ -0,0 +1,516 @@
+package com.aerospike.dsl;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.api.DSLParser;
+import com.aerospike.dsl.client.Value;
+import com.aerospike.dsl.client.cdt.CTX;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexCollectionType;
+import com.aerospike.dsl.optimizer.ExpressionNormalizer;
+import com.aerospike.dsl.parts.operand.PlaceholderMarkers.Marker;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent store of compiled DSL expressions, so that a restarted process does not need to parse
+ * the expressions it has already compiled before.
+ * <p>
+ * Each entry holds the fingerprint of an expression, its secondary index {@link Filter} and its packed filter
+ * {@link com.aerospike.dsl.client.exp.Expression} with positions of placeholder values. Entries are keyed by
+ * the DSL string and the types of its placeholder values. They are appended to a file, a later entry
+ * for the same key replaces an earlier one. On opening, the file is memory-mapped and indexed without decoding
+ * the entries, an entry is decoded on first lookup and its packed expression is read directly from the mapping.
+ * <p>
+ * The file starts with a version stamp made of the file format version, a hash of the DSL grammar,
+ * the library version and the context stamp given on opening. A file with a different stamp is discarded,
+ * so that artifacts of another version are never used. Entries depend on the parser settings and secondary
+ * indexes they were compiled with, which should be described by the context stamp, e.g., as a hash
+ * of the {@link IndexContext}. A partially written entry at the end of the file, e.g., after a crash,
+ * is detected by its checksum and overwritten by the next entry.
+ * <p>
+ * Results that depend on the placeholder values themselves and not only on their types, i.e., expressions with
+ * placeholders compiled with secondary indexes or an optimizer, are compiled but not stored.
+ * Lookups are thread-safe, appends are serialized.
+ */
+@Beta
+public final class CompiledExpressionStore implements Closeable {
+
+    static final int MAGIC = 0x44534C43; // "DSLC"
+    static final int FORMAT_VERSION = 1;
+    private static final int NO_VALUE = -1;
+    private static final byte LONG_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte BYTES_VALUE = 2;
+
+    private final FileChannel channel;
+    // Null if the file was created anew when opened
+    private final MappedByteBuffer mapped;
+    // Positions of entries in the mapped file by key
+    private final Map<String, Integer> positions;
+    private final Map<String, CompiledExpression> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int loadedCount;
+    private final long discardedBytes;
+    private long appendPosition;
+
+    private CompiledExpressionStore(FileChannel channel, MappedByteBuffer mapped, Map<String, Integer> positions,
+                                    int loadedCount, long discardedBytes, long appendPosition) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.positions = positions;
+        this.loadedCount = loadedCount;
+        this.discardedBytes = discardedBytes;
+        this.appendPosition = appendPosition;
+    }
+
+    /**
+     * Open the store at the given path with an empty context stamp,
+     * see {@link #open(Path, String)}.
+     */
+    public static CompiledExpressionStore open(Path path) throws IOException {
+        return open(path, "");
+    }
+
+    /**
+     * Open the store at the given path, creating the file if it does not exist. Entries of a file written
+     * with a different version stamp are discarded.
+     *
+     * @param path         Path of the store file
+     * @param contextStamp Description of the parser settings and secondary indexes entries are compiled with,
+     *                     must not be null
+     * @return A new instance of {@code CompiledExpressionStore}, to be closed after use
+     * @throws IOException If the file cannot be read or written
+     */
+    public static CompiledExpressionStore open(Path path, String contextStamp) throws IOException {
+        if (contextStamp == null) {
+            throw new IllegalArgumentException("Context stamp must not be null");
+        }
+        byte[] header = header(versionStamp(contextStamp));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Compiled expression store file is too large: " + size);
+            }
+            if (!hasHeader(channel, header)) {
+                // New file or written by another version
+                channel.truncate(0);
+                writeFully(channel, ByteBuffer.wrap(header), 0);
+                return new CompiledExpressionStore(channel, null, new HashMap<>(), 0, size, header.length);
+            }
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Map<String, Integer> positions = new HashMap<>();
+            int loadedCount = 0;
+            int position = header.length;
+            while (true) {
+                int bodyPosition = validEntryBody(mapped, position);
+                if (bodyPosition == NO_VALUE) break;
+
+                positions.put(readString(mapped, bodyPosition), bodyPosition);
+                loadedCount++;
+                position = bodyPosition + mapped.getInt(position);
+            }
+            // A partially written entry at the end is overwritten by the next append
+            return new CompiledExpressionStore(channel, mapped, positions, loadedCount, size - position, position);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Find the compiled expression for the given DSL string and types of its placeholder values.
+     *
+     * @param expressionContext DSL string and optionally placeholder values
+     * @return Stored {@link CompiledExpression}, or null if there is none
+     */
+    public CompiledExpression get(ExpressionContext expressionContext) {
+        String key = key(expressionContext);
+        CompiledExpression compiled = key == null ? null : lookup(key);
+        if (compiled == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return compiled;
+    }
+
+    /**
+     * Find the compiled expression for the given DSL string and types of its placeholder values,
+     * or parse and compile it using the given parser and store it.
+     *
+     * @param parser            Parser to use if the expression is not stored
+     * @param expressionContext DSL string and optionally placeholder values
+     * @param indexContext      Secondary indexes to compile the expression with, must be described by the context
+     *                          stamp of the store. Can be null
+     * @return Stored or compiled {@link CompiledExpression}
+     * @throws DslParseException If the expression cannot be parsed
+     * @throws UncheckedIOException If the compiled expression cannot be written
+     */
+    public CompiledExpression getOrCompile(DSLParser parser, ExpressionContext expressionContext,
+                                           IndexContext indexContext) {
+        CompiledExpression compiled = get(expressionContext);
+        if (compiled != null) return compiled;
+
+        PlaceholderValues values = expressionContext.getValues();
+        ParsedExpression parsedExpression = parser.parseExpression(expressionContext, indexContext);
+        String fingerprint = ExpressionNormalizer.normalize(parsedExpression.getExpressionTree(), values)
+                .getFingerprint();
+        boolean isStorable;
+        if (parsedExpression.isTemplateApplicable(values)) {
+            compiled = new CompiledExpression(fingerprint, null, parsedExpression.getTemplate(values));
+            isStorable = true;
+        } else {
+            ParseResult result = parsedExpression.getResult(values);
+            ExpressionTemplate template = result.getExp() == null
+                    ? null
+                    : new ExpressionTemplate(ByteBuffer.wrap(Exp.build(result.getExp()).getBytes()), new int[0],
+                    new Marker[0]);
+            compiled = new CompiledExpression(fingerprint, result.getFilter(), template);
+            isStorable = (values == null || values.size() == 0) && isStorable(result.getFilter());
+        }
+
+        String key = key(expressionContext);
+        if (isStorable && key != null) {
+            append(key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Write appended entries to the storage device.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    public void flush() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return Snapshot of the store counters
+     */
+    public Stats getStats() {
+        int size = positions.size();
+        for (String key : entries.keySet()) {
+            if (!positions.containsKey(key)) size++;
+        }
+        return new Stats(hits.sum(), misses.sum(), size, loadedCount, discardedBytes);
+    }
+
+    private CompiledExpression lookup(String key) {
+        CompiledExpression compiled = entries.get(key);
+        if (compiled != null) return compiled;
+
+        Integer position = positions.get(key);
+        if (position == null) return null;
+        // Decoded once, later appends for the key replace the decoded entry
+        return entries.computeIfAbsent(key, ignored -> readEntry(mapped, position));
+    }
+
+    private void append(String key, CompiledExpression compiled) {
+        byte[] body = writeEntry(key, compiled);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + body.length);
+        buffer.putInt(body.length).putInt((int) crc.getValue()).put(body).flip();
+
+        appendLock.lock();
+        try {
+            writeFully(channel, buffer, appendPosition);
+            appendPosition += buffer.capacity();
+            entries.put(key, compiled);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write compiled expression", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private static String key(ExpressionContext expressionContext) {
+        String signature = ExpressionTemplate.signature(expressionContext.getValues());
+        return signature == null ? null : expressionContext.getExpression() + '\0' + signature;
+    }
+
+    /**
+     * @return Stamp describing the format of stored entries
+     */
+    static String versionStamp(String contextStamp) {
+        String libraryVersion = CompiledExpressionStore.class.getPackage().getImplementationVersion();
+        return "format=" + FORMAT_VERSION
+                + ";grammar=" + sha256Hex(ConditionParser._serializedATN.getBytes(StandardCharsets.UTF_8))
+                + ";library=" + (libraryVersion == null ? "dev" : libraryVersion)
+                + ";context=" + contextStamp;
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] header(String versionStamp) {
+        byte[] stamp = versionStamp.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(12 + stamp.length)
+                .putInt(MAGIC).putInt(FORMAT_VERSION).putInt(stamp.length).put(stamp)
+                .array();
+    }
+
+    private static boolean hasHeader(FileChannel channel, byte[] header) throws IOException {
+        if (channel.size() < header.length) return false;
+
+        ByteBuffer buffer = ByteBuffer.allocate(header.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) return false;
+        }
+        return buffer.flip().equals(ByteBuffer.wrap(header));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Entry layout: body length, CRC32 of the body, body
+     *
+     * @return Position of the body of the entry at the given position, or {@link #NO_VALUE} if there is
+     * no complete entry
+     */
+    private static int validEntryBody(ByteBuffer mapped, int position) {
+        if (position + 8 > mapped.capacity()) return NO_VALUE;
+
+        int length = mapped.getInt(position);
+        int bodyPosition = position + 8;
+        if (length < 4 || length > mapped.capacity() - bodyPosition) return NO_VALUE;
+
+        CRC32 crc = new CRC32();
+        crc.update(mapped.slice(bodyPosition, length));
+        return (int) crc.getValue() == mapped.getInt(position + 4) ? bodyPosition : NO_VALUE;
+    }
+
+    /**
+     * Body layout: key, fingerprint, filter, skeleton of the packed expression, placeholder slots
+     */
+    private static byte[] writeEntry(String key, CompiledExpression compiled) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeBytes(out, key.getBytes(StandardCharsets.UTF_8));
+            out.write(HexFormat.of().parseHex(compiled.getFingerprint()));
+            writeFilter(out, compiled.getFilter());
+
+            ExpressionTemplate template = compiled.getTemplate();
+            if (template == null) {
+                out.writeInt(NO_VALUE);
+                return bytes.toByteArray();
+            }
+            ByteBuffer skeleton = template.getSkeleton();
+            byte[] skeletonBytes = new byte[skeleton.capacity()];
+            skeleton.get(0, skeletonBytes);
+            writeBytes(out, skeletonBytes);
+            out.writeInt(template.getPositions().length);
+            for (int i = 0; i < template.getPositions().length; i++) {
+                Marker marker = template.getMarkers()[i];
+                out.writeInt(template.getPositions()[i]);
+                out.writeInt(marker.getIndex());
+                out.writeBoolean(marker.isBlob());
+            }
+        } catch (IOException e) {
+            // Not thrown when writing to memory
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CompiledExpression readEntry(ByteBuffer mapped, int bodyPosition) {
+        ByteBuffer in = mapped.duplicate().position(bodyPosition);
+        in.position(in.position() + 4 + in.getInt());
+        byte[] fingerprint = new byte[16];
+        in.get(fingerprint);
+        Filter filter = readFilter(in);
+
+        ExpressionTemplate template = null;
+        int skeletonLength = in.getInt();
+        if (skeletonLength != NO_VALUE) {
+            // The skeleton is not copied, it is read from the mapped file when binding
+            ByteBuffer skeleton = mapped.slice(in.position(), skeletonLength);
+            in.position(in.position() + skeletonLength);
+            int slots = in.getInt();
+            int[] positions = new int[slots];
+            Marker[] markers = new Marker[slots];
+            for (int i = 0; i < slots; i++) {
+                positions[i] = in.getInt();
+                markers[i] = new Marker(in.getInt(), in.get() != 0);
+            }
+            template = new ExpressionTemplate(skeleton, positions, markers);
+        }
+        return new CompiledExpression(HexFormat.of().formatHex(fingerprint), filter, template);
+    }
+
+    /**
+     * @return Whether the filter can be restored from its description, the DSL builds equality
+     * and range filters of bins only
+     */
+    private static boolean isStorable(Filter filter) {
+        if (filter == null) return true;
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writeFilter(new DataOutputStream(bytes), filter);
+            return filter.equals(readFilter(ByteBuffer.wrap(bytes.toByteArray())));
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void writeFilter(DataOutputStream out, Filter filter) throws IOException {
+        if (filter == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        if (filter.getName() == null || filter.getPackedExp() != null) {
+            throw new IllegalArgumentException("Only filters of bins can be stored");
+        }
+        out.writeBoolean(true);
+        out.writeByte(filter.getFilterType().ordinal());
+        writeBytes(out, filter.getName().getBytes(StandardCharsets.UTF_8));
+        out.writeByte(filter.getColType().ordinal());
+        writeValue(out, filter.getBegin());
+        writeValue(out, filter.getEnd());
+        if (filter.getPackedCtx() == null) {
+            out.writeInt(NO_VALUE);
+        } else {
+            writeBytes(out, filter.getPackedCtx());
+        }
+    }
+
+    private static Filter readFilter(ByteBuffer in) {
+        if (in.get() == 0) return null;
+
+        Filter.FilterType filterType = Filter.FilterType.values()[in.get()];
+        String name = readString(in, in.position());
+        in.position(in.position() + 4 + in.getInt(in.position()));
+        IndexCollectionType colType = IndexCollectionType.values()[in.get()];
+        Object begin = readValue(in);
+        Object end = readValue(in);
+        int ctxLength = in.getInt();
+        CTX[] ctx = new CTX[0];
+        if (ctxLength != NO_VALUE) {
+            byte[] packedCtx = new byte[ctxLength];
+            in.get(packedCtx);
+            ctx = CTX.fromBytes(packedCtx);
+        }
+
+        return switch (filterType) {
+            case EQ -> {
+                if (begin instanceof Long value) yield Filter.equal(name, value, ctx);
+                if (begin instanceof String value) yield Filter.equal(name, value, ctx);
+                yield Filter.equal(name, (byte[]) begin, ctx);
+            }
+            case RANGE -> Filter.range(name, colType, (Long) begin, (Long) end, ctx);
+            default -> throw new IllegalArgumentException("Unsupported filter type: " + filterType);
+        };
+    }
+
+    private static void writeValue(DataOutputStream out, Value value) throws IOException {
+        if (value instanceof Value.LongValue) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong((Long) value.getObject());
+        } else if (value instanceof Value.StringValue) {
+            out.writeByte(STRING_VALUE);
+            writeBytes(out, ((String) value.getObject()).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Value.BytesValue) {
+            out.writeByte(BYTES_VALUE);
+            writeBytes(out, (byte[]) value.getObject());
+        } else {
+            throw new IllegalArgumentException("Unsupported filter value: " + value);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte type = in.get();
+        if (type == LONG_VALUE) return in.getLong();
+
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return type == STRING_VALUE ? new String(bytes, StandardCharsets.UTF_8) : bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return String of the length-prefixed UTF-8 bytes at the given position
+     */
+    private static String readString(ByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Point-in-time snapshot of {@link CompiledExpressionStore} counters.
+     */
+    @AllArgsConstructor
+    @Getter
+    public static class Stats {
+
+        /**
+         * Amount of lookups that found a compiled expression
+         */
+        private final long hitCount;
+        /**
+         * Amount of lookups that did not find a compiled expression
+         */
+        private final long missCount;
+        /**
+         * Current amount of stored keys
+         */
+        private final int size;
+        /**
+         * Amount of entries read from the file when opening, including replaced ones
+         */
+        private final int loadedCount;
+        /**
+         * Amount of bytes discarded when opening, because of a different version stamp or a partially written entry
+         */
+        private final long discardedBytes;
+    }
+}
@@ -0,0 +1,187 @@
+package com.aerospike.dsl;
+
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.util.Packer;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.operand.OperandFactory;
+import com.aerospike.dsl.parts.operand.PlaceholderMarkers;
+import com.aerospike.dsl.parts.operand.PlaceholderMarkers.Marker;
+import com.aerospike.dsl.parts.operand.StringOperand;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.aerospike.dsl.visitor.VisitorUtils.buildTemplateExp;
+
+/**
+ * Packed filter expression bytes with recorded positions of placeholder values.
+ * <p>
+ * The structure of a packed expression depends only on the types of placeholder values, so a template built once
+ * for a {@link #signature(PlaceholderValues) signature} of values produces {@link Expression} for any other values
+ * with the same signature by inserting the packed values into the template, without building and packing
+ * {@link Exp} again.
+ * <p>
+ * The skeleton can be a slice of a memory-mapped file, see {@link CompiledExpressionStore}.
+ */
+final class ExpressionTemplate {
+
+    // Packed expression without placeholder values, read using absolute positions only
+    private final ByteBuffer skeleton;
+    // Positions in the skeleton to insert placeholder values at, ascending
+    private final int[] positions;
+    private final Marker[] markers;
+
+    /**
+     * @param skeleton  Packed expression without placeholder values, from index 0 to its capacity
+     * @param positions Positions in the skeleton to insert placeholder values at, ascending
+     * @param markers   Placeholder values to insert at the respective positions
+     */
+    ExpressionTemplate(ByteBuffer skeleton, int[] positions, Marker[] markers) {
+        this.skeleton = skeleton;
+        this.positions = positions;
+        this.markers = markers;
+    }
+
+    /**
+     * Build a template by packing filter {@link Exp} of the given expression tree with placeholder values
+     * replaced by markers, and then cutting the markers out.
+     *
+     * @param expr              Expression tree without secondary indexes
+     * @param placeholderValues Values to build the template with, determine the signature of the template
+     * @return A new template, or null if the expression tree does not produce filter {@link Exp}
+     * @throws DslParseException If there was an error
+     */
+    static ExpressionTemplate of(ExpressionContainer expr, PlaceholderValues placeholderValues) {
+        PlaceholderMarkers placeholderMarkers = new PlaceholderMarkers();
+        Exp exp = buildTemplateExp(expr, placeholderValues, placeholderMarkers);
+        if (exp == null) return null;
+
+        Packer packer = new Packer();
+        exp.pack(packer);
+        byte[] packed = packer.toByteArray();
+
+        List<Integer> positions = new ArrayList<>();
+        List<Marker> markers = new ArrayList<>();
+        byte[] skeleton = new byte[packed.length];
+        int size = 0;
+        int offset = 0;
+        while (offset < packed.length) {
+            Marker marker = placeholderMarkers.find(packed, offset);
+            if (marker != null) {
+                positions.add(size);
+                markers.add(marker);
+                offset += placeholderMarkers.getMarkerSize();
+            } else {
+                skeleton[size++] = packed[offset++];
+            }
+        }
+        return new ExpressionTemplate(ByteBuffer.wrap(Arrays.copyOf(skeleton, size)),
+                positions.stream().mapToInt(Integer::intValue).toArray(), markers.toArray(new Marker[0]));
+    }
+
+    /**
+     * Produce packed filter expression for the given values by inserting them into the template.
+     *
+     * @param placeholderValues Values with the same signature as the ones the template was built with
+     * @return {@link Expression} equal to the one packed from filter {@link Exp} built for the given values
+     */
+    Expression bind(PlaceholderValues placeholderValues) {
+        if (markers.length == 0) {
+            byte[] bytes = new byte[skeleton.capacity()];
+            skeleton.get(0, bytes);
+            return Expression.fromBytes(bytes);
+        }
+
+        // Pack the values one after another, then copy them between the parts of the skeleton
+        Packer packer = new Packer();
+        int[] ends = new int[markers.length];
+        for (int i = 0; i < markers.length; i++) {
+            Marker marker = markers[i];
+            getValueExp(placeholderValues.getValue(marker.getIndex()), marker.isBlob()).pack(packer);
+            ends[i] = packer.size();
+        }
+        byte[] values = packer.toByteArray();
+
+        byte[] bytes = new byte[skeleton.capacity() + values.length];
+        int skeletonOffset = 0;
+        int valuesOffset = 0;
+        int offset = 0;
+        for (int i = 0; i < markers.length; i++) {
+            int length = positions[i] - skeletonOffset;
+            skeleton.get(skeletonOffset, bytes, offset, length);
+            offset += length;
+            skeletonOffset = positions[i];
+            length = ends[i] - valuesOffset;
+            System.arraycopy(values, valuesOffset, bytes, offset, length);
+            offset += length;
+            valuesOffset = ends[i];
+        }
+        skeleton.get(skeletonOffset, bytes, offset, skeleton.capacity() - skeletonOffset);
+        return Expression.fromBytes(bytes);
+    }
+
+    /**
+     * @return Packed expression without placeholder values, a read-only view sharing the template's bytes
+     */
+    ByteBuffer getSkeleton() {
+        return skeleton.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return Positions in the skeleton to insert placeholder values at, ascending
+     */
+    int[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return Placeholder values to insert at the respective {@link #getPositions() positions}
+     */
+    Marker[] getMarkers() {
+        return markers;
+    }
+
+    private static Exp getValueExp(Object value, boolean isBlob) {
+        if (isBlob) {
+            return new StringOperand((String) value).getBlobExp();
+        }
+        return OperandFactory.createOperand(value).getExp();
+    }
+
+    /**
+     * Describe types of the given values that affect the structure of a packed expression.
+     * Lists are described by the types of their elements, as they are used to infer bin types.
+     *
+     * @param placeholderValues Placeholder values, can be null
+     * @return Signature of the values, or null if there is a value of unsupported type
+     */
+    static String signature(PlaceholderValues placeholderValues) {
+        if (placeholderValues == null) return "null";
+
+        StringBuilder signature = new StringBuilder();
+        for (int i = 0; i < placeholderValues.size(); i++) {
+            Object value = placeholderValues.getValue(i);
+            if (value instanceof List<?> list) {
+                Set<Class<?>> elementTypes = new LinkedHashSet<>();
+                for (Object element : list) {
+                    elementTypes.add(element == null ? null : element.getClass());
+                }
+                signature.append("List").append(elementTypes);
+            } else if (value instanceof String || value instanceof Boolean || value instanceof Long
+                    || value instanceof Integer || value instanceof Double || value instanceof Float
+                    || value instanceof Map) {
+                signature.append(value.getClass().getName());
+            } else {
+                return null;
+            }
+            signature.append(',');
+        }
+        return signature.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.aerospike.dsl;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.optimizer.ExpressionNormalizer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of normalizing a DSL expression with {@link ExpressionNormalizer}: a {@link ParsedExpression}
+ * of the normalized tree, where literals are replaced by placeholders, the values extracted from the literals,
+ * and a fingerprint of the normalized tree.
+ * <p>
+ * Expressions that differ only in literal values (of the same types), whitespace or the order of {@code and}
+ * and {@code or} operands get the same fingerprint, so one {@link ParsedExpression} can be shared by all of them,
+ * e.g.:
+ * <pre>{@code
+ * NormalizedExpression normalized = parser.normalizeExpression(ExpressionContext.of(dsl));
+ * Expression expression = templates
+ *         .computeIfAbsent(normalized.getFingerprint(), fingerprint -> normalized.getParsedExpression())
+ *         .getExpression(normalized.getPlaceholderValues());
+ * }</pre>
+ * The shared {@link ParsedExpression} packs the expression once and then only replaces the values,
+ * see {@link ParsedExpression#getExpression(PlaceholderValues)}. The fingerprint does not depend on secondary
+ * indexes, so parsed expressions should only be shared between inputs parsed with the same {@link IndexContext}.
+ */
+@Beta
+@Getter
+@AllArgsConstructor
+public class NormalizedExpression {
+
+    /**
+     * 128-bit hex fingerprint of the normalized expression tree, stable across processes
+     */
+    private final String fingerprint;
+    /**
+     * Parsed normalized expression tree, its placeholder values given at parsing are the extracted values
+     */
+    private final ParsedExpression parsedExpression;
+    /**
+     * Values extracted from the literals and placeholders of the expression in the order of the normalized tree
+     */
+    private final PlaceholderValues placeholderValues;
+
+    /**
+     * @return Packed filter {@link Expression} of the normalized tree bound with the extracted values,
+     * or null if there is no filter expression
+     * @throws DslParseException If there was an error
+     */
+    public Expression getExpression() {
+        return parsedExpression.getExpression(placeholderValues);
+    }
+}
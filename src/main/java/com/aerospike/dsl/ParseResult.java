@@ -2,6 +2,8 @@ package com.aerospike.dsl;
 
 import com.aerospike.dsl.client.exp.Exp;
 import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.optimizer.OptimizationReport;
+import com.aerospike.dsl.planner.IndexPlan;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
@@ -21,4 +23,24 @@ public class ParseResult {
      * Filter {@link Exp}. Can be null in case of invalid or unsupported DSL string
      */
     Exp exp;
+    /**
+     * {@link IndexPlan} describing how the secondary index {@link Filter} was chosen,
+     * empty if there were no indexes to choose from
+     */
+    IndexPlan indexPlan;
+    /**
+     * Changes made by the optimizer after placeholder values were substituted, e.g.,
+     * {@link com.aerospike.dsl.optimizer.RangeMerging#EMPTY_RANGES} for {@code $.a > ?0 and $.a < ?1}
+     * with values leaving no integer. Empty if there were no placeholders to substitute, null if the parser
+     * has no optimizer. Changes made at parsing are reported by {@link ParsedExpression#getOptimizationReport()}
+     */
+    OptimizationReport optimizationReport;
+
+    public ParseResult(Filter filter, Exp exp) {
+        this(filter, exp, IndexPlan.empty());
+    }
+
+    public ParseResult(Filter filter, Exp exp, IndexPlan indexPlan) {
+        this(filter, exp, indexPlan, null);
+    }
 }
@@ -2,31 +2,71 @@ package com.aerospike.dsl;
 
 import com.aerospike.dsl.annotation.Beta;
 import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
 import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.metrics.DslMetrics;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import com.aerospike.dsl.optimizer.OptimizationReport;
 import com.aerospike.dsl.parts.AbstractPart;
 import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.planner.EvaluationCost;
+import com.aerospike.dsl.planner.IndexPlan;
+import com.aerospike.dsl.planner.IndexPlanner;
+import com.aerospike.dsl.planner.PlanExplanation;
+import com.aerospike.dsl.planner.RejectedIndex;
+import com.aerospike.dsl.planner.UnionPlan;
+import lombok.AccessLevel;
+import lombok.Builder;
 import lombok.Getter;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.aerospike.dsl.parts.AbstractPart.PartType.EXPRESSION_CONTAINER;
 import static com.aerospike.dsl.visitor.VisitorUtils.buildExpr;
+import static com.aerospike.dsl.visitor.VisitorUtils.buildUnionPlan;
+import static com.aerospike.dsl.visitor.VisitorUtils.explainExpr;
 
 /**
  * A class to build and store the results of DSL expression parsing: parsed {@code expressionTree}, {@code indexesMap}
  * of given indexes, {@code placeholderValues} to match with placeholders and {@link ParseResult} that holds
  * a potential secondary index {@link Filter} and a potential {@link Exp}.
+ * <p>
+ * The expression tree is not modified when building results, so an instance can be parsed once and then
+ * bound with different {@link PlaceholderValues} via {@link #getResult(PlaceholderValues)}, concurrently
+ * from multiple threads. Each call produces a new {@link ParseResult}.
+ * <p>
+ * When only packed filter expression is needed, {@link #getExpression(PlaceholderValues)} reuses bytes packed
+ * for previous values of the same types and only replaces the placeholder values.
+ * <p>
+ * If the parser has an {@link ExpressionOptimizer}, the stored expression tree is already optimized,
+ * and the optimizer is applied again after placeholders are resolved.
  */
 @Beta
 @Getter
 public class ParsedExpression {
 
+    private static final int MAX_TEMPLATES = 16;
+
     private final AbstractPart expressionTree;
     private final Map<String, List<Index>> indexesMap;
     private final String preferredBin;
     private final PlaceholderValues placeholderValues;
-    private ParseResult result;
+    /**
+     * Changes made by the optimizer to the parsed expression tree, null if the parser has no optimizer
+     */
+    private final OptimizationReport optimizationReport;
+    @Getter(AccessLevel.NONE)
+    private final ExpressionOptimizer optimizer;
+    @Getter(AccessLevel.NONE)
+    private final IndexPlanner indexPlanner;
+    @Getter(AccessLevel.NONE)
+    private final DslMetrics metrics;
+    private volatile ParseResult result;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, ExpressionTemplate> templates = new ConcurrentHashMap<>();
 
     public ParsedExpression(AbstractPart exprTree, PlaceholderValues placeholderValues,
                             Map<String, List<Index>> indexesMap) {
@@ -35,10 +75,35 @@ public class ParsedExpression {
 
     public ParsedExpression(AbstractPart exprTree, PlaceholderValues placeholderValues,
                             Map<String, List<Index>> indexesMap, String preferredBin) {
+        this(exprTree, placeholderValues, indexesMap, preferredBin, null, null, null, null);
+    }
+
+    /**
+     * Create a parsed expression with the given settings, available via {@code ParsedExpression.builder()}.
+     *
+     * @param exprTree           Parsed expression tree, already optimized if there is an optimizer
+     * @param placeholderValues  {@link PlaceholderValues} given at parsing, can be null
+     * @param indexesMap         Secondary indexes keyed by bin name
+     * @param preferredBin       Bin name hint for choosing secondary index, can be null
+     * @param optimizer          {@link ExpressionOptimizer} to apply after resolving placeholders, can be null
+     * @param optimizationReport Changes made by the optimizer to the expression tree, can be null
+     * @param indexPlanner       {@link IndexPlanner} choosing secondary index, the legacy selection is used if null
+     * @param metrics            {@link DslMetrics} to record timings of building results to. If null,
+     *                           {@link DslMetrics#NOOP} is used
+     */
+    @Builder
+    ParsedExpression(AbstractPart exprTree, PlaceholderValues placeholderValues,
+                     Map<String, List<Index>> indexesMap, String preferredBin,
+                     ExpressionOptimizer optimizer, OptimizationReport optimizationReport,
+                     IndexPlanner indexPlanner, DslMetrics metrics) {
+        this.metrics = metrics == null ? DslMetrics.NOOP : metrics;
+        this.indexPlanner = indexPlanner;
         this.expressionTree = exprTree;
         this.placeholderValues = placeholderValues;
         this.indexesMap = indexesMap;
         this.preferredBin = preferredBin;
+        this.optimizer = optimizer;
+        this.optimizationReport = optimizationReport;
     }
 
     /**
@@ -64,13 +129,149 @@ public class ParsedExpression {
     public ParseResult getResult(PlaceholderValues placeholderValues) {
         if (expressionTree != null) {
             if (expressionTree.getPartType() == EXPRESSION_CONTAINER) {
-                AbstractPart resultPart = buildExpr(
-                        (ExpressionContainer) expressionTree, placeholderValues, indexesMap, preferredBin);
-                return new ParseResult(resultPart.getFilter(), resultPart.getExp());
+                return buildExpr((ExpressionContainer) expressionTree, placeholderValues, indexesMap, preferredBin,
+                        optimizer, indexPlanner, metrics);
             } else {
-                return new ParseResult(expressionTree.getFilter(), expressionTree.getExp());
+                return new ParseResult(expressionTree.getFilter(), expressionTree.getExp(), IndexPlan.empty(),
+                        optimizer == null ? null : new OptimizationReport());
             }
         }
         return new ParseResult(null, null);
     }
+
+    /**
+     * @return {@link UnionPlan} built using the placeholder values given at parsing,
+     * see {@link #getUnionPlan(PlaceholderValues)}
+     * @throws DslParseException If there was an error
+     */
+    public UnionPlan getUnionPlan() {
+        return getUnionPlan(placeholderValues);
+    }
+
+    /**
+     * Plan a top-level {@code or} as a union of secondary index queries, one per disjunct, instead of
+     * the scan of all records that {@link #getResult(PlaceholderValues)} results in. The queries do not overlap,
+     * so they can be run in parallel and their records concatenated.
+     *
+     * @param placeholderValues {@link PlaceholderValues} to match with placeholders by index
+     * @return {@link UnionPlan} with a secondary index {@link Filter} and filter {@link Exp} per disjunct,
+     * or null if the expression is not an {@code or}, or a Filter cannot be built for every disjunct
+     * @throws DslParseException If there was an error
+     */
+    public UnionPlan getUnionPlan(PlaceholderValues placeholderValues) {
+        if (expressionTree == null || expressionTree.getPartType() != EXPRESSION_CONTAINER) return null;
+
+        return buildUnionPlan((ExpressionContainer) expressionTree, placeholderValues, indexesMap, preferredBin,
+                optimizer, indexPlanner);
+    }
+
+    /**
+     * @return {@link PlanExplanation} of the result built using the placeholder values given at parsing,
+     * see {@link #explain(PlaceholderValues)}
+     * @throws DslParseException If there was an error
+     */
+    public PlanExplanation explain() {
+        return explain(placeholderValues);
+    }
+
+    /**
+     * Build the result using the given placeholder values and explain it: the secondary index {@link Filter}
+     * and the expression it replaces, the scored index candidates, the indexes that were not used and why,
+     * and the estimated per-record cost of the remaining filter {@link Exp}.
+     *
+     * @param placeholderValues {@link PlaceholderValues} to match with placeholders by index
+     * @return {@link PlanExplanation} with the same Filter and Exp as {@link #getResult(PlaceholderValues)}
+     * @throws DslParseException If there was an error
+     */
+    public PlanExplanation explain(PlaceholderValues placeholderValues) {
+        if (expressionTree != null && expressionTree.getPartType() == EXPRESSION_CONTAINER) {
+            return explainExpr((ExpressionContainer) expressionTree, placeholderValues, indexesMap, preferredBin,
+                    optimizer, indexPlanner);
+        }
+        ParseResult parseResult = getResult(placeholderValues);
+        List<RejectedIndex> rejectedIndexes = indexesMap == null
+                ? List.of()
+                : indexesMap.values().stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Index::getBin).thenComparing(Index::getName))
+                .map(index -> new RejectedIndex(index, RejectedIndex.Reason.NOT_COMPARED, null))
+                .toList();
+        return new PlanExplanation(parseResult.getFilter(), parseResult.getExp(), parseResult.getIndexPlan(),
+                rejectedIndexes, EvaluationCost.of(parseResult.getExp()));
+    }
+
+    /**
+     * @return Packed filter {@link Expression} built using the placeholder values given at parsing,
+     * see {@link #getExpression(PlaceholderValues)}
+     * @throws DslParseException If there was an error
+     */
+    public Expression getExpression() {
+        return getExpression(placeholderValues);
+    }
+
+    /**
+     * Build packed filter {@link Expression} using the given placeholder values. The result is equal to
+     * {@code Exp.build(getResult(placeholderValues).getExp())}.
+     * <p>
+     * Without secondary indexes, the expression is packed once per combination of placeholder value types
+     * (for lists, also types of their elements) into a template, subsequent calls with values of the same types
+     * only replace the packed placeholder values. With secondary indexes, the expression is built as usual,
+     * because the chosen {@link Filter} depends on the values. The same applies to placeholder values
+     * when there is an {@link ExpressionOptimizer}, because the optimized expression depends on the values.
+     *
+     * @param placeholderValues {@link PlaceholderValues} to match with placeholders by index
+     * @return Packed filter {@link Expression}, or null if there is no filter {@link Exp}
+     * @throws DslParseException If there was an error
+     */
+    public Expression getExpression(PlaceholderValues placeholderValues) {
+        if (!isTemplateApplicable(placeholderValues)) {
+            Exp exp = getResult(placeholderValues).getExp();
+            if (exp == null) return null;
+
+            long start = metrics.isEnabled() ? System.nanoTime() : 0;
+            return recordPack(Exp.build(exp), start);
+        }
+
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        ExpressionTemplate template = getTemplate(placeholderValues);
+        return template == null ? null : recordPack(template.bind(placeholderValues), start);
+    }
+
+    private Expression recordPack(Expression expression, long start) {
+        if (metrics.isEnabled()) {
+            metrics.recordPhase(DslMetrics.Phase.PACK, System.nanoTime() - start);
+            metrics.recordDistribution(DslMetrics.Distribution.PACKED_SIZE, expression.getBytes().length);
+        }
+        return expression;
+    }
+
+    /**
+     * @return Whether the packed expression depends only on the signature of the given values,
+     * so that it can be built from {@link ExpressionTemplate}
+     */
+    boolean isTemplateApplicable(PlaceholderValues placeholderValues) {
+        return expressionTree != null && expressionTree.getPartType() == EXPRESSION_CONTAINER
+                && (indexesMap == null || indexesMap.isEmpty())
+                && (optimizer == null || placeholderValues == null || placeholderValues.size() == 0)
+                && ExpressionTemplate.signature(placeholderValues) != null;
+    }
+
+    /**
+     * @return Template for the signature of the given values, built and cached on first use,
+     * or null if there is no filter expression
+     * @throws DslParseException If there was an error
+     * @see #isTemplateApplicable(PlaceholderValues)
+     */
+    ExpressionTemplate getTemplate(PlaceholderValues placeholderValues) {
+        String signature = ExpressionTemplate.signature(placeholderValues);
+        ExpressionTemplate template = templates.get(signature);
+        if (template == null) {
+            template = ExpressionTemplate.of((ExpressionContainer) expressionTree, placeholderValues);
+            if (template == null) return null;
+            if (templates.size() < MAX_TEMPLATES) {
+                templates.putIfAbsent(signature, template);
+            }
+        }
+        return template;
+    }
 }
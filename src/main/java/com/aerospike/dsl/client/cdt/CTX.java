@@ -19,10 +19,12 @@ package com.aerospike.dsl.client.cdt;
 import com.aerospike.dsl.client.AerospikeException;
 import com.aerospike.dsl.client.Value;
 import com.aerospike.dsl.client.util.Crypto;
+import com.aerospike.dsl.client.util.MsgPackReader;
 import com.aerospike.dsl.client.util.Pack;
+import com.aerospike.dsl.client.util.Packer;
 import com.aerospike.dsl.client.util.Unpacker;
 
-import java.util.List;
+import java.nio.ByteBuffer;
 
 /**
  * Nested CDT context.  Identifies the location of nested list/map to apply the operation.
@@ -114,31 +116,62 @@ public final class CTX {
         return Pack.pack(ctx);
     }
 
+    /**
+     * Serialize context array into the buffer, starting at its position.
+     * Return the buffer holding the bytes, which is a larger copy if the buffer was too small.
+     */
+    public static ByteBuffer toBytes(CTX[] ctx, ByteBuffer buffer) {
+        Packer packer = new Packer(buffer);
+        Pack.pack(packer, ctx);
+        return packer.getByteBuffer();
+    }
+
     /**
      * Deserialize bytes to context array.
      */
     public static CTX[] fromBytes(byte[] bytes) {
-        List<?> list = (List<?>) Unpacker.unpackObjectList(bytes, 0, bytes.length);
-        int max = list.size();
+        MsgPackReader reader = new MsgPackReader(bytes);
+        int max = reader.enterArray();
+
+        if (max % 2 != 0) {
+            throw new AerospikeException.Parse("List count must be even");
+        }
+
         CTX[] ctx = new CTX[max / 2];
-        int i = 0;
-        int count = 0;
 
-        while (i < max) {
-            int id = (int) (long) (Long) list.get(i);
+        for (int i = 0; i < ctx.length; i++) {
+            int id = (int) reader.readLong();
+            ctx[i] = new CTX(id, readValue(reader, bytes));
+        }
+        return ctx;
+    }
 
-            if (++i >= max) {
-                throw new AerospikeException.Parse("List count must be even");
-            }
+    private static Value readValue(MsgPackReader reader, byte[] bytes) {
+        switch (reader.nextType()) {
+            case INTEGER:
+                return Value.get(reader.readLong());
+
+            case STRING:
+                return Value.get(reader.readString());
 
+            case FLOAT:
+                return Value.get(reader.readDouble());
 
-            Object obj = list.get(i);
-            Value val = Value.get(obj);
+            case BOOLEAN:
+                return Value.get(reader.readBoolean());
 
-            ctx[count++] = new CTX(id, val);
-            i++;
+            case NIL:
+                reader.readNil();
+                return Value.NULL;
+
+            default: {
+                // Lists, maps and blobs are unpacked to objects.
+                int begin = reader.getPosition();
+                reader.skipValue();
+                Object obj = Unpacker.unpackObject(bytes, begin, reader.getPosition() - begin);
+                return Value.get(obj);
+            }
         }
-        return ctx;
     }
 
     /**
@@ -20,6 +20,7 @@ import com.aerospike.dsl.client.command.ParticleType;
 import com.aerospike.dsl.client.query.RegexFlag;
 import com.aerospike.dsl.client.util.Packer;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
@@ -62,6 +63,30 @@ public abstract class Exp {
         return new Expression(exp);
     }
 
+    /**
+     * Create final expression like {@link #build(Exp)}, but count the packed size first, so the instructions
+     * are packed into an array of exactly that size. The expression is walked twice, which is slower,
+     * but the thread local buffer is not grown and no spill chunks are allocated, so large expressions
+     * allocate less.
+     */
+    public static Expression buildExact(Exp exp) {
+        Packer packer = Packer.sizer();
+        exp.pack(packer);
+        packer.createBuffer();
+        exp.pack(packer);
+        return Expression.fromBytes(packer.toByteArray());
+    }
+
+    /**
+     * Pack expression byte instructions into the buffer, starting at its position.
+     * Return the buffer holding the instructions, which is a larger copy if the buffer was too small.
+     */
+    public static ByteBuffer build(Exp exp, ByteBuffer buffer) {
+        Packer packer = new Packer(buffer);
+        exp.pack(packer);
+        return packer.getByteBuffer();
+    }
+
     //--------------------------------------------------
     // Record Key
     //--------------------------------------------------
@@ -24,6 +24,7 @@ import com.aerospike.dsl.client.exp.Expression;
 import com.aerospike.dsl.client.util.Pack;
 import lombok.Getter;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -673,6 +674,34 @@ public final class Filter {
         return offset;
     }
 
+    /**
+     * Write filter into the buffer, starting at its position, in the format of {@link #write(byte[], int)}.
+     * Return the buffer holding the bytes, which is a larger copy of the same kind if the buffer was too small.
+     * Filter values are written into the backing array of a heap buffer, and copied into a direct buffer.
+     * For internal use only.
+     */
+    public ByteBuffer write(ByteBuffer buffer) {
+        int size = Buffer.estimateSizeUtf8(name) + 2 + begin.estimateSize() + 4 + end.estimateSize() + 4;
+
+        if (buffer.remaining() < size) {
+            int capacity = Math.max(2 * buffer.capacity(), buffer.position() + size);
+            ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            buffer.flip();
+            buffer = larger.put(buffer).order(buffer.order());
+        }
+
+        if (buffer.hasArray()) {
+            int offset = write(buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(offset - buffer.arrayOffset());
+        }
+        else {
+            byte[] bytes = new byte[size];
+            write(bytes, 0);
+            buffer.put(bytes);
+        }
+        return buffer;
+    }
+
     /**
      * Retrieve index collection type.
      * For internal use only.
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2012-2026 Aerospike, Inc.
+ *
+ * Portions may be licensed to Aerospike, Inc. under one or more contributor
+ * license agreements WHICH ARE COMPATIBLE WITH THE APACHE LICENSE, VERSION 2.0.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.aerospike.dsl.client.util;
+
+import com.aerospike.dsl.client.AerospikeException;
+import com.aerospike.dsl.client.command.ParticleType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pull reader of values in MessagePack format, as packed by {@link Packer}:
+ *
+ * https://github.com/msgpack/msgpack/blob/master/spec.md
+ * <p>
+ * Unlike {@link Unpacker}, the reader does not build objects. The caller asks for the type of the next value
+ * and reads it as a primitive, skips it, or enters a list or a map and reads its elements one by one.
+ * Strings and byte arrays are left in the buffer, the caller gets their position and length. Reading does not
+ * allocate, so a reader can be reused for many buffers with {@link #reset(byte[], int, int)}.
+ * <p>
+ * Strings and byte arrays start with a {@link ParticleType} byte, which is not included in their length.
+ * Lists and maps may start with an extension element holding the order flags, which is skipped by
+ * {@link #enterArray()} and {@link #enterMap()} and is available from {@link #getFlags()}.
+ * <p>
+ * Invalid or truncated input throws {@link AerospikeException.Serialize}. A reader is not thread-safe.
+ */
+public final class MsgPackReader {
+
+    public enum ValueType {
+        NIL, BOOLEAN, INTEGER, FLOAT, STRING, BYTES, GEOJSON, ARRAY, MAP, EXTENSION
+    }
+
+    private byte[] array;
+    private ByteBuffer byteBuffer;
+    private int position;
+    private int limit;
+    private int flags;
+
+    public MsgPackReader(byte[] buffer) {
+        reset(buffer, 0, buffer.length);
+    }
+
+    public MsgPackReader(byte[] buffer, int offset, int length) {
+        reset(buffer, offset, length);
+    }
+
+    public MsgPackReader(ByteBuffer buffer) {
+        reset(buffer);
+    }
+
+    /**
+     * Read values from the array, positions are indexes in the array
+     */
+    public void reset(byte[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > buffer.length - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length
+                    + ") out of bounds for length " + buffer.length);
+        }
+        this.array = buffer;
+        this.byteBuffer = null;
+        this.position = offset;
+        this.limit = offset + length;
+        this.flags = 0;
+    }
+
+    /**
+     * Read values between the position and the limit of the buffer, positions are indexes in the buffer.
+     * The position of the buffer is not changed.
+     */
+    public void reset(ByteBuffer buffer) {
+        this.array = null;
+        this.byteBuffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+        this.flags = 0;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Move to a position returned by {@link #getPosition()}, e.g., to read a value again
+     */
+    public void setPosition(int position) {
+        if (position < 0 || position > limit) {
+            throw new AerospikeException.Serialize("Invalid position: " + position);
+        }
+        this.position = position;
+    }
+
+    public boolean hasNext() {
+        return position < limit;
+    }
+
+    /**
+     * @return Flags of the last list or map entered, or 0 if it has no flags
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * @return Type of the next value, the position is not changed
+     */
+    public ValueType nextType() {
+        int type = peek();
+        if (type < 0x80 || type >= 0xe0) return ValueType.INTEGER;
+        if ((type & 0xe0) == 0xa0) return rawType(position + 1, type & 0x1f);
+        if ((type & 0xf0) == 0x80) return ValueType.MAP;
+        if ((type & 0xf0) == 0x90) return ValueType.ARRAY;
+
+        return switch (type) {
+            case 0xc0 -> ValueType.NIL;
+            case 0xc2, 0xc3 -> ValueType.BOOLEAN;
+            case 0xca, 0xcb -> ValueType.FLOAT;
+            case 0xcc, 0xcd, 0xce, 0xcf, 0xd0, 0xd1, 0xd2, 0xd3 -> ValueType.INTEGER;
+            case 0xc4, 0xd9 -> rawType(position + 2, (int) readUnsigned(position + 1, 1));
+            case 0xc5, 0xda -> rawType(position + 3, (int) readUnsigned(position + 1, 2));
+            case 0xc6, 0xdb -> rawType(position + 5, (int) readUnsigned(position + 1, 4));
+            case 0xdc, 0xdd -> ValueType.ARRAY;
+            case 0xde, 0xdf -> ValueType.MAP;
+            case 0xc7, 0xc8, 0xc9, 0xd4, 0xd5, 0xd6, 0xd7, 0xd8 -> ValueType.EXTENSION;
+            default -> throw new AerospikeException.Serialize("Unknown unpack type: " + type);
+        };
+    }
+
+    private ValueType rawType(int particlePosition, int length) {
+        if (length == 0) return ValueType.BYTES;
+        return switch (getByte(particlePosition)) {
+            case ParticleType.STRING -> ValueType.STRING;
+            case ParticleType.GEOJSON -> ValueType.GEOJSON;
+            default -> ValueType.BYTES;
+        };
+    }
+
+    public void readNil() {
+        if (peek() != 0xc0) throw typeMismatch(ValueType.NIL);
+        position++;
+    }
+
+    public boolean readBoolean() {
+        int type = peek();
+        if (type != 0xc2 && type != 0xc3) throw typeMismatch(ValueType.BOOLEAN);
+        position++;
+        return type == 0xc3;
+    }
+
+    /**
+     * Read an integer, unsigned 64 bit integers greater than {@link Long#MAX_VALUE} are read as negative
+     */
+    public long readLong() {
+        int type = peek();
+        if (type < 0x80) {
+            position++;
+            return type;
+        }
+        if (type >= 0xe0) {
+            position++;
+            return (byte) type;
+        }
+        long value = switch (type) {
+            case 0xcc -> readUnsigned(position + 1, 1);
+            case 0xcd -> readUnsigned(position + 1, 2);
+            case 0xce -> readUnsigned(position + 1, 4);
+            case 0xcf, 0xd3 -> readUnsigned(position + 1, 8);
+            case 0xd0 -> (byte) readUnsigned(position + 1, 1);
+            case 0xd1 -> (short) readUnsigned(position + 1, 2);
+            case 0xd2 -> (int) readUnsigned(position + 1, 4);
+            default -> throw typeMismatch(ValueType.INTEGER);
+        };
+        position += 1 + switch (type) {
+            case 0xcc, 0xd0 -> 1;
+            case 0xcd, 0xd1 -> 2;
+            case 0xce, 0xd2 -> 4;
+            default -> 8;
+        };
+        return value;
+    }
+
+    public double readDouble() {
+        int type = peek();
+        if (type == 0xca) {
+            float value = Float.intBitsToFloat((int) readUnsigned(position + 1, 4));
+            position += 5;
+            return value;
+        }
+        if (type == 0xcb) {
+            double value = Double.longBitsToDouble(readUnsigned(position + 1, 8));
+            position += 9;
+            return value;
+        }
+        throw typeMismatch(ValueType.FLOAT);
+    }
+
+    /**
+     * Read the header of a string, byte array or GeoJSON value and its particle type.
+     * The position is moved to the first byte of the content, read it with {@link #getByte(int)}
+     * or compare it with {@link #contentEquals(byte[], int)}, then move past it with {@link #skipBytes(int)}.
+     *
+     * @return Length of the content in bytes, without the particle type
+     */
+    public int readRawLength() {
+        int type = peek();
+        int length;
+        if ((type & 0xe0) == 0xa0) {
+            position++;
+            length = type & 0x1f;
+        } else {
+            int size = switch (type) {
+                case 0xc4, 0xd9 -> 1;
+                case 0xc5, 0xda -> 2;
+                case 0xc6, 0xdb -> 4;
+                default -> throw typeMismatch(ValueType.STRING);
+            };
+            length = checkLength(readUnsigned(position + 1, size));
+            position += 1 + size;
+        }
+        if (length == 0) return 0;
+        require(length);
+        position++;
+        return length - 1;
+    }
+
+    /**
+     * Read a string into a new {@link String}
+     */
+    public String readString() {
+        if (nextType() != ValueType.STRING) throw typeMismatch(ValueType.STRING);
+        int length = readRawLength();
+        String value;
+        if (array != null) {
+            value = new String(array, position, length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            byteBuffer.get(position, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        position += length;
+        return value;
+    }
+
+    /**
+     * @return Whether the content at the position, e.g., of a string after {@link #readRawLength()}, is equal to
+     * the bytes. The position is not changed.
+     */
+    public boolean contentEquals(byte[] bytes, int length) {
+        if (length != bytes.length) return false;
+        require(length);
+        for (int i = 0; i < length; i++) {
+            if (byteAt(position + i) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Byte at the position, which must be within the input
+     */
+    public byte getByte(int index) {
+        if (index < 0 || index >= limit) throw truncated();
+        return byteAt(index);
+    }
+
+    public void skipBytes(int count) {
+        require(count);
+        position += count;
+    }
+
+    /**
+     * Read the header of a list
+     *
+     * @return Number of elements, without the extension element holding the list flags
+     */
+    public int enterArray() {
+        int type = peek();
+        int count;
+        if ((type & 0xf0) == 0x90) {
+            position++;
+            count = type & 0x0f;
+        } else if (type == 0xdc || type == 0xdd) {
+            int size = type == 0xdc ? 2 : 4;
+            count = checkLength(readUnsigned(position + 1, size));
+            position += 1 + size;
+        } else {
+            throw typeMismatch(ValueType.ARRAY);
+        }
+        flags = 0;
+        if (count > 0 && isFlagsExtension()) {
+            flags = byteAt(position + 2) & 0xff;
+            position += 3;
+            count--;
+        }
+        return count;
+    }
+
+    /**
+     * Read the header of a map, then read the keys and values in turn
+     *
+     * @return Number of entries, without the extension entry holding the map flags
+     */
+    public int enterMap() {
+        int type = peek();
+        int count;
+        if ((type & 0xf0) == 0x80) {
+            position++;
+            count = type & 0x0f;
+        } else if (type == 0xde || type == 0xdf) {
+            int size = type == 0xde ? 2 : 4;
+            count = checkLength(readUnsigned(position + 1, size));
+            position += 1 + size;
+        } else {
+            throw typeMismatch(ValueType.MAP);
+        }
+        flags = 0;
+        if (count > 0 && isFlagsExtension()) {
+            flags = byteAt(position + 2) & 0xff;
+            position += 3;
+            skipValue();
+            count--;
+        }
+        return count;
+    }
+
+    private boolean isFlagsExtension() {
+        return position + 2 < limit && (byteAt(position) & 0xff) == 0xc7 && byteAt(position + 1) == 0;
+    }
+
+    /**
+     * Skip the next value, including the elements of a list or a map
+     */
+    public void skipValue() {
+        skipValues(1);
+    }
+
+    public void skipValues(long count) {
+        long remaining = count;
+        while (remaining > 0) {
+            remaining += skipHeader() - 1;
+        }
+    }
+
+    /**
+     * Skip the header of a value and the content of a scalar
+     *
+     * @return Number of nested values that follow the header
+     */
+    private long skipHeader() {
+        int type = peek();
+        position++;
+        if (type < 0x80 || type >= 0xe0) return 0;
+        if ((type & 0xe0) == 0xa0) {
+            skipBytes(type & 0x1f);
+            return 0;
+        }
+        if ((type & 0xf0) == 0x90) return type & 0x0f;
+        if ((type & 0xf0) == 0x80) return 2L * (type & 0x0f);
+
+        switch (type) {
+            case 0xc0, 0xc2, 0xc3 -> {
+            }
+            case 0xcc, 0xd0 -> skipBytes(1);
+            case 0xcd, 0xd1 -> skipBytes(2);
+            case 0xca, 0xce, 0xd2 -> skipBytes(4);
+            case 0xcb, 0xcf, 0xd3 -> skipBytes(8);
+            case 0xd4 -> skipBytes(2);
+            case 0xd5 -> skipBytes(3);
+            case 0xd6 -> skipBytes(5);
+            case 0xd7 -> skipBytes(9);
+            case 0xd8 -> skipBytes(17);
+            case 0xc4, 0xd9 -> skipBytes(readLength(1));
+            case 0xc5, 0xda -> skipBytes(readLength(2));
+            case 0xc6, 0xdb -> skipBytes(readLength(4));
+            case 0xc7 -> skipBytes(readLength(1) + 1);
+            case 0xc8 -> skipBytes(readLength(2) + 1);
+            case 0xc9 -> skipBytes(readLength(4) + 1);
+            case 0xdc -> {
+                return readLength(2);
+            }
+            case 0xdd -> {
+                return readLength(4);
+            }
+            case 0xde -> {
+                return 2L * readLength(2);
+            }
+            case 0xdf -> {
+                return 2L * readLength(4);
+            }
+            default -> throw new AerospikeException.Serialize("Unknown unpack type: " + type);
+        }
+        return 0;
+    }
+
+    private int readLength(int size) {
+        int length = checkLength(readUnsigned(position, size));
+        position += size;
+        return length;
+    }
+
+    private int peek() {
+        if (position >= limit) throw truncated();
+        return byteAt(position) & 0xff;
+    }
+
+    private byte byteAt(int index) {
+        return array != null ? array[index] : byteBuffer.get(index);
+    }
+
+    private long readUnsigned(int index, int size) {
+        if (index > limit - size) throw truncated();
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = value << 8 | (byteAt(index + i) & 0xff);
+        }
+        return value;
+    }
+
+    private void require(int count) {
+        if (count < 0 || count > limit - position) throw truncated();
+    }
+
+    private static int checkLength(long length) {
+        if (length > Integer.MAX_VALUE) {
+            throw new AerospikeException.Serialize("Length exceeds maximum: " + length);
+        }
+        return (int) length;
+    }
+
+    private static AerospikeException.Serialize truncated() {
+        return new AerospikeException.Serialize("Unexpected end of input");
+    }
+
+    private AerospikeException.Serialize typeMismatch(ValueType expected) {
+        return new AerospikeException.Serialize("Expected " + expected + " but found " + nextType()
+                + " at position " + position);
+    }
+}
@@ -369,12 +369,16 @@ public final class Pack {
 
     public static byte[] pack(CTX[] ctx) {
         Packer packer = new Packer();
+        pack(packer, ctx);
+        return packer.toByteArray();
+    }
+
+    public static void pack(Packer packer, CTX[] ctx) {
         packer.packArrayBegin(ctx.length * 2);
 
         for (CTX c : ctx) {
             packer.packInt(c.id);
             c.value.pack(packer);
         }
-        return packer.toByteArray();
     }
 }
@@ -23,6 +23,7 @@ import com.aerospike.dsl.client.command.Buffer;
 import com.aerospike.dsl.client.command.ParticleType;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -85,11 +86,40 @@ public final class Packer {
     private byte[] buffer;
     private int offset;
     private ArrayList<BufferItem> bufferList;
+    private ByteBuffer output;
+    private ByteBuffer target;
+    private int targetStart;
+    private boolean isExact;
 
     public Packer() {
         this.buffer = ThreadLocalData.getBuffer();
     }
 
+    private Packer(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Return packer that only counts the bytes of packed values. Pack the values, call {@link #createBuffer()}
+     * and pack the same values again to write them into a buffer of exactly their size.
+     */
+    public static Packer sizer() {
+        return new Packer((byte[])null);
+    }
+
+    /**
+     * Pack directly into the buffer, starting at its position. The position is advanced as values are packed.
+     * Heap and direct buffers are supported. When the remaining space is not enough, the contents are
+     * copied to a new buffer of the same kind, at least twice as large, so the buffer in use should be
+     * obtained from {@link #getByteBuffer()} when packing is done. The byte order of the buffer is not changed.
+     */
+    public Packer(ByteBuffer target) {
+        // Packed values are big-endian, they are written through a view, so the caller's order is kept
+        this.output = target;
+        this.target = target.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.targetStart = target.position();
+    }
+
     public void packValueArray(Value[] values) {
         packArrayBegin(values.length);
         for (Value value : values) {
@@ -410,22 +440,14 @@ public final class Packer {
     public void packString(String val) {
         int size = Buffer.estimateSizeUtf8(val);
         packStringBegin(size);
-
-        if (offset + size > buffer.length) {
-            resize(size);
-        }
-        offset += Buffer.stringToUtf8(val, buffer, offset);
+        writeUtf8(val, size);
     }
 
     public void packParticleString(String val) {
         int size = Buffer.estimateSizeUtf8(val) + 1;
         packStringBegin(size);
-
-        if (offset + size > buffer.length) {
-            resize(size);
-        }
-        buffer[offset++] = (byte)ParticleType.STRING;
-        offset += Buffer.stringToUtf8(val, buffer, offset);
+        packByte(ParticleType.STRING);
+        writeUtf8(val, size - 1);
     }
 
     private void packStringBegin(int size) {
@@ -444,6 +466,17 @@ public final class Packer {
     }
 
     public void packByteArray(byte[] src, int srcOffset, int srcLength) {
+        if (target != null) {
+            ensureTarget(srcLength);
+            target.put(src, srcOffset, srcLength);
+            return;
+        }
+
+        if (buffer == null) {
+            offset += srcLength;
+            return;
+        }
+
         if (offset + srcLength > buffer.length) {
             resize(srcLength);
         }
@@ -452,24 +485,26 @@ public final class Packer {
     }
 
     public void packDouble(double val) {
-        if (offset + 9 > buffer.length) {
-            resize(9);
-        }
-        buffer[offset++] = (byte)0xcb;
-        Buffer.longToBytes(Double.doubleToLongBits(val), buffer, offset);
-        offset += 8;
+        packLong(0xcb, Double.doubleToLongBits(val));
     }
 
     public void packFloat(float val) {
-        if (offset + 5 > buffer.length) {
-            resize(5);
-        }
-        buffer[offset++] = (byte)0xca;
-        Buffer.intToBytes(Float.floatToIntBits(val), buffer, offset);
-        offset += 4;
+        packInt(0xca, Float.floatToIntBits(val));
     }
 
     private void packLong(int type, long val) {
+        if (target != null) {
+            ensureTarget(9);
+            target.put((byte)type);
+            target.putLong(val);
+            return;
+        }
+
+        if (buffer == null) {
+            offset += 9;
+            return;
+        }
+
         if (offset + 9 > buffer.length) {
             resize(9);
         }
@@ -479,6 +514,18 @@ public final class Packer {
     }
 
     private void packInt(int type, int val) {
+        if (target != null) {
+            ensureTarget(5);
+            target.put((byte)type);
+            target.putInt(val);
+            return;
+        }
+
+        if (buffer == null) {
+            offset += 5;
+            return;
+        }
+
         if (offset + 5 > buffer.length) {
             resize(5);
         }
@@ -488,16 +535,23 @@ public final class Packer {
     }
 
     private void packShort(int type, int val) {
-        if (offset + 3 > buffer.length) {
-            resize(3);
-        }
-        buffer[offset++] = (byte)type;
-        Buffer.shortToBytes(val, buffer, offset);
-        offset += 2;
+        packByte(type);
+        packRawShort(val);
     }
 
     public void packRawShort(int val) {
         // WARNING. This method is not compatible with message pack standard.
+        if (target != null) {
+            ensureTarget(2);
+            target.putShort((short)val);
+            return;
+        }
+
+        if (buffer == null) {
+            offset += 2;
+            return;
+        }
+
         if (offset + 2 > buffer.length) {
             resize(2);
         }
@@ -506,58 +560,77 @@ public final class Packer {
     }
 
     private void packByte(int type, int val) {
-        if (offset + 2 > buffer.length) {
-            resize(2);
-        }
-        buffer[offset++] = (byte)type;
-        buffer[offset++] = (byte)val;
+        packByte(type);
+        packByte(val);
     }
 
     public void packBoolean(boolean val) {
-        if (offset + 1 > buffer.length) {
-            resize(1);
-        }
-
-        if (val) {
-            buffer[offset++] = (byte)0xc3;
-        }
-        else {
-            buffer[offset++] = (byte)0xc2;
-        }
+        packByte(val ? 0xc3 : 0xc2);
     }
 
     public void packNil() {
-        if (offset >= buffer.length) {
-            resize(1);
-        }
-        buffer[offset++] = (byte)0xc0;
+        packByte(0xc0);
     }
 
     public void packInfinity() {
-        if (offset + 3 > buffer.length) {
-            resize(3);
-        }
-        buffer[offset++] = (byte)0xd4;
-        buffer[offset++] = (byte)0xff;
-        buffer[offset++] = (byte)0x01;
+        packByte(0xd4, 0xff);
+        packByte(0x01);
     }
 
     public void packWildcard() {
-        if (offset + 3 > buffer.length) {
-            resize(3);
-        }
-        buffer[offset++] = (byte)0xd4;
-        buffer[offset++] = (byte)0xff;
-        buffer[offset++] = (byte)0x00;
+        packByte(0xd4, 0xff);
+        packByte(0x00);
     }
 
     public void packByte(int val) {
+        if (target != null) {
+            ensureTarget(1);
+            target.put((byte)val);
+            return;
+        }
+
+        if (buffer == null) {
+            offset++;
+            return;
+        }
+
         if (offset >= buffer.length) {
             resize(1);
         }
         buffer[offset++] = (byte)val;
     }
 
+    private void writeUtf8(String val, int size) {
+        if (target == null && buffer == null) {
+            offset += size;
+            return;
+        }
+
+        if (target == null) {
+            if (offset + size > buffer.length) {
+                resize(size);
+            }
+            offset += Buffer.stringToUtf8(val, buffer, offset);
+            return;
+        }
+
+        ensureTarget(size);
+
+        if (target.hasArray()) {
+            int position = target.position();
+            target.position(position + Buffer.stringToUtf8(val, target.array(), target.arrayOffset() + position));
+        }
+        else if (size == val.length()) {
+            // ASCII only.
+            for (int i = 0; i < size; i++) {
+                target.put((byte)val.charAt(i));
+            }
+        }
+        else {
+            target.put(Buffer.stringToUtf8(val));
+        }
+    }
+
     private void resize(int size) {
         if (bufferList == null) {
             bufferList = new ArrayList<BufferItem>();
@@ -571,7 +644,87 @@ public final class Packer {
         offset = 0;
     }
 
+    /**
+     * Replace target buffer with a buffer of the same kind, at least twice as large,
+     * if the remaining space is less than size.
+     */
+    private void ensureTarget(int size) {
+        if (target.remaining() >= size) {
+            return;
+        }
+
+        long capacity = Math.max(2L * target.capacity(), (long)target.position() + size);
+
+        if (capacity > Integer.MAX_VALUE) {
+            throw new AerospikeException.Serialize("Packed size exceeds maximum buffer size");
+        }
+
+        ByteBuffer larger = target.isDirect()
+                ? ByteBuffer.allocateDirect((int)capacity)
+                : ByteBuffer.allocate((int)capacity);
+        target.flip();
+        larger.put(target);
+        output = larger.order(output.order());
+        target = larger.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Allocate buffer of the size counted by a packer from {@link #sizer()}. Values packed from now on are
+     * written into the buffer, and {@link #toByteArray()} returns the buffer itself when it is full.
+     */
+    public void createBuffer() {
+        if (buffer != null || target != null) {
+            throw new IllegalStateException("Packer is not a sizer or the buffer is already created");
+        }
+        buffer = new byte[offset];
+        offset = 0;
+        isExact = true;
+    }
+
+    /**
+     * Return amount of bytes packed so far.
+     */
+    public int size() {
+        if (target != null) {
+            return target.position() - targetStart;
+        }
+
+        int size = offset;
+        if (bufferList != null) {
+            for (BufferItem item : bufferList) {
+                size += item.length;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Return buffer holding the packed bytes, which is a new buffer if the buffer given to
+     * {@link #Packer(ByteBuffer)} was too small. Packed bytes end at the position of the returned buffer,
+     * its byte order is the order of the given buffer.
+     */
+    public ByteBuffer getByteBuffer() {
+        if (target == null) {
+            throw new IllegalStateException("Packer does not pack into a ByteBuffer");
+        }
+        return output.position(target.position());
+    }
+
     public byte[] toByteArray() {
+        if (target != null) {
+            byte[] bytes = new byte[size()];
+            target.get(targetStart, bytes);
+            return bytes;
+        }
+
+        if (buffer == null) {
+            throw new IllegalStateException("Sizer has no buffer");
+        }
+
+        if (isExact && bufferList == null && offset == buffer.length) {
+            return buffer;
+        }
+
         if (bufferList != null) {
             int size = offset;
             for (BufferItem item : bufferList) {
@@ -0,0 +1,156 @@
+package com.aerospike.dsl.evaluator;
+
+import lombok.experimental.UtilityClass;
+
+import static com.aerospike.dsl.evaluator.ExpNode.*;
+import static com.aerospike.dsl.evaluator.ExpressionEvaluator.UNKNOWN;
+
+/**
+ * Arithmetic and bitwise commands.
+ * <p>
+ * Operands of a command must all be integers or all be floats, otherwise the result is
+ * {@link ExpressionEvaluator#UNKNOWN}. Integer overflow, division by zero, shifts outside of {@code 0..63}
+ * and float results that are not finite are unknown as well.
+ */
+@UtilityClass
+class Arithmetic {
+
+    /**
+     * @param op   Command
+     * @param args Evaluated operands, none of them unknown
+     */
+    static Object apply(int op, Object[] args) {
+        try {
+            return switch (op) {
+                case TO_INT -> args[0] instanceof Double value ? toInt(value) : UNKNOWN;
+                case TO_FLOAT -> args[0] instanceof Long value ? (Object) value.doubleValue() : UNKNOWN;
+                case INT_AND, INT_OR, INT_XOR, INT_NOT, INT_LSHIFT, INT_RSHIFT, INT_ARSHIFT, INT_COUNT ->
+                        isAll(args, Long.class) ? bitwise(op, args) : UNKNOWN;
+                case INT_LSCAN, INT_RSCAN -> args[0] instanceof Long value && args[1] instanceof Boolean search
+                        ? scan(op, value, search)
+                        : UNKNOWN;
+                default -> {
+                    if (isAll(args, Long.class)) yield integer(op, args);
+                    if (isAll(args, Double.class)) yield toResult(floating(op, args));
+                    yield UNKNOWN;
+                }
+            };
+        } catch (ArithmeticException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static boolean isAll(Object[] args, Class<?> type) {
+        for (Object arg : args) {
+            if (!type.isInstance(arg)) return false;
+        }
+        return args.length > 0;
+    }
+
+    private static Object toInt(double value) {
+        if (Double.isNaN(value) || value >= 0x1p63 || value < -0x1p63) return UNKNOWN;
+        return (long) value;
+    }
+
+    private static Object integer(int op, Object[] args) {
+        long result = (Long) args[0];
+        if (args.length == 1) {
+            return switch (op) {
+                case SUB -> Math.negateExact(result);
+                case DIV -> 1 / result;
+                case ABS -> Math.absExact(result);
+                case ADD, MUL, MIN, MAX -> result;
+                default -> UNKNOWN;
+            };
+        }
+        for (int i = 1; i < args.length; i++) {
+            long operand = (Long) args[i];
+            result = switch (op) {
+                case ADD -> Math.addExact(result, operand);
+                case SUB -> Math.subtractExact(result, operand);
+                case MUL -> Math.multiplyExact(result, operand);
+                case DIV -> {
+                    if (result == Long.MIN_VALUE && operand == -1) throw new ArithmeticException("Overflow");
+                    yield result / operand;
+                }
+                case MOD -> result % operand;
+                case MIN -> Math.min(result, operand);
+                case MAX -> Math.max(result, operand);
+                default -> throw new ArithmeticException("Not an integer command: " + op);
+            };
+        }
+        return result;
+    }
+
+    private static double floating(int op, Object[] args) {
+        double result = (Double) args[0];
+        if (args.length == 1) {
+            return switch (op) {
+                case SUB -> -result;
+                case DIV -> 1 / result;
+                case ABS -> Math.abs(result);
+                case FLOOR -> Math.floor(result);
+                case CEIL -> Math.ceil(result);
+                case ADD, MUL, MIN, MAX -> result;
+                default -> Double.NaN;
+            };
+        }
+        for (int i = 1; i < args.length; i++) {
+            double operand = (Double) args[i];
+            result = switch (op) {
+                case ADD -> result + operand;
+                case SUB -> result - operand;
+                case MUL -> result * operand;
+                case DIV -> operand == 0 ? Double.NaN : result / operand;
+                case POW -> Math.pow(result, operand);
+                case LOG -> Math.log(result) / Math.log(operand);
+                case MIN -> Math.min(result, operand);
+                case MAX -> Math.max(result, operand);
+                default -> Double.NaN;
+            };
+        }
+        return result;
+    }
+
+    private static Object toResult(double value) {
+        return Double.isFinite(value) ? (Object) value : UNKNOWN;
+    }
+
+    private static Object bitwise(int op, Object[] args) {
+        long result = (Long) args[0];
+        return switch (op) {
+            case INT_NOT -> ~result;
+            case INT_COUNT -> (long) Long.bitCount(result);
+            case INT_LSHIFT, INT_RSHIFT, INT_ARSHIFT -> {
+                long shift = (Long) args[1];
+                if (shift < 0 || shift > 63) yield UNKNOWN;
+                yield switch (op) {
+                    case INT_LSHIFT -> result << shift;
+                    case INT_RSHIFT -> result >>> shift;
+                    default -> result >> shift;
+                };
+            }
+            default -> {
+                for (int i = 1; i < args.length; i++) {
+                    long operand = (Long) args[i];
+                    result = switch (op) {
+                        case INT_AND -> result & operand;
+                        case INT_OR -> result | operand;
+                        default -> result ^ operand;
+                    };
+                }
+                yield result;
+            }
+        };
+    }
+
+    /**
+     * @return Index of the first (for left scan) or last (for right scan) bit equal to the searched one,
+     * counting from the most significant bit, or -1 if there is no such bit
+     */
+    private static long scan(int op, long value, boolean search) {
+        long bits = search ? value : ~value;
+        if (bits == 0) return -1;
+        return op == INT_LSCAN ? Long.numberOfLeadingZeros(bits) : 63 - Long.numberOfTrailingZeros(bits);
+    }
+}
@@ -0,0 +1,36 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.annotation.Beta;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Filter expression compiled for filtering batches of records stored by column,
+ * see {@link ExpressionEvaluator#compileBatch()}.
+ * <p>
+ * Each command is evaluated for all rows of the batch in a loop over primitive column values, rows are tracked
+ * by bitmaps. An operand of {@code and} is evaluated only for the rows that passed the previous operands.
+ * Commands without a columnar form are evaluated row by row. The result for each row is the same as
+ * {@link ExpressionEvaluator#test(LocalRecord)} for a record with the bins of the row and without metadata.
+ * <p>
+ * An instance is immutable and can be used concurrently from multiple threads.
+ */
+@Beta
+public final class BatchPredicate {
+
+    private final ExpNode root;
+
+    BatchPredicate(ExpNode root) {
+        this.root = root;
+    }
+
+    /**
+     * @param batch Batch of records, must not be null
+     * @return Rows that pass the filter
+     */
+    public BitSet select(ColumnBatch batch) {
+        Objects.requireNonNull(batch, "batch must not be null");
+        return BitSet.valueOf(new ColumnarEvaluator(batch).select(root));
+    }
+}
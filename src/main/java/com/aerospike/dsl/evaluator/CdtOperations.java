@@ -0,0 +1,413 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.cdt.ListReturnType;
+import com.aerospike.dsl.client.cdt.MapReturnType;
+import lombok.AllArgsConstructor;
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import static com.aerospike.dsl.evaluator.ExpressionEvaluator.UNKNOWN;
+
+/**
+ * List and map read operations with the semantics of the server.
+ * <p>
+ * Map elements are indexed in the order of keys, which is how the server indexes unordered maps.
+ * Negative indexes and ranks count from the end, ranges are clipped to the elements that exist.
+ * Operations that fail on the server, e.g., reading a missing element by index or applying a list
+ * operation to a map, return {@link ExpressionEvaluator#UNKNOWN}.
+ */
+@UtilityClass
+class CdtOperations {
+
+    static final int CTX_TYPE_MASK = 0x3f;
+    static final int CTX_LIST_INDEX = 0x10;
+    static final int CTX_LIST_RANK = 0x11;
+    static final int CTX_LIST_VALUE = 0x13;
+    static final int CTX_MAP_INDEX = 0x20;
+    static final int CTX_MAP_RANK = 0x21;
+    static final int CTX_MAP_KEY = 0x22;
+    static final int CTX_MAP_VALUE = 0x23;
+
+    static final int LIST_SIZE = 16;
+    static final int LIST_GET_BY_INDEX = 19;
+    private static final int LIST_GET_BY_RANK = 21;
+    static final int LIST_GET_BY_VALUE = 22;
+    private static final int LIST_GET_BY_VALUE_LIST = 23;
+    private static final int LIST_GET_BY_INDEX_RANGE = 24;
+    private static final int LIST_GET_BY_VALUE_INTERVAL = 25;
+    private static final int LIST_GET_BY_RANK_RANGE = 26;
+    private static final int LIST_GET_BY_VALUE_REL_RANK_RANGE = 27;
+
+    static final int MAP_SIZE = 96;
+    static final int MAP_GET_BY_KEY = 97;
+    private static final int MAP_GET_BY_INDEX = 98;
+    private static final int MAP_GET_BY_RANK = 100;
+    private static final int MAP_GET_BY_VALUE = 102;
+    private static final int MAP_GET_BY_KEY_INTERVAL = 103;
+    private static final int MAP_GET_BY_INDEX_RANGE = 104;
+    private static final int MAP_GET_BY_VALUE_INTERVAL = 105;
+    private static final int MAP_GET_BY_RANK_RANGE = 106;
+    private static final int MAP_GET_BY_KEY_LIST = 107;
+    private static final int MAP_GET_BY_VALUE_LIST = 108;
+    private static final int MAP_GET_BY_KEY_REL_INDEX_RANGE = 109;
+    private static final int MAP_GET_BY_VALUE_REL_RANK_RANGE = 110;
+
+    /**
+     * Find the nested element the context points to
+     *
+     * @param value      Value of the bin
+     * @param ctxIds     Context types, as in {@link com.aerospike.dsl.client.cdt.CTX#id}
+     * @param ctxValues  Context values
+     * @return Nested element, or {@link ExpressionEvaluator#UNKNOWN} if it does not exist
+     */
+    static Object navigate(Object value, int[] ctxIds, Object[] ctxValues) {
+        Object current = value;
+        for (int i = 0; i < ctxIds.length && current != UNKNOWN; i++) {
+            current = navigate(current, ctxIds[i] & CTX_TYPE_MASK, ctxValues[i]);
+        }
+        return current;
+    }
+
+    private static Object navigate(Object value, int ctxType, Object ctxValue) {
+        Elements elements = Elements.of(value, ctxType >= CTX_MAP_INDEX);
+        if (elements == null) return UNKNOWN;
+
+        int position = switch (ctxType) {
+            case CTX_LIST_INDEX, CTX_MAP_INDEX -> elements.toPosition(ctxValue);
+            case CTX_LIST_RANK, CTX_MAP_RANK -> elements.byRank(ctxValue);
+            case CTX_LIST_VALUE, CTX_MAP_VALUE -> elements.find(elements.values, ctxValue);
+            case CTX_MAP_KEY -> elements.find(elements.keys, ctxValue);
+            default -> -1;
+        };
+        return position < 0 ? UNKNOWN : elements.values.get(position);
+    }
+
+    /**
+     * Apply a read operation to a list or a map
+     *
+     * @param value      List or map
+     * @param command    Operation code
+     * @param returnType See {@link ListReturnType} and {@link MapReturnType}
+     * @param args       Evaluated arguments of the operation
+     * @return Result of the operation, or {@link ExpressionEvaluator#UNKNOWN} if it fails
+     */
+    static Object apply(Object value, int command, int returnType, Object[] args) {
+        Elements elements = Elements.of(value, command >= MAP_SIZE);
+        if (elements == null) return UNKNOWN;
+        if (command == LIST_SIZE || command == MAP_SIZE) return (long) elements.size();
+
+        Selection selection = switch (command) {
+            case LIST_GET_BY_INDEX, MAP_GET_BY_INDEX -> single(elements.toPosition(arg(args, 0)));
+            case LIST_GET_BY_RANK, MAP_GET_BY_RANK -> single(elements.byRank(arg(args, 0)));
+            case MAP_GET_BY_KEY -> elements.byKey(arg(args, 0));
+            case LIST_GET_BY_VALUE, MAP_GET_BY_VALUE ->
+                    elements.byValues(elements.values, Collections.singletonList(arg(args, 0)));
+            case LIST_GET_BY_VALUE_LIST, MAP_GET_BY_VALUE_LIST -> elements.byValues(elements.values, arg(args, 0));
+            case MAP_GET_BY_KEY_LIST -> elements.byValues(elements.keys, arg(args, 0));
+            case LIST_GET_BY_VALUE_INTERVAL, MAP_GET_BY_VALUE_INTERVAL ->
+                    elements.byInterval(elements.values, arg(args, 0), arg(args, 1));
+            case MAP_GET_BY_KEY_INTERVAL -> elements.byInterval(elements.keys, arg(args, 0), arg(args, 1));
+            case LIST_GET_BY_INDEX_RANGE, MAP_GET_BY_INDEX_RANGE ->
+                    elements.byIndexRange(arg(args, 0), arg(args, 1), args.length > 1);
+            case LIST_GET_BY_RANK_RANGE, MAP_GET_BY_RANK_RANGE ->
+                    elements.byRankRange(arg(args, 0), arg(args, 1), args.length > 1);
+            case LIST_GET_BY_VALUE_REL_RANK_RANGE, MAP_GET_BY_VALUE_REL_RANK_RANGE ->
+                    elements.byRelativeRankRange(arg(args, 0), arg(args, 1), arg(args, 2), args.length > 2);
+            case MAP_GET_BY_KEY_REL_INDEX_RANGE ->
+                    elements.byRelativeIndexRange(arg(args, 0), arg(args, 1), arg(args, 2), args.length > 2);
+            default -> throw new UnsupportedOperationException(
+                    "Unsupported list or map operation: %d".formatted(command));
+        };
+        if (selection == null) return UNKNOWN;
+
+        return elements.toResult(selection, returnType);
+    }
+
+    private static Object arg(Object[] args, int index) {
+        return index < args.length ? args[index] : null;
+    }
+
+    private static Selection single(int position) {
+        return position < 0 ? null : new Selection(new int[]{position}, true);
+    }
+
+    /**
+     * Positions of the selected elements, in the order they are returned
+     */
+    @AllArgsConstructor
+    private static final class Selection {
+
+        private final int[] positions;
+        private final boolean isSingle;
+    }
+
+    /**
+     * List elements in the order of indexes, or map entries in the order of keys
+     */
+    private static final class Elements {
+
+        private final List<Object> keys;
+        private final List<Object> values;
+        private int[] positionsByRank;
+        private int[] ranks;
+
+        private Elements(List<Object> keys, List<Object> values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        /**
+         * @return Elements of the value, or null if the value is not a list or a map as expected
+         */
+        @SuppressWarnings("unchecked")
+        private static Elements of(Object value, boolean isMap) {
+            if (!isMap) {
+                return value instanceof List<?> list ? new Elements(null, (List<Object>) list) : null;
+            }
+            if (!(value instanceof Map<?, ?> map)) return null;
+
+            List<Object> keys = new ArrayList<>(map.size());
+            List<Object> values = new ArrayList<>(map.size());
+            for (Map.Entry<?, ?> entry : Values.sortedEntries(map)) {
+                keys.add(entry.getKey());
+                values.add(entry.getValue());
+            }
+            return new Elements(keys, values);
+        }
+
+        private int size() {
+            return values.size();
+        }
+
+        private boolean isMap() {
+            return keys != null;
+        }
+
+        /**
+         * @return Position of the element at the index, or -1 if there is no such element
+         */
+        private int toPosition(Object index) {
+            if (!(index instanceof Long longIndex)) return -1;
+            long position = longIndex < 0 ? size() + longIndex : longIndex;
+            return position < 0 || position >= size() ? -1 : (int) position;
+        }
+
+        private int byRank(Object rank) {
+            int position = toPosition(rank);
+            return position < 0 ? -1 : positionsByRank()[position];
+        }
+
+        private int find(List<Object> elements, Object value) {
+            for (int i = 0; i < elements.size(); i++) {
+                if (Values.isEqual(elements.get(i), value)) return i;
+            }
+            return -1;
+        }
+
+        private Selection byKey(Object key) {
+            int position = find(keys, key);
+            return new Selection(position < 0 ? new int[0] : new int[]{position}, true);
+        }
+
+        private Selection byValues(List<Object> elements, Object searchValues) {
+            if (!(searchValues instanceof List<?> list)) return null;
+
+            return filter(elements, element -> list.stream().anyMatch(value -> Values.isEqual(element, value)));
+        }
+
+        /**
+         * Select elements within {@code [begin, end)}, nil begin is lower than any value,
+         * missing end is greater than any value
+         */
+        private Selection byInterval(List<Object> elements, Object begin, Object end) {
+            Object endValue = end == null ? Values.INF : end;
+            return filter(elements, element ->
+                    Values.compare(element, begin) >= 0 && Values.compare(element, endValue) < 0);
+        }
+
+        private Selection filter(List<Object> elements, Predicate<Object> predicate) {
+            int[] positions = new int[elements.size()];
+            int count = 0;
+            for (int i = 0; i < elements.size(); i++) {
+                if (predicate.test(elements.get(i))) positions[count++] = i;
+            }
+            return new Selection(Arrays.copyOf(positions, count), false);
+        }
+
+        private Selection byIndexRange(Object index, Object count, boolean hasCount) {
+            if (!(index instanceof Long longIndex)) return null;
+
+            return byIndexRange(fromEnd(longIndex), count, hasCount);
+        }
+
+        private Selection byIndexRange(long begin, Object count, boolean hasCount) {
+            int[] range = toRange(begin, count, hasCount);
+            if (range == null) return null;
+
+            int[] positions = new int[range[1] - range[0]];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = range[0] + i;
+            }
+            return new Selection(positions, false);
+        }
+
+        private Selection byRankRange(Object rank, Object count, boolean hasCount) {
+            if (!(rank instanceof Long longRank)) return null;
+
+            return byRankRange(fromEnd(longRank), count, hasCount);
+        }
+
+        private Selection byRankRange(long begin, Object count, boolean hasCount) {
+            int[] range = toRange(begin, count, hasCount);
+            if (range == null) return null;
+
+            return new Selection(Arrays.copyOfRange(positionsByRank(), range[0], range[1]), false);
+        }
+
+        /**
+         * Relative rank is counted from the rank the value would have if it was inserted,
+         * a negative result does not count from the end
+         */
+        private Selection byRelativeRankRange(Object value, Object rank, Object count, boolean hasCount) {
+            if (!(rank instanceof Long relativeRank)) return null;
+
+            return byRankRange(insertionPoint(values, value) + relativeRank, count, hasCount);
+        }
+
+        private Selection byRelativeIndexRange(Object key, Object index, Object count, boolean hasCount) {
+            if (!(index instanceof Long relativeIndex)) return null;
+
+            return byIndexRange(insertionPoint(keys, key) + relativeIndex, count, hasCount);
+        }
+
+        private static long insertionPoint(List<Object> elements, Object value) {
+            long count = 0;
+            for (Object element : elements) {
+                if (Values.compare(element, value) < 0) count++;
+            }
+            return count;
+        }
+
+        private long fromEnd(long start) {
+            return start < 0 ? size() + start : start;
+        }
+
+        /**
+         * @return Begin inclusive and end exclusive positions of the range clipped to the elements,
+         * or null if the count is not an integer
+         */
+        private int[] toRange(long begin, Object count, boolean hasCount) {
+            if (hasCount && !(count instanceof Long)) return null;
+
+            long end = size();
+            if (hasCount) {
+                long longCount = Math.max((Long) count, 0);
+                end = begin > 0 && longCount > Long.MAX_VALUE - begin ? Long.MAX_VALUE : begin + longCount;
+            }
+            long clippedBegin = Math.min(Math.max(begin, 0), size());
+            long clippedEnd = Math.min(Math.max(end, clippedBegin), size());
+            return new int[]{(int) clippedBegin, (int) clippedEnd};
+        }
+
+        private int[] positionsByRank() {
+            if (positionsByRank == null) {
+                Integer[] sorted = new Integer[size()];
+                for (int i = 0; i < sorted.length; i++) {
+                    sorted[i] = i;
+                }
+                Arrays.sort(sorted, (left, right) -> Values.compare(values.get(left), values.get(right)));
+                positionsByRank = new int[sorted.length];
+                ranks = new int[sorted.length];
+                for (int i = 0; i < sorted.length; i++) {
+                    positionsByRank[i] = sorted[i];
+                    ranks[sorted[i]] = i;
+                }
+            }
+            return positionsByRank;
+        }
+
+        private Object toResult(Selection selection, int returnType) {
+            int[] positions = selection.positions;
+            boolean isSingle = selection.isSingle;
+            if ((returnType & ListReturnType.INVERTED) != 0) {
+                positions = invert(positions);
+                isSingle = false;
+            }
+
+            int size = size();
+            return switch (returnType & ~ListReturnType.INVERTED) {
+                case ListReturnType.NONE -> null;
+                case ListReturnType.COUNT -> (long) positions.length;
+                case ListReturnType.EXISTS -> positions.length > 0;
+                case ListReturnType.INDEX -> collect(positions, isSingle, position -> (long) position);
+                case ListReturnType.REVERSE_INDEX -> collect(positions, isSingle, position -> size - 1L - position);
+                case ListReturnType.RANK -> collect(positions, isSingle, position -> (long) rankOf(position));
+                case ListReturnType.REVERSE_RANK -> collect(positions, isSingle, position -> size - 1L - rankOf(position));
+                case ListReturnType.VALUE -> collect(positions, isSingle, this::valueAt);
+                case MapReturnType.KEY -> isMap() ? collect(positions, isSingle, this::keyAt) : UNKNOWN;
+                case MapReturnType.KEY_VALUE, MapReturnType.UNORDERED_MAP, MapReturnType.ORDERED_MAP -> {
+                    if (!isMap()) yield UNKNOWN;
+                    Map<Object, Object> result = new LinkedHashMap<>();
+                    int[] ordered = positions.clone();
+                    Arrays.sort(ordered);
+                    for (int position : ordered) {
+                        result.put(keyAt(position), valueAt(position));
+                    }
+                    yield result;
+                }
+                default -> throw new UnsupportedOperationException(
+                        "Unsupported list or map return type: %d".formatted(returnType));
+            };
+        }
+
+        private Object keyAt(int position) {
+            return Values.normalize(keys.get(position));
+        }
+
+        private Object valueAt(int position) {
+            return Values.normalize(values.get(position));
+        }
+
+        private int rankOf(int position) {
+            positionsByRank();
+            return ranks[position];
+        }
+
+        private int[] invert(int[] positions) {
+            boolean[] isSelected = new boolean[size()];
+            for (int position : positions) {
+                isSelected[position] = true;
+            }
+            int[] inverted = new int[size() - positions.length];
+            int count = 0;
+            for (int i = 0; i < isSelected.length; i++) {
+                if (!isSelected[i]) inverted[count++] = i;
+            }
+            return Arrays.copyOf(inverted, count);
+        }
+
+        /**
+         * @return The value for a single element, which is nil if the element does not exist,
+         * otherwise the list of values in the order of the positions
+         */
+        private static Object collect(int[] positions, boolean isSingle,
+                                      IntFunction<Object> mapper) {
+            if (isSingle) {
+                return positions.length == 0 ? null : mapper.apply(positions[0]);
+            }
+            List<Object> result = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                result.add(mapper.apply(position));
+            }
+            return result;
+        }
+    }
+}
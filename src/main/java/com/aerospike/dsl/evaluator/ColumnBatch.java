@@ -0,0 +1,167 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.annotation.Beta;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Batch of records stored by column: an array of values per bin, the value of a row is at the row index.
+ * <p>
+ * Integer and float bins can be stored as {@code long[]} and {@code double[]} with an optional bitmap of rows
+ * where the bin exists, bins of other types as {@code Object[]} where null means the bin does not exist.
+ * Bins without a column do not exist in any row. Arrays are used as given, they must not be modified while
+ * the batch is evaluated.
+ */
+@Beta
+public final class ColumnBatch {
+
+    private final int size;
+    private final Map<String, Column> columns;
+
+    private ColumnBatch(int size, Map<String, Column> columns) {
+        this.size = size;
+        this.columns = columns;
+    }
+
+    /**
+     * @param size Number of rows, must not be negative
+     * @return A new builder of a batch with the given number of rows
+     */
+    public static Builder builder(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Batch size must not be negative");
+        }
+        return new Builder(size);
+    }
+
+    /**
+     * @return Number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    Column getColumn(String bin) {
+        return columns.get(bin);
+    }
+
+    /**
+     * @return Value of the bin in the row, or null if it does not exist
+     */
+    Object getValue(String bin, int row) {
+        Column column = columns.get(bin);
+        if (column == null || !column.isPresent(row)) return null;
+        if (column.longs != null) return column.longs[row];
+        if (column.doubles != null) return column.doubles[row];
+        return column.objects[row];
+    }
+
+    /**
+     * Values of one bin, only one of the arrays is set
+     */
+    static final class Column {
+
+        final long[] longs;
+        final double[] doubles;
+        final Object[] objects;
+        /**
+         * Bitmap of rows where the bin exists, null if it exists in all rows
+         */
+        final long[] present;
+
+        private Column(long[] longs, double[] doubles, Object[] objects, long[] present) {
+            this.longs = longs;
+            this.doubles = doubles;
+            this.objects = objects;
+            this.present = present;
+        }
+
+        boolean isPresent(int row) {
+            if (objects != null) return objects[row] != null;
+            return present == null || (present[row >>> 6] & 1L << row) != 0;
+        }
+    }
+
+    public static final class Builder {
+
+        private final int size;
+        private final Map<String, Column> columns = new HashMap<>();
+
+        private Builder(int size) {
+            this.size = size;
+        }
+
+        /**
+         * @param bin    Bin name
+         * @param values Integer values of the bin in all rows
+         */
+        public Builder longColumn(String bin, long[] values) {
+            return longColumn(bin, values, null);
+        }
+
+        /**
+         * @param bin     Bin name
+         * @param values  Integer values of the bin
+         * @param present Rows where the bin exists, null if it exists in all rows
+         */
+        public Builder longColumn(String bin, long[] values, BitSet present) {
+            validate(bin, values == null ? -1 : values.length);
+            return add(bin, new Column(values, null, null, toWords(present)));
+        }
+
+        /**
+         * @param bin    Bin name
+         * @param values Float values of the bin in all rows
+         */
+        public Builder doubleColumn(String bin, double[] values) {
+            return doubleColumn(bin, values, null);
+        }
+
+        /**
+         * @param bin     Bin name
+         * @param values  Float values of the bin
+         * @param present Rows where the bin exists, null if it exists in all rows
+         */
+        public Builder doubleColumn(String bin, double[] values, BitSet present) {
+            validate(bin, values == null ? -1 : values.length);
+            return add(bin, new Column(null, values, null, toWords(present)));
+        }
+
+        /**
+         * @param bin    Bin name
+         * @param values Values of the bin, null for rows where the bin does not exist
+         */
+        public Builder objectColumn(String bin, Object[] values) {
+            validate(bin, values == null ? -1 : values.length);
+            return add(bin, new Column(null, null, values, null));
+        }
+
+        public ColumnBatch build() {
+            return new ColumnBatch(size, Map.copyOf(columns));
+        }
+
+        private Builder add(String bin, Column column) {
+            columns.put(bin, column);
+            return this;
+        }
+
+        private void validate(String bin, int length) {
+            Objects.requireNonNull(bin, "bin must not be null");
+            if (length < size) {
+                throw new IllegalArgumentException("Column of bin '%s' must have at least %d values"
+                        .formatted(bin, size));
+            }
+        }
+
+        private long[] toWords(BitSet present) {
+            if (present == null) return null;
+            long[] words = new long[(size + 63) >>> 6];
+            long[] bits = present.toLongArray();
+            System.arraycopy(bits, 0, words, 0, Math.min(bits.length, words.length));
+            return words;
+        }
+    }
+}
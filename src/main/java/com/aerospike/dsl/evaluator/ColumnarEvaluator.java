@@ -0,0 +1,470 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.evaluator.ColumnBatch.Column;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.aerospike.dsl.evaluator.ExpNode.*;
+import static com.aerospike.dsl.evaluator.ExpressionEvaluator.UNKNOWN;
+
+/**
+ * Evaluates a decoded expression over a {@link ColumnBatch} one command at a time for all rows.
+ * <p>
+ * Rows are tracked by bitmaps of 64 rows per word. Boolean commands produce bitmaps of true and false rows,
+ * rows in neither are unknown. Integer and float commands produce an array of values and a bitmap of rows
+ * where the value is known. Each operand of {@code and} is evaluated only for the rows that are still true,
+ * each operand of {@code or} only for the rows that are still false. Commands without a columnar form
+ * are evaluated row by row by {@link ExpInterpreter}.
+ */
+final class ColumnarEvaluator {
+
+    private static final int INT = Exp.Type.INT.code;
+    private static final int FLOAT = Exp.Type.FLOAT.code;
+    private static final int STRING = Exp.Type.STRING.code;
+
+    private final ColumnBatch batch;
+    private final int size;
+    private final int words;
+
+    ColumnarEvaluator(ColumnBatch batch) {
+        this.batch = batch;
+        this.size = batch.size();
+        this.words = (size + 63) >>> 6;
+    }
+
+    /**
+     * @return Bitmap of rows where the expression is true
+     */
+    long[] select(ExpNode root) {
+        long[] all = new long[words];
+        Arrays.fill(all, -1L);
+        if ((size & 63) != 0) {
+            all[words - 1] = (1L << size) - 1;
+        }
+        return evaluateBool(root, all).isTrue;
+    }
+
+    /**
+     * Result of a boolean command, bitmaps are subsets of the evaluated rows
+     */
+    private static final class Bools {
+
+        private final long[] isTrue;
+        private final long[] isFalse;
+
+        private Bools(long[] isTrue, long[] isFalse) {
+            this.isTrue = isTrue;
+            this.isFalse = isFalse;
+        }
+    }
+
+    private static final class Longs {
+
+        private final long[] values;
+        private final long[] known;
+
+        private Longs(long[] values, long[] known) {
+            this.values = values;
+            this.known = known;
+        }
+    }
+
+    private static final class Doubles {
+
+        private final double[] values;
+        private final long[] known;
+
+        private Doubles(double[] values, long[] known) {
+            this.values = values;
+            this.known = known;
+        }
+    }
+
+    private Bools evaluateBool(ExpNode node, long[] rows) {
+        return switch (node.op) {
+            case VALUE -> {
+                if (Boolean.TRUE.equals(node.value)) yield new Bools(rows, new long[words]);
+                if (Boolean.FALSE.equals(node.value)) yield new Bools(new long[words], rows);
+                yield new Bools(new long[words], new long[words]);
+            }
+            case AND -> evaluateLogical(node, rows, true);
+            case OR -> evaluateLogical(node, rows, false);
+            case NOT -> {
+                Bools operand = evaluateBool(node.args[0], rows);
+                yield new Bools(operand.isFalse, operand.isTrue);
+            }
+            case EQ, NE, GT, GE, LT, LE -> evaluateComparison(node, rows);
+            case CALL -> {
+                Bools in = evaluateIn(node, rows);
+                yield in != null ? in : evaluateBoolByRow(node, rows);
+            }
+            default -> evaluateBoolByRow(node, rows);
+        };
+    }
+
+    /**
+     * Rows decided by an operand are not evaluated by the following operands
+     */
+    private Bools evaluateLogical(ExpNode node, long[] rows, boolean isAnd) {
+        long[] remaining = rows;
+        long[] decided = new long[words];
+        for (ExpNode arg : node.args) {
+            if (isEmpty(remaining)) break;
+
+            Bools operand = evaluateBool(arg, remaining);
+            long[] decidedByOperand = isAnd ? operand.isFalse : operand.isTrue;
+            for (int i = 0; i < words; i++) {
+                decided[i] |= decidedByOperand[i];
+            }
+            // Unknown rows are in neither bitmap and drop out of the remaining rows
+            remaining = isAnd ? operand.isTrue : operand.isFalse;
+        }
+        return isAnd ? new Bools(remaining, decided) : new Bools(decided, remaining);
+    }
+
+    private Bools evaluateComparison(ExpNode node, long[] rows) {
+        ExpNode leftNode = node.args[0];
+        ExpNode rightNode = node.args[1];
+        int leftType = PredicateCompiler.typeOf(leftNode);
+        int rightType = PredicateCompiler.typeOf(rightNode);
+        // Two list or map reads can both return nil, which are equal
+        boolean isNilPossible = leftNode.op == CALL && rightNode.op == CALL;
+        int op = node.op;
+
+        if (leftType == INT && rightType == INT && !isNilPossible) {
+            Longs left = evaluateLong(leftNode, rows);
+            if (rightNode.isLiteral()) {
+                return compareToLiteral(op, left, (Long) rightNode.value);
+            }
+            Longs right = evaluateLong(rightNode, left.known);
+            long[] isTrue = new long[words];
+            long[] isFalse = new long[words];
+            for (int word = 0; word < words; word++) {
+                long known = right.known[word];
+                if (known == 0) continue;
+                long bits = 0;
+                int base = word << 6;
+                int end = Math.min(64, size - base);
+                for (int bit = 0; bit < end; bit++) {
+                    int row = base + bit;
+                    int comparison = Long.compare(left.values[row], right.values[row]);
+                    bits |= (PredicateCompiler.compare(op, comparison) ? 1L : 0L) << bit;
+                }
+                isTrue[word] = bits & known;
+                isFalse[word] = ~bits & known;
+            }
+            return new Bools(isTrue, isFalse);
+        }
+        if (leftType == FLOAT && rightType == FLOAT && !isNilPossible) {
+            Doubles left = evaluateDouble(leftNode, rows);
+            Doubles right = evaluateDouble(rightNode, left.known);
+            long[] isTrue = new long[words];
+            long[] isFalse = new long[words];
+            for (int word = 0; word < words; word++) {
+                long known = right.known[word];
+                if (known == 0) continue;
+                long bits = 0;
+                int base = word << 6;
+                int end = Math.min(64, size - base);
+                for (int bit = 0; bit < end; bit++) {
+                    int row = base + bit;
+                    bits |= (Values.compareFloats(op, left.values[row], right.values[row]) ? 1L : 0L) << bit;
+                }
+                isTrue[word] = bits & known;
+                isFalse[word] = ~bits & known;
+            }
+            return new Bools(isTrue, isFalse);
+        }
+        return evaluateBoolByRow(node, rows);
+    }
+
+    /**
+     * Comparison of an integer column to a literal, the most common predicate, is a loop per operator
+     * without branches, which the JIT compiler can vectorize
+     */
+    private Bools compareToLiteral(int op, Longs left, long right) {
+        long[] isTrue = new long[words];
+        long[] isFalse = new long[words];
+        long[] values = left.values;
+        for (int word = 0; word < words; word++) {
+            long known = left.known[word];
+            if (known == 0) continue;
+            long bits = 0;
+            int base = word << 6;
+            int end = Math.min(64, size - base);
+            switch (op) {
+                case EQ, NE -> {
+                    for (int bit = 0; bit < end; bit++) {
+                        bits |= (values[base + bit] == right ? 1L : 0L) << bit;
+                    }
+                    if (op == NE) bits = ~bits;
+                }
+                case GT, LE -> {
+                    for (int bit = 0; bit < end; bit++) {
+                        bits |= (values[base + bit] > right ? 1L : 0L) << bit;
+                    }
+                    if (op == LE) bits = ~bits;
+                }
+                default -> {
+                    for (int bit = 0; bit < end; bit++) {
+                        bits |= (values[base + bit] >= right ? 1L : 0L) << bit;
+                    }
+                    if (op == LT) bits = ~bits;
+                }
+            }
+            isTrue[word] = bits & known;
+            isFalse[word] = ~bits & known;
+        }
+        return new Bools(isTrue, isFalse);
+    }
+
+    /**
+     * @return Result of {@code IN} of a literal list of integers or strings, or null if the node is not such
+     */
+    private Bools evaluateIn(ExpNode node, long[] rows) {
+        List<?> list = PredicateCompiler.getInList(node);
+        if (list == null) return null;
+
+        ExpNode searched = ((CdtCall) node.value).getArguments()[0];
+        int searchedType = PredicateCompiler.typeOf(searched);
+        long[] isTrue = new long[words];
+        long[] isFalse = new long[words];
+        // List and map reads can return nil, which is not an integer but is not unknown either
+        if (searchedType == INT && searched.op != CALL && list.stream().allMatch(Long.class::isInstance)) {
+            long[] sorted = list.stream().mapToLong(Long.class::cast).sorted().toArray();
+            Longs values = evaluateLong(searched, rows);
+            forEachRow(values.known, row -> setBit(Arrays.binarySearch(sorted, values.values[row]) >= 0
+                    ? isTrue
+                    : isFalse, row));
+            return new Bools(isTrue, isFalse);
+        }
+        if (searchedType == STRING && list.stream().allMatch(String.class::isInstance)) {
+            Set<Object> strings = new HashSet<>(list);
+            forEachRow(rows, row -> {
+                Object value = evaluateRow(searched, row);
+                if (value != UNKNOWN) setBit(strings.contains(value) ? isTrue : isFalse, row);
+            });
+            return new Bools(isTrue, isFalse);
+        }
+        return null;
+    }
+
+    private Bools evaluateBoolByRow(ExpNode node, long[] rows) {
+        long[] isTrue = new long[words];
+        long[] isFalse = new long[words];
+        forEachRow(rows, row -> {
+            Object value = evaluateRow(node, row);
+            if (value instanceof Boolean bool) setBit(bool ? isTrue : isFalse, row);
+        });
+        return new Bools(isTrue, isFalse);
+    }
+
+    private Longs evaluateLong(ExpNode node, long[] rows) {
+        if (PredicateCompiler.typeOf(node) != INT) return new Longs(new long[size], new long[words]);
+
+        return switch (node.op) {
+            case VALUE -> {
+                long[] values = new long[size];
+                Arrays.fill(values, (Long) node.value);
+                yield new Longs(values, rows);
+            }
+            case BIN -> {
+                Column column = batch.getColumn((String) node.value);
+                if (column != null && column.longs != null) {
+                    yield new Longs(column.longs, and(rows, column.present));
+                }
+                yield evaluateLongByRow(node, rows);
+            }
+            case ADD, SUB, MUL, MIN, MAX -> {
+                if (node.args.length < 2) yield evaluateLongByRow(node, rows);
+                Longs result = evaluateLong(node.args[0], rows);
+                for (int i = 1; i < node.args.length; i++) {
+                    result = longOperation(node.op, result, evaluateLong(node.args[i], result.known));
+                }
+                yield result;
+            }
+            default -> evaluateLongByRow(node, rows);
+        };
+    }
+
+    /**
+     * Overflow makes the result of the row unknown, the same as on the server
+     */
+    private Longs longOperation(int op, Longs left, Longs right) {
+        long[] values = new long[size];
+        long[] known = right.known.clone();
+        long[] leftValues = left.values;
+        long[] rightValues = right.values;
+        for (int word = 0; word < words; word++) {
+            if (known[word] == 0) continue;
+            long overflow = 0;
+            int base = word << 6;
+            int end = Math.min(64, size - base);
+            for (int bit = 0; bit < end; bit++) {
+                int row = base + bit;
+                long a = leftValues[row];
+                long b = rightValues[row];
+                long result;
+                boolean isOverflow;
+                switch (op) {
+                    case ADD -> {
+                        result = a + b;
+                        isOverflow = ((a ^ result) & (b ^ result)) < 0;
+                    }
+                    case SUB -> {
+                        result = a - b;
+                        isOverflow = ((a ^ b) & (a ^ result)) < 0;
+                    }
+                    case MUL -> {
+                        long high = Math.multiplyHigh(a, b);
+                        result = a * b;
+                        isOverflow = high != (result >> 63);
+                    }
+                    case MIN -> {
+                        result = Math.min(a, b);
+                        isOverflow = false;
+                    }
+                    default -> {
+                        result = Math.max(a, b);
+                        isOverflow = false;
+                    }
+                }
+                values[row] = result;
+                overflow |= (isOverflow ? 1L : 0L) << bit;
+            }
+            known[word] &= ~overflow;
+        }
+        return new Longs(values, known);
+    }
+
+    private Longs evaluateLongByRow(ExpNode node, long[] rows) {
+        long[] values = new long[size];
+        long[] known = new long[words];
+        forEachRow(rows, row -> {
+            if (evaluateRow(node, row) instanceof Long value) {
+                values[row] = value;
+                setBit(known, row);
+            }
+        });
+        return new Longs(values, known);
+    }
+
+    private Doubles evaluateDouble(ExpNode node, long[] rows) {
+        if (PredicateCompiler.typeOf(node) != FLOAT) return new Doubles(new double[size], new long[words]);
+
+        return switch (node.op) {
+            case VALUE -> {
+                double[] values = new double[size];
+                Arrays.fill(values, (Double) node.value);
+                yield new Doubles(values, rows);
+            }
+            case BIN -> {
+                Column column = batch.getColumn((String) node.value);
+                if (column != null && column.doubles != null) {
+                    yield new Doubles(column.doubles, and(rows, column.present));
+                }
+                yield evaluateDoubleByRow(node, rows);
+            }
+            case ADD, SUB, MUL -> {
+                if (node.args.length < 2) yield evaluateDoubleByRow(node, rows);
+                Doubles result = evaluateDouble(node.args[0], rows);
+                for (int i = 1; i < node.args.length; i++) {
+                    result = doubleOperation(node.op, result, evaluateDouble(node.args[i], result.known));
+                }
+                yield withoutNonFinite(result);
+            }
+            default -> evaluateDoubleByRow(node, rows);
+        };
+    }
+
+    private Doubles doubleOperation(int op, Doubles left, Doubles right) {
+        double[] values = new double[size];
+        double[] leftValues = left.values;
+        double[] rightValues = right.values;
+        switch (op) {
+            case ADD -> {
+                for (int row = 0; row < size; row++) {
+                    values[row] = leftValues[row] + rightValues[row];
+                }
+            }
+            case SUB -> {
+                for (int row = 0; row < size; row++) {
+                    values[row] = leftValues[row] - rightValues[row];
+                }
+            }
+            default -> {
+                for (int row = 0; row < size; row++) {
+                    values[row] = leftValues[row] * rightValues[row];
+                }
+            }
+        }
+        return new Doubles(values, right.known);
+    }
+
+    /**
+     * Float results that are not finite are unknown, the same as on the server
+     */
+    private Doubles withoutNonFinite(Doubles doubles) {
+        long[] known = doubles.known.clone();
+        forEachRow(doubles.known, row -> {
+            if (!Double.isFinite(doubles.values[row])) known[row >>> 6] &= ~(1L << row);
+        });
+        return new Doubles(doubles.values, known);
+    }
+
+    private Doubles evaluateDoubleByRow(ExpNode node, long[] rows) {
+        double[] values = new double[size];
+        long[] known = new long[words];
+        forEachRow(rows, row -> {
+            if (evaluateRow(node, row) instanceof Double value) {
+                values[row] = value;
+                setBit(known, row);
+            }
+        });
+        return new Doubles(values, known);
+    }
+
+    private Object evaluateRow(ExpNode node, int row) {
+        return new ExpInterpreter(bin -> batch.getValue(bin, row)).evaluate(node);
+    }
+
+    private long[] and(long[] rows, long[] present) {
+        if (present == null) return rows;
+
+        long[] result = new long[words];
+        for (int i = 0; i < words; i++) {
+            result[i] = rows[i] & present[i];
+        }
+        return result;
+    }
+
+    private static boolean isEmpty(long[] rows) {
+        for (long word : rows) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    private static void setBit(long[] bitmap, int row) {
+        bitmap[row >>> 6] |= 1L << row;
+    }
+
+    private static void forEachRow(long[] rows, RowConsumer consumer) {
+        for (int word = 0; word < rows.length; word++) {
+            long bits = rows[word];
+            while (bits != 0) {
+                consumer.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private interface RowConsumer {
+
+        void accept(int row);
+    }
+}
@@ -0,0 +1,35 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.evaluator.PredicateCompiler.CompiledTest;
+
+import java.util.function.Predicate;
+
+/**
+ * Filter expression compiled for repeated local filtering, see {@link ExpressionEvaluator#compile()}.
+ * <p>
+ * The expression is compiled to a method handle of a class generated for it, which the JIT compiler inlines
+ * as one method. Integer and float comparisons, arithmetic and {@code IN} of literal lists work on primitive
+ * values, so testing a record does not box them. The result is the same as
+ * {@link ExpressionEvaluator#test(LocalRecord)}.
+ * <p>
+ * An instance is immutable and can be used concurrently from multiple threads.
+ */
+@Beta
+public final class CompiledPredicate implements Predicate<LocalRecord> {
+
+    private final CompiledTest root;
+
+    CompiledPredicate(CompiledTest root) {
+        this.root = root;
+    }
+
+    /**
+     * @param localRecord Record to test, must not be null
+     * @return True if the record passes the filter, i.e., the expression evaluates to true
+     */
+    @Override
+    public boolean test(LocalRecord localRecord) {
+        return root.test(localRecord) == PredicateCompiler.TRUE;
+    }
+}
@@ -0,0 +1,320 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.Value;
+import com.aerospike.dsl.client.command.Buffer;
+import com.aerospike.dsl.client.command.ParticleType;
+import com.aerospike.dsl.client.query.RegexFlag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.aerospike.dsl.evaluator.ExpNode.*;
+
+/**
+ * Decodes packed filter expression bytes into a tree of {@link ExpNode}s.
+ * <p>
+ * Expressions are packed as MessagePack: a command is an array with the command code and its arguments,
+ * anything else is a literal value. Strings of literal values start with a particle type byte,
+ * while names of bins and variables do not.
+ */
+final class ExpDecoder {
+
+    private static final int CDT_CONTEXT = 0xff;
+
+    private final byte[] buffer;
+    private int offset;
+
+    private ExpDecoder(byte[] buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * @param bytes Packed expression, as returned by {@link com.aerospike.dsl.client.exp.Expression#getBytes()}
+     * @return Root of the decoded expression
+     * @throws IllegalArgumentException      if the bytes are not a valid expression
+     * @throws UnsupportedOperationException if the expression uses commands that cannot be evaluated locally
+     */
+    static ExpNode decode(byte[] bytes) {
+        ExpDecoder decoder = new ExpDecoder(bytes, 0);
+        try {
+            ExpNode node = decoder.readExp();
+            if (decoder.offset != bytes.length) {
+                throw new IllegalArgumentException("Unexpected bytes after the end of expression");
+            }
+            return node;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated expression", e);
+        }
+    }
+
+    /**
+     * @param bytes Packed list of context types and values, as returned by
+     *              {@link com.aerospike.dsl.client.cdt.CTX#toBytes(com.aerospike.dsl.client.cdt.CTX[])}
+     * @return Context types followed by context values
+     */
+    static Object[] decodeContext(byte[] bytes) {
+        ExpDecoder decoder = new ExpDecoder(bytes, 0);
+        return decoder.readContext(decoder.readArrayHeader());
+    }
+
+    private ExpNode readExp() {
+        int type = peek();
+        if (!isArray(type)) {
+            return literal(readValue());
+        }
+        int count = readArrayHeader();
+        int op = (int) readLong();
+        return switch (op) {
+            case QUOTED -> literal(readValue());
+            case BIN -> {
+                int binType = (int) readLong();
+                yield new ExpNode(BIN, new ExpNode[0], readName(), binType);
+            }
+            case BIN_TYPE, VAR -> new ExpNode(op, new ExpNode[0], readName(), 0);
+            case KEY, DIGEST_MODULO -> new ExpNode(op, new ExpNode[0], null, (int) readLong());
+            case LET -> readLet(count);
+            case REGEX -> {
+                int flags = (int) readLong();
+                Pattern pattern = Pattern.compile(readName(), toPatternFlags(flags));
+                yield new ExpNode(REGEX, new ExpNode[]{readExp()}, pattern, 0);
+            }
+            case CALL -> readCall();
+            case GEO -> throw new UnsupportedOperationException("Geospatial expressions are not supported");
+            default -> {
+                ExpNode[] args = new ExpNode[count - 1];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = readExp();
+                }
+                yield new ExpNode(op, args, null, 0);
+            }
+        };
+    }
+
+    /**
+     * Let is packed as {@code [LET, name1, exp1, name2, exp2, ..., scope]}, names become values of
+     * the {@link ExpNode#VAR} nodes defining the variables
+     */
+    private ExpNode readLet(int count) {
+        ExpNode[] args = new ExpNode[(count - 2) / 2 + 1];
+        for (int i = 0; i < args.length - 1; i++) {
+            String name = readName();
+            args[i] = new ExpNode(VAR, new ExpNode[]{readExp()}, name, 0);
+        }
+        args[args.length - 1] = readExp();
+        return new ExpNode(LET, args, null, 0);
+    }
+
+    /**
+     * Call is packed as {@code [CALL, returnType, module, operation, bin]}, where operation is
+     * {@code [command, args...]} or {@code [0xff, [ctx...], [command, args...]]}
+     */
+    private ExpNode readCall() {
+        int returnType = (int) readLong();
+        int module = (int) readLong();
+        if (module != 0) {
+            throw new UnsupportedOperationException(
+                    "Only list and map read operations are supported, module: %d".formatted(module));
+        }
+        int count = readArrayHeader();
+        Object[] context = {new int[0]};
+        if ((peek() & 0xff) == 0xcc && (buffer[offset + 1] & 0xff) == CDT_CONTEXT) {
+            readLong();
+            context = readContext(readArrayHeader());
+            count = readArrayHeader();
+        }
+        int command = (int) readLong();
+        int cdtReturnType = count > 1 ? (int) readLong() : 0;
+        ExpNode[] arguments = new ExpNode[Math.max(count - 2, 0)];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = readExp();
+        }
+        int[] ctxIds = (int[]) context[0];
+        Object[] ctxValues = Arrays.copyOfRange(context, 1, context.length);
+        CdtCall call = new CdtCall(ctxIds, ctxValues, command, cdtReturnType, arguments);
+        return new ExpNode(CALL, new ExpNode[]{readExp()}, call, returnType);
+    }
+
+    /**
+     * @return Array of context types as the first element, followed by context values
+     */
+    private Object[] readContext(int count) {
+        int[] ids = new int[count / 2];
+        Object[] result = new Object[ids.length + 1];
+        result[0] = ids;
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (int) readLong();
+            result[i + 1] = readValue();
+        }
+        return result;
+    }
+
+    private static int toPatternFlags(int flags) {
+        // Java regular expressions are a superset of POSIX extended ones, so RegexFlag.EXTENDED needs no flag
+        int patternFlags = 0;
+        if ((flags & RegexFlag.ICASE) != 0) patternFlags |= Pattern.CASE_INSENSITIVE;
+        // POSIX regexec() matches newlines with '.' unless REG_NEWLINE is set
+        patternFlags |= (flags & RegexFlag.NEWLINE) != 0 ? Pattern.MULTILINE : Pattern.DOTALL;
+        return patternFlags;
+    }
+
+    /**
+     * @return A literal value: Long, Double, String, byte[], Boolean, List, Map, null,
+     * {@link Values#INF} or {@link Values#WILDCARD}
+     */
+    private Object readValue() {
+        int type = buffer[offset++] & 0xff;
+        if (type <= 0x7f) return (long) type;
+        if (type >= 0xe0) return (long) (byte) type;
+        if ((type & 0xe0) == 0xa0) return readParticle(type & 0x1f);
+        if ((type & 0xf0) == 0x90) return readList(type & 0x0f);
+        if ((type & 0xf0) == 0x80) return readMap(type & 0x0f);
+
+        return switch (type) {
+            case 0xc0 -> null;
+            case 0xc2 -> false;
+            case 0xc3 -> true;
+            case 0xca -> {
+                float value = Float.intBitsToFloat(Buffer.bytesToInt(buffer, offset));
+                offset += 4;
+                yield (double) value;
+            }
+            case 0xcb -> {
+                double value = Double.longBitsToDouble(Buffer.bytesToLong(buffer, offset));
+                offset += 8;
+                yield value;
+            }
+            case 0xcc, 0xcd, 0xce, 0xcf, 0xd0, 0xd1, 0xd2, 0xd3 -> {
+                offset--;
+                yield readLong();
+            }
+            case 0xc4, 0xd9 -> readParticle(readLength(1));
+            case 0xc5, 0xda -> readParticle(readLength(2));
+            case 0xc6, 0xdb -> readParticle(readLength(4));
+            case 0xdc -> readList(readLength(2));
+            case 0xdd -> readList(readLength(4));
+            case 0xde -> readMap(readLength(2));
+            case 0xdf -> readMap(readLength(4));
+            case 0xd4 -> {
+                // Infinity and wildcard are packed as 1 byte extensions of type 0xff
+                int extensionType = buffer[offset++] & 0xff;
+                int data = buffer[offset++] & 0xff;
+                if (extensionType == 0xff && data == 0x01) yield Values.INF;
+                if (extensionType == 0xff && data == 0x00) yield Values.WILDCARD;
+                throw new IllegalArgumentException("Unsupported extension type: %d".formatted(extensionType));
+            }
+            default -> throw new IllegalArgumentException("Unsupported value type: 0x%x".formatted(type));
+        };
+    }
+
+    private Object readParticle(int length) {
+        if (length == 0) return "";
+
+        int particleType = buffer[offset] & 0xff;
+        int start = offset + 1;
+        offset += length;
+        return switch (particleType) {
+            case ParticleType.STRING -> Buffer.utf8ToString(buffer, start, length - 1);
+            case ParticleType.GEOJSON -> Value.getAsGeoJSON(Buffer.utf8ToString(buffer, start, length - 1));
+            default -> Arrays.copyOfRange(buffer, start, start + length - 1);
+        };
+    }
+
+    private List<Object> readList(int count) {
+        List<Object> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(readValue());
+        }
+        return list;
+    }
+
+    private Map<Object, Object> readMap(int count) {
+        Map<Object, Object> map = new LinkedHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            if ((buffer[offset] & 0xff) == 0xc7) {
+                // Map order extension, followed by a nil value
+                offset += (buffer[offset + 1] & 0xff) + 3;
+                readValue();
+                continue;
+            }
+            Object key = readValue();
+            map.put(key, readValue());
+        }
+        return map;
+    }
+
+    private String readName() {
+        int type = buffer[offset++] & 0xff;
+        int length;
+        if ((type & 0xe0) == 0xa0) {
+            length = type & 0x1f;
+        } else {
+            length = switch (type) {
+                case 0xd9 -> readLength(1);
+                case 0xda -> readLength(2);
+                case 0xdb -> readLength(4);
+                default -> throw new IllegalArgumentException("Expected a name, got type: 0x%x".formatted(type));
+            };
+        }
+        String name = Buffer.utf8ToString(buffer, offset, length);
+        offset += length;
+        return name;
+    }
+
+    private long readLong() {
+        int type = buffer[offset++] & 0xff;
+        if (type <= 0x7f) return type;
+        if (type >= 0xe0) return (byte) type;
+
+        long value = switch (type) {
+            case 0xcc -> buffer[offset] & 0xff;
+            case 0xcd -> Buffer.bytesToShort(buffer, offset);
+            case 0xce -> Buffer.bigUnsigned32ToLong(buffer, offset);
+            case 0xcf, 0xd3 -> Buffer.bytesToLong(buffer, offset);
+            case 0xd0 -> buffer[offset];
+            case 0xd1 -> (short) Buffer.bytesToShort(buffer, offset);
+            case 0xd2 -> Buffer.bytesToInt(buffer, offset);
+            default -> throw new IllegalArgumentException("Expected an integer, got type: 0x%x".formatted(type));
+        };
+        offset += switch (type) {
+            case 0xcc, 0xd0 -> 1;
+            case 0xcd, 0xd1 -> 2;
+            case 0xce, 0xd2 -> 4;
+            default -> 8;
+        };
+        return value;
+    }
+
+    private int readArrayHeader() {
+        int type = buffer[offset++] & 0xff;
+        if ((type & 0xf0) == 0x90) return type & 0x0f;
+
+        return switch (type) {
+            case 0xdc -> readLength(2);
+            case 0xdd -> readLength(4);
+            default -> throw new IllegalArgumentException("Expected an array, got type: 0x%x".formatted(type));
+        };
+    }
+
+    private int readLength(int size) {
+        int length = switch (size) {
+            case 1 -> buffer[offset] & 0xff;
+            case 2 -> Buffer.bytesToShort(buffer, offset);
+            default -> Buffer.bytesToInt(buffer, offset);
+        };
+        offset += size;
+        return length;
+    }
+
+    private int peek() {
+        return buffer[offset] & 0xff;
+    }
+
+    private static boolean isArray(int type) {
+        return (type & 0xf0) == 0x90 || type == 0xdc || type == 0xdd;
+    }
+}
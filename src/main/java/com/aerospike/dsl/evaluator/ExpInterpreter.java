@@ -0,0 +1,268 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.Value;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexCollectionType;
+import lombok.AllArgsConstructor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.aerospike.dsl.evaluator.ExpNode.*;
+import static com.aerospike.dsl.evaluator.ExpressionEvaluator.UNKNOWN;
+
+/**
+ * Tree-walking interpreter of decoded expressions.
+ * <p>
+ * Follows the server semantics: reading a missing bin, a value of another type or a missing list element,
+ * as well as failed arithmetic (overflow, division by zero) results in {@link ExpressionEvaluator#UNKNOWN},
+ * which propagates to the result of the enclosing command. {@code and} and {@code or} evaluate operands
+ * left to right and stop at the first operand deciding the result, or at the first unknown one.
+ */
+final class ExpInterpreter {
+
+    private final LocalRecord localRecord;
+
+    ExpInterpreter(LocalRecord localRecord) {
+        this.localRecord = localRecord;
+    }
+
+    Object evaluate(ExpNode node) {
+        return evaluate(node, null);
+    }
+
+    private Object evaluate(ExpNode node, Scope scope) {
+        return switch (node.op) {
+            case VALUE -> node.value;
+            case FILTER -> matchesFilter((Filter) node.value, scope);
+            case UNKNOWN_EXP -> UNKNOWN;
+            case EQ, NE, GT, GE, LT, LE -> compare(node, scope);
+            case REGEX -> {
+                Object value = evaluate(node.args[0], scope);
+                if (!(value instanceof String string)) yield UNKNOWN;
+                yield ((Pattern) node.value).matcher(string).find();
+            }
+            case AND, OR -> logical(node, scope);
+            case NOT -> {
+                Object value = evaluate(node.args[0], scope);
+                yield value instanceof Boolean bool ? !bool : UNKNOWN;
+            }
+            case EXCLUSIVE -> exclusive(node, scope);
+            case ADD, SUB, MUL, DIV, POW, LOG, MOD, ABS, FLOOR, CEIL, TO_INT, TO_FLOAT,
+                 INT_AND, INT_OR, INT_XOR, INT_NOT, INT_LSHIFT, INT_RSHIFT, INT_ARSHIFT, INT_COUNT,
+                 INT_LSCAN, INT_RSCAN, MIN, MAX -> {
+                Object[] args = evaluateArgs(node.args, scope);
+                yield args == null ? UNKNOWN : Arithmetic.apply(node.op, args);
+            }
+            case DIGEST_MODULO -> orUnknown(localRecord.getDigestModulo(node.param));
+            case DEVICE_SIZE, MEMORY_SIZE, RECORD_SIZE -> orUnknown(localRecord.getRecordSize());
+            case LAST_UPDATE -> orUnknown(localRecord.getLastUpdate());
+            case SINCE_UPDATE -> orUnknown(localRecord.getSinceUpdate());
+            case VOID_TIME -> orUnknown(localRecord.getVoidTime());
+            case TTL -> orUnknown(localRecord.getTtl());
+            case SET_NAME -> orUnknown(localRecord.getSetName());
+            case KEY_EXISTS -> localRecord.keyExists();
+            case IS_TOMBSTONE -> localRecord.isTombstone();
+            case KEY -> ofType(Values.normalize(localRecord.getKey()), node.param);
+            case BIN -> {
+                Object value = Values.normalize(localRecord.getBin((String) node.value));
+                yield value == null ? UNKNOWN : ofType(value, node.param);
+            }
+            case BIN_TYPE -> (long) Values.particleType(Values.normalize(localRecord.getBin((String) node.value)));
+            case COND -> cond(node, scope);
+            case LET -> let(node, scope);
+            case VAR -> Scope.lookup(scope, (String) node.value);
+            case CALL -> call(node, scope);
+            default -> throw new UnsupportedOperationException(
+                    "Unsupported expression command: %d".formatted(node.op));
+        };
+    }
+
+    private Object[] evaluateArgs(ExpNode[] nodes, Scope scope) {
+        Object[] args = new Object[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            args[i] = evaluate(nodes[i], scope);
+            if (args[i] == UNKNOWN) return null;
+        }
+        return args;
+    }
+
+    private static Object orUnknown(Object value) {
+        return value == null ? UNKNOWN : value;
+    }
+
+    /**
+     * @return The value if it is of the expected {@link Exp.Type}, otherwise unknown
+     */
+    private static Object ofType(Object value, int typeCode) {
+        return Values.typeCode(value) == typeCode ? value : UNKNOWN;
+    }
+
+    private Object compare(ExpNode node, Scope scope) {
+        Object left = evaluate(node.args[0], scope);
+        if (left == UNKNOWN) return UNKNOWN;
+        Object right = evaluate(node.args[1], scope);
+        if (right == UNKNOWN) return UNKNOWN;
+        if (Values.typeCode(left) != Values.typeCode(right)) return UNKNOWN;
+        if (left instanceof Double leftFloat) return Values.compareFloats(node.op, leftFloat, (Double) right);
+
+        int comparison = Values.compare(left, right);
+        return switch (node.op) {
+            case EQ -> comparison == 0;
+            case NE -> comparison != 0;
+            case GT -> comparison > 0;
+            case GE -> comparison >= 0;
+            case LT -> comparison < 0;
+            default -> comparison <= 0;
+        };
+    }
+
+    private Object logical(ExpNode node, Scope scope) {
+        boolean isAnd = node.op == AND;
+        for (ExpNode arg : node.args) {
+            Object value = evaluate(arg, scope);
+            if (!(value instanceof Boolean bool)) return UNKNOWN;
+            if (bool != isAnd) return bool;
+        }
+        return isAnd;
+    }
+
+    /**
+     * @return True if exactly one operand is true
+     */
+    private Object exclusive(ExpNode node, Scope scope) {
+        boolean isTrueFound = false;
+        for (ExpNode arg : node.args) {
+            Object value = evaluate(arg, scope);
+            if (!(value instanceof Boolean bool)) return UNKNOWN;
+            if (bool) {
+                if (isTrueFound) return false;
+                isTrueFound = true;
+            }
+        }
+        return isTrueFound;
+    }
+
+    /**
+     * Arguments are pairs of boolean condition and action, followed by the default action
+     */
+    private Object cond(ExpNode node, Scope scope) {
+        ExpNode[] args = node.args;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            Object condition = evaluate(args[i], scope);
+            if (!(condition instanceof Boolean bool)) return UNKNOWN;
+            if (bool) return evaluate(args[i + 1], scope);
+        }
+        return evaluate(args[args.length - 1], scope);
+    }
+
+    /**
+     * Variables are defined in order, so that a definition can refer to the variables defined before it
+     */
+    private Object let(ExpNode node, Scope scope) {
+        Scope current = scope;
+        for (int i = 0; i < node.args.length - 1; i++) {
+            ExpNode definition = node.args[i];
+            Object value = evaluate(definition.args[0], current);
+            current = new Scope((String) definition.value, value, current);
+        }
+        return evaluate(node.args[node.args.length - 1], current);
+    }
+
+    private Object call(ExpNode node, Scope scope) {
+        CdtCall call = (CdtCall) node.value;
+        ExpNode operandNode = node.args[0];
+        Object result;
+        if (operandNode.op == BIN && localRecord.getBin((String) operandNode.value) instanceof PackedValue packed
+                && PackedNavigator.typeCode(packed) == operandNode.param) {
+            // Packed bins are read directly, without unpacking elements outside the path
+            Object[] args = evaluateArgs(call.getArguments(), scope);
+            if (args == null) return UNKNOWN;
+
+            result = PackedNavigator.apply(packed, call.getCtxIds(), call.getCtxValues(), call.getCommand(),
+                    call.getReturnType(), args);
+        } else {
+            Object operand = evaluate(operandNode, scope);
+            if (operand == UNKNOWN) return UNKNOWN;
+
+            Object target = CdtOperations.navigate(operand, call.getCtxIds(), call.getCtxValues());
+            if (target == UNKNOWN) return UNKNOWN;
+
+            Object[] args = evaluateArgs(call.getArguments(), scope);
+            if (args == null) return UNKNOWN;
+
+            result = CdtOperations.apply(target, call.getCommand(), call.getReturnType(), args);
+        }
+        result = Values.normalize(result);
+        if (result == UNKNOWN || result == null) return result;
+        return ofType(result, node.param);
+    }
+
+    /**
+     * Secondary index filter: the indexed value, or any element of the indexed collection,
+     * is within the inclusive range of the filter
+     */
+    private Object matchesFilter(Filter filter, Scope scope) {
+        Object value;
+        if (filter.getPackedExp() != null) {
+            value = evaluate(ExpDecoder.decode(filter.getPackedExp()), scope);
+        } else if (filter.getName() != null) {
+            value = Values.normalize(localRecord.getBin(filter.getName()));
+        } else {
+            throw new UnsupportedOperationException("Filters by index name are not supported");
+        }
+        if (value == null || value == UNKNOWN) return false;
+
+        if (filter.getPackedCtx() != null) {
+            Object[] context = ExpDecoder.decodeContext(filter.getPackedCtx());
+            Object[] ctxValues = new Object[context.length - 1];
+            System.arraycopy(context, 1, ctxValues, 0, ctxValues.length);
+            value = CdtOperations.navigate(value, (int[]) context[0], ctxValues);
+            if (value == UNKNOWN) return false;
+        }
+
+        IndexCollectionType collectionType = filter.getColType() == null
+                ? IndexCollectionType.DEFAULT
+                : filter.getColType();
+        Collection<?> candidates = switch (collectionType) {
+            case DEFAULT -> List.of(value);
+            case LIST -> value instanceof List<?> list ? list : List.of();
+            case MAPKEYS -> value instanceof Map<?, ?> map ? map.keySet() : List.of();
+            case MAPVALUES -> value instanceof Map<?, ?> map ? map.values() : List.of();
+        };
+        Object begin = Values.normalize(filter.getBegin());
+        Object end = Values.normalize(filter.getEnd());
+        if (begin instanceof Value.GeoJSONValue) {
+            throw new UnsupportedOperationException("Geospatial filters are not supported");
+        }
+        for (Object candidate : candidates) {
+            Object normalized = Values.normalize(candidate);
+            if (Values.typeCode(normalized) == Values.typeCode(begin)
+                    && Values.compare(normalized, begin) >= 0 && Values.compare(normalized, end) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Variables defined by {@code let}, the innermost definition first
+     */
+    @AllArgsConstructor
+    private static final class Scope {
+
+        private final String name;
+        private final Object value;
+        private final Scope parent;
+
+        private static Object lookup(Scope scope, String name) {
+            for (Scope current = scope; current != null; current = current.parent) {
+                if (current.name.equals(name)) return current.value;
+            }
+            throw new IllegalArgumentException("Variable is not defined: %s".formatted(name));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.aerospike.dsl.evaluator;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Decoded instruction of a packed filter expression, see {@link ExpDecoder}.
+ */
+final class ExpNode {
+
+    // Literal value, not a server command
+    static final int VALUE = -1;
+    // Secondary index Filter, not a server command
+    static final int FILTER = -2;
+
+    // Server commands, same as in Exp
+    static final int UNKNOWN_EXP = 0;
+    static final int EQ = 1;
+    static final int NE = 2;
+    static final int GT = 3;
+    static final int GE = 4;
+    static final int LT = 5;
+    static final int LE = 6;
+    static final int REGEX = 7;
+    static final int GEO = 8;
+    static final int AND = 16;
+    static final int OR = 17;
+    static final int NOT = 18;
+    static final int EXCLUSIVE = 19;
+    static final int ADD = 20;
+    static final int SUB = 21;
+    static final int MUL = 22;
+    static final int DIV = 23;
+    static final int POW = 24;
+    static final int LOG = 25;
+    static final int MOD = 26;
+    static final int ABS = 27;
+    static final int FLOOR = 28;
+    static final int CEIL = 29;
+    static final int TO_INT = 30;
+    static final int TO_FLOAT = 31;
+    static final int INT_AND = 32;
+    static final int INT_OR = 33;
+    static final int INT_XOR = 34;
+    static final int INT_NOT = 35;
+    static final int INT_LSHIFT = 36;
+    static final int INT_RSHIFT = 37;
+    static final int INT_ARSHIFT = 38;
+    static final int INT_COUNT = 39;
+    static final int INT_LSCAN = 40;
+    static final int INT_RSCAN = 41;
+    static final int MIN = 50;
+    static final int MAX = 51;
+    static final int DIGEST_MODULO = 64;
+    static final int DEVICE_SIZE = 65;
+    static final int LAST_UPDATE = 66;
+    static final int SINCE_UPDATE = 67;
+    static final int VOID_TIME = 68;
+    static final int TTL = 69;
+    static final int SET_NAME = 70;
+    static final int KEY_EXISTS = 71;
+    static final int IS_TOMBSTONE = 72;
+    static final int MEMORY_SIZE = 73;
+    static final int RECORD_SIZE = 74;
+    static final int KEY = 80;
+    static final int BIN = 81;
+    static final int BIN_TYPE = 82;
+    static final int COND = 123;
+    static final int VAR = 124;
+    static final int LET = 125;
+    static final int QUOTED = 126;
+    static final int CALL = 127;
+
+    final int op;
+    final ExpNode[] args;
+    /**
+     * Literal value, bin or variable name, compiled regex, {@link CdtCall} or
+     * {@link com.aerospike.dsl.client.query.Filter}, depending on the command
+     */
+    final Object value;
+    /**
+     * Integer parameter of the command: {@link com.aerospike.dsl.client.exp.Exp.Type} code of a bin, key
+     * or CDT result, or the modulo of {@code digestModulo}
+     */
+    final int param;
+
+    ExpNode(int op, ExpNode[] args, Object value, int param) {
+        this.op = op;
+        this.args = args;
+        this.value = value;
+        this.param = param;
+    }
+
+    static ExpNode literal(Object value) {
+        return new ExpNode(VALUE, new ExpNode[0], value, 0);
+    }
+
+    boolean isLiteral() {
+        return op == VALUE;
+    }
+
+    /**
+     * Read operation on a list or a map, the operand is the first argument of the {@link #CALL} node
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class CdtCall {
+
+        /**
+         * Context types of the nested element the operation applies to, see {@link CdtOperations#navigate}
+         */
+        private final int[] ctxIds;
+        private final Object[] ctxValues;
+        /**
+         * List or map operation code
+         */
+        private final int command;
+        /**
+         * See {@link com.aerospike.dsl.client.cdt.ListReturnType} and {@link com.aerospike.dsl.client.cdt.MapReturnType}
+         */
+        private final int returnType;
+        private final ExpNode[] arguments;
+    }
+}
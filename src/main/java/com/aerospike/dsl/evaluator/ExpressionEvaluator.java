@@ -0,0 +1,143 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.query.Filter;
+
+import java.util.Objects;
+
+/**
+ * Evaluates filter expressions against {@link LocalRecord}s in the JVM, e.g., to filter cached records
+ * without a round trip to the server.
+ * <p>
+ * The packed filter expression is evaluated, so that the result is the same as on the server, including
+ * list and map paths and the effects of optimization and placeholders. A missing bin, a bin of another type,
+ * a missing list element or metadata the record does not provide make the result {@link #UNKNOWN}, which does
+ * not pass the filter. Geospatial expressions, bit and HyperLogLog operations and list or map modify
+ * operations are not supported.
+ * <p>
+ * An instance is immutable and can be used concurrently from multiple threads.
+ */
+@Beta
+public final class ExpressionEvaluator {
+
+    /**
+     * Result of an expression that cannot be evaluated for the record, e.g., comparing a missing bin
+     */
+    public static final Object UNKNOWN = new Object() {
+        @Override
+        public String toString() {
+            return "UNKNOWN";
+        }
+    };
+
+    private final ExpNode root;
+
+    private ExpressionEvaluator(ExpNode root) {
+        this.root = root;
+    }
+
+    /**
+     * @param exp Filter expression, must not be null
+     * @return Evaluator of the expression
+     * @throws UnsupportedOperationException if the expression uses commands that cannot be evaluated locally
+     */
+    public static ExpressionEvaluator of(Exp exp) {
+        Objects.requireNonNull(exp, "exp must not be null");
+        return of(Exp.build(exp));
+    }
+
+    /**
+     * @param expression Packed filter expression, must not be null
+     * @return Evaluator of the expression
+     * @throws IllegalArgumentException      if the expression cannot be decoded
+     * @throws UnsupportedOperationException if the expression uses commands that cannot be evaluated locally
+     */
+    public static ExpressionEvaluator of(Expression expression) {
+        Objects.requireNonNull(expression, "expression must not be null");
+        return new ExpressionEvaluator(ExpDecoder.decode(expression.getBytes()));
+    }
+
+    /**
+     * Create an evaluator that matches records passing both the secondary index {@link Filter}
+     * and the filter {@link Exp} of the result.
+     *
+     * @param parseResult Result of parsing, must have a filter or an expression
+     * @return Evaluator of the result
+     * @throws UnsupportedOperationException if the filter or the expression cannot be evaluated locally
+     */
+    public static ExpressionEvaluator of(ParseResult parseResult) {
+        Objects.requireNonNull(parseResult, "parseResult must not be null");
+        Filter filter = parseResult.getFilter();
+        Exp exp = parseResult.getExp();
+        if (filter == null && exp == null) {
+            throw new IllegalArgumentException("Parse result has neither filter nor expression");
+        }
+        if (filter == null) return of(exp);
+
+        ExpNode filterNode = new ExpNode(ExpNode.FILTER, new ExpNode[0], filter, 0);
+        if (exp == null) return new ExpressionEvaluator(filterNode);
+        ExpNode expNode = ExpDecoder.decode(Exp.build(exp).getBytes());
+        return new ExpressionEvaluator(new ExpNode(ExpNode.AND, new ExpNode[]{filterNode, expNode}, null, 0));
+    }
+
+    /**
+     * @param parsedExpression Parsed expression without placeholders
+     * @return Evaluator of the secondary index filter and the filter expression
+     */
+    public static ExpressionEvaluator of(ParsedExpression parsedExpression) {
+        Objects.requireNonNull(parsedExpression, "parsedExpression must not be null");
+        return of(parsedExpression.getResult());
+    }
+
+    /**
+     * @param parsedExpression  Parsed expression
+     * @param placeholderValues Values to match with placeholders
+     * @return Evaluator of the secondary index filter and the filter expression
+     */
+    public static ExpressionEvaluator of(ParsedExpression parsedExpression, PlaceholderValues placeholderValues) {
+        Objects.requireNonNull(parsedExpression, "parsedExpression must not be null");
+        return of(parsedExpression.getResult(placeholderValues));
+    }
+
+    /**
+     * @param localRecord Record to evaluate the expression against, must not be null
+     * @return Value of the expression: Boolean, Long, Double, String, byte[], List, Map, null,
+     * or {@link #UNKNOWN}
+     */
+    public Object evaluate(LocalRecord localRecord) {
+        Objects.requireNonNull(localRecord, "localRecord must not be null");
+        return new ExpInterpreter(localRecord).evaluate(root);
+    }
+
+    /**
+     * @param localRecord Record to evaluate the expression against, must not be null
+     * @return True if the record passes the filter, i.e., the expression evaluates to true
+     */
+    public boolean test(LocalRecord localRecord) {
+        return Boolean.TRUE.equals(evaluate(localRecord));
+    }
+
+    /**
+     * Compile the expression for filtering many records, e.g., a stream of changes.
+     * Compilation is done once per call, the result should be reused.
+     *
+     * @return Predicate with the same result as {@link #test(LocalRecord)}
+     */
+    public CompiledPredicate compile() {
+        return new CompiledPredicate(PredicateCompiler.compile(root));
+    }
+
+    /**
+     * Compile the expression for filtering batches of records stored by column.
+     *
+     * @return Predicate that selects the rows of a {@link ColumnBatch} passing the filter
+     */
+    public BatchPredicate compileBatch() {
+        return new BatchPredicate(root);
+    }
+}
@@ -0,0 +1,100 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.annotation.Beta;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Record evaluated by {@link ExpressionEvaluator}: bins and metadata of a locally available record,
+ * e.g., a cached one.
+ * <p>
+ * Metadata that is not known returns null, which makes expressions reading it evaluate to
+ * {@link ExpressionEvaluator#UNKNOWN}.
+ */
+@Beta
+public interface LocalRecord {
+
+    /**
+     * @param name Bin name
+     * @return Bin value, or null if the bin does not exist. Integral numbers, floats, strings, booleans,
+     * byte arrays, lists, maps and {@link com.aerospike.dsl.client.Value}s are supported, as well as lists and maps
+     * in the packed form of the server as {@link PackedValue}
+     */
+    Object getBin(String name);
+
+    /**
+     * @return User key, or null if the key is not stored with the record
+     */
+    default Object getKey() {
+        return null;
+    }
+
+    default boolean keyExists() {
+        return getKey() != null;
+    }
+
+    /**
+     * @return Name of the set of the record
+     */
+    default String getSetName() {
+        return null;
+    }
+
+    /**
+     * @return Remaining time to live in seconds, -1 if the record never expires
+     */
+    default Long getTtl() {
+        return null;
+    }
+
+    /**
+     * @return Expiration time in nanoseconds since the Unix epoch, 0 if the record never expires
+     */
+    default Long getVoidTime() {
+        return null;
+    }
+
+    /**
+     * @return Time of the last update in nanoseconds since the Unix epoch
+     */
+    default Long getLastUpdate() {
+        return null;
+    }
+
+    /**
+     * @return Milliseconds since the last update
+     */
+    default Long getSinceUpdate() {
+        Long lastUpdate = getLastUpdate();
+        return lastUpdate == null ? null : System.currentTimeMillis() - lastUpdate / 1_000_000;
+    }
+
+    /**
+     * @return Size of the record in bytes
+     */
+    default Long getRecordSize() {
+        return null;
+    }
+
+    /**
+     * @param modulo Divisor
+     * @return Record digest modulo the divisor
+     */
+    default Long getDigestModulo(int modulo) {
+        return null;
+    }
+
+    default boolean isTombstone() {
+        return false;
+    }
+
+    /**
+     * @param bins Bin names to values
+     * @return Record with the bins and no metadata
+     */
+    static LocalRecord of(Map<String, ?> bins) {
+        Objects.requireNonNull(bins, "bins must not be null");
+        return bins::get;
+    }
+}
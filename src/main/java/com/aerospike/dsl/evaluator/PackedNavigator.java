@@ -0,0 +1,205 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.AerospikeException;
+import com.aerospike.dsl.client.cdt.ListReturnType;
+import com.aerospike.dsl.client.cdt.MapReturnType;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.util.MsgPackReader;
+import com.aerospike.dsl.client.util.MsgPackReader.ValueType;
+import com.aerospike.dsl.client.util.Unpacker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.aerospike.dsl.evaluator.CdtOperations.*;
+import static com.aerospike.dsl.evaluator.ExpressionEvaluator.UNKNOWN;
+
+/**
+ * List and map read operations on a {@link PackedValue} that do not unpack elements outside the path.
+ * <p>
+ * List indexes, map keys, map indexes of key ordered maps, and list and map values are followed by skipping
+ * the preceding elements by length. Reading an element by index or a map value by key, and the size, unpack only
+ * the result. Other contexts and operations unpack the element reached so far and continue with
+ * {@link CdtOperations}, so the result is always the same as for the unpacked value.
+ */
+final class PackedNavigator {
+
+    private static final int MAP_KEY_ORDERED = 0x01;
+
+    private final byte[] buffer;
+    private final MsgPackReader reader;
+
+    private PackedNavigator(PackedValue value) {
+        this.buffer = value.getBytes();
+        this.reader = new MsgPackReader(buffer, value.getOffset(), value.getLength());
+    }
+
+    /**
+     * @return Result of {@link CdtOperations#apply} on the element the context points to,
+     * or {@link ExpressionEvaluator#UNKNOWN}
+     * @throws AerospikeException.Serialize if the value is not valid MessagePack
+     */
+    static Object apply(PackedValue value, int[] ctxIds, Object[] ctxValues, int command, int returnType,
+                        Object[] args) {
+        PackedNavigator navigator = new PackedNavigator(value);
+        for (int i = 0; i < ctxIds.length; i++) {
+            Boolean isFound = navigator.enter(ctxIds[i] & CTX_TYPE_MASK, ctxValues[i]);
+            if (isFound == null) {
+                Object target = CdtOperations.navigate(navigator.unpack(),
+                        Arrays.copyOfRange(ctxIds, i, ctxIds.length),
+                        Arrays.copyOfRange(ctxValues, i, ctxValues.length));
+                return target == UNKNOWN ? UNKNOWN : CdtOperations.apply(target, command, returnType, args);
+            }
+            if (!isFound) return UNKNOWN;
+        }
+        return navigator.read(command, returnType, args);
+    }
+
+    /**
+     * @return {@link Exp.Type} code of the packed value if it is a list or a map, otherwise -1
+     */
+    static int typeCode(PackedValue value) {
+        if (value.getLength() == 0) return -1;
+
+        ValueType type = new PackedNavigator(value).reader.nextType();
+        if (type == ValueType.ARRAY) return Exp.Type.LIST.code;
+        if (type == ValueType.MAP) return Exp.Type.MAP.code;
+        return -1;
+    }
+
+    /**
+     * Move to the nested element selected by the context
+     *
+     * @return True if the element is found, false if it does not exist, null if the context
+     * cannot be followed on the packed bytes
+     */
+    private Boolean enter(int ctxType, Object ctxValue) {
+        boolean isMapContext = ctxType >= CTX_MAP_INDEX;
+        int start = reader.getPosition();
+        if (reader.nextType() != (isMapContext ? ValueType.MAP : ValueType.ARRAY)) return false;
+        int count = isMapContext ? reader.enterMap() : reader.enterArray();
+
+        switch (ctxType) {
+            case CTX_LIST_INDEX -> {
+                long position = toPosition(ctxValue, count);
+                if (position < 0) return false;
+                reader.skipValues(position);
+                return true;
+            }
+            case CTX_MAP_INDEX -> {
+                if ((reader.getFlags() & MAP_KEY_ORDERED) == 0) break;
+                long position = toPosition(ctxValue, count);
+                if (position < 0) return false;
+                reader.skipValues(2 * position + 1);
+                return true;
+            }
+            case CTX_MAP_KEY -> {
+                Object key = toPacked(ctxValue);
+                if (key != null) return findKey(key, count);
+            }
+            case CTX_LIST_VALUE, CTX_MAP_VALUE -> {
+                Object value = toPacked(ctxValue);
+                if (value == null) break;
+                for (int i = 0; i < count; i++) {
+                    if (isMapContext) reader.skipValue();
+                    int element = reader.getPosition();
+                    if (isEqual(value)) {
+                        reader.setPosition(element);
+                        return true;
+                    }
+                }
+                return false;
+            }
+            default -> {
+            }
+        }
+        reader.setPosition(start);
+        return null;
+    }
+
+    /**
+     * Move to the value of the map entry with the key, the map header has been read
+     *
+     * @param key Key converted by {@link #toPacked(Object)}
+     * @return True if the key is found, false if not
+     */
+    private boolean findKey(Object key, int count) {
+        for (int i = 0; i < count; i++) {
+            if (isEqual(key)) return true;
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    private Object read(int command, int returnType, Object[] args) {
+        int start = reader.getPosition();
+        switch (command) {
+            case LIST_SIZE -> {
+                return reader.nextType() == ValueType.ARRAY ? (long) reader.enterArray() : UNKNOWN;
+            }
+            case MAP_SIZE -> {
+                return reader.nextType() == ValueType.MAP ? (long) reader.enterMap() : UNKNOWN;
+            }
+            case LIST_GET_BY_INDEX -> {
+                if (returnType != ListReturnType.VALUE) break;
+                if (reader.nextType() != ValueType.ARRAY) return UNKNOWN;
+                long position = toPosition(args[0], reader.enterArray());
+                if (position < 0) return UNKNOWN;
+                reader.skipValues(position);
+                return unpack();
+            }
+            case MAP_GET_BY_KEY -> {
+                Object key = toPacked(args[0]);
+                if (returnType != MapReturnType.VALUE || key == null) break;
+                if (reader.nextType() != ValueType.MAP) return UNKNOWN;
+                return findKey(key, reader.enterMap()) ? unpack() : null;
+            }
+            default -> {
+            }
+        }
+        reader.setPosition(start);
+        return CdtOperations.apply(unpack(), command, returnType, args);
+    }
+
+    private static long toPosition(Object index, long count) {
+        if (!(index instanceof Long longIndex)) return -1;
+        long position = longIndex < 0 ? count + longIndex : longIndex;
+        return position < 0 || position >= count ? -1 : position;
+    }
+
+    private Object unpack() {
+        int start = reader.getPosition();
+        reader.skipValue();
+        return Values.normalize(Unpacker.unpackObject(buffer, start, reader.getPosition() - start));
+    }
+
+    /**
+     * @return The value in the form compared with packed elements: Long, or UTF-8 bytes of a String,
+     * or null if elements cannot be compared with the value on the packed bytes
+     */
+    private static Object toPacked(Object value) {
+        if (value instanceof Long) return value;
+        if (value instanceof String string) return string.getBytes(StandardCharsets.UTF_8);
+        return null;
+    }
+
+    /**
+     * Compare the element at the position to the value without unpacking it, and move past the element
+     *
+     * @param value Value converted by {@link #toPacked(Object)}
+     */
+    private boolean isEqual(Object value) {
+        ValueType type = reader.nextType();
+        if (value instanceof Long longValue && type == ValueType.INTEGER) {
+            return reader.readLong() == longValue;
+        }
+        if (value instanceof byte[] utf8 && type == ValueType.STRING) {
+            int length = reader.readRawLength();
+            boolean isEqual = reader.contentEquals(utf8, length);
+            reader.skipBytes(length);
+            return isEqual;
+        }
+        reader.skipValue();
+        return false;
+    }
+}
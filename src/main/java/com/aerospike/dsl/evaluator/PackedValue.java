@@ -0,0 +1,56 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.util.Unpacker;
+import lombok.Getter;
+
+import java.util.Objects;
+
+/**
+ * List or map bin value in the MessagePack format used by the server, e.g., as read from the wire or a cache.
+ * <p>
+ * When {@link LocalRecord#getBin(String)} returns a packed value, list and map paths are evaluated directly
+ * on the bytes: elements that are not on the path are skipped by length, and only the selected element
+ * is unpacked. The whole value is unpacked only by expressions that need it, e.g., comparing the bin to a list.
+ * The bytes are used as given, they must not be modified while the value is in use.
+ */
+@Beta
+@Getter
+public final class PackedValue {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    private PackedValue(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @param bytes Packed list or map, must not be null
+     */
+    public static PackedValue of(byte[] bytes) {
+        Objects.requireNonNull(bytes, "bytes must not be null");
+        return new PackedValue(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes  Buffer containing a packed list or map, must not be null
+     * @param offset Offset of the value in the buffer
+     * @param length Length of the value in bytes
+     */
+    public static PackedValue of(byte[] bytes, int offset, int length) {
+        Objects.requireNonNull(bytes, "bytes must not be null");
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        return new PackedValue(bytes, offset, length);
+    }
+
+    /**
+     * @return The value unpacked to {@link java.util.List} or {@link java.util.Map}
+     */
+    Object unpack() {
+        return Unpacker.unpackObject(bytes, offset, length);
+    }
+}
@@ -0,0 +1,621 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.cdt.ListReturnType;
+import com.aerospike.dsl.client.exp.Exp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.aerospike.dsl.evaluator.ExpNode.*;
+import static com.aerospike.dsl.evaluator.ExpressionEvaluator.UNKNOWN;
+import static java.lang.invoke.MethodHandles.catchException;
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.filterReturnValue;
+import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodHandles.permuteArguments;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Compiles a decoded expression into a method handle specialized by the result type of each command,
+ * and defines a hidden class from {@link PredicateTemplate} holding the handle as a constant, so the JIT
+ * compiler inlines the whole expression into one method like handwritten code.
+ * <p>
+ * The types of bins, list and map reads and literals are known from the expression, so integer and float
+ * commands compile to handles returning {@code long} and {@code double}, and boolean commands to handles
+ * returning one of {@link #TRUE}, {@link #FALSE} and {@link #UNKNOWN_RESULT}. Comparisons to literals,
+ * arithmetic and {@code IN} of literal lists do not box values. The unknown result of a numeric handle is
+ * reported by throwing the preallocated {@link UnknownValue}, which is caught by the enclosing comparison.
+ * Commands without a specialized handle, e.g., {@code let} or string functions, are evaluated by
+ * {@link ExpInterpreter}, the results are the same.
+ */
+final class PredicateCompiler {
+
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    static final int UNKNOWN_RESULT = 2;
+
+    private static final int INT = Exp.Type.INT.code;
+    private static final int FLOAT = Exp.Type.FLOAT.code;
+    private static final int BOOL = Exp.Type.BOOL.code;
+    private static final int STRING = Exp.Type.STRING.code;
+    private static final int DYNAMIC = -1;
+
+    // Exclusive states, see exclusiveStep
+    private static final int NONE_TRUE = 0;
+    private static final int ONE_TRUE = 1;
+    private static final int MANY_TRUE = 2;
+    private static final int ANY_UNKNOWN = 3;
+
+    private static final Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType OBJECT_TYPE = methodType(Object.class, LocalRecord.class);
+
+    private static final MethodHandle GET_BIN = findVirtual("getBin", Object.class, String.class);
+    private static final MethodHandle KEY_EXISTS_HANDLE = findVirtual("keyExists", boolean.class);
+    private static final MethodHandle IS_TOMBSTONE_HANDLE = findVirtual("isTombstone", boolean.class);
+    private static final MethodHandle GET_DIGEST_MODULO = findVirtual("getDigestModulo", Long.class, int.class)
+            .asType(methodType(Object.class, LocalRecord.class, int.class));
+
+    private static final MethodHandle INTERPRET = findStatic("interpret", Object.class, ExpNode.class,
+            LocalRecord.class);
+    private static final MethodHandle UNKNOWN_LONG = findStatic("unknownLong", long.class, LocalRecord.class);
+    private static final MethodHandle UNKNOWN_DOUBLE = findStatic("unknownDouble", double.class, LocalRecord.class);
+    private static final MethodHandle UNKNOWN_HANDLER = dropArguments(constant(UNKNOWN_RESULT), 0,
+            UnknownValue.class);
+
+    private static final MethodHandle TO_RESULT = findStatic("toResult", int.class, boolean.class);
+    private static final MethodHandle OBJECT_TO_RESULT = findStatic("objectToResult", int.class, Object.class);
+    private static final MethodHandle NOT_RESULT = findStatic("notResult", int.class, int.class);
+    private static final MethodHandle IS_TRUE = findStatic("isTrue", boolean.class, int.class);
+    private static final MethodHandle IS_FALSE = findStatic("isFalse", boolean.class, int.class);
+    private static final MethodHandle EXCLUSIVE_STEP = findStatic("exclusiveStep", int.class, int.class, int.class);
+    private static final MethodHandle EXCLUSIVE_RESULT = findStatic("exclusiveResult", int.class, int.class);
+
+    private static final MethodHandle COMPARE_LONGS = findStatic("compareLongs", int.class, int.class,
+            long.class, long.class);
+    private static final MethodHandle COMPARE_DOUBLES = findStatic("compareDoubles", int.class, int.class,
+            double.class, double.class);
+    private static final MethodHandle COMPARE_OBJECTS = findStatic("compareObjects", int.class, int.class,
+            Object.class, Object.class);
+    private static final MethodHandle COMPARE_LONG_BIN = findStatic("compareLongBin", int.class, int.class,
+            long.class, Object.class);
+    private static final MethodHandle COMPARE_DOUBLE_BIN = findStatic("compareDoubleBin", int.class, int.class,
+            double.class, Object.class);
+    private static final MethodHandle IN_SORTED = findStatic("inSorted", int.class, long[].class, long.class);
+    private static final MethodHandle IN_SET = findStatic("inSet", int.class, Set.class, Object.class);
+
+    private static final MethodHandle TO_LONG = findStatic("toLong", long.class, Object.class);
+    private static final MethodHandle TO_DOUBLE = findStatic("toDouble", double.class, Object.class);
+    private static final MethodHandle LONG_OPERATION = findStatic("longOperation", long.class, int.class,
+            long.class, long.class);
+    private static final MethodHandle LONG_UNARY = findStatic("longUnary", long.class, int.class, long.class);
+    private static final MethodHandle SHIFT = findStatic("shift", long.class, int.class, long.class, long.class);
+    private static final MethodHandle SCAN = findStatic("scan", long.class, boolean.class, long.class, int.class);
+    private static final MethodHandle DOUBLE_TO_LONG = findStatic("toInt", long.class, double.class);
+    private static final MethodHandle DOUBLE_OPERATION = findStatic("doubleOperation", double.class, int.class,
+            double.class, double.class);
+    private static final MethodHandle DOUBLE_UNARY = findStatic("doubleUnary", double.class, int.class,
+            double.class);
+    private static final MethodHandle FINITE = findStatic("finite", double.class, double.class);
+
+    private static final byte[] TEMPLATE = readTemplate();
+
+    private PredicateCompiler() {
+    }
+
+    /**
+     * Test of a record by a compiled expression, implemented by hidden classes defined from
+     * {@link PredicateTemplate}
+     */
+    interface CompiledTest {
+
+        /**
+         * @return One of {@link #TRUE}, {@link #FALSE} and {@link #UNKNOWN_RESULT}
+         */
+        int test(LocalRecord localRecord);
+    }
+
+    /**
+     * Unknown result of a numeric command, thrown by numeric handles and caught by the enclosing comparison.
+     * A single instance without stack trace is thrown, so that the JIT compiler can turn throwing into a jump
+     * once the expression is inlined.
+     */
+    static final class UnknownValue extends RuntimeException {
+
+        private static final UnknownValue INSTANCE = new UnknownValue();
+
+        private UnknownValue() {
+            super(null, null, false, false);
+        }
+    }
+
+    static CompiledTest compile(ExpNode root) {
+        MethodHandle handle = compileBool(root);
+        try {
+            Lookup hiddenLookup = LOOKUP.defineHiddenClassWithClassData(TEMPLATE, handle, true);
+            return (CompiledTest) hiddenLookup.findConstructor(hiddenLookup.lookupClass(), methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not define compiled predicate class", e);
+        }
+    }
+
+    /**
+     * @return {@link Exp.Type} code of the command result if it is known from the expression, otherwise -1
+     */
+    static int typeOf(ExpNode node) {
+        return switch (node.op) {
+            case VALUE -> Values.typeCode(node.value);
+            case BIN, KEY, CALL -> node.param;
+            case EQ, NE, GT, GE, LT, LE, REGEX, AND, OR, NOT, EXCLUSIVE, KEY_EXISTS, IS_TOMBSTONE -> BOOL;
+            case TO_INT, INT_AND, INT_OR, INT_XOR, INT_NOT, INT_LSHIFT, INT_RSHIFT, INT_ARSHIFT, INT_COUNT,
+                 INT_LSCAN, INT_RSCAN, DIGEST_MODULO, DEVICE_SIZE, MEMORY_SIZE, RECORD_SIZE, LAST_UPDATE,
+                 SINCE_UPDATE, VOID_TIME, TTL, BIN_TYPE -> INT;
+            case TO_FLOAT, POW, LOG, FLOOR, CEIL -> FLOAT;
+            case SET_NAME -> STRING;
+            case ADD, SUB, MUL, DIV, MOD, ABS, MIN, MAX -> {
+                int type = typeOf(node.args[0]);
+                for (ExpNode arg : node.args) {
+                    if (typeOf(arg) != type) yield DYNAMIC;
+                }
+                yield type;
+            }
+            default -> DYNAMIC;
+        };
+    }
+
+    static boolean compare(int op, int comparison) {
+        return switch (op) {
+            case EQ -> comparison == 0;
+            case NE -> comparison != 0;
+            case GT -> comparison > 0;
+            case GE -> comparison >= 0;
+            case LT -> comparison < 0;
+            default -> comparison <= 0;
+        };
+    }
+
+    /**
+     * @return Literal list of {@code IN}, i.e., of {@code ListExp.getByValue(EXISTS, value, list)},
+     * or null if the node is not {@code IN} of a literal list
+     */
+    static List<?> getInList(ExpNode node) {
+        if (node.op != CALL) return null;
+
+        CdtCall call = (CdtCall) node.value;
+        if (call.getCommand() != CdtOperations.LIST_GET_BY_VALUE || call.getReturnType() != ListReturnType.EXISTS
+                || call.getCtxIds().length > 0 || !node.args[0].isLiteral()
+                || !(node.args[0].value instanceof List<?> list)) {
+            return null;
+        }
+        return list;
+    }
+
+    // Compilation, each method returns a handle taking LocalRecord
+
+    private static MethodHandle compileBool(ExpNode node) {
+        return switch (node.op) {
+            case VALUE -> constant(node.value instanceof Boolean bool ? toResult(bool) : UNKNOWN_RESULT);
+            case EQ, NE, GT, GE, LT, LE -> compileComparison(node);
+            case AND, OR -> compileLogical(node);
+            case NOT -> filterReturnValue(compileBool(node.args[0]), NOT_RESULT);
+            case EXCLUSIVE -> compileExclusive(node);
+            case BIN -> node.param == BOOL
+                    ? filterReturnValue(getBin((String) node.value), OBJECT_TO_RESULT)
+                    : constant(UNKNOWN_RESULT);
+            case KEY_EXISTS -> filterReturnValue(KEY_EXISTS_HANDLE, TO_RESULT);
+            case IS_TOMBSTONE -> filterReturnValue(IS_TOMBSTONE_HANDLE, TO_RESULT);
+            case CALL -> {
+                MethodHandle in = compileIn(node);
+                yield in != null ? in : filterReturnValue(compileObject(node), OBJECT_TO_RESULT);
+            }
+            default -> filterReturnValue(compileObject(node), OBJECT_TO_RESULT);
+        };
+    }
+
+    /**
+     * Operands are nested from the right, each next operand is evaluated only if the result so far
+     * does not decide the result of the whole command
+     */
+    private static MethodHandle compileLogical(ExpNode node) {
+        MethodHandle isUndecided = node.op == AND ? IS_TRUE : IS_FALSE;
+        MethodHandle handle = compileBool(node.args[node.args.length - 1]);
+        for (int i = node.args.length - 2; i >= 0; i--) {
+            // (int result, LocalRecord) -> result of the next operands if the result is undecided
+            MethodHandle next = guardWithTest(isUndecided,
+                    dropArguments(handle, 0, int.class),
+                    dropArguments(MethodHandles.identity(int.class), 1, LocalRecord.class));
+            handle = foldArguments(next, compileBool(node.args[i]));
+        }
+        return handle;
+    }
+
+    private static MethodHandle compileExclusive(ExpNode node) {
+        MethodHandle state = constant(NONE_TRUE);
+        for (ExpNode arg : node.args) {
+            // (int state, LocalRecord) -> state after the operand
+            MethodHandle step = filterArguments(EXCLUSIVE_STEP, 1, compileBool(arg));
+            state = foldArguments(step, state);
+        }
+        return filterReturnValue(state, EXCLUSIVE_RESULT);
+    }
+
+    private static MethodHandle compileComparison(ExpNode node) {
+        ExpNode leftNode = node.args[0];
+        ExpNode rightNode = node.args[1];
+        int leftType = typeOf(leftNode);
+        int rightType = typeOf(rightNode);
+        int op = node.op;
+        // Two list or map reads can both return nil, which are equal, so they are compared as objects
+        boolean isNilPossible = leftNode.op == CALL && rightNode.op == CALL;
+
+        if (leftType == INT && rightType == INT && !isNilPossible) {
+            if (rightNode.isLiteral()) {
+                long right = (Long) rightNode.value;
+                if (leftNode.op == BIN) {
+                    // The most common predicate, compared without unknown results thrown
+                    return filterReturnValue(getBin((String) leftNode.value),
+                            insertArguments(COMPARE_LONG_BIN, 0, op, right));
+                }
+                return catchUnknown(filterReturnValue(compileLong(leftNode),
+                        insertArguments(insertArguments(COMPARE_LONGS, 0, op), 1, right)));
+            }
+            return catchUnknown(combine(insertArguments(COMPARE_LONGS, 0, op), compileLong(leftNode),
+                    compileLong(rightNode)));
+        }
+        if (leftType == FLOAT && rightType == FLOAT && !isNilPossible) {
+            if (rightNode.isLiteral() && leftNode.op == BIN) {
+                return filterReturnValue(getBin((String) leftNode.value),
+                        insertArguments(COMPARE_DOUBLE_BIN, 0, op, (double) (Double) rightNode.value));
+            }
+            return catchUnknown(combine(insertArguments(COMPARE_DOUBLES, 0, op), compileDouble(leftNode),
+                    compileDouble(rightNode)));
+        }
+        return combine(insertArguments(COMPARE_OBJECTS, 0, op), compileObject(leftNode), compileObject(rightNode));
+    }
+
+    /**
+     * {@code IN} of a literal list of integers or strings is a binary search in a sorted array or a hash lookup
+     *
+     * @return Compiled {@code IN}, or null if the node is not {@code IN} of such a list
+     */
+    private static MethodHandle compileIn(ExpNode node) {
+        List<?> list = getInList(node);
+        if (list == null) return null;
+
+        ExpNode searched = ((CdtCall) node.value).getArguments()[0];
+        int searchedType = typeOf(searched);
+        // List and map reads can return nil, which is not an integer but is not unknown either
+        if (searchedType == INT && searched.op != CALL && list.stream().allMatch(Long.class::isInstance)) {
+            long[] sorted = list.stream().mapToLong(Long.class::cast).sorted().toArray();
+            return catchUnknown(filterReturnValue(compileLong(searched), insertArguments(IN_SORTED, 0,
+                    (Object) sorted)));
+        }
+        if (searchedType == STRING && list.stream().allMatch(String.class::isInstance)) {
+            Set<Object> strings = new HashSet<>(list);
+            return filterReturnValue(compileObject(searched), insertArguments(IN_SET, 0, strings));
+        }
+        return null;
+    }
+
+    private static MethodHandle compileLong(ExpNode node) {
+        if (typeOf(node) != INT) return UNKNOWN_LONG;
+
+        return switch (node.op) {
+            case VALUE -> dropArguments(MethodHandles.constant(long.class, node.value), 0, LocalRecord.class);
+            case BIN -> filterReturnValue(getBin((String) node.value), TO_LONG);
+            case ADD, SUB, MUL, DIV, MOD, MIN, MAX, ABS, INT_AND, INT_OR, INT_XOR -> compileLongArithmetic(node);
+            case INT_NOT, INT_COUNT -> filterReturnValue(compileLong(node.args[0]),
+                    insertArguments(LONG_UNARY, 0, node.op));
+            case INT_LSHIFT, INT_RSHIFT, INT_ARSHIFT -> combine(insertArguments(SHIFT, 0, node.op),
+                    compileLong(node.args[0]), compileLong(node.args[1]));
+            case INT_LSCAN, INT_RSCAN -> combine(insertArguments(SCAN, 0, node.op == INT_LSCAN),
+                    compileLong(node.args[0]), compileBool(node.args[1]));
+            case TO_INT -> filterReturnValue(compileDouble(node.args[0]), DOUBLE_TO_LONG);
+            case TTL -> metadata("getTtl");
+            case VOID_TIME -> metadata("getVoidTime");
+            case LAST_UPDATE -> metadata("getLastUpdate");
+            case SINCE_UPDATE -> metadata("getSinceUpdate");
+            case DEVICE_SIZE, MEMORY_SIZE, RECORD_SIZE -> metadata("getRecordSize");
+            case DIGEST_MODULO -> filterReturnValue(insertArguments(GET_DIGEST_MODULO, 1, node.param), TO_LONG);
+            default -> filterReturnValue(compileObject(node), TO_LONG);
+        };
+    }
+
+    private static MethodHandle compileLongArithmetic(ExpNode node) {
+        int op = node.op;
+        MethodHandle handle = compileLong(node.args[0]);
+        if (node.args.length == 1) {
+            return filterReturnValue(handle, insertArguments(LONG_UNARY, 0, op));
+        }
+        for (int i = 1; i < node.args.length; i++) {
+            ExpNode arg = node.args[i];
+            handle = arg.isLiteral()
+                    // Arithmetic with a literal, e.g., '$.a + 1'
+                    ? filterReturnValue(handle, insertArguments(insertArguments(LONG_OPERATION, 0, op), 1, arg.value))
+                    : combine(insertArguments(LONG_OPERATION, 0, op), handle, compileLong(arg));
+        }
+        return handle;
+    }
+
+    private static MethodHandle compileDouble(ExpNode node) {
+        if (typeOf(node) != FLOAT) return UNKNOWN_DOUBLE;
+
+        return switch (node.op) {
+            case VALUE -> dropArguments(MethodHandles.constant(double.class, node.value), 0, LocalRecord.class);
+            case BIN -> filterReturnValue(getBin((String) node.value), TO_DOUBLE);
+            case ADD, SUB, MUL, DIV, MIN, MAX, ABS, POW, LOG, FLOOR, CEIL -> compileDoubleArithmetic(node);
+            case TO_FLOAT -> compileLong(node.args[0]).asType(methodType(double.class, LocalRecord.class));
+            default -> filterReturnValue(compileObject(node), TO_DOUBLE);
+        };
+    }
+
+    /**
+     * Results that are not finite are unknown, they are checked once the whole command is computed
+     */
+    private static MethodHandle compileDoubleArithmetic(ExpNode node) {
+        int op = node.op;
+        MethodHandle handle = compileDouble(node.args[0]);
+        if (node.args.length == 1) {
+            handle = filterReturnValue(handle, insertArguments(DOUBLE_UNARY, 0, op));
+        }
+        for (int i = 1; i < node.args.length; i++) {
+            handle = combine(insertArguments(DOUBLE_OPERATION, 0, op), handle, compileDouble(node.args[i]));
+        }
+        return filterReturnValue(handle, FINITE);
+    }
+
+    /**
+     * Commands without a specialized handle are evaluated by the interpreter
+     */
+    private static MethodHandle compileObject(ExpNode node) {
+        if (node.isLiteral()) {
+            return dropArguments(MethodHandles.constant(Object.class, node.value), 0, LocalRecord.class);
+        }
+        return insertArguments(INTERPRET, 0, node);
+    }
+
+    // Combinators
+
+    private static MethodHandle constant(int result) {
+        return dropArguments(MethodHandles.constant(int.class, result), 0, LocalRecord.class);
+    }
+
+    private static MethodHandle getBin(String name) {
+        return insertArguments(GET_BIN, 1, name);
+    }
+
+    private static MethodHandle metadata(String getter) {
+        return filterReturnValue(findVirtual(getter, Long.class).asType(OBJECT_TYPE), TO_LONG);
+    }
+
+    /**
+     * @param operation Handle of two arguments
+     * @return Handle applying the operation to the results of both handles for the same record
+     */
+    private static MethodHandle combine(MethodHandle operation, MethodHandle left, MethodHandle right) {
+        MethodHandle filtered = filterArguments(operation, 0, left, right);
+        return permuteArguments(filtered, methodType(operation.type().returnType(), LocalRecord.class), 0, 0);
+    }
+
+    private static MethodHandle catchUnknown(MethodHandle handle) {
+        return catchException(handle, UnknownValue.class, UNKNOWN_HANDLER);
+    }
+
+    // Operations bound into handles
+
+    private static Object interpret(ExpNode node, LocalRecord localRecord) {
+        return new ExpInterpreter(localRecord).evaluate(node);
+    }
+
+    private static int toResult(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    private static int objectToResult(Object value) {
+        return value instanceof Boolean bool ? toResult(bool) : UNKNOWN_RESULT;
+    }
+
+    private static int notResult(int result) {
+        return result == UNKNOWN_RESULT ? UNKNOWN_RESULT : TRUE - result;
+    }
+
+    private static boolean isTrue(int result) {
+        return result == TRUE;
+    }
+
+    private static boolean isFalse(int result) {
+        return result == FALSE;
+    }
+
+    private static int exclusiveStep(int state, int result) {
+        if (state == ANY_UNKNOWN || result == UNKNOWN_RESULT) return ANY_UNKNOWN;
+        if (result == FALSE) return state;
+        return state == NONE_TRUE ? ONE_TRUE : MANY_TRUE;
+    }
+
+    private static int exclusiveResult(int state) {
+        return state == ANY_UNKNOWN ? UNKNOWN_RESULT : toResult(state == ONE_TRUE);
+    }
+
+    private static int compareLongs(int op, long left, long right) {
+        return toResult(compare(op, Long.compare(left, right)));
+    }
+
+    private static int compareDoubles(int op, double left, double right) {
+        return toResult(Values.compareFloats(op, left, right));
+    }
+
+    private static int compareLongBin(int op, long right, Object bin) {
+        if (bin instanceof Long value) return compareLongs(op, value, right);
+        if (bin instanceof Integer || bin instanceof Short || bin instanceof Byte) {
+            return compareLongs(op, ((Number) bin).longValue(), right);
+        }
+        return Values.normalize(bin) instanceof Long value ? compareLongs(op, value, right) : UNKNOWN_RESULT;
+    }
+
+    private static int compareDoubleBin(int op, double right, Object bin) {
+        if (bin instanceof Double value) return compareDoubles(op, value, right);
+        if (bin instanceof Float value) return compareDoubles(op, value, right);
+        return Values.normalize(bin) instanceof Double value ? compareDoubles(op, value, right) : UNKNOWN_RESULT;
+    }
+
+    private static int compareObjects(int op, Object left, Object right) {
+        if (left == UNKNOWN || right == UNKNOWN) return UNKNOWN_RESULT;
+        if (Values.typeCode(left) != Values.typeCode(right)) return UNKNOWN_RESULT;
+        if (left instanceof Double leftFloat) return compareDoubles(op, leftFloat, (Double) right);
+        return toResult(compare(op, Values.compare(left, right)));
+    }
+
+    private static int inSorted(long[] sorted, long value) {
+        return toResult(Arrays.binarySearch(sorted, value) >= 0);
+    }
+
+    private static int inSet(Set<?> strings, Object value) {
+        // A value of another type is not equal to any string
+        return value == UNKNOWN ? UNKNOWN_RESULT : toResult(strings.contains(value));
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Long longValue) return longValue;
+        if (value instanceof Integer intValue) return intValue;
+        if (value instanceof Short || value instanceof Byte) return ((Number) value).longValue();
+        if (Values.normalize(value) instanceof Long longValue) return longValue;
+        throw UnknownValue.INSTANCE;
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Double doubleValue) return doubleValue;
+        if (value instanceof Float floatValue) return floatValue;
+        if (Values.normalize(value) instanceof Double doubleValue) return doubleValue;
+        throw UnknownValue.INSTANCE;
+    }
+
+    private static long unknownLong(LocalRecord localRecord) {
+        throw UnknownValue.INSTANCE;
+    }
+
+    private static double unknownDouble(LocalRecord localRecord) {
+        throw UnknownValue.INSTANCE;
+    }
+
+    private static long longOperation(int op, long left, long right) {
+        try {
+            return switch (op) {
+                case ADD -> Math.addExact(left, right);
+                case SUB -> Math.subtractExact(left, right);
+                case MUL -> Math.multiplyExact(left, right);
+                case DIV -> left == Long.MIN_VALUE && right == -1 ? unknownLong(null) : left / right;
+                case MOD -> left % right;
+                case MIN -> Math.min(left, right);
+                case MAX -> Math.max(left, right);
+                case INT_AND -> left & right;
+                case INT_OR -> left | right;
+                case INT_XOR -> left ^ right;
+                default -> unknownLong(null);
+            };
+        } catch (ArithmeticException e) {
+            throw UnknownValue.INSTANCE;
+        }
+    }
+
+    private static long longUnary(int op, long value) {
+        return switch (op) {
+            case SUB -> value == Long.MIN_VALUE ? unknownLong(null) : -value;
+            case DIV -> value == 0 ? unknownLong(null) : 1 / value;
+            case ABS -> value == Long.MIN_VALUE ? unknownLong(null) : Math.abs(value);
+            case MOD -> unknownLong(null);
+            case INT_NOT -> ~value;
+            case INT_COUNT -> Long.bitCount(value);
+            default -> value;
+        };
+    }
+
+    private static long shift(int op, long value, long bits) {
+        if (bits < 0 || bits > 63) throw UnknownValue.INSTANCE;
+        return op == INT_LSHIFT ? value << bits : op == INT_RSHIFT ? value >>> bits : value >> bits;
+    }
+
+    private static long scan(boolean isLeft, long value, int searchResult) {
+        if (searchResult == UNKNOWN_RESULT) throw UnknownValue.INSTANCE;
+        long bits = searchResult == TRUE ? value : ~value;
+        if (bits == 0) return -1;
+        return isLeft ? Long.numberOfLeadingZeros(bits) : 63 - Long.numberOfTrailingZeros(bits);
+    }
+
+    private static long toInt(double value) {
+        if (Double.isNaN(value) || value >= 0x1p63 || value < -0x1p63) throw UnknownValue.INSTANCE;
+        return (long) value;
+    }
+
+    private static double doubleOperation(int op, double left, double right) {
+        return switch (op) {
+            case ADD -> left + right;
+            case SUB -> left - right;
+            case MUL -> left * right;
+            case DIV -> right == 0 ? Double.NaN : left / right;
+            case POW -> Math.pow(left, right);
+            case LOG -> Math.log(left) / Math.log(right);
+            case MIN -> Math.min(left, right);
+            case MAX -> Math.max(left, right);
+            default -> Double.NaN;
+        };
+    }
+
+    private static double doubleUnary(int op, double value) {
+        return switch (op) {
+            case SUB -> -value;
+            case DIV -> 1 / value;
+            case ABS -> Math.abs(value);
+            case FLOOR -> Math.floor(value);
+            case CEIL -> Math.ceil(value);
+            case ADD, MUL, MIN, MAX -> value;
+            default -> Double.NaN;
+        };
+    }
+
+    private static double finite(double value) {
+        if (!Double.isFinite(value)) throw UnknownValue.INSTANCE;
+        return value;
+    }
+
+    // Lookup
+
+    private static MethodHandle findStatic(String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return LOOKUP.findStatic(PredicateCompiler.class, name, methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle findVirtual(String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return LOOKUP.findVirtual(LocalRecord.class, name, methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readTemplate() {
+        try (InputStream in = PredicateCompiler.class.getResourceAsStream("PredicateTemplate.class")) {
+            if (in == null) {
+                throw new IllegalStateException("Class file of PredicateTemplate is not found");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.aerospike.dsl.evaluator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import static java.lang.constant.ConstantDescs.DEFAULT_NAME;
+
+/**
+ * Class file template of compiled predicates. {@link PredicateCompiler} defines a hidden class from the bytes
+ * of this class for each compiled expression, with the method handle of the expression as class data.
+ * Static final fields of hidden classes are constants for the JIT compiler, so the handle is inlined into
+ * {@link #test(LocalRecord)}. This class itself is not used.
+ */
+final class PredicateTemplate implements PredicateCompiler.CompiledTest {
+
+    private static final MethodHandle HANDLE = classData();
+
+    private static MethodHandle classData() {
+        try {
+            return MethodHandles.classData(MethodHandles.lookup(), DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public int test(LocalRecord localRecord) {
+        try {
+            return (int) HANDLE.invokeExact(localRecord);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.Value;
+import com.aerospike.dsl.client.command.ParticleType;
+import com.aerospike.dsl.client.exp.Exp;
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.aerospike.dsl.evaluator.ExpNode.EQ;
+import static com.aerospike.dsl.evaluator.ExpNode.GE;
+import static com.aerospike.dsl.evaluator.ExpNode.GT;
+import static com.aerospike.dsl.evaluator.ExpNode.LT;
+import static com.aerospike.dsl.evaluator.ExpNode.NE;
+
+/**
+ * Types, equality and ordering of values the way the server compares list and map elements.
+ * <p>
+ * Values of different types are ordered as: nil, boolean, integer, string, list, map, bytes, float, GeoJSON,
+ * infinity. Integers and floats are different types, e.g., {@code 1} is not equal to {@code 1.0}.
+ * Comparison commands compare floats numerically, see {@link #compareFloats(int, double, double)}.
+ */
+@UtilityClass
+class Values {
+
+    /**
+     * Value greater than any other value, used as the open end of ranges
+     */
+    static final Object INF = new Object() {
+        @Override
+        public String toString() {
+            return "INF";
+        }
+    };
+    /**
+     * Value equal to any other value
+     */
+    static final Object WILDCARD = new Object() {
+        @Override
+        public String toString() {
+            return "WILDCARD";
+        }
+    };
+
+    private static final int NIL_ORDER = 1;
+    private static final int BOOL_ORDER = 2;
+    private static final int INT_ORDER = 3;
+    private static final int STRING_ORDER = 4;
+    private static final int LIST_ORDER = 5;
+    private static final int MAP_ORDER = 6;
+    private static final int BYTES_ORDER = 7;
+    private static final int FLOAT_ORDER = 8;
+    private static final int GEO_ORDER = 9;
+    private static final int INF_ORDER = 10;
+
+    /**
+     * Convert a Java value to the representation used by the evaluator: integral numbers to Long,
+     * Float to Double, {@link ByteBuffer} to byte[] and {@link Value} to its object
+     */
+    static Object normalize(Object value) {
+        if (value == null || value instanceof Long || value instanceof String || value instanceof Double
+                || value instanceof Boolean || value instanceof List || value instanceof Map
+                || value instanceof byte[]) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float floatValue) return floatValue.doubleValue();
+        if (value instanceof Character character) return (long) character;
+        if (value instanceof ByteBuffer byteBuffer) {
+            byte[] bytes = new byte[byteBuffer.remaining()];
+            byteBuffer.duplicate().get(bytes);
+            return bytes;
+        }
+        if (value instanceof Value.GeoJSONValue) return value;
+        if (value instanceof PackedValue packedValue) return normalize(packedValue.unpack());
+        if (value instanceof Value.InfinityValue) return INF;
+        if (value instanceof Value.WildcardValue) return WILDCARD;
+        if (value instanceof Value clientValue) return normalize(clientValue.getObject());
+        return value;
+    }
+
+    /**
+     * @return {@link Exp.Type} code of a normalized value
+     */
+    static int typeCode(Object value) {
+        if (value == null) return Exp.Type.NIL.code;
+        if (value instanceof Long) return Exp.Type.INT.code;
+        if (value instanceof String) return Exp.Type.STRING.code;
+        if (value instanceof Double) return Exp.Type.FLOAT.code;
+        if (value instanceof Boolean) return Exp.Type.BOOL.code;
+        if (value instanceof List) return Exp.Type.LIST.code;
+        if (value instanceof Map) return Exp.Type.MAP.code;
+        if (value instanceof byte[]) return Exp.Type.BLOB.code;
+        if (value instanceof Value.GeoJSONValue) return Exp.Type.GEO.code;
+        return -1;
+    }
+
+    /**
+     * @return {@link ParticleType} of a normalized bin value, {@link ParticleType#NULL} for a missing bin
+     */
+    static int particleType(Object value) {
+        if (value == null) return ParticleType.NULL;
+        if (value instanceof Long) return ParticleType.INTEGER;
+        if (value instanceof String) return ParticleType.STRING;
+        if (value instanceof Double) return ParticleType.DOUBLE;
+        if (value instanceof Boolean) return ParticleType.BOOL;
+        if (value instanceof List) return ParticleType.LIST;
+        if (value instanceof Map) return ParticleType.MAP;
+        if (value instanceof Value.GeoJSONValue) return ParticleType.GEOJSON;
+        return ParticleType.BLOB;
+    }
+
+    static boolean isEqual(Object left, Object right) {
+        return compare(left, right) == 0;
+    }
+
+    /**
+     * Compare floats the way comparison commands do: {@code -0.0} is equal to {@code 0.0}, NaN is neither
+     * equal to, less nor greater than any value
+     *
+     * @param op Comparison command of {@link ExpNode}
+     */
+    static boolean compareFloats(int op, double left, double right) {
+        return switch (op) {
+            case EQ -> left == right;
+            case NE -> left != right;
+            case GT -> left > right;
+            case GE -> left >= right;
+            case LT -> left < right;
+            default -> left <= right;
+        };
+    }
+
+    /**
+     * Compare values in the order of list and map elements on the server
+     */
+    static int compare(Object left, Object right) {
+        left = normalize(left);
+        right = normalize(right);
+        if (left == WILDCARD || right == WILDCARD) return 0;
+
+        int leftOrder = order(left);
+        int rightOrder = order(right);
+        if (leftOrder != rightOrder) return Integer.compare(leftOrder, rightOrder);
+
+        return switch (leftOrder) {
+            case BOOL_ORDER -> Boolean.compare((Boolean) left, (Boolean) right);
+            case INT_ORDER -> Long.compare((Long) left, (Long) right);
+            case STRING_ORDER -> compareStrings((String) left, (String) right);
+            case LIST_ORDER -> compareLists((List<?>) left, (List<?>) right);
+            case MAP_ORDER -> compareMaps((Map<?, ?>) left, (Map<?, ?>) right);
+            case BYTES_ORDER -> compareBytes((byte[]) left, (byte[]) right);
+            // Total order for sorting elements, -0.0 is equal to 0.0 and NaN is greater than other floats
+            case FLOAT_ORDER -> (double) left == (double) right ? 0 : Double.compare((Double) left, (Double) right);
+            case GEO_ORDER -> compareStrings(left.toString(), right.toString());
+            default -> 0;
+        };
+    }
+
+    private static int order(Object value) {
+        if (value == null) return NIL_ORDER;
+        if (value instanceof Boolean) return BOOL_ORDER;
+        if (value instanceof Long) return INT_ORDER;
+        if (value instanceof String) return STRING_ORDER;
+        if (value instanceof List) return LIST_ORDER;
+        if (value instanceof Map) return MAP_ORDER;
+        if (value instanceof byte[]) return BYTES_ORDER;
+        if (value instanceof Double) return FLOAT_ORDER;
+        if (value instanceof Value.GeoJSONValue) return GEO_ORDER;
+        if (value == INF) return INF_ORDER;
+        throw new IllegalArgumentException("Unsupported value type: %s".formatted(value.getClass().getName()));
+    }
+
+    /**
+     * Compare by code points, which is the order of UTF-8 bytes the server compares
+     */
+    static int compareStrings(String left, String right) {
+        int length = Math.min(left.length(), right.length());
+        for (int i = 0; i < length; i++) {
+            char leftChar = left.charAt(i);
+            char rightChar = right.charAt(i);
+            if (leftChar != rightChar) {
+                if (Character.isSurrogate(leftChar) || Character.isSurrogate(rightChar)) {
+                    return Integer.compare(left.codePointAt(i), right.codePointAt(i));
+                }
+                return Character.compare(leftChar, rightChar);
+            }
+        }
+        return Integer.compare(left.length(), right.length());
+    }
+
+    private static int compareBytes(byte[] left, byte[] right) {
+        return Arrays.compareUnsigned(left, right);
+    }
+
+    private static int compareLists(List<?> left, List<?> right) {
+        int length = Math.min(left.size(), right.size());
+        for (int i = 0; i < length; i++) {
+            int comparison = compare(left.get(i), right.get(i));
+            if (comparison != 0) return comparison;
+        }
+        return Integer.compare(left.size(), right.size());
+    }
+
+    private static int compareMaps(Map<?, ?> left, Map<?, ?> right) {
+        if (left.size() != right.size()) return Integer.compare(left.size(), right.size());
+
+        List<Map.Entry<?, ?>> leftEntries = sortedEntries(left);
+        List<Map.Entry<?, ?>> rightEntries = sortedEntries(right);
+        for (int i = 0; i < leftEntries.size(); i++) {
+            int comparison = compare(leftEntries.get(i).getKey(), rightEntries.get(i).getKey());
+            if (comparison == 0) {
+                comparison = compare(leftEntries.get(i).getValue(), rightEntries.get(i).getValue());
+            }
+            if (comparison != 0) return comparison;
+        }
+        return 0;
+    }
+
+    /**
+     * @return Entries of a map in the order of keys, which is the order of map indexes on the server
+     */
+    static List<Map.Entry<?, ?>> sortedEntries(Map<?, ?> map) {
+        List<Map.Entry<?, ?>> entries = new ArrayList<>(map.entrySet());
+        entries.sort((left, right) -> compare(left.getKey(), right.getKey()));
+        return entries;
+    }
+}
@@ -1,45 +1,245 @@
 package com.aerospike.dsl.impl;
 
+import com.aerospike.dsl.BatchParseResult;
 import com.aerospike.dsl.ConditionLexer;
 import com.aerospike.dsl.ConditionParser;
 import com.aerospike.dsl.DslParseException;
 import com.aerospike.dsl.ExpressionContext;
 import com.aerospike.dsl.Index;
 import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.NormalizedExpression;
 import com.aerospike.dsl.ParsedExpression;
 import com.aerospike.dsl.PlaceholderValues;
 import com.aerospike.dsl.annotation.Beta;
 import com.aerospike.dsl.api.DSLParser;
 import com.aerospike.dsl.client.cdt.CTX;
+import com.aerospike.dsl.metrics.DslMetrics;
+import com.aerospike.dsl.optimizer.ExpressionNormalizer;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import com.aerospike.dsl.optimizer.OptimizationReport;
 import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.planner.IndexPlanner;
+import com.aerospike.dsl.planner.LegacyIndexPlanner;
 import com.aerospike.dsl.visitor.ExpressionConditionVisitor;
+import lombok.Builder;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static com.aerospike.dsl.visitor.VisitorUtils.buildCtx;
 
 public class DSLParserImpl implements DSLParser {
 
+    /**
+     * Expressions used by {@link #warmUp()}, covering the main constructs of the grammar
+     */
+    private static final List<String> WARM_UP_EXPRESSIONS = List.of(
+            "$.intBin1 > 100",
+            "$.intBin1 >= 1 and ($.intBin2 <= 2 or $.strBin1 != 'a')",
+            "not($.boolBin1 == true) and exclusive($.a == 1, $.b == \"b\")",
+            "($.intBin1 + $.intBin2) * 2 - $.intBin3 / 4 % 5 > -10",
+            "$.floatBin1 > 1.5 and $.intBin1 & 0xff == 0b1 and ~$.intBin2 << 2 > 8",
+            "abs($.intBin1) > ceil($.floatBin1) and min($.intBin1, 10) < max(?0, 1)",
+            "$.intBin1.asFloat() > 1.5 and $.floatBin1.asInt() < 2",
+            "$.ttl() < 3600 and $.deviceSize() > 1024 and $.keyExists() and $.digestModulo(3) == 1",
+            "$.mapBin1.a.bb.{1}.{=2}.{#-1}.get(type: INT) > 200",
+            "$.listBin1.[0].[=1].[#-1].get(type: STRING, return: VALUE) == 'b'",
+            "$.listBin1.[1:3].count() > 1 and $.mapBin1.{a-c}.count() > 0",
+            "$.mapBin1.'1'.{='a'}.get(type: LIST) == [1, 2]",
+            "$.intBin1 in [1, 2, 3] and 'a' in $.listBin1 and $.mapBin1 == {'a': 1}",
+            "let (x = $.intBin1 + 1, y = ${x} * 2) then (${y} > 100)",
+            "let (x = $.intBin1) then (when (${x} > 100 => 'high', default => 'low') == 'high')",
+            "when ($.who == 1 => 'bob', $.who == 2 => 'fred', default => 'other') == 'bob'",
+            "$.blobBin1.get(type: BLOB) == ?0 and $.setName() == 'set'"
+    );
+
+    private final ParseCache parseCache;
+    private final PredictionCache predictionCache;
+    private final ExpressionOptimizer optimizer;
+    private final IndexPlanner indexPlanner;
+    private final DslMetrics metrics;
+
+    public DSLParserImpl() {
+        this(null);
+    }
+
+    /**
+     * Create a parser that reuses results of parsing identical DSL strings.
+     *
+     * @param parseCache {@link ParseCache} to store parsed expressions in, can be shared between parsers.
+     *                   If null, every input is parsed anew
+     */
+    @Beta
+    public DSLParserImpl(ParseCache parseCache) {
+        this(parseCache, null);
+    }
+
+    /**
+     * Create a parser that reuses results of parsing identical DSL strings and uses the given prediction cache.
+     *
+     * @param parseCache      {@link ParseCache} to store parsed expressions in, can be shared between parsers.
+     *                        If null, every input is parsed anew
+     * @param predictionCache {@link PredictionCache} to use when parsing, can be shared between parsers.
+     *                        If null, {@link PredictionCache#getDefault()} is used
+     */
+    @Beta
+    public DSLParserImpl(ParseCache parseCache, PredictionCache predictionCache) {
+        this(parseCache, predictionCache, null, null, null);
+    }
+
+    /**
+     * Create a parser with the given settings, available via {@code DSLParserImpl.builder()}.
+     *
+     * @param parseCache      {@link ParseCache} to store parsed expressions in, can be null
+     * @param predictionCache {@link PredictionCache} to use when parsing. If null,
+     *                        {@link PredictionCache#getDefault()} is used
+     * @param optimizer       {@link ExpressionOptimizer} to apply to parsed expressions. If null,
+     *                        expressions are not optimized
+     * @param indexPlanner    {@link IndexPlanner} choosing secondary index for Filter. If null,
+     *                        {@link LegacyIndexPlanner} is used
+     * @param metrics         {@link DslMetrics} to record timings of parsing phases to. If null,
+     *                        {@link DslMetrics#NOOP} is used
+     */
+    @Builder
+    private DSLParserImpl(ParseCache parseCache, PredictionCache predictionCache, ExpressionOptimizer optimizer,
+                          IndexPlanner indexPlanner, DslMetrics metrics) {
+        this.parseCache = parseCache;
+        this.predictionCache = predictionCache == null ? PredictionCache.getDefault() : predictionCache;
+        this.optimizer = optimizer;
+        this.indexPlanner = indexPlanner;
+        this.metrics = metrics == null ? DslMetrics.NOOP : metrics;
+    }
+
     @Override
     @Beta
     public ParsedExpression parseExpression(ExpressionContext expressionContext) {
-        ParseTree parseTree = getParseTree(expressionContext.getExpression());
-        return getParsedExpression(parseTree, expressionContext.getValues(), null);
+        AbstractPart expressionTree = getExpressionTree(expressionContext.getExpression());
+        return getParsedExpression(expressionTree, expressionContext.getValues(), null);
     }
 
     @Override
     @Beta
     public ParsedExpression parseExpression(ExpressionContext expressionContext, IndexContext indexContext) {
-        ParseTree parseTree = getParseTree(expressionContext.getExpression());
-        return getParsedExpression(parseTree, expressionContext.getValues(), indexContext);
+        AbstractPart expressionTree = getExpressionTree(expressionContext.getExpression());
+        return getParsedExpression(expressionTree, expressionContext.getValues(), indexContext);
+    }
+
+    /**
+     * Parse the given DSL string and normalize it, see {@link #normalizeExpression(ExpressionContext, IndexContext)}.
+     */
+    @Beta
+    public NormalizedExpression normalizeExpression(ExpressionContext expressionContext) {
+        return normalizeExpression(expressionContext, null);
+    }
+
+    /**
+     * Parse the given DSL string and normalize it using {@link ExpressionNormalizer}: literals are replaced
+     * by placeholders and the operands of top-level {@code and} and {@code or} are sorted, so that DSL strings
+     * differing only in literal values or operand order get the same fingerprint and can share
+     * one {@link ParsedExpression}.
+     *
+     * @param expressionContext Class containing input string of dot separated elements and optionally values
+     *                          of its placeholders
+     * @param indexContext      Class containing namespace and collection of {@link Index} objects that represent
+     *                          existing secondary indexes. Can be null
+     * @return {@link NormalizedExpression} with the fingerprint, the parsed normalized expression
+     * and the extracted placeholder values
+     * @throws DslParseException If there was an error
+     */
+    @Beta
+    public NormalizedExpression normalizeExpression(ExpressionContext expressionContext, IndexContext indexContext) {
+        AbstractPart expressionTree = getExpressionTree(expressionContext.getExpression());
+        ExpressionNormalizer.Result normalized =
+                ExpressionNormalizer.normalize(expressionTree, expressionContext.getValues());
+        ParsedExpression parsedExpression = getParsedExpression(normalized.getExpressionTree(),
+                normalized.getPlaceholderValues(), indexContext);
+        return new NormalizedExpression(normalized.getFingerprint(), parsedExpression,
+                normalized.getPlaceholderValues());
+    }
+
+    /**
+     * Parse a batch of DSL strings in parallel using {@link ForkJoinPool#commonPool()}.
+     *
+     * @see #parseExpressions(Collection, IndexContext, Executor)
+     */
+    @Beta
+    public CompletableFuture<List<BatchParseResult>> parseExpressions(Collection<ExpressionContext> inputs,
+                                                                      IndexContext indexContext) {
+        return parseExpressions(inputs, indexContext, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse a batch of DSL strings in parallel using the given executor.
+     * <p>
+     * Each distinct DSL string is parsed once, inputs with identical strings share the parsed expression tree.
+     * A failure to parse one input does not affect the others, it is reported in the result for that input.
+     * Parsing does not use thread-local state and does not block while holding monitors,
+     * so the executor can run tasks on virtual threads.
+     *
+     * @param inputs       {@link ExpressionContext} objects to parse, must not be null
+     * @param indexContext Class containing namespace and collection of {@link Index} objects that represent
+     *                     existing secondary indexes, shared by all inputs. Can be null
+     * @param executor     Executor to parse on, must not be null
+     * @return Future completed with {@link BatchParseResult} for each input in the order of the inputs
+     */
+    @Beta
+    public CompletableFuture<List<BatchParseResult>> parseExpressions(Collection<ExpressionContext> inputs,
+                                                                      IndexContext indexContext,
+                                                                      Executor executor) {
+        if (inputs == null) {
+            throw new IllegalArgumentException("Inputs must not be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null");
+        }
+
+        Map<String, CompletableFuture<AbstractPart>> expressionTrees = new HashMap<>();
+        List<CompletableFuture<BatchParseResult>> results = new ArrayList<>(inputs.size());
+        for (ExpressionContext input : inputs) {
+            CompletableFuture<AbstractPart> expressionTree = expressionTrees.computeIfAbsent(input.getExpression(),
+                    expression -> CompletableFuture.supplyAsync(() -> getExpressionTree(expression), executor));
+            results.add(expressionTree.handle((tree, e) -> e == null
+                    ? getBatchParseResult(input, tree, indexContext)
+                    : new BatchParseResult(input, null, toDslParseException(e))));
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    private BatchParseResult getBatchParseResult(ExpressionContext input, AbstractPart expressionTree,
+                                                 IndexContext indexContext) {
+        try {
+            return new BatchParseResult(input,
+                    getParsedExpression(expressionTree, input.getValues(), indexContext), null);
+        } catch (RuntimeException e) {
+            // Optimizer passes can throw, the error belongs to this input only
+            return new BatchParseResult(input, null, toDslParseException(e));
+        }
+    }
+
+    private static DslParseException toDslParseException(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof DslParseException dslParseException) {
+            return dslParseException;
+        }
+        return new DslParseException("Could not parse given DSL expression input", cause);
     }
 
     @Override
@@ -50,28 +250,116 @@ public class DSLParserImpl implements DSLParser {
         }
 
         try {
-            ParseTree parseTree = getParseTree(pathToCtx);
-            return buildCtx(new ExpressionConditionVisitor().visit(parseTree));
+            return buildCtx(getExpressionTree(pathToCtx));
         } catch (Exception e) {
             throw new DslParseException("Could not parse the given DSL path input", e);
         }
     }
 
+    /**
+     * Prime the prediction cache of this parser by parsing a built-in set of representative expressions,
+     * so that first requests are not slowed down by filling the cache.
+     * Parse results are not stored in {@link ParseCache}.
+     */
+    @Beta
+    public void warmUp() {
+        warmUp(WARM_UP_EXPRESSIONS);
+    }
+
+    /**
+     * Prime the prediction cache of this parser by parsing the given expressions, preferably similar
+     * to the ones expected later. Expressions that cannot be parsed are skipped.
+     * Parse results are not stored in {@link ParseCache}.
+     *
+     * @param expressions DSL expressions to parse, must not be null
+     * @return Amount of expressions parsed successfully
+     */
+    @Beta
+    public int warmUp(Collection<String> expressions) {
+        int parsed = 0;
+        for (String expression : expressions) {
+            try {
+                getParseTree(expression);
+                parsed++;
+            } catch (DslParseException e) {
+                // Still fills the cache up to the error
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Creates a parser for the first parsing stage: SLL prediction mode, bailing out on the first syntax error.
+     * Parser errors are not reported at this stage, lexer errors are reported to the given listener.
+     */
     private ConditionParser createParser(String input, DSLParserErrorListener errorListener) {
         ConditionLexer lexer = new ConditionLexer(CharStreams.fromString(input));
         lexer.removeErrorListeners();
         lexer.addErrorListener(errorListener);
         CommonTokenStream tokenStream = new CommonTokenStream(lexer);
         ConditionParser parser = new ConditionParser(tokenStream);
+        predictionCache.attach(lexer, parser);
         parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
         return parser;
     }
 
-    private ParseTree getParseTree(String input) {
+    /**
+     * Returns the expression tree for the given input, either cached or built by {@link ExpressionConditionVisitor}.
+     * The expression tree is not modified when building results, so the cached instance can be shared.
+     */
+    private AbstractPart getExpressionTree(String input) {
+        if (metrics.isEnabled()) {
+            metrics.recordDistribution(DslMetrics.Distribution.INPUT_LENGTH, input.length());
+        }
+        if (parseCache == null) {
+            return buildExpressionTree(input);
+        }
+        AbstractPart expressionTree = parseCache.get(input);
+        if (expressionTree == null) {
+            expressionTree = buildExpressionTree(input);
+            parseCache.put(input, expressionTree);
+        }
+        return expressionTree;
+    }
+
+    private AbstractPart buildExpressionTree(String input) {
+        ParseTree parseTree = getParseTree(input);
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        AbstractPart expressionTree = new ExpressionConditionVisitor().visit(parseTree);
+        if (expressionTree == null) {
+            throw new DslParseException("Could not parse given DSL expression input");
+        }
+        if (metrics.isEnabled()) {
+            metrics.recordPhase(DslMetrics.Phase.BUILD_TREE, System.nanoTime() - start);
+            metrics.recordDistribution(DslMetrics.Distribution.TREE_SIZE, ParseCache.countParts(expressionTree));
+        }
+        return expressionTree;
+    }
+
+    // Package-private for benchmarks
+    ParseTree getParseTree(String input) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
         DSLParserErrorListener errorListener = new DSLParserErrorListener();
         ConditionParser parser = createParser(input, errorListener);
-        ParseTree tree = parser.parse();
+        ParseTree tree;
+        try {
+            tree = parser.parse();
+        } catch (ParseCancellationException e) {
+            // Either a syntax error or an input that SLL prediction cannot handle,
+            // parse the same tokens again using full LL prediction and reporting errors
+            parser.reset();
+            parser.addErrorListener(errorListener);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            tree = parser.parse();
+        } finally {
+            predictionCache.afterParse();
+            if (metrics.isEnabled()) {
+                metrics.recordPhase(DslMetrics.Phase.PARSE, System.nanoTime() - start);
+            }
+        }
 
         String errorMessage = errorListener.getErrorMessage();
         if (errorMessage != null) {
@@ -80,8 +368,19 @@ public class DSLParserImpl implements DSLParser {
         return tree;
     }
 
-    private ParsedExpression getParsedExpression(ParseTree parseTree, PlaceholderValues placeholderValues,
+    private ParsedExpression getParsedExpression(AbstractPart expressionTree, PlaceholderValues placeholderValues,
                                                  IndexContext indexContext) {
+        OptimizationReport optimizationReport = null;
+        if (optimizer != null) {
+            // Cached expression trees are not optimized, as the cache can be shared with other parsers
+            optimizationReport = new OptimizationReport();
+            long start = metrics.isEnabled() ? System.nanoTime() : 0;
+            expressionTree = optimizer.optimize(expressionTree, optimizationReport);
+            if (metrics.isEnabled()) {
+                metrics.recordPhase(DslMetrics.Phase.OPTIMIZE, System.nanoTime() - start);
+            }
+        }
+
         final String namespace = Optional.ofNullable(indexContext)
                 .map(IndexContext::getNamespace)
                 .orElse(null);
@@ -92,13 +391,16 @@ public class DSLParserImpl implements DSLParser {
                 .map(IndexContext::getPreferredBin)
                 .orElse(null);
 
-        AbstractPart resultingPart = new ExpressionConditionVisitor().visit(parseTree);
-
-        if (resultingPart == null) {
-            throw new DslParseException("Could not parse given DSL expression input");
-        }
-
-        return new ParsedExpression(resultingPart, placeholderValues, indexesMap, preferredBin);
+        return ParsedExpression.builder()
+                .exprTree(expressionTree)
+                .placeholderValues(placeholderValues)
+                .indexesMap(indexesMap)
+                .preferredBin(preferredBin)
+                .optimizer(optimizer)
+                .optimizationReport(optimizationReport)
+                .indexPlanner(indexPlanner)
+                .metrics(metrics)
+                .build();
     }
 
     private Map<String, List<Index>> buildIndexesMap(Collection<Index> indexes, String namespace) {
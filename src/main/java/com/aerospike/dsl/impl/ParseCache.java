@@ -0,0 +1,266 @@
+package com.aerospike.dsl.impl;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.controlstructure.AndStructure;
+import com.aerospike.dsl.parts.controlstructure.ExclusiveStructure;
+import com.aerospike.dsl.parts.controlstructure.LetStructure;
+import com.aerospike.dsl.parts.controlstructure.OrStructure;
+import com.aerospike.dsl.parts.controlstructure.WhenStructure;
+import com.aerospike.dsl.parts.operand.FunctionArgs;
+import com.aerospike.dsl.parts.operand.LetOperand;
+import com.aerospike.dsl.parts.operand.ListOperand;
+import com.aerospike.dsl.parts.operand.MapOperand;
+import com.aerospike.dsl.parts.path.Path;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of parsed DSL expression trees keyed by the DSL string, to be passed to
+ * {@link DSLParserImpl#DSLParserImpl(ParseCache)}. Expression trees are immutable once built,
+ * so a cached tree is shared by all {@link com.aerospike.dsl.ParsedExpression}s created from the same string.
+ * <p>
+ * The cache is bounded both by the number of entries and by the estimated weight (in bytes) of cached entries.
+ * Entries are split across independently locked segments, each evicting its least recently used entries
+ * once either bound is exceeded, so the cache can be shared by many threads without a global lock.
+ * Because bounds are enforced per segment, eviction may start slightly before the configured totals are reached.
+ * <p>
+ * Only successfully parsed expressions are cached. Hit, miss and eviction counters are available
+ * via {@link #getStats()}.
+ */
+@Beta
+public final class ParseCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int maxEntries;
+    private final long maxWeightBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private ParseCache(int maxEntries, long maxWeightBytes) {
+        this.maxEntries = maxEntries;
+        this.maxWeightBytes = maxWeightBytes;
+        int segmentsCount = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maxEntries));
+        this.segments = new Segment[segmentsCount];
+        int segmentMaxEntries = (maxEntries + segmentsCount - 1) / segmentsCount;
+        long segmentMaxWeight = Math.max(1, maxWeightBytes / segmentsCount);
+        for (int i = 0; i < segmentsCount; i++) {
+            segments[i] = new Segment(segmentMaxEntries, segmentMaxWeight);
+        }
+    }
+
+    /**
+     * Create a parse cache with the given bounds.
+     *
+     * @param maxEntries     Maximum amount of cached expressions, must be positive
+     * @param maxWeightBytes Maximum estimated memory footprint of cached expressions in bytes, must be positive
+     * @return A new instance of {@code ParseCache}
+     * @throws IllegalArgumentException if any of the bounds is not positive
+     */
+    public static ParseCache of(int maxEntries, long maxWeightBytes) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (maxWeightBytes <= 0) {
+            throw new IllegalArgumentException("maxWeightBytes must be positive");
+        }
+        return new ParseCache(maxEntries, maxWeightBytes);
+    }
+
+    /**
+     * @return Snapshot of the cache counters
+     */
+    public Stats getStats() {
+        int size = 0;
+        long weight = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+                weight += segment.weight;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size, weight, maxEntries, maxWeightBytes);
+    }
+
+    /**
+     * Remove all cached entries. Counters are not reset.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.entries.clear();
+                segment.weight = 0;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    AbstractPart get(String input) {
+        Segment segment = segmentFor(input);
+        Entry entry;
+        segment.lock.lock();
+        try {
+            entry = segment.entries.get(input);
+        } finally {
+            segment.lock.unlock();
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    void put(String input, AbstractPart value) {
+        long weight = estimateWeight(input, value);
+        Segment segment = segmentFor(input);
+        if (weight > segment.maxWeight) {
+            // Would evict the whole segment and still not fit
+            return;
+        }
+        segment.lock.lock();
+        try {
+            Entry previous = segment.entries.put(input, new Entry(value, weight));
+            if (previous != null) {
+                segment.weight -= previous.weight;
+            }
+            segment.weight += weight;
+            evictIfNeeded(segment);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private void evictIfNeeded(Segment segment) {
+        Iterator<Entry> iterator = segment.entries.values().iterator();
+        while ((segment.entries.size() > segment.maxEntries || segment.weight > segment.maxWeight)
+                && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            segment.weight -= eldest.weight;
+            evictions.increment();
+        }
+    }
+
+    private Segment segmentFor(String input) {
+        int hash = input.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    /**
+     * Rough estimate of the retained size: the key string plus a fixed overhead per expression tree part.
+     */
+    static long estimateWeight(String input, AbstractPart expressionTree) {
+        return 40L + 2L * input.length() + 64L * countParts(expressionTree);
+    }
+
+    static long countParts(AbstractPart part) {
+        if (part == null) return 0;
+
+        return 1 + switch (part.getPartType()) {
+            case EXPRESSION_CONTAINER -> countParts(((ExpressionContainer) part).getLeft())
+                    + countParts(((ExpressionContainer) part).getRight());
+            case AND_STRUCTURE -> countParts(((AndStructure) part).getOperands());
+            case OR_STRUCTURE -> countParts(((OrStructure) part).getOperands());
+            case EXCLUSIVE_STRUCTURE -> countParts(((ExclusiveStructure) part).getOperands());
+            case WHEN_STRUCTURE -> countParts(((WhenStructure) part).getOperands());
+            case FUNCTION_ARGS -> countParts(((FunctionArgs) part).getOperands());
+            case LET_STRUCTURE -> countParts(((LetStructure) part).getOperands());
+            case LET_OPERAND -> countParts(((LetOperand) part).getPart());
+            // Base path, bin and path function
+            case PATH_OPERAND -> 3 + ((Path) part).getBasePath().getCdtParts().size();
+            case LIST_OPERAND -> ((ListOperand) part).getValue().size();
+            case MAP_OPERAND -> 2L * ((MapOperand) part).getValue().size();
+            default -> 0;
+        };
+    }
+
+    private static long countParts(List<? extends AbstractPart> parts) {
+        long count = 0;
+        for (AbstractPart part : parts) {
+            count += countParts(part);
+        }
+        return count;
+    }
+
+    private record Entry(AbstractPart value, long weight) {
+    }
+
+    private static final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        // Access-ordered, so iteration starts from the least recently used entry
+        private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxEntries;
+        private final long maxWeight;
+        private long weight;
+
+        private Segment(int maxEntries, long maxWeight) {
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of {@link ParseCache} counters.
+     */
+    @AllArgsConstructor
+    @Getter
+    public static class Stats {
+
+        /**
+         * Amount of lookups that found a cached expression
+         */
+        private final long hitCount;
+        /**
+         * Amount of lookups that did not find a cached expression
+         */
+        private final long missCount;
+        /**
+         * Amount of entries removed to satisfy the bounds
+         */
+        private final long evictionCount;
+        /**
+         * Current amount of cached entries
+         */
+        private final int size;
+        /**
+         * Current estimated weight of cached entries in bytes
+         */
+        private final long weightBytes;
+        /**
+         * Configured maximum amount of entries
+         */
+        private final int maxEntries;
+        /**
+         * Configured maximum weight in bytes
+         */
+        private final long maxWeightBytes;
+
+        /**
+         * @return Ratio of hits to all lookups, or 0 if there were no lookups
+         */
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+    }
+}
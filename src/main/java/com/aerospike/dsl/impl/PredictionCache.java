@@ -0,0 +1,168 @@
+package com.aerospike.dsl.impl;
+
+import com.aerospike.dsl.ConditionLexer;
+import com.aerospike.dsl.ConditionParser;
+import com.aerospike.dsl.annotation.Beta;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded ANTLR prediction cache (DFA states and prediction contexts) used by {@link DSLParserImpl}
+ * instead of the static, unbounded caches of the generated lexer and parser.
+ * <p>
+ * Prediction caches are filled while parsing and make subsequent parsing of similar input faster.
+ * They can be primed in advance by {@link DSLParserImpl#warmUp()}. The amount of cached DFA states is checked
+ * periodically, and once it exceeds the configured maximum, all caches are dropped and filled anew,
+ * so unusual or adversarial input cannot make them grow without bound. Parsing that is in progress
+ * during a reset keeps using the caches it started with.
+ * <p>
+ * A single instance can be shared by many threads and parsers. By default, all parsers share
+ * {@link #getDefault()}.
+ */
+@Beta
+public final class PredictionCache {
+
+    /**
+     * Maximum amount of DFA states of the default instance, well above what the full grammar
+     * needs for regular input
+     */
+    public static final int DEFAULT_MAX_DFA_STATES = 100_000;
+    // Counting DFA states requires visiting every decision, so it is done once per this amount of parses
+    private static final int CHECK_INTERVAL = 256;
+
+    private static final PredictionCache DEFAULT = new PredictionCache(DEFAULT_MAX_DFA_STATES);
+
+    private final int maxDfaStates;
+    private final AtomicInteger parsesSinceCheck = new AtomicInteger();
+    private final LongAdder resets = new LongAdder();
+    private volatile Caches caches = new Caches();
+
+    private PredictionCache(int maxDfaStates) {
+        this.maxDfaStates = maxDfaStates;
+    }
+
+    /**
+     * Create a prediction cache with the given bound.
+     *
+     * @param maxDfaStates Maximum amount of cached DFA states of the lexer and the parser, must be positive
+     * @return A new instance of {@code PredictionCache}
+     * @throws IllegalArgumentException if the bound is not positive
+     */
+    public static PredictionCache of(int maxDfaStates) {
+        if (maxDfaStates <= 0) {
+            throw new IllegalArgumentException("maxDfaStates must be positive");
+        }
+        return new PredictionCache(maxDfaStates);
+    }
+
+    /**
+     * @return Prediction cache shared by parsers created without an explicit one,
+     * bounded by {@link #DEFAULT_MAX_DFA_STATES}
+     */
+    public static PredictionCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return Snapshot of the cache counters
+     */
+    public Stats getStats() {
+        Caches current = caches;
+        return new Stats(current.countDfaStates(), current.contextCache.size(), resets.sum(), maxDfaStates);
+    }
+
+    /**
+     * Drop all cached DFA states and prediction contexts. Counters are not reset.
+     */
+    public void clear() {
+        caches = new Caches();
+    }
+
+    /**
+     * Make the given lexer and parser use this cache.
+     */
+    void attach(ConditionLexer lexer, ConditionParser parser) {
+        Caches current = caches;
+        lexer.setInterpreter(new LexerATNSimulator(lexer, ConditionLexer._ATN, current.lexerDfa,
+                current.contextCache));
+        parser.setInterpreter(new ParserATNSimulator(parser, ConditionParser._ATN, current.parserDfa,
+                current.contextCache));
+    }
+
+    /**
+     * Called after every parse, resets the caches if they have grown beyond the bound.
+     */
+    void afterParse() {
+        if (parsesSinceCheck.incrementAndGet() < CHECK_INTERVAL) return;
+
+        parsesSinceCheck.set(0);
+        Caches current = caches;
+        if (current.countDfaStates() > maxDfaStates) {
+            caches = new Caches();
+            resets.increment();
+        }
+    }
+
+    private static final class Caches {
+
+        private final DFA[] lexerDfa = createDfa(ConditionLexer._ATN);
+        private final DFA[] parserDfa = createDfa(ConditionParser._ATN);
+        private final PredictionContextCache contextCache = new PredictionContextCache();
+
+        private static DFA[] createDfa(ATN atn) {
+            DFA[] dfa = new DFA[atn.getNumberOfDecisions()];
+            for (int i = 0; i < dfa.length; i++) {
+                dfa[i] = new DFA(atn.getDecisionState(i), i);
+            }
+            return dfa;
+        }
+
+        private int countDfaStates() {
+            return countDfaStates(lexerDfa) + countDfaStates(parserDfa);
+        }
+
+        private static int countDfaStates(DFA[] dfa) {
+            int count = 0;
+            for (DFA decision : dfa) {
+                // ANTLR simulators add states while holding this lock
+                synchronized (decision.states) {
+                    count += decision.states.size();
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of {@link PredictionCache} counters.
+     */
+    @AllArgsConstructor
+    @Getter
+    public static class Stats {
+
+        /**
+         * Current amount of cached DFA states of the lexer and the parser
+         */
+        private final int dfaStates;
+        /**
+         * Current amount of cached prediction contexts
+         */
+        private final int predictionContexts;
+        /**
+         * Amount of times the caches were dropped because of exceeding the bound
+         */
+        private final long resetCount;
+        /**
+         * Configured maximum amount of DFA states
+         */
+        private final int maxDfaStates;
+    }
+}
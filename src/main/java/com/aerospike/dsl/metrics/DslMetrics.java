@@ -0,0 +1,110 @@
+package com.aerospike.dsl.metrics;
+
+import com.aerospike.dsl.annotation.Beta;
+
+/**
+ * Receives timings of the phases of turning a DSL string into a secondary index Filter and a packed filter
+ * expression, and distributions of their sizes. Implementations can bridge to a metrics library, e.g.,
+ * a timer per {@link Phase} and a distribution summary per {@link Distribution}.
+ * <p>
+ * Given to the parser via {@code DSLParserImpl.builder().metrics(...)}, {@link #NOOP} is used by default.
+ * Methods are called synchronously on the parsing threads, concurrently, so implementations must be
+ * thread-safe and fast. If {@link #isEnabled()} returns false, the clock is not read and nothing is recorded.
+ */
+@Beta
+public interface DslMetrics {
+
+    /**
+     * Metrics that record nothing
+     */
+    DslMetrics NOOP = new DslMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void recordPhase(Phase phase, long durationNanos) {
+        }
+
+        @Override
+        public void recordDistribution(Distribution distribution, long value) {
+        }
+    };
+
+    /**
+     * @return Whether to record metrics, checked before each measurement
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Record one execution of a phase.
+     *
+     * @param phase         The phase
+     * @param durationNanos Wall-clock duration of the phase in nanoseconds
+     */
+    void recordPhase(Phase phase, long durationNanos);
+
+    /**
+     * Record a value of a distribution.
+     *
+     * @param distribution The distribution
+     * @param value        The value, not negative
+     */
+    void recordDistribution(Distribution distribution, long value);
+
+    /**
+     * Phases of parsing a DSL string and building its results
+     */
+    enum Phase {
+        /**
+         * Lexing and parsing the DSL string into a parse tree, once per DSL string not found in the parse cache
+         */
+        PARSE,
+        /**
+         * Building the expression tree from the parse tree
+         */
+        BUILD_TREE,
+        /**
+         * Optimizing the expression tree, both after parsing and after resolving placeholders
+         */
+        OPTIMIZE,
+        /**
+         * Replacing placeholders of the expression tree with the given values
+         */
+        RESOLVE_PLACEHOLDERS,
+        /**
+         * Choosing the secondary index and building its Filter
+         */
+        SELECT_INDEX,
+        /**
+         * Building the filter Exp from the expression tree
+         */
+        BUILD_EXP,
+        /**
+         * Packing the filter Exp into Expression bytes, or binding values to a packed template,
+         * including building the template on first use
+         */
+        PACK
+    }
+
+    /**
+     * Size distributions
+     */
+    enum Distribution {
+        /**
+         * Length of the DSL string in characters, per requested DSL string
+         */
+        INPUT_LENGTH,
+        /**
+         * Amount of parts of the built expression tree
+         */
+        TREE_SIZE,
+        /**
+         * Size of the packed filter expression in bytes
+         */
+        PACKED_SIZE
+    }
+}
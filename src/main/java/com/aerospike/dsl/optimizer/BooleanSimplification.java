@@ -0,0 +1,361 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation;
+import com.aerospike.dsl.parts.controlstructure.AndStructure;
+import com.aerospike.dsl.parts.controlstructure.OrStructure;
+import com.aerospike.dsl.parts.operand.BooleanOperand;
+import com.aerospike.dsl.parts.operand.FunctionArgs;
+import com.aerospike.dsl.parts.operand.ParsedValueOperand;
+import com.aerospike.dsl.parts.operand.StringOperand;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.aerospike.dsl.parts.AbstractPart.PartType.BOOL_OPERAND;
+import static com.aerospike.dsl.parts.AbstractPart.PartType.EXPRESSION_CONTAINER;
+import static com.aerospike.dsl.parts.AbstractPart.PartType.PLACEHOLDER_OPERAND;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.*;
+import static com.aerospike.dsl.visitor.VisitorUtils.buildExpr;
+
+/**
+ * Simplifies logical operations:
+ * <ul>
+ *     <li>nested {@code and} and {@code or} of the same kind are flattened,
+ *     e.g., {@code $.a == 1 and ($.b == 2 and $.c == 3)} becomes {@code $.a == 1 and $.b == 2 and $.c == 3}</li>
+ *     <li>duplicate operands of {@code and} and {@code or} are removed</li>
+ *     <li>{@code true} operands of {@code and} and {@code false} operands of {@code or} are removed,
+ *     {@code and} with a {@code false} operand becomes {@code false}, {@code or} with a {@code true} operand
+ *     becomes {@code true}</li>
+ *     <li>{@code not} is pushed through comparisons, e.g., {@code not($.a > 1)} becomes {@code $.a <= 1},
+ *     and double negation is removed</li>
+ *     <li>{@code and} of contradicting operands becomes {@code false}, e.g., {@code $.a == 1 and $.a == 2}
+ *     or {@code $.a > 1 and $.a <= 1}</li>
+ * </ul>
+ * <p>
+ * Operations on missing bins or bins of other types evaluate to "unknown" on the server, and a record
+ * is filtered out both when the filter is unknown and when it is false. Simplifications that can turn unknown
+ * into false, such as detecting contradictions, are applied only where it does not change which records
+ * pass the filter: at the root and within {@code and} and {@code or} at the root. Ordering comparisons
+ * of float values are not negated, because {@code not($.a > 1.0)} is true for NaN while {@code $.a <= 1.0} is not.
+ * {@code exclusive} operands are not changed, as they are neither associative nor idempotent.
+ */
+@Beta
+public class BooleanSimplification implements OptimizerPass {
+
+    /**
+     * Counter of nested {@code and} and {@code or} merged into the enclosing ones
+     */
+    public static final String FLATTENED_NODES = "booleanSimplification.flattenedNodes";
+    /**
+     * Counter of removed duplicate operands and {@code true}/{@code false} identity operands
+     */
+    public static final String REMOVED_OPERANDS = "booleanSimplification.removedOperands";
+    /**
+     * Counter of {@code not} operations removed by negating comparisons or by removing double negation
+     */
+    public static final String PUSHED_NEGATIONS = "booleanSimplification.pushedNegations";
+    /**
+     * Counter of {@code and} and {@code or} replaced by {@code true} or {@code false}
+     */
+    public static final String SHORT_CIRCUITS = "booleanSimplification.shortCircuits";
+
+    private static final Map<ExprPartsOperation, ExprPartsOperation> NEGATED_COMPARISONS =
+            new EnumMap<>(ExprPartsOperation.class);
+    private static final Set<ExprPartsOperation> FLOAT_RETURNING_OPERATIONS = EnumSet.of(
+            POW, LOG, CEIL, FLOOR, TO_FLOAT
+    );
+    private static final Set<ExprPartsOperation> INT_RETURNING_OPERATIONS = EnumSet.of(
+            TO_INT, INT_AND, INT_OR, INT_XOR, INT_NOT, L_SHIFT, R_SHIFT, LOGICAL_R_SHIFT,
+            COUNT_ONE_BITS, FIND_BIT_LEFT, FIND_BIT_RIGHT
+    );
+
+    static {
+        NEGATED_COMPARISONS.put(EQ, NOTEQ);
+        NEGATED_COMPARISONS.put(NOTEQ, EQ);
+        NEGATED_COMPARISONS.put(GT, LTEQ);
+        NEGATED_COMPARISONS.put(LTEQ, GT);
+        NEGATED_COMPARISONS.put(LT, GTEQ);
+        NEGATED_COMPARISONS.put(GTEQ, LT);
+    }
+
+    @Override
+    public AbstractPart apply(AbstractPart expressionTree, OptimizationReport report) {
+        return simplify(expressionTree, false, true, report);
+    }
+
+    /**
+     * @param isContainerRequired Whether the part is an operand of a logical structure
+     * @param isFilterContext     Whether the part decides if a record passes the filter,
+     *                            so that false and unknown results of the part are equivalent
+     */
+    private AbstractPart simplify(AbstractPart part, boolean isContainerRequired, boolean isFilterContext,
+                                  OptimizationReport report) {
+        boolean isChildFilterContext = isFilterContext && (isLogicalStructure(part, AND_STRUCTURE)
+                || isLogicalStructure(part, OR_STRUCTURE) || isLogicalStructureOperand(part));
+        AbstractPart rewritten = TreeRewriter.rewriteChildren(part, (child, isChildContainerRequired) ->
+                simplify(child, isChildContainerRequired, isChildFilterContext, report));
+        if (!(rewritten instanceof ExpressionContainer expr) || rewritten.getPartType() != EXPRESSION_CONTAINER) {
+            return rewritten;
+        }
+
+        ExprPartsOperation operation = expr.getOperationType();
+        if (operation == LOGICAL_OPERAND && !isContainerRequired) {
+            return expr.getLeft();
+        }
+        if (operation == NOT) {
+            return simplifyNot(expr, report);
+        }
+        if (operation == AND_STRUCTURE || operation == OR_STRUCTURE) {
+            return simplifyLogical(expr, isFilterContext, report);
+        }
+        return rewritten;
+    }
+
+    private static AbstractPart simplifyNot(ExpressionContainer expr, OptimizationReport report) {
+        AbstractPart operand = unwrap(expr.getLeft());
+        if (operand instanceof ExpressionContainer operandExpr && operand.getPartType() == EXPRESSION_CONTAINER) {
+            if (operandExpr.getOperationType() == NOT) {
+                report.add(PUSHED_NEGATIONS, 2);
+                return operandExpr.getLeft();
+            }
+            ExpressionContainer negated = negateComparison(operandExpr);
+            if (negated != null) {
+                report.add(PUSHED_NEGATIONS, 1);
+                return negated;
+            }
+        }
+        return expr;
+    }
+
+    /**
+     * @return Comparison with the opposite result, or null if the given part is not such a comparison
+     */
+    private static ExpressionContainer negateComparison(ExpressionContainer expr) {
+        ExprPartsOperation negated = NEGATED_COMPARISONS.get(expr.getOperationType());
+        if (negated == null) return null;
+        if (negated != EQ && negated != NOTEQ && (mayBeFloat(expr.getLeft()) || mayBeFloat(expr.getRight()))) {
+            return null;
+        }
+        return new ExpressionContainer(expr.getLeft(), expr.getRight(), negated);
+    }
+
+    private static AbstractPart simplifyLogical(ExpressionContainer expr, boolean isFilterContext,
+                                                OptimizationReport report) {
+        boolean isAnd = expr.getOperationType() == AND_STRUCTURE;
+        List<ExpressionContainer> operands = isAnd
+                ? ((AndStructure) expr.getLeft()).getOperands()
+                : ((OrStructure) expr.getLeft()).getOperands();
+
+        List<ExpressionContainer> flattened = new ArrayList<>();
+        flatten(operands, expr.getOperationType(), flattened, report);
+
+        List<ExpressionContainer> simplified = new ArrayList<>();
+        List<ByteBuffer> keys = new ArrayList<>();
+        Set<ByteBuffer> uniqueKeys = new HashSet<>();
+        for (int i = 0; i < flattened.size(); i++) {
+            ExpressionContainer operand = flattened.get(i);
+            Boolean value = getBooleanValue(operand);
+            if (value != null) {
+                if (value == isAnd) {
+                    // Identity: 'true and x' is x, 'false or x' is x
+                    report.add(REMOVED_OPERANDS, 1);
+                    continue;
+                }
+                // An operand evaluated earlier can be unknown, which then can be the result on the server
+                if (isFilterContext || i == 0) {
+                    report.add(SHORT_CIRCUITS, 1);
+                    return new BooleanOperand(!isAnd);
+                }
+            }
+            ByteBuffer key = getKey(operand);
+            if (key != null && !uniqueKeys.add(key)) {
+                report.add(REMOVED_OPERANDS, 1);
+                continue;
+            }
+            simplified.add(operand);
+            keys.add(key);
+        }
+
+        if (isAnd && isFilterContext && hasContradiction(simplified, keys)) {
+            report.add(SHORT_CIRCUITS, 1);
+            return new BooleanOperand(false);
+        }
+        if (simplified.isEmpty()) {
+            return new BooleanOperand(isAnd);
+        }
+        if (simplified.size() == 1) {
+            return simplified.get(0);
+        }
+        if (simplified.equals(operands)) {
+            return expr;
+        }
+        return isAnd
+                ? new ExpressionContainer(new AndStructure(simplified), AND_STRUCTURE)
+                : new ExpressionContainer(new OrStructure(simplified), OR_STRUCTURE);
+    }
+
+    private static void flatten(List<ExpressionContainer> operands, ExprPartsOperation operation,
+                                List<ExpressionContainer> result, OptimizationReport report) {
+        for (ExpressionContainer operand : operands) {
+            if (isLogicalStructure(operand, operation)) {
+                report.add(FLATTENED_NODES, 1);
+                List<ExpressionContainer> nested = operation == AND_STRUCTURE
+                        ? ((AndStructure) operand.getLeft()).getOperands()
+                        : ((OrStructure) operand.getLeft()).getOperands();
+                flatten(nested, operation, result, report);
+            } else {
+                result.add(operand);
+            }
+        }
+    }
+
+    /**
+     * @param operands Operands of {@code and}
+     * @param keys     Keys of the operands as returned by {@link #getKey(AbstractPart)}, in the same order
+     * @return Whether some of the operands cannot be true together
+     */
+    private static boolean hasContradiction(List<ExpressionContainer> operands, List<ByteBuffer> keys) {
+        Set<ByteBuffer> seenKeys = new HashSet<>();
+        Set<ByteBuffer> negatedKeys = new HashSet<>();
+        Map<ByteBuffer, Object> equalValues = new HashMap<>();
+        for (int i = 0; i < operands.size(); i++) {
+            ExpressionContainer operand = operands.get(i);
+            ByteBuffer key = keys.get(i);
+            if (key == null) continue;
+
+            ByteBuffer negatedKey = getNegatedKey(operand);
+            if (negatedKeys.contains(key) || (negatedKey != null && seenKeys.contains(negatedKey))) {
+                return true;
+            }
+            seenKeys.add(key);
+            if (negatedKey != null) negatedKeys.add(negatedKey);
+
+            if (operand.getOperationType() == EQ) {
+                // Equality of the same operand to different literals, e.g., '$.a == 1 and $.a == 2'
+                AbstractPart other = operand.getLeft();
+                Object value = getLiteral(operand.getRight());
+                if (value == null) {
+                    other = operand.getRight();
+                    value = getLiteral(operand.getLeft());
+                }
+                ByteBuffer otherKey = value == null ? null : getKey(other);
+                if (otherKey != null) {
+                    Object previous = equalValues.putIfAbsent(otherKey, value);
+                    if (previous != null && !previous.equals(value)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer getNegatedKey(ExpressionContainer operand) {
+        if (operand.getOperationType() == NOT) {
+            return getKey(operand.getLeft());
+        }
+        ExpressionContainer negated = negateComparison(operand);
+        return negated == null ? null : getKey(negated);
+    }
+
+    /**
+     * @return Packed {@link Exp} of the part to compare parts by, or null if the part cannot be compared,
+     * e.g., if it has placeholders
+     */
+    static ByteBuffer getKey(AbstractPart part) {
+        if (hasPlaceholders(part)) return null;
+
+        try {
+            Exp exp = part.getPartType() == EXPRESSION_CONTAINER
+                    ? buildExpr((ExpressionContainer) part, null, null, null).getExp()
+                    : part.getExp();
+            return exp == null ? null : ByteBuffer.wrap(Exp.build(exp).getBytes());
+        } catch (RuntimeException e) {
+            // Invalid parts are reported when the whole expression is built
+            return null;
+        }
+    }
+
+    private static boolean hasPlaceholders(AbstractPart part) {
+        if (part.getPartType() == PLACEHOLDER_OPERAND || part.getPlaceholderSlot() != null) return true;
+
+        boolean[] hasPlaceholders = {false};
+        TreeRewriter.rewriteChildren(part, (child, isContainerRequired) -> {
+            hasPlaceholders[0] |= hasPlaceholders(child);
+            return child;
+        });
+        return hasPlaceholders[0];
+    }
+
+    /**
+     * @return Value of a literal operand to compare for equality, or null if the part is not such a literal
+     */
+    private static Object getLiteral(AbstractPart part) {
+        if (part == null || part.getPlaceholderSlot() != null) return null;
+
+        return switch (part.getPartType()) {
+            case INT_OPERAND, FLOAT_OPERAND, BOOL_OPERAND -> ((ParsedValueOperand) part).getValue();
+            case STRING_OPERAND -> ((StringOperand) part).isBlob() ? null : ((StringOperand) part).getValue();
+            default -> null;
+        };
+    }
+
+    private static Boolean getBooleanValue(AbstractPart part) {
+        AbstractPart operand = unwrap(part);
+        if (operand.getPartType() != BOOL_OPERAND || operand.getPlaceholderSlot() != null) return null;
+
+        return ((BooleanOperand) operand).getValue();
+    }
+
+    private static AbstractPart unwrap(AbstractPart part) {
+        if (part instanceof ExpressionContainer expr && part.getPartType() == EXPRESSION_CONTAINER
+                && expr.getOperationType() == LOGICAL_OPERAND) {
+            return expr.getLeft();
+        }
+        return part;
+    }
+
+    /**
+     * @return Whether the part can have a float value, unknown types are considered as such
+     */
+    private static boolean mayBeFloat(AbstractPart part) {
+        if (part == null) return false;
+        if (part.getExpType() != null) return part.getExpType() == Exp.Type.FLOAT;
+
+        return switch (part.getPartType()) {
+            case INT_OPERAND, BOOL_OPERAND, STRING_OPERAND, LIST_OPERAND, MAP_OPERAND -> false;
+            case EXPRESSION_CONTAINER -> {
+                ExpressionContainer expr = (ExpressionContainer) part;
+                if (INT_RETURNING_OPERATIONS.contains(expr.getOperationType())) yield false;
+                yield FLOAT_RETURNING_OPERATIONS.contains(expr.getOperationType())
+                        || mayBeFloat(expr.getLeft()) || mayBeFloat(expr.getRight());
+            }
+            case FUNCTION_ARGS -> ((FunctionArgs) part).getOperands().stream()
+                    .anyMatch(BooleanSimplification::mayBeFloat);
+            default -> true;
+        };
+    }
+
+    static boolean isLogicalStructure(AbstractPart part, ExprPartsOperation operation) {
+        return part instanceof ExpressionContainer expr && part.getPartType() == EXPRESSION_CONTAINER
+                && expr.getOperationType() == operation;
+    }
+
+    /**
+     * @return Whether the part is {@link AndStructure} or {@link OrStructure} itself (the operand
+     * of its {@link ExpressionContainer})
+     */
+    static boolean isLogicalStructureOperand(AbstractPart part) {
+        return part.getPartType() == AbstractPart.PartType.AND_STRUCTURE
+                || part.getPartType() == AbstractPart.PartType.OR_STRUCTURE;
+    }
+}
@@ -0,0 +1,386 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation;
+import com.aerospike.dsl.parts.controlstructure.AndStructure;
+import com.aerospike.dsl.parts.controlstructure.ExclusiveStructure;
+import com.aerospike.dsl.parts.controlstructure.LetStructure;
+import com.aerospike.dsl.parts.controlstructure.OrStructure;
+import com.aerospike.dsl.parts.controlstructure.WhenStructure;
+import com.aerospike.dsl.parts.operand.FunctionArgs;
+import com.aerospike.dsl.parts.operand.LetOperand;
+import com.aerospike.dsl.parts.operand.VariableOperand;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.aerospike.dsl.parts.AbstractPart.PartType.EXPRESSION_CONTAINER;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.*;
+import static com.aerospike.dsl.visitor.VisitorUtils.traverseTree;
+
+/**
+ * Computes repeated subexpressions once per record: list and map paths, record metadata and arithmetic operations
+ * that occur more than once are bound to variables of a generated {@code let}, e.g.,
+ * {@code $.m.a.get(type: INT) > 5 and $.m.a.get(type: INT) < 10} becomes
+ * {@code let (cse0 = $.m.a.get(type: INT)) then (${cse0} > 5 and ${cse0} < 10)}.
+ * <p>
+ * The {@code let} is placed at the closest part containing all occurrences. A subexpression is only bound if
+ * one of its occurrences is evaluated whenever that part is, i.e., it is not only in the operands
+ * of {@code and}, {@code or} and {@code when} that the server may skip. Within an {@code and} flattened by
+ * {@link BooleanSimplification}, only the consecutive operands containing the occurrences are moved into
+ * the {@code let}. Occurrences within user-defined {@code let} structures are left as is.
+ * <p>
+ * Comparisons of bound subexpressions can no longer become a secondary index Filter, so the pass is not part
+ * of {@link ExpressionOptimizer#defaults()}.
+ */
+@Beta
+public class CommonSubexpressionElimination implements OptimizerPass {
+
+    /**
+     * Counter of the parts removed from the tree by replacing repeated subexpressions with variables
+     */
+    public static final String ELIMINATED_NODES = "commonSubexpressionElimination.eliminatedNodes";
+
+    private static final String VARIABLE_PREFIX = "cse";
+    private static final Set<ExprPartsOperation> VALUE_OPERATIONS = EnumSet.of(
+            ADD, SUB, MUL, DIV, MOD, POW, INT_XOR, INT_NOT, INT_AND, INT_OR,
+            L_SHIFT, R_SHIFT, LOGICAL_R_SHIFT, ABS, CEIL, FLOOR, LOG,
+            MIN_FUNC, MAX_FUNC, COUNT_ONE_BITS, FIND_BIT_LEFT, FIND_BIT_RIGHT, TO_INT, TO_FLOAT
+    );
+
+    /**
+     * Occurrence of a subexpression with the parts from the root to it
+     */
+    @AllArgsConstructor
+    @Getter
+    private static final class Occurrence {
+
+        private final AbstractPart part;
+        /**
+         * Parts from the root to the parent of the occurrence
+         */
+        private final List<AbstractPart> ancestors;
+        /**
+         * For each ancestor, whether the server may skip evaluating its child on the way to the occurrence
+         */
+        private final List<Boolean> isConditional;
+
+        /**
+         * @return The child of the ancestor at the given index on the way to the occurrence
+         */
+        AbstractPart childOf(int index) {
+            return index + 1 < ancestors.size() ? ancestors.get(index + 1) : part;
+        }
+    }
+
+    /**
+     * Part to place the {@code let} at: a container wrapped by the {@code let}, or an {@link AndStructure}
+     * whose operands in the inclusive range are moved into the {@code let}
+     */
+    @AllArgsConstructor
+    @Getter
+    private static final class Placement {
+
+        private final AbstractPart part;
+        private final int[] operandRange;
+    }
+
+    @Override
+    public AbstractPart apply(AbstractPart expressionTree, OptimizationReport report) {
+        Map<AbstractPart, String> keys = new IdentityHashMap<>();
+        Map<String, List<Occurrence>> occurrences = new LinkedHashMap<>();
+        collect(expressionTree, new ArrayList<>(), new ArrayList<>(), keys, occurrences);
+
+        // Larger subexpressions first, their occurrences cover the repeated parts within them
+        List<List<Occurrence>> repeated = new ArrayList<>(occurrences.values().stream()
+                .filter(list -> list.size() > 1)
+                .toList());
+        if (repeated.isEmpty()) return expressionTree;
+        repeated.sort((a, b) -> Integer.compare(size(b.get(0).getPart()), size(a.get(0).getPart())));
+
+        Set<String> usedNames = new HashSet<>();
+        collectVariableNames(expressionTree, usedNames);
+
+        Map<AbstractPart, String> replacements = new IdentityHashMap<>();
+        Map<AbstractPart, List<LetOperand>> definitions = new IdentityHashMap<>();
+        Map<AbstractPart, int[]> groupedOperands = new IdentityHashMap<>();
+        int eliminated = 0;
+        int variable = 0;
+        for (List<Occurrence> list : repeated) {
+            List<Occurrence> remaining = list.stream()
+                    .filter(occurrence -> occurrence.getAncestors().stream().noneMatch(replacements::containsKey))
+                    .toList();
+            if (remaining.size() < 2) continue;
+
+            Placement placement = place(remaining);
+            if (placement == null) continue;
+            if (groupedOperands.containsKey(placement.getPart())
+                    && !Arrays.equals(groupedOperands.get(placement.getPart()), placement.getOperandRange())) {
+                continue;
+            }
+
+            String name;
+            do {
+                name = VARIABLE_PREFIX + variable++;
+            } while (usedNames.contains(name));
+            for (Occurrence occurrence : remaining) {
+                replacements.put(occurrence.getPart(), name);
+            }
+            definitions.computeIfAbsent(placement.getPart(), part -> new ArrayList<>())
+                    .add(new LetOperand(remaining.get(0).getPart(), name));
+            if (placement.getOperandRange() != null) {
+                groupedOperands.put(placement.getPart(), placement.getOperandRange());
+            }
+            eliminated += (remaining.size() - 1) * size(remaining.get(0).getPart());
+        }
+        if (replacements.isEmpty()) return expressionTree;
+
+        report.add(ELIMINATED_NODES, eliminated);
+        return rewrite(expressionTree, replacements, definitions, groupedOperands);
+    }
+
+    /**
+     * @return Where to place the {@code let} binding the occurrences, or null if none of them is evaluated
+     * whenever that place is
+     */
+    private static Placement place(List<Occurrence> occurrences) {
+        List<AbstractPart> first = occurrences.get(0).getAncestors();
+        int common = first.size();
+        for (Occurrence occurrence : occurrences) {
+            List<AbstractPart> ancestors = occurrence.getAncestors();
+            int i = 0;
+            while (i < common && i < ancestors.size() && ancestors.get(i) == first.get(i)) i++;
+            common = i;
+        }
+        // Index of the closest common ancestor within the ancestors lists
+        int index = common - 1;
+        int[] operandRange = null;
+        if (first.get(index) instanceof AndStructure andStructure) {
+            int from = Integer.MAX_VALUE;
+            int to = -1;
+            for (Occurrence occurrence : occurrences) {
+                int operand = andStructure.getOperands().indexOf(occurrence.childOf(index));
+                from = Math.min(from, operand);
+                to = Math.max(to, operand);
+            }
+            operandRange = new int[]{from, to};
+        } else {
+            while (index >= 0 && first.get(index).getPartType() != EXPRESSION_CONTAINER) index--;
+        }
+
+        for (Occurrence occurrence : occurrences) {
+            if (operandRange != null) {
+                // The first of the grouped operands is evaluated whenever the let is
+                int operand = ((AndStructure) first.get(index)).getOperands().indexOf(occurrence.childOf(index));
+                if (operand == operandRange[0]
+                        && !occurrence.getIsConditional().subList(index + 1, occurrence.getIsConditional().size())
+                        .contains(true)) {
+                    return new Placement(first.get(index), operandRange);
+                }
+            } else if (!occurrence.getIsConditional().subList(index, occurrence.getIsConditional().size())
+                    .contains(true)) {
+                return new Placement(first.get(index), null);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compute keys of the parts and collect occurrences of the subexpressions that can be bound to variables.
+     *
+     * @param ancestors     Parts from the root to the parent of the part
+     * @param isConditional For each ancestor, whether the server may skip evaluating its child on the way
+     *                      to the part
+     */
+    private static void collect(AbstractPart part, List<AbstractPart> ancestors, List<Boolean> isConditional,
+                                Map<AbstractPart, String> keys, Map<String, List<Occurrence>> occurrences) {
+        if (part == null) return;
+
+        ancestors.add(part);
+        switch (part.getPartType()) {
+            case EXPRESSION_CONTAINER -> {
+                ExpressionContainer expr = (ExpressionContainer) part;
+                if (expr.getOperationType() != LET_STRUCTURE) {
+                    boolean isLogical = expr.getOperationType() == AND || expr.getOperationType() == OR;
+                    collectChild(expr.getLeft(), false, ancestors, isConditional, keys, occurrences);
+                    collectChild(expr.getRight(), isLogical, ancestors, isConditional, keys, occurrences);
+                }
+            }
+            case AND_STRUCTURE -> collectChildren(((AndStructure) part).getOperands(), true, ancestors,
+                    isConditional, keys, occurrences);
+            case OR_STRUCTURE -> collectChildren(((OrStructure) part).getOperands(), true, ancestors,
+                    isConditional, keys, occurrences);
+            case WHEN_STRUCTURE -> collectChildren(((WhenStructure) part).getOperands(), true, ancestors,
+                    isConditional, keys, occurrences);
+            case EXCLUSIVE_STRUCTURE -> collectChildren(((ExclusiveStructure) part).getOperands(), true,
+                    ancestors, isConditional, keys, occurrences);
+            case FUNCTION_ARGS -> collectChildren(((FunctionArgs) part).getOperands(), false, ancestors,
+                    isConditional, keys, occurrences);
+            default -> {
+            }
+        }
+        ancestors.remove(ancestors.size() - 1);
+
+        String key = key(part, keys);
+        if (key != null && isBindable(part)) {
+            occurrences.computeIfAbsent(key, k -> new ArrayList<>())
+                    .add(new Occurrence(part, List.copyOf(ancestors), List.copyOf(isConditional)));
+        }
+    }
+
+    /**
+     * @param isConditional Whether only the first of the operands is always evaluated
+     */
+    private static void collectChildren(List<? extends AbstractPart> operands, boolean isConditional,
+                                        List<AbstractPart> ancestors, List<Boolean> isConditionalList,
+                                        Map<AbstractPart, String> keys, Map<String, List<Occurrence>> occurrences) {
+        for (int i = 0; i < operands.size(); i++) {
+            collectChild(operands.get(i), isConditional && i > 0, ancestors, isConditionalList, keys, occurrences);
+        }
+    }
+
+    private static void collectChild(AbstractPart child, boolean isConditional, List<AbstractPart> ancestors,
+                                     List<Boolean> isConditionalList, Map<AbstractPart, String> keys,
+                                     Map<String, List<Occurrence>> occurrences) {
+        isConditionalList.add(isConditional);
+        collect(child, ancestors, isConditionalList, keys, occurrences);
+        isConditionalList.remove(isConditionalList.size() - 1);
+    }
+
+    /**
+     * @return Whether the part is a subexpression worth binding to a variable
+     */
+    private static boolean isBindable(AbstractPart part) {
+        return switch (part.getPartType()) {
+            case PATH_OPERAND, METADATA_OPERAND -> true;
+            case EXPRESSION_CONTAINER -> VALUE_OPERATIONS.contains(((ExpressionContainer) part).getOperationType());
+            default -> false;
+        };
+    }
+
+    /**
+     * @return Key that is equal for equal subexpressions, or null if the part cannot be bound to a variable,
+     * e.g., it refers to variables or placeholders
+     */
+    private static String key(AbstractPart part, Map<AbstractPart, String> keys) {
+        if (part == null) return "";
+        if (keys.containsKey(part)) return keys.get(part);
+
+        String key = computeKey(part, keys);
+        keys.put(part, key);
+        return key;
+    }
+
+    private static String computeKey(AbstractPart part, Map<AbstractPart, String> keys) {
+        if (part.getPlaceholderSlot() != null) return null;
+
+        return switch (part.getPartType()) {
+            case INT_OPERAND, FLOAT_OPERAND, BOOL_OPERAND, STRING_OPERAND, LIST_OPERAND, MAP_OPERAND, BIN_PART,
+                 PATH_OPERAND, METADATA_OPERAND -> packedKey(part);
+            case FUNCTION_ARGS -> {
+                StringBuilder sb = new StringBuilder("(");
+                for (AbstractPart operand : ((FunctionArgs) part).getOperands()) {
+                    String operandKey = key(operand, keys);
+                    if (operandKey == null) yield null;
+                    sb.append(operandKey).append(',');
+                }
+                yield sb.append(')').toString();
+            }
+            case EXPRESSION_CONTAINER -> {
+                ExpressionContainer expr = (ExpressionContainer) part;
+                if (!VALUE_OPERATIONS.contains(expr.getOperationType())) yield null;
+                String left = key(expr.getLeft(), keys);
+                String right = key(expr.getRight(), keys);
+                yield left == null || right == null
+                        ? null
+                        : expr.getOperationType() + "(" + left + ";" + right + ")";
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * @return Packed {@link Exp} of an operand, or null if it cannot be built
+     */
+    private static String packedKey(AbstractPart part) {
+        try {
+            Exp exp = part.getExp();
+            return exp == null ? null : Base64.getEncoder().encodeToString(Exp.build(exp).getBytes());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int size(AbstractPart part) {
+        int[] size = {0};
+        traverseTree(part, visited -> size[0]++, null);
+        return size[0];
+    }
+
+    /**
+     * Collect the names of all variables defined or referenced within the tree
+     */
+    private static void collectVariableNames(AbstractPart part, Set<String> names) {
+        if (part instanceof VariableOperand variable) {
+            names.add(variable.getValue());
+        } else if (part instanceof LetOperand letOperand && letOperand.getString() != null) {
+            names.add(letOperand.getString());
+        }
+        TreeRewriter.rewriteChildren(part, (child, isContainerRequired) -> {
+            collectVariableNames(child, names);
+            return child;
+        });
+        if (part instanceof LetOperand letOperand) {
+            collectVariableNames(letOperand.getPart(), names);
+        }
+    }
+
+    private static AbstractPart rewrite(AbstractPart part, Map<AbstractPart, String> replacements,
+                                        Map<AbstractPart, List<LetOperand>> definitions,
+                                        Map<AbstractPart, int[]> groupedOperands) {
+        String variable = replacements.get(part);
+        if (variable != null) {
+            VariableOperand operand = new VariableOperand(variable);
+            operand.setExpType(part.getExpType());
+            return operand;
+        }
+
+        AbstractPart rewritten = TreeRewriter.rewriteChildren(part, (child, isContainerRequired) ->
+                rewrite(child, replacements, definitions, groupedOperands));
+        List<LetOperand> letOperands = definitions.get(part);
+        if (letOperands == null) return rewritten;
+
+        int[] operandRange = groupedOperands.get(part);
+        if (operandRange == null) {
+            return let(letOperands, rewritten);
+        }
+        List<ExpressionContainer> operands = ((AndStructure) rewritten).getOperands();
+        List<ExpressionContainer> grouped = operands.subList(operandRange[0], operandRange[1] + 1);
+        ExpressionContainer scope = grouped.size() == 1
+                ? grouped.get(0)
+                : new ExpressionContainer(new AndStructure(List.copyOf(grouped)), AND_STRUCTURE);
+        List<ExpressionContainer> result = new ArrayList<>(operands.subList(0, operandRange[0]));
+        result.add(let(letOperands, scope));
+        result.addAll(operands.subList(operandRange[1] + 1, operands.size()));
+        return new AndStructure(result);
+    }
+
+    private static ExpressionContainer let(List<LetOperand> definitions, AbstractPart scope) {
+        List<LetOperand> operands = new ArrayList<>(definitions);
+        operands.add(new LetOperand(scope, true));
+        return new ExpressionContainer(new LetStructure(operands), LET_STRUCTURE);
+    }
+}
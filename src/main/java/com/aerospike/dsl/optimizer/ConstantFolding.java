@@ -0,0 +1,250 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation;
+import com.aerospike.dsl.parts.operand.BooleanOperand;
+import com.aerospike.dsl.parts.operand.FloatOperand;
+import com.aerospike.dsl.parts.operand.FunctionArgs;
+import com.aerospike.dsl.parts.operand.IntOperand;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.aerospike.dsl.parts.AbstractPart.PartType.EXPRESSION_CONTAINER;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.*;
+
+/**
+ * Replaces operations on literal operands with their results, e.g., {@code $.a > 10 * 60 * 1000}
+ * becomes {@code $.a > 600000}, so that the server does not evaluate them for every record.
+ * <p>
+ * Folded operations: arithmetic, bitwise and shift operations, {@code abs}, {@code ceil}, {@code floor},
+ * {@code min}, {@code max}, {@code asFloat}, comparisons of integer, float or boolean literals
+ * and {@code not} of a boolean literal.
+ * An operation is left as is whenever the server would not produce a regular value for it: integer overflow,
+ * division by zero, shift by a negative amount or by 64 and more bits, non-finite float results and operand types
+ * the operation does not accept (e.g., integer operands of {@code **} or of {@code ceil}).
+ * This way the result on the server is the same with and without folding.
+ */
+@Beta
+public class ConstantFolding implements OptimizerPass {
+
+    /**
+     * Counter of the operations replaced with their results
+     */
+    public static final String FOLDED_NODES = "constantFolding.foldedNodes";
+
+    private static final Set<ExprPartsOperation> COMPARISONS = EnumSet.of(EQ, NOTEQ, GT, GTEQ, LT, LTEQ);
+    private static final Set<ExprPartsOperation> ARITHMETIC_OPERATIONS = EnumSet.of(
+            ADD, SUB, MUL, DIV, MOD, POW, INT_XOR, INT_NOT, INT_AND, INT_OR,
+            L_SHIFT, R_SHIFT, LOGICAL_R_SHIFT, ABS, CEIL, FLOOR, LOG,
+            MIN_FUNC, MAX_FUNC, COUNT_ONE_BITS, FIND_BIT_LEFT, FIND_BIT_RIGHT, TO_INT, TO_FLOAT
+    );
+
+    @Override
+    public AbstractPart apply(AbstractPart expressionTree, OptimizationReport report) {
+        return fold(expressionTree, report);
+    }
+
+    private AbstractPart fold(AbstractPart part, OptimizationReport report) {
+        if (isNumericComparedToOtherType(part)) {
+            // Left as is to fail type validation the same way as without folding
+            return part;
+        }
+        AbstractPart rewritten = TreeRewriter.rewriteChildren(part,
+                (child, isContainerRequired) -> fold(child, report));
+        if (rewritten.getPartType() != EXPRESSION_CONTAINER) return rewritten;
+
+        Object value = evaluate((ExpressionContainer) rewritten);
+        if (value == null) return rewritten;
+
+        report.add(FOLDED_NODES, 1);
+        return toOperand(value);
+    }
+
+    /**
+     * @return Whether the part is a comparison of an arithmetic operation to an operand of a non-numeric type
+     */
+    private static boolean isNumericComparedToOtherType(AbstractPart part) {
+        if (!(part instanceof ExpressionContainer expr) || expr.isUnary()
+                || !COMPARISONS.contains(expr.getOperationType())) {
+            return false;
+        }
+        return (isArithmetic(expr.getLeft()) && isNonNumeric(expr.getRight()))
+                || (isArithmetic(expr.getRight()) && isNonNumeric(expr.getLeft()));
+    }
+
+    private static boolean isArithmetic(AbstractPart part) {
+        return part instanceof ExpressionContainer expr && expr.getOperationType() != null
+                && ARITHMETIC_OPERATIONS.contains(expr.getOperationType());
+    }
+
+    private static boolean isNonNumeric(AbstractPart part) {
+        Exp.Type type = part.getExpType();
+        if (type == null) {
+            type = switch (part.getPartType()) {
+                case STRING_OPERAND -> Exp.Type.STRING;
+                case BOOL_OPERAND -> Exp.Type.BOOL;
+                case LIST_OPERAND -> Exp.Type.LIST;
+                case MAP_OPERAND -> Exp.Type.MAP;
+                default -> null;
+            };
+        }
+        return type != null && type != Exp.Type.INT && type != Exp.Type.FLOAT;
+    }
+
+    /**
+     * @return Result of the operation, or null if it cannot be evaluated in advance
+     */
+    private static Object evaluate(ExpressionContainer expr) {
+        ExprPartsOperation operation = expr.getOperationType();
+        if (operation == null) return null;
+
+        if (operation == MIN_FUNC || operation == MAX_FUNC) {
+            return evaluateMinMax(((FunctionArgs) expr.getLeft()).getOperands(),
+                    operation == MIN_FUNC);
+        }
+        Object left = getValue(expr.getLeft());
+        if (left == null) return null;
+        if (expr.isUnary()) {
+            return evaluateUnary(operation, left);
+        }
+        Object right = getValue(expr.getRight());
+        if (right == null || left.getClass() != right.getClass()) return null;
+
+        if (left instanceof Long leftLong) {
+            return evaluateInt(operation, leftLong, (Long) right);
+        }
+        if (left instanceof Double leftDouble) {
+            return finiteOrNull(evaluateFloat(operation, leftDouble, (Double) right));
+        }
+        return switch (operation) {
+            case EQ -> left.equals(right);
+            case NOTEQ -> !left.equals(right);
+            default -> null;
+        };
+    }
+
+    private static Object evaluateUnary(ExprPartsOperation operation, Object value) {
+        if (value instanceof Long longValue) {
+            long v = longValue;
+            return switch (operation) {
+                case INT_NOT -> ~v;
+                case ABS -> v == Long.MIN_VALUE ? null : Math.abs(v);
+                case COUNT_ONE_BITS -> (long) Long.bitCount(v);
+                case TO_FLOAT -> (double) v;
+                default -> null;
+            };
+        }
+        if (value instanceof Double doubleValue) {
+            double v = doubleValue;
+            return switch (operation) {
+                case ABS -> Math.abs(v);
+                case CEIL -> Math.ceil(v);
+                case FLOOR -> Math.floor(v);
+                default -> null;
+            };
+        }
+        return operation == NOT ? !(Boolean) value : null;
+    }
+
+    private static Object evaluateInt(ExprPartsOperation operation, long left, long right) {
+        try {
+            return switch (operation) {
+                case ADD -> Math.addExact(left, right);
+                case SUB -> Math.subtractExact(left, right);
+                case MUL -> Math.multiplyExact(left, right);
+                // Long.MIN_VALUE / -1 overflows, Long.MIN_VALUE % -1 traps on the server
+                case DIV -> right == 0 || (left == Long.MIN_VALUE && right == -1) ? null : left / right;
+                case MOD -> right == 0 || right == -1 ? null : left % right;
+                case INT_AND -> left & right;
+                case INT_OR -> left | right;
+                case INT_XOR -> left ^ right;
+                case L_SHIFT -> isShiftable(right) ? left << right : null;
+                case R_SHIFT -> isShiftable(right) ? left >> right : null;
+                case LOGICAL_R_SHIFT -> isShiftable(right) ? left >>> right : null;
+                default -> compare(operation, Long.compare(left, right));
+            };
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private static Object evaluateFloat(ExprPartsOperation operation, double left, double right) {
+        return switch (operation) {
+            case ADD -> left + right;
+            case SUB -> left - right;
+            case MUL -> left * right;
+            case DIV -> right == 0 ? null : left / right;
+            case POW -> Math.pow(left, right);
+            // Not Double.compare(), which orders -0.0 before 0.0
+            default -> compare(operation, left < right ? -1 : (left > right ? 1 : 0));
+        };
+    }
+
+    private static Object evaluateMinMax(List<AbstractPart> operands, boolean isMin) {
+        Object result = null;
+        for (AbstractPart operand : operands) {
+            Object value = getValue(operand);
+            if (value == null || value instanceof Boolean
+                    || (result != null && result.getClass() != value.getClass())) {
+                return null;
+            }
+            if (result == null || (isMin ? isLess(value, result) : isLess(result, value))) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isLess(Object left, Object right) {
+        if (left instanceof Long leftLong) {
+            return leftLong < (Long) right;
+        }
+        return (Double) left < (Double) right;
+    }
+
+    private static Boolean compare(ExprPartsOperation operation, int comparison) {
+        return switch (operation) {
+            case EQ -> comparison == 0;
+            case NOTEQ -> comparison != 0;
+            case GT -> comparison > 0;
+            case GTEQ -> comparison >= 0;
+            case LT -> comparison < 0;
+            case LTEQ -> comparison <= 0;
+            default -> null;
+        };
+    }
+
+    private static boolean isShiftable(long shift) {
+        return shift >= 0 && shift < Long.SIZE;
+    }
+
+    private static Object finiteOrNull(Object value) {
+        return value instanceof Double doubleValue && !Double.isFinite(doubleValue) ? null : value;
+    }
+
+    /**
+     * @return Value of a literal operand, or null if the part is not a literal.
+     * Operands resolved from placeholders while building an expression template are not literals
+     */
+    static Object getValue(AbstractPart part) {
+        if (part == null || part.getPlaceholderSlot() != null) return null;
+
+        return switch (part.getPartType()) {
+            case INT_OPERAND -> ((IntOperand) part).getValue();
+            case FLOAT_OPERAND -> ((FloatOperand) part).getValue();
+            case BOOL_OPERAND -> ((BooleanOperand) part).getValue();
+            default -> null;
+        };
+    }
+
+    private static AbstractPart toOperand(Object value) {
+        if (value instanceof Long longValue) return new IntOperand(longValue);
+        if (value instanceof Double doubleValue) return new FloatOperand(doubleValue);
+        return new BooleanOperand((Boolean) value);
+    }
+}
@@ -0,0 +1,227 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.util.Packer;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.controlstructure.AndStructure;
+import com.aerospike.dsl.parts.controlstructure.OrStructure;
+import com.aerospike.dsl.parts.operand.ParsedValueOperand;
+import com.aerospike.dsl.parts.operand.PlaceholderMarkers;
+import com.aerospike.dsl.parts.operand.PlaceholderMarkers.Marker;
+import com.aerospike.dsl.parts.operand.PlaceholderOperand;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.UtilityClass;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.aerospike.dsl.optimizer.BooleanSimplification.isLogicalStructure;
+import static com.aerospike.dsl.optimizer.BooleanSimplification.isLogicalStructureOperand;
+import static com.aerospike.dsl.parts.AbstractPart.PartType.EXPRESSION_CONTAINER;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.AND_STRUCTURE;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.OR_STRUCTURE;
+import static com.aerospike.dsl.visitor.VisitorUtils.buildTemplateExp;
+
+/**
+ * Brings expression trees that differ only in literal values, whitespace or the order of {@code and}
+ * and {@code or} operands to the same canonical form, so that they can share one parsed expression and its
+ * packed templates. For example, {@code $.age > 30 and $.city == 'A'} and {@code $.city == 'B' and $.age > 31}
+ * are both normalized to the same tree with two placeholders and get the same fingerprint, only the extracted
+ * placeholder values differ.
+ * <p>
+ * Literal operands and placeholders are replaced by placeholders numbered in the order of the canonical tree,
+ * their values are extracted into {@link PlaceholderValues}. Operands of {@code and} and {@code or} are sorted
+ * by their shape. Like {@link PredicateReordering}, they are only sorted at the root and within {@code and}
+ * and {@code or} at the root, where the order does not change which records pass the filter.
+ * <p>
+ * The fingerprint is a 128-bit hash of the filter expression packed without placeholder values. It depends
+ * on the types of the values, e.g., {@code $.age > 30} and {@code $.age > 30.5} have different fingerprints.
+ * It is stable across processes and does not depend on secondary indexes.
+ */
+@Beta
+@UtilityClass
+public class ExpressionNormalizer {
+
+    /**
+     * Normalize the given expression tree.
+     *
+     * @param expressionTree    Parsed expression tree, not modified
+     * @param placeholderValues Values of the placeholders of the expression tree, can be null if it has none
+     * @return {@link Result} with the normalized tree, its fingerprint and extracted placeholder values
+     * @throws IllegalArgumentException   If there is no value for a placeholder of the expression tree
+     * @throws com.aerospike.dsl.DslParseException If the expression cannot be built
+     */
+    public static Result normalize(AbstractPart expressionTree, PlaceholderValues placeholderValues) {
+        if (expressionTree.getPartType() != EXPRESSION_CONTAINER) {
+            // A single operand, nothing to lift
+            Exp exp = expressionTree.getExp();
+            byte[] shape = exp == null ? new byte[0] : Exp.build(exp).getBytes();
+            return new Result(expressionTree, PlaceholderValues.of(), fingerprint(shape));
+        }
+
+        AbstractPart sorted = sort(expressionTree, true, placeholderValues, new IdentityHashMap<>());
+        List<Object> values = new ArrayList<>();
+        AbstractPart normalized = lift(sorted, false, placeholderValues, values);
+        PlaceholderValues extractedValues = PlaceholderValues.of(values.toArray());
+        return new Result(normalized, extractedValues,
+                fingerprint(shape((ExpressionContainer) normalized, extractedValues)));
+    }
+
+    /**
+     * Sorts operands of {@code and} and {@code or} in filter context by their shape, bottom-up
+     *
+     * @param isFilterContext Whether the part decides if a record passes the filter,
+     *                        so that false and unknown results of the part are equivalent
+     */
+    private static AbstractPart sort(AbstractPart part, boolean isFilterContext, PlaceholderValues placeholderValues,
+                                     Map<AbstractPart, byte[]> shapes) {
+        if (!isFilterContext) return part;
+
+        boolean isChildFilterContext = isLogicalStructure(part, AND_STRUCTURE)
+                || isLogicalStructure(part, OR_STRUCTURE) || isLogicalStructureOperand(part);
+        AbstractPart rewritten = TreeRewriter.rewriteChildren(part, (child, isContainerRequired) ->
+                sort(child, isChildFilterContext, placeholderValues, shapes));
+
+        if (rewritten instanceof AndStructure andStructure) {
+            List<ExpressionContainer> sorted = sort(andStructure.getOperands(), placeholderValues, shapes);
+            if (sorted != null) return new AndStructure(sorted);
+        } else if (rewritten instanceof OrStructure orStructure) {
+            List<ExpressionContainer> sorted = sort(orStructure.getOperands(), placeholderValues, shapes);
+            if (sorted != null) return new OrStructure(sorted);
+        }
+        return rewritten;
+    }
+
+    /**
+     * @return Operands sorted by their shape, or null if the order has not changed
+     * or the shape of an operand cannot be built
+     */
+    private static List<ExpressionContainer> sort(List<ExpressionContainer> operands,
+                                                  PlaceholderValues placeholderValues,
+                                                  Map<AbstractPart, byte[]> shapes) {
+        for (ExpressionContainer operand : operands) {
+            List<Object> values = new ArrayList<>();
+            try {
+                ExpressionContainer lifted = (ExpressionContainer) lift(operand, false, placeholderValues, values);
+                shapes.put(operand, shape(lifted, PlaceholderValues.of(values.toArray())));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+        List<ExpressionContainer> sorted = new ArrayList<>(operands);
+        // Sorting is stable, operands with equal shape keep their order
+        sorted.sort((a, b) -> Arrays.compare(shapes.get(a), shapes.get(b)));
+        for (int i = 0; i < sorted.size(); i++) {
+            if (sorted.get(i) != operands.get(i)) return sorted;
+        }
+        return null;
+    }
+
+    /**
+     * Replaces literal operands and placeholders with placeholders numbered in the order of traversal
+     *
+     * @param values Values of the replaced operands by the index of their new placeholder
+     */
+    private static AbstractPart lift(AbstractPart part, boolean isContainerRequired,
+                                     PlaceholderValues placeholderValues, List<Object> values) {
+        switch (part.getPartType()) {
+            case INT_OPERAND, FLOAT_OPERAND, STRING_OPERAND, BOOL_OPERAND, LIST_OPERAND, MAP_OPERAND -> {
+                if (isContainerRequired) return part;
+                values.add(((ParsedValueOperand) part).getValue());
+                return new PlaceholderOperand(values.size() - 1);
+            }
+            case PLACEHOLDER_OPERAND -> {
+                if (placeholderValues == null) {
+                    throw new IllegalArgumentException("Missing value for placeholder ?"
+                            + ((PlaceholderOperand) part).getIndex());
+                }
+                values.add(placeholderValues.getValue(((PlaceholderOperand) part).getIndex()));
+                return new PlaceholderOperand(values.size() - 1);
+            }
+            default -> {
+                return TreeRewriter.rewriteChildren(part, (child, isChildContainerRequired) ->
+                        lift(child, isChildContainerRequired, placeholderValues, values));
+            }
+        }
+    }
+
+    /**
+     * @return Packed filter expression with placeholder values replaced by their indexes
+     */
+    private static byte[] shape(ExpressionContainer expr, PlaceholderValues placeholderValues) {
+        PlaceholderMarkers markers = new PlaceholderMarkers();
+        Exp exp = buildTemplateExp(expr, placeholderValues, markers);
+        if (exp == null) return new byte[0];
+
+        Packer packer = new Packer();
+        exp.pack(packer);
+        byte[] packed = packer.toByteArray();
+
+        ByteArrayOutputStream shape = new ByteArrayOutputStream(packed.length);
+        int offset = 0;
+        while (offset < packed.length) {
+            Marker marker = markers.find(packed, offset);
+            // Zero byte starts a placeholder, zero and one bytes of packed data are escaped,
+            // so that different shapes cannot produce the same bytes
+            if (marker != null) {
+                shape.write(0);
+                shape.write(marker.isBlob() ? 1 : 0);
+                shape.write(marker.getIndex() >>> 8);
+                shape.write(marker.getIndex());
+                offset += markers.getMarkerSize();
+            } else {
+                int value = packed[offset++] & 0xff;
+                if (value <= 1) {
+                    shape.write(1);
+                    shape.write(value + 1);
+                } else {
+                    shape.write(value);
+                }
+            }
+        }
+        return shape.toByteArray();
+    }
+
+    private static String fingerprint(byte[] shape) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(shape);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Normalized expression tree
+     */
+    @AllArgsConstructor
+    @Getter
+    public static class Result {
+
+        /**
+         * Expression tree with placeholders instead of literal operands and sorted {@code and}
+         * and {@code or} operands
+         */
+        private final AbstractPart expressionTree;
+        /**
+         * Values of the placeholders of the normalized expression tree
+         */
+        private final PlaceholderValues placeholderValues;
+        /**
+         * 128-bit hex fingerprint, equal for normalized trees that differ only in placeholder values
+         */
+        private final String fingerprint;
+    }
+}
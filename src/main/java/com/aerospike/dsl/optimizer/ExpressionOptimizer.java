@@ -0,0 +1,66 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.parts.AbstractPart;
+
+import java.util.List;
+
+/**
+ * Optional stage between building the expression tree and generating filter {@link com.aerospike.dsl.client.exp.Exp}
+ * that rewrites the tree into an equivalent one that is smaller or cheaper for the server to evaluate.
+ * <p>
+ * Passes are applied in the given order. The optimizer is applied to the parsed tree once, and again after
+ * placeholders are resolved, so that the resolved values are optimized too. Optimization is disabled
+ * by default, it is enabled by passing an optimizer to {@code DSLParserImpl.builder().optimizer(...)}.
+ */
+@Beta
+public final class ExpressionOptimizer {
+
+    private final List<OptimizerPass> passes;
+
+    private ExpressionOptimizer(List<OptimizerPass> passes) {
+        this.passes = passes;
+    }
+
+    /**
+     * Create an optimizer applying the given passes in order.
+     *
+     * @param passes Passes to apply, must not be null
+     * @return A new instance of {@code ExpressionOptimizer}
+     */
+    public static ExpressionOptimizer of(OptimizerPass... passes) {
+        return new ExpressionOptimizer(List.of(passes));
+    }
+
+    /**
+     * @return Optimizer applying the built-in passes that keep secondary index Filter selection as is,
+     * i.e., all except {@link CommonSubexpressionElimination}
+     */
+    public static ExpressionOptimizer defaults() {
+        // Simplification runs again to remove the false literals left by merging ranges
+        return of(new ConstantFolding(), new BooleanSimplification(), new RangeMerging(),
+                new BooleanSimplification());
+    }
+
+    /**
+     * @return Passes applied by this optimizer, in order
+     */
+    public List<OptimizerPass> getPasses() {
+        return passes;
+    }
+
+    /**
+     * Optimize an expression tree. The given tree is not modified.
+     *
+     * @param expressionTree Root of the expression tree
+     * @param report         Report to add the counters of the passes to
+     * @return Root of the optimized tree, the given one if nothing has changed
+     */
+    public AbstractPart optimize(AbstractPart expressionTree, OptimizationReport report) {
+        AbstractPart optimized = expressionTree;
+        for (OptimizerPass pass : passes) {
+            optimized = pass.apply(optimized, report);
+        }
+        return optimized;
+    }
+}
@@ -0,0 +1,57 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.annotation.Beta;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counters of the changes made by {@link OptimizerPass}es while optimizing an expression tree,
+ * keyed by counter names defined by the passes (e.g., {@link ConstantFolding#FOLDED_NODES}).
+ * <p>
+ * A report is filled by a single {@link ExpressionOptimizer#optimize(com.aerospike.dsl.parts.AbstractPart,
+ * OptimizationReport)} call and is not thread-safe.
+ */
+@Beta
+public class OptimizationReport {
+
+    private final Map<String, Integer> counters = new LinkedHashMap<>();
+
+    /**
+     * Add the given amount to a counter.
+     *
+     * @param counter Name of the counter
+     * @param amount  Amount to add
+     */
+    public void add(String counter, int amount) {
+        counters.merge(counter, amount, Integer::sum);
+    }
+
+    /**
+     * @param counter Name of the counter
+     * @return Value of the counter, 0 if it was never added to
+     */
+    public int get(String counter) {
+        return counters.getOrDefault(counter, 0);
+    }
+
+    /**
+     * @return Unmodifiable view of all counters in the order they were first added to
+     */
+    public Map<String, Integer> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    /**
+     * @return Whether any of the passes changed the expression tree
+     */
+    public boolean hasChanges() {
+        return counters.values().stream().anyMatch(count -> count != 0);
+    }
+
+    @Override
+    public String toString() {
+        return "OptimizationReport" + counters;
+    }
+}
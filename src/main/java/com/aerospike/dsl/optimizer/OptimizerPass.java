@@ -0,0 +1,25 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.parts.AbstractPart;
+
+/**
+ * A single rewrite of the parsed expression tree applied by {@link ExpressionOptimizer}.
+ * <p>
+ * Expression trees can be shared between threads, so a pass must not modify the given parts: changed parts
+ * are copied, unchanged ones are returned as is. Operands resolved from placeholders while building
+ * an expression template (having a {@link AbstractPart#getPlaceholderSlot() placeholder slot}) must be treated
+ * as values unknown in advance.
+ */
+@Beta
+public interface OptimizerPass {
+
+    /**
+     * Apply the pass to an expression tree.
+     *
+     * @param expressionTree Root of the expression tree
+     * @param report         Report to add the counters of this pass to
+     * @return The given tree if nothing has changed, otherwise the root of the rewritten tree
+     */
+    AbstractPart apply(AbstractPart expressionTree, OptimizationReport report);
+}
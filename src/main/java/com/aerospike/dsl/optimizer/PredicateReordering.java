@@ -0,0 +1,183 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation;
+import com.aerospike.dsl.parts.cdt.list.ListIndex;
+import com.aerospike.dsl.parts.cdt.list.ListTypeDesignator;
+import com.aerospike.dsl.parts.cdt.list.ListValue;
+import com.aerospike.dsl.parts.cdt.map.MapIndex;
+import com.aerospike.dsl.parts.cdt.map.MapKey;
+import com.aerospike.dsl.parts.cdt.map.MapTypeDesignator;
+import com.aerospike.dsl.parts.cdt.map.MapValue;
+import com.aerospike.dsl.parts.controlstructure.AndStructure;
+import com.aerospike.dsl.parts.controlstructure.OrStructure;
+import com.aerospike.dsl.parts.operand.ListOperand;
+import com.aerospike.dsl.parts.path.Path;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.aerospike.dsl.optimizer.BooleanSimplification.isLogicalStructure;
+import static com.aerospike.dsl.optimizer.BooleanSimplification.isLogicalStructureOperand;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.*;
+
+/**
+ * Reorders the operands of {@code and} and {@code or} so that the server, which evaluates them from left to right
+ * and stops at the first {@code false} or {@code true} respectively, evaluates cheap and selective operands first,
+ * e.g., {@code $.scores.[#-1] > 90 and $.setName() == 'x'} becomes
+ * {@code $.setName() == 'x' and $.scores.[#-1] > 90}.
+ * <p>
+ * The cost of an operand is estimated statically from the parts it evaluates, from cheapest to most expensive:
+ * record metadata, bins, arithmetic operations, list and map elements accessed by index, key or value,
+ * and list and map elements accessed by rank or by range. Selectivity is estimated by the kind of comparison:
+ * equality is the most selective, followed by {@code in}, ranges, ordering comparisons and inequality.
+ * Operands of {@code and} are ordered by {@code cost / (1 - selectivity)}, so that operands likely to be false
+ * for little cost come first, operands of {@code or} by {@code cost / selectivity}. Operands with equal rank
+ * keep their order.
+ * <p>
+ * Evaluation order can change whether the result is unknown or false, so, like the contradiction detection
+ * of {@link BooleanSimplification}, operands are only reordered where it does not change which records pass
+ * the filter: at the root and within {@code and} and {@code or} at the root. {@code exclusive} and {@code when}
+ * operands are never reordered. Apply after {@link BooleanSimplification}, which flattens nested {@code and}
+ * and {@code or}, so that all their operands are reordered together.
+ */
+@Beta
+public class PredicateReordering implements OptimizerPass {
+
+    /**
+     * Counter of {@code and} and {@code or} whose operands were reordered
+     */
+    public static final String REORDERED_NODES = "predicateReordering.reorderedNodes";
+
+    private static final double METADATA_COST = 1;
+    private static final double BIN_COST = 2;
+    private static final double OPERATION_COST = 3;
+    private static final double CDT_GET_COST = 5;
+    private static final double CDT_RANGE_COST = 8;
+
+    private static final double DEFAULT_SELECTIVITY = 0.5;
+    private static final Map<ExprPartsOperation, Double> SELECTIVITY = new EnumMap<>(ExprPartsOperation.class);
+
+    static {
+        SELECTIVITY.put(EQ, 0.1);
+        SELECTIVITY.put(IN, 0.2);
+        SELECTIVITY.put(RANGE, 0.25);
+        SELECTIVITY.put(GT, 0.33);
+        SELECTIVITY.put(GTEQ, 0.33);
+        SELECTIVITY.put(LT, 0.33);
+        SELECTIVITY.put(LTEQ, 0.33);
+        SELECTIVITY.put(NOTEQ, 0.9);
+    }
+
+    @Override
+    public AbstractPart apply(AbstractPart expressionTree, OptimizationReport report) {
+        return reorder(expressionTree, true, report);
+    }
+
+    /**
+     * @param isFilterContext Whether the part decides if a record passes the filter,
+     *                        so that false and unknown results of the part are equivalent
+     */
+    private AbstractPart reorder(AbstractPart part, boolean isFilterContext, OptimizationReport report) {
+        if (!isFilterContext) return part;
+
+        boolean isChildFilterContext = isLogicalStructure(part, AND_STRUCTURE)
+                || isLogicalStructure(part, OR_STRUCTURE) || isLogicalStructureOperand(part);
+        AbstractPart rewritten = TreeRewriter.rewriteChildren(part, (child, isContainerRequired) ->
+                reorder(child, isChildFilterContext, report));
+
+        if (rewritten instanceof AndStructure andStructure) {
+            List<ExpressionContainer> sorted = sort(andStructure.getOperands(), true);
+            if (sorted != null) {
+                report.add(REORDERED_NODES, 1);
+                return new AndStructure(sorted);
+            }
+        } else if (rewritten instanceof OrStructure orStructure) {
+            List<ExpressionContainer> sorted = sort(orStructure.getOperands(), false);
+            if (sorted != null) {
+                report.add(REORDERED_NODES, 1);
+                return new OrStructure(sorted);
+            }
+        }
+        return rewritten;
+    }
+
+    /**
+     * @return Operands in the order of their rank, or null if the order has not changed
+     */
+    private static List<ExpressionContainer> sort(List<ExpressionContainer> operands, boolean isAnd) {
+        Map<ExpressionContainer, Double> ranks = new IdentityHashMap<>();
+        for (ExpressionContainer operand : operands) {
+            double selectivity = SELECTIVITY.getOrDefault(operand.getOperationType(), DEFAULT_SELECTIVITY);
+            ranks.put(operand, cost(operand) / (isAnd ? 1 - selectivity : selectivity));
+        }
+        List<ExpressionContainer> sorted = new ArrayList<>(operands);
+        // Sorting is stable, operands with equal rank keep their order
+        sorted.sort(Comparator.comparingDouble(ranks::get));
+        for (int i = 0; i < sorted.size(); i++) {
+            if (sorted.get(i) != operands.get(i)) return sorted;
+        }
+        return null;
+    }
+
+    /**
+     * @return Estimated cost of evaluating the part on the server
+     */
+    private static double cost(AbstractPart part) {
+        if (part == null) return 0;
+
+        return switch (part.getPartType()) {
+            case INT_OPERAND, FLOAT_OPERAND, BOOL_OPERAND, STRING_OPERAND, MAP_OPERAND, PLACEHOLDER_OPERAND,
+                 VARIABLE_OPERAND -> 0;
+            // Compared element by element
+            case LIST_OPERAND -> ((ListOperand) part).getValue().size() * 0.1;
+            case METADATA_OPERAND -> METADATA_COST;
+            case BIN_PART -> BIN_COST;
+            case PATH_OPERAND -> pathCost((Path) part);
+            case EXPRESSION_CONTAINER -> {
+                ExpressionContainer expr = (ExpressionContainer) part;
+                double childrenCost = childrenCost(part);
+                yield expr.getOperationType() != null && isOperation(expr.getOperationType())
+                        ? OPERATION_COST + childrenCost
+                        : childrenCost;
+            }
+            default -> childrenCost(part);
+        };
+    }
+
+    private static boolean isOperation(ExprPartsOperation operation) {
+        return switch (operation) {
+            case ADD, SUB, MUL, DIV, MOD, POW, INT_XOR, INT_NOT, INT_AND, INT_OR, L_SHIFT, R_SHIFT,
+                 LOGICAL_R_SHIFT, ABS, CEIL, FLOOR, LOG, MIN_FUNC, MAX_FUNC, COUNT_ONE_BITS, FIND_BIT_LEFT,
+                 FIND_BIT_RIGHT, TO_INT, TO_FLOAT -> true;
+            default -> false;
+        };
+    }
+
+    private static double childrenCost(AbstractPart part) {
+        double[] cost = {0};
+        TreeRewriter.rewriteChildren(part, (child, isContainerRequired) -> {
+            cost[0] += cost(child);
+            return child;
+        });
+        return cost[0];
+    }
+
+    private static double pathCost(Path path) {
+        double cost = BIN_COST;
+        for (AbstractPart cdtPart : path.getBasePath().getCdtParts()) {
+            if (cdtPart instanceof ListTypeDesignator || cdtPart instanceof MapTypeDesignator) continue;
+
+            boolean isGet = cdtPart instanceof ListIndex || cdtPart instanceof ListValue
+                    || cdtPart instanceof MapKey || cdtPart instanceof MapIndex || cdtPart instanceof MapValue;
+            cost += isGet ? CDT_GET_COST : CDT_RANGE_COST;
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,224 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation;
+import com.aerospike.dsl.parts.controlstructure.AndStructure;
+import com.aerospike.dsl.parts.operand.BooleanOperand;
+import com.aerospike.dsl.parts.operand.FunctionArgs;
+import com.aerospike.dsl.parts.operand.IntOperand;
+import com.aerospike.dsl.parts.path.Path;
+import lombok.AllArgsConstructor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.aerospike.dsl.optimizer.BooleanSimplification.getKey;
+import static com.aerospike.dsl.optimizer.BooleanSimplification.isLogicalStructure;
+import static com.aerospike.dsl.optimizer.BooleanSimplification.isLogicalStructureOperand;
+import static com.aerospike.dsl.parts.AbstractPart.PartType.BIN_PART;
+import static com.aerospike.dsl.parts.AbstractPart.PartType.INT_OPERAND;
+import static com.aerospike.dsl.parts.AbstractPart.PartType.PATH_OPERAND;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.*;
+
+/**
+ * Merges comparisons of the same integer bin or path to integer literals within {@code and} into a single
+ * comparison, e.g., {@code $.age > 18 and $.age < 65 and $.age >= 21} becomes the inclusive range
+ * {@code 21..64}, which is used as one secondary index range {@link com.aerospike.dsl.client.query.Filter}
+ * and is not repeated in the filter {@link Exp}.
+ * <p>
+ * Comparisons that leave no value, e.g., {@code $.a > 10 and $.a < 5}, make the whole {@code and} false,
+ * so that the caller can skip the query. This is done only at the root and within {@code and} and {@code or}
+ * at the root, where the "unknown" result of comparing a missing bin is equivalent to false.
+ * Float comparisons are not merged, as secondary index range filters only support integer values.
+ */
+@Beta
+public class RangeMerging implements OptimizerPass {
+
+    /**
+     * Counter of comparisons merged into ranges
+     */
+    public static final String MERGED_COMPARISONS = "rangeMerging.mergedComparisons";
+    /**
+     * Counter of {@code and} replaced by {@code false} because its comparisons leave no value
+     */
+    public static final String EMPTY_RANGES = "rangeMerging.emptyRanges";
+
+    @Override
+    public AbstractPart apply(AbstractPart expressionTree, OptimizationReport report) {
+        return merge(expressionTree, true, report);
+    }
+
+    /**
+     * @param isFilterContext Whether the part decides if a record passes the filter,
+     *                        so that false and unknown results of the part are equivalent
+     */
+    private AbstractPart merge(AbstractPart part, boolean isFilterContext, OptimizationReport report) {
+        boolean isChildFilterContext = isFilterContext && (isLogicalStructure(part, AND_STRUCTURE)
+                || isLogicalStructure(part, OR_STRUCTURE) || isLogicalStructureOperand(part));
+        AbstractPart rewritten = TreeRewriter.rewriteChildren(part, (child, isContainerRequired) ->
+                merge(child, isChildFilterContext, report));
+        if (!isLogicalStructure(rewritten, AND_STRUCTURE)) return rewritten;
+
+        return mergeRanges((ExpressionContainer) rewritten, isFilterContext, report);
+    }
+
+    private static AbstractPart mergeRanges(ExpressionContainer expr, boolean isFilterContext,
+                                            OptimizationReport report) {
+        List<ExpressionContainer> operands = ((AndStructure) expr.getLeft()).getOperands();
+
+        Map<ByteBuffer, List<Bound>> boundsPerSubject = new LinkedHashMap<>();
+        for (int i = 0; i < operands.size(); i++) {
+            Bound bound = toBound(operands.get(i), i);
+            if (bound == null) continue;
+
+            ByteBuffer key = getKey(bound.subject);
+            if (key != null) boundsPerSubject.computeIfAbsent(key, k -> new ArrayList<>()).add(bound);
+        }
+
+        ExpressionContainer[] merged = new ExpressionContainer[operands.size()];
+        boolean[] isRemoved = new boolean[operands.size()];
+        boolean isChanged = false;
+        for (List<Bound> bounds : boundsPerSubject.values()) {
+            if (bounds.size() < 2) continue;
+
+            Range range = toRange(bounds);
+            if (range == null) {
+                // The server result of a missing bin is unknown, which differs from false outside of filter context
+                if (!isFilterContext) continue;
+                report.add(MERGED_COMPARISONS, bounds.size());
+                report.add(EMPTY_RANGES, 1);
+                return new BooleanOperand(false);
+            }
+            report.add(MERGED_COMPARISONS, bounds.size());
+            merged[bounds.get(0).index] = range.toComparison(bounds.get(0).subject);
+            for (int i = 1; i < bounds.size(); i++) {
+                isRemoved[bounds.get(i).index] = true;
+            }
+            isChanged = true;
+        }
+        if (!isChanged) return expr;
+
+        List<ExpressionContainer> result = new ArrayList<>();
+        for (int i = 0; i < operands.size(); i++) {
+            if (isRemoved[i]) continue;
+            result.add(merged[i] != null ? merged[i] : operands.get(i));
+        }
+        if (result.size() == 1) {
+            return result.get(0);
+        }
+        return new ExpressionContainer(new AndStructure(result), AND_STRUCTURE);
+    }
+
+    /**
+     * @return Bound set by the operand, or null if the operand is not a comparison of an integer bin or path
+     * to an integer literal
+     */
+    private static Bound toBound(ExpressionContainer operand, int index) {
+        ExprPartsOperation operation = operand.getOperationType();
+        if (operation != EQ && operation != GT && operation != GTEQ && operation != LT && operation != LTEQ) {
+            return null;
+        }
+        if (isIntSubject(operand.getLeft()) && isIntLiteral(operand.getRight())) {
+            return new Bound(operand.getLeft(), operation, ((IntOperand) operand.getRight()).getValue(), index);
+        }
+        if (isIntLiteral(operand.getLeft()) && isIntSubject(operand.getRight())) {
+            // '5 < $.a' is the same as '$.a > 5'
+            ExprPartsOperation inverted = switch (operation) {
+                case GT -> LT;
+                case GTEQ -> LTEQ;
+                case LT -> GT;
+                case LTEQ -> GTEQ;
+                default -> operation;
+            };
+            return new Bound(operand.getRight(), inverted, ((IntOperand) operand.getLeft()).getValue(), index);
+        }
+        return null;
+    }
+
+    private static boolean isIntSubject(AbstractPart part) {
+        if (part == null) return false;
+        if (part.getPartType() == BIN_PART) {
+            return part.getExpType() == Exp.Type.INT;
+        }
+        return part.getPartType() == PATH_OPERAND
+                && ((Path) part).getBasePath().getBinPart().getExpType() == Exp.Type.INT;
+    }
+
+    private static boolean isIntLiteral(AbstractPart part) {
+        return part != null && part.getPartType() == INT_OPERAND && part.getPlaceholderSlot() == null;
+    }
+
+    /**
+     * @return Intersection of the bounds, or null if it is empty
+     */
+    private static Range toRange(List<Bound> bounds) {
+        Long lowerBound = null;
+        Long upperBound = null;
+        for (Bound bound : bounds) {
+            long value = bound.value;
+            Long lower = switch (bound.operation) {
+                case GT -> value == Long.MAX_VALUE ? null : value + 1;
+                case GTEQ, EQ -> value;
+                default -> Long.MIN_VALUE;
+            };
+            Long upper = switch (bound.operation) {
+                case LT -> value == Long.MIN_VALUE ? null : value - 1;
+                case LTEQ, EQ -> value;
+                default -> Long.MAX_VALUE;
+            };
+            if (lower == null || upper == null) return null;
+
+            if (bound.operation != LT && bound.operation != LTEQ) {
+                lowerBound = lowerBound == null ? lower : Math.max(lowerBound, lower);
+            }
+            if (bound.operation != GT && bound.operation != GTEQ) {
+                upperBound = upperBound == null ? upper : Math.min(upperBound, upper);
+            }
+        }
+        if (lowerBound != null && upperBound != null && lowerBound > upperBound) return null;
+
+        return new Range(lowerBound, upperBound);
+    }
+
+    /**
+     * Comparison of a subject to an integer literal
+     */
+    @AllArgsConstructor
+    private static class Bound {
+
+        private final AbstractPart subject;
+        private final ExprPartsOperation operation;
+        private final long value;
+        private final int index;
+    }
+
+    /**
+     * Inclusive integer range, a null bound means there is no bound on that side
+     */
+    @AllArgsConstructor
+    private static class Range {
+
+        private final Long lowerBound;
+        private final Long upperBound;
+
+        private ExpressionContainer toComparison(AbstractPart subject) {
+            if (upperBound == null) {
+                return new ExpressionContainer(subject, new IntOperand(lowerBound), GTEQ);
+            }
+            if (lowerBound == null) {
+                return new ExpressionContainer(subject, new IntOperand(upperBound), LTEQ);
+            }
+            if (lowerBound.equals(upperBound)) {
+                return new ExpressionContainer(subject, new IntOperand(lowerBound), EQ);
+            }
+            return new ExpressionContainer(subject,
+                    new FunctionArgs(List.of(new IntOperand(lowerBound), new IntOperand(upperBound))), RANGE);
+        }
+    }
+}
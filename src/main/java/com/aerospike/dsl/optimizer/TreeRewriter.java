@@ -0,0 +1,137 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.controlstructure.AndStructure;
+import com.aerospike.dsl.parts.controlstructure.ExclusiveStructure;
+import com.aerospike.dsl.parts.controlstructure.LetStructure;
+import com.aerospike.dsl.parts.controlstructure.OrStructure;
+import com.aerospike.dsl.parts.controlstructure.WhenStructure;
+import com.aerospike.dsl.parts.operand.FunctionArgs;
+import com.aerospike.dsl.parts.operand.LetOperand;
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.aerospike.dsl.visitor.VisitorUtils.toLogicalOperand;
+
+/**
+ * Copy-on-write rewriting of the direct children of expression tree parts, shared by {@link OptimizerPass}es.
+ */
+@UtilityClass
+class TreeRewriter {
+
+    /**
+     * Rewrite of a single part
+     */
+    @FunctionalInterface
+    interface Rewrite {
+
+        /**
+         * @param part                The part to rewrite
+         * @param isContainerRequired Whether the part is an operand of {@link AndStructure}, {@link OrStructure}
+         *                            or {@link ExclusiveStructure}. A result that is not an
+         *                            {@link ExpressionContainer} is wrapped into a container there
+         * @return The given part if nothing has changed, otherwise the rewritten part
+         */
+        AbstractPart apply(AbstractPart part, boolean isContainerRequired);
+    }
+
+    /**
+     * Apply the given rewrite to each direct child of a part.
+     *
+     * @param part    The part whose children to rewrite
+     * @param rewrite The rewrite to apply to each child
+     * @return The given part if none of the children has changed, otherwise its copy with the rewritten children
+     */
+    static AbstractPart rewriteChildren(AbstractPart part, Rewrite rewrite) {
+        return switch (part.getPartType()) {
+            case EXPRESSION_CONTAINER -> {
+                ExpressionContainer expr = (ExpressionContainer) part;
+                AbstractPart left = expr.getLeft() == null ? null : rewrite.apply(expr.getLeft(), false);
+                AbstractPart right = expr.getRight() == null ? null : rewrite.apply(expr.getRight(), false);
+                if (left == expr.getLeft() && right == expr.getRight()) {
+                    yield part;
+                }
+                ExpressionContainer rewritten = (ExpressionContainer) expr.copy();
+                rewritten.setLeft(left);
+                rewritten.setRight(right);
+                yield rewritten;
+            }
+            case AND_STRUCTURE -> {
+                List<ExpressionContainer> operands = rewriteContainers(((AndStructure) part).getOperands(), rewrite);
+                yield operands == null ? part : new AndStructure(operands);
+            }
+            case OR_STRUCTURE -> {
+                List<ExpressionContainer> operands = rewriteContainers(((OrStructure) part).getOperands(), rewrite);
+                yield operands == null ? part : new OrStructure(operands);
+            }
+            case EXCLUSIVE_STRUCTURE -> {
+                List<ExpressionContainer> operands =
+                        rewriteContainers(((ExclusiveStructure) part).getOperands(), rewrite);
+                yield operands == null ? part : new ExclusiveStructure(operands);
+            }
+            case WHEN_STRUCTURE -> {
+                List<AbstractPart> operands = rewriteParts(((WhenStructure) part).getOperands(), rewrite);
+                yield operands == null ? part : new WhenStructure(operands);
+            }
+            case FUNCTION_ARGS -> {
+                List<AbstractPart> operands = rewriteParts(((FunctionArgs) part).getOperands(), rewrite);
+                yield operands == null ? part : new FunctionArgs(operands);
+            }
+            case LET_STRUCTURE -> rewriteLetStructure((LetStructure) part, rewrite);
+            default -> part;
+        };
+    }
+
+    /**
+     * @return A new list with rewritten elements, or {@code null} if none of the elements has changed
+     */
+    private static List<AbstractPart> rewriteParts(List<AbstractPart> parts, Rewrite rewrite) {
+        List<AbstractPart> rewrittenParts = null;
+        for (int i = 0; i < parts.size(); i++) {
+            AbstractPart part = parts.get(i);
+            AbstractPart rewritten = rewrite.apply(part, false);
+            if (rewritten != part) {
+                if (rewrittenParts == null) rewrittenParts = new ArrayList<>(parts);
+                rewrittenParts.set(i, rewritten);
+            }
+        }
+        return rewrittenParts;
+    }
+
+    /**
+     * @return A new list with rewritten elements, or {@code null} if none of the elements has changed.
+     * Rewritten elements that are not {@link ExpressionContainer}s are wrapped into containers
+     */
+    private static List<ExpressionContainer> rewriteContainers(List<ExpressionContainer> parts,
+                                                               Rewrite rewrite) {
+        List<ExpressionContainer> rewrittenParts = null;
+        for (int i = 0; i < parts.size(); i++) {
+            ExpressionContainer part = parts.get(i);
+            AbstractPart rewritten = rewrite.apply(part, true);
+            if (rewritten != part) {
+                if (rewrittenParts == null) rewrittenParts = new ArrayList<>(parts);
+                rewrittenParts.set(i, toLogicalOperand(rewritten));
+            }
+        }
+        return rewrittenParts;
+    }
+
+    private static AbstractPart rewriteLetStructure(LetStructure letStructure, Rewrite rewrite) {
+        List<LetOperand> operands = letStructure.getOperands();
+        List<LetOperand> rewrittenOperands = null;
+        for (int i = 0; i < operands.size(); i++) {
+            LetOperand operand = operands.get(i);
+            AbstractPart rewritten = rewrite.apply(operand.getPart(), false);
+            if (rewritten != operand.getPart()) {
+                if (rewrittenOperands == null) rewrittenOperands = new ArrayList<>(operands);
+                LetOperand rewrittenOperand = (LetOperand) operand.copy();
+                rewrittenOperand.setPart(rewritten);
+                rewrittenOperands.set(i, rewrittenOperand);
+            }
+        }
+        return rewrittenOperands == null ? letStructure : new LetStructure(rewrittenOperands);
+    }
+}
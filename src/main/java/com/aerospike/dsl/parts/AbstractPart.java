@@ -3,12 +3,13 @@ package com.aerospike.dsl.parts;
 import com.aerospike.dsl.client.cdt.CTX;
 import com.aerospike.dsl.client.exp.Exp;
 import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.parts.operand.PlaceholderSlot;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
-public abstract class AbstractPart {
+public abstract class AbstractPart implements Cloneable {
 
     protected Exp.Type expType;
     protected PartType partType;
@@ -16,12 +17,30 @@ public abstract class AbstractPart {
     protected Filter filter;
     protected CTX[] ctx;
     protected boolean isPlaceholder;
+    /**
+     * Set for operands resolved from placeholders while building an expression template, otherwise null
+     */
+    protected PlaceholderSlot placeholderSlot;
 
     protected AbstractPart(PartType partType) {
         this.partType = partType;
         this.exp = null;
     }
 
+    /**
+     * Create a shallow copy of this part: all fields are copied, nested parts are shared with the original.
+     * Used to produce private copies of the parts that get updated while building an expression.
+     *
+     * @return A new instance of the same class with the same field values
+     */
+    public AbstractPart copy() {
+        try {
+            return (AbstractPart) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public enum PartType {
         INT_OPERAND,
         FLOAT_OPERAND,
@@ -74,6 +74,7 @@ public class ExpressionContainer extends AbstractPart {
         AND,
         OR,
         NOT, // unary
+        LOGICAL_OPERAND, // unary, an operand of a logical operator that is not an expression, e.g., 'true'
         EQ,
         NOTEQ,
         GT,
@@ -81,6 +82,7 @@ public class ExpressionContainer extends AbstractPart {
         LT,
         LTEQ,
         IN,
+        RANGE, // left is within the inclusive integer bounds given by FunctionArgs on the right
         LET_STRUCTURE, // unary
         WHEN_STRUCTURE, // unary
         EXCLUSIVE_STRUCTURE, // unary
@@ -97,7 +99,7 @@ public class ExpressionContainer extends AbstractPart {
                 COUNT_ONE_BITS, FIND_BIT_LEFT, FIND_BIT_RIGHT,
                 TO_INT, TO_FLOAT,
                 EQ, NOTEQ, GT, GTEQ, LT, LTEQ,
-                IN, NOT, AND, OR,
+                IN, RANGE, NOT, LOGICAL_OPERAND, AND, OR,
                 AND_STRUCTURE, OR_STRUCTURE, EXCLUSIVE_STRUCTURE
         );
 
@@ -0,0 +1,100 @@
+package com.aerospike.dsl.parts.operand;
+
+import com.aerospike.dsl.client.command.Buffer;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.util.Packer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Markers of placeholder values used when building an expression template.
+ * <p>
+ * Operands resolved from placeholders are packed as unique markers instead of their values. Markers are found
+ * in the packed expression afterwards, including the parts that were packed separately and then copied
+ * (e.g., arguments of CDT operations), and replaced with packed values when binding the template.
+ */
+public class PlaceholderMarkers {
+
+    private static final int PREFIX_SIZE = 16;
+    private static final int MARKER_SIZE = PREFIX_SIZE + 4;
+
+    // Random prefix makes a marker practically impossible to match any other packed data
+    private final byte[] prefix = new byte[PREFIX_SIZE];
+    private final List<Marker> markers = new ArrayList<>();
+
+    public PlaceholderMarkers() {
+        ThreadLocalRandom.current().nextBytes(prefix);
+    }
+
+    /**
+     * Create {@link Exp} packing a new marker for the value of the given placeholder.
+     *
+     * @param index  Index of the placeholder
+     * @param isBlob Whether the value is a Base64 string packed as bytes
+     * @return {@link Exp} that packs the marker
+     */
+    public Exp mark(int index, boolean isBlob) {
+        byte[] bytes = Arrays.copyOf(prefix, MARKER_SIZE);
+        Buffer.intToBytes(markers.size(), bytes, PREFIX_SIZE);
+        markers.add(new Marker(index, isBlob));
+        return new MarkerExp(bytes);
+    }
+
+    /**
+     * Find marker at the given position of the packed expression.
+     *
+     * @param bytes  Packed expression
+     * @param offset Position to check
+     * @return {@link Marker} at the given position, or null if there is none
+     */
+    public Marker find(byte[] bytes, int offset) {
+        if (offset + MARKER_SIZE > bytes.length
+                || !Arrays.equals(bytes, offset, offset + PREFIX_SIZE, prefix, 0, PREFIX_SIZE)) {
+            return null;
+        }
+        return markers.get(Buffer.bytesToInt(bytes, offset + PREFIX_SIZE));
+    }
+
+    /**
+     * @return Size of a packed marker in bytes
+     */
+    public int getMarkerSize() {
+        return MARKER_SIZE;
+    }
+
+    /**
+     * Placeholder value represented by a marker
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Marker {
+
+        /**
+         * Index of the placeholder
+         */
+        private final int index;
+        /**
+         * Whether the value is a Base64 string packed as bytes
+         */
+        private final boolean isBlob;
+    }
+
+    private static final class MarkerExp extends Exp {
+
+        private final byte[] bytes;
+
+        private MarkerExp(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void pack(Packer packer) {
+            packer.packByteArray(bytes, 0, bytes.length);
+        }
+    }
+}
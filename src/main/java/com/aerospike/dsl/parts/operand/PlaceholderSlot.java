@@ -0,0 +1,28 @@
+package com.aerospike.dsl.parts.operand;
+
+import com.aerospike.dsl.client.exp.Exp;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Marks an operand resolved from a placeholder while building an expression template,
+ * so that the operand gets packed as a marker of the placeholder value.
+ */
+@Getter
+@AllArgsConstructor
+public class PlaceholderSlot {
+
+    /**
+     * Index of the placeholder the operand was resolved from
+     */
+    private final int index;
+    private final PlaceholderMarkers markers;
+
+    /**
+     * @param isBlob Whether the value is a Base64 string packed as bytes
+     * @return {@link Exp} that packs a marker of the placeholder value
+     */
+    public Exp getMarkerExp(boolean isBlob) {
+        return markers.mark(index, isBlob);
+    }
+}
@@ -22,9 +22,16 @@ public class StringOperand extends AbstractPart implements ParsedValueOperand {
     @Override
     public Exp getExp() {
         if (isBlob) {
-            byte[] byteValue = Base64.getDecoder().decode(value);
-            return Exp.val(byteValue);
+            return getBlobExp();
         }
         return Exp.val(value);
     }
+
+    /**
+     * @return {@link Exp} of the bytes decoded from the value as a Base64 string
+     */
+    public Exp getBlobExp() {
+        byte[] byteValue = Base64.getDecoder().decode(value);
+        return Exp.val(byteValue);
+    }
 }
@@ -24,8 +24,8 @@ public class Path extends AbstractPart {
     }
 
     public Exp processPath(BasePath basePath, PathFunction pathFunction) {
+        basePath = withCdtTypeDesignator(basePath, pathFunction);
         List<AbstractPart> parts = basePath.getCdtParts();
-        updateWithCdtTypeDesignator(basePath, pathFunction);
         AbstractPart lastPathPart = !parts.isEmpty() ? parts.get(parts.size() - 1) : null;
         pathFunction = processPathFunction(basePath, lastPathPart, pathFunction);
         Exp.Type valueType = processValueType(lastPathPart, pathFunction);
@@ -0,0 +1,63 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.annotation.Beta;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Planner choosing the candidate with the lowest cost estimated by a {@link CostModel}, then alphabetically
+ * by bin name, then the first one in the expression tree.
+ * <p>
+ * Candidates for which no Filter can be built get {@link Double#POSITIVE_INFINITY} cost and are never chosen.
+ * When a preferred bin is given, its usable candidates are preferred regardless of cost.
+ */
+@Beta
+public final class CostBasedIndexPlanner implements IndexPlanner {
+
+    private final CostModel costModel;
+
+    /**
+     * Create a planner using {@link SelectivityCostModel} with default settings.
+     */
+    public CostBasedIndexPlanner() {
+        this(new SelectivityCostModel());
+    }
+
+    /**
+     * @param costModel {@link CostModel} to estimate candidates with, must not be null
+     */
+    public CostBasedIndexPlanner(CostModel costModel) {
+        this.costModel = Objects.requireNonNull(costModel, "costModel must not be null");
+    }
+
+    @Override
+    public IndexPlan plan(List<IndexCandidate> candidates, String preferredBin) {
+        List<ScoredCandidate> scored = new ArrayList<>(candidates.size());
+        for (IndexCandidate candidate : candidates) {
+            double cost = candidate.getFilter() == null
+                    ? Double.POSITIVE_INFINITY
+                    : costModel.cost(candidate);
+            scored.add(new ScoredCandidate(candidate, cost));
+        }
+
+        Comparator<ScoredCandidate> order = Comparator.comparing(scoredCandidate ->
+                !isPreferred(scoredCandidate, preferredBin));
+        // Sorting is stable, so the first candidate in the tree wins a tie
+        scored.sort(order.thenComparingDouble(ScoredCandidate::getCost)
+                .thenComparing(scoredCandidate -> scoredCandidate.getCandidate().getBinName()));
+
+        ScoredCandidate chosen = scored.isEmpty() || scored.get(0).getCost() == Double.POSITIVE_INFINITY
+                ? null
+                : scored.get(0);
+        return new IndexPlan(chosen, scored);
+    }
+
+    private static boolean isPreferred(ScoredCandidate scoredCandidate, String preferredBin) {
+        return preferredBin != null
+                && preferredBin.equals(scoredCandidate.getCandidate().getBinName())
+                && scoredCandidate.getCost() != Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,17 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.annotation.Beta;
+
+/**
+ * Estimates the cost of answering a query using the secondary index of a candidate, used by
+ * {@link CostBasedIndexPlanner}. Lower cost is better.
+ */
+@Beta
+public interface CostModel {
+
+    /**
+     * @param candidate Candidate with a non-null {@link IndexCandidate#getFilter() Filter}
+     * @return Estimated cost, not negative
+     */
+    double cost(IndexCandidate candidate);
+}
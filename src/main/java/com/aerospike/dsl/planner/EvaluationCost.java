@@ -0,0 +1,165 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.util.MsgPackReader;
+import com.aerospike.dsl.client.util.MsgPackReader.ValueType;
+import lombok.Getter;
+
+/**
+ * Static estimate of the work the server does to evaluate a filter {@link Exp} on every record,
+ * counted on the packed expression.
+ */
+@Beta
+@Getter
+public class EvaluationCost {
+
+    private static final EvaluationCost NONE = new EvaluationCost();
+
+    private static final int REGEX = 7;
+    private static final int GEO = 8;
+    private static final int DIGEST_MODULO = 64;
+    private static final int RECORD_SIZE = 74;
+    private static final int KEY = 80;
+    private static final int BIN = 81;
+    private static final int BIN_TYPE = 82;
+    private static final int VAR = 124;
+    private static final int LET = 125;
+    private static final int QUOTED = 126;
+    private static final int CALL = 127;
+    private static final int CDT_CONTEXT = 0xff;
+
+    /**
+     * Number of operations and literal values
+     */
+    private int nodeCount;
+    /**
+     * Number of bin reads, including the bins of list and map operations
+     */
+    private int binReads;
+    /**
+     * Number of record metadata and key reads
+     */
+    private int metadataReads;
+    /**
+     * Number of list, map and other module operations
+     */
+    private int cdtOperations;
+    /**
+     * Total number of CTX levels navigated by list and map operations
+     */
+    private int ctxLevels;
+    /**
+     * Number of regular expression and geospatial comparisons
+     */
+    private int patternMatches;
+
+    private EvaluationCost() {
+    }
+
+    /**
+     * @param exp Filter expression, can be null
+     * @return Counts of the operations of the expression, all zero if it is null
+     */
+    public static EvaluationCost of(Exp exp) {
+        if (exp == null) return NONE;
+
+        EvaluationCost cost = new EvaluationCost();
+        cost.count(new MsgPackReader(Exp.build(exp).getBytes()));
+        return cost;
+    }
+
+    /**
+     * Count the expression at the reader position and move past it
+     */
+    private void count(MsgPackReader reader) {
+        nodeCount++;
+        if (reader.nextType() != ValueType.ARRAY) {
+            reader.skipValue();
+            return;
+        }
+
+        int count = reader.enterArray();
+        int op = (int) reader.readLong();
+        int remaining = count - 1;
+        switch (op) {
+            case QUOTED, VAR -> {
+                reader.skipValues(remaining);
+                return;
+            }
+            case BIN -> {
+                binReads++;
+                reader.skipValues(remaining);
+                return;
+            }
+            case BIN_TYPE, KEY, DIGEST_MODULO -> {
+                metadataReads++;
+                reader.skipValues(remaining);
+                return;
+            }
+            case LET -> {
+                // Variable names alternate with their expressions, the last expression is the scope
+                for (int i = 0; i < remaining - 1; i += 2) {
+                    reader.skipValue();
+                    count(reader);
+                }
+                count(reader);
+                return;
+            }
+            case REGEX -> {
+                patternMatches++;
+                // Flags and pattern precede the expression
+                reader.skipValues(2);
+                count(reader);
+                return;
+            }
+            case CALL -> {
+                cdtOperations++;
+                // Return type, module and operation precede the bin
+                reader.skipValues(2);
+                countCdtOperation(reader);
+                count(reader);
+                return;
+            }
+            default -> {
+            }
+        }
+
+        if (op == GEO) {
+            patternMatches++;
+        } else if (op > DIGEST_MODULO && op <= RECORD_SIZE) {
+            metadataReads++;
+        }
+        for (int i = 0; i < remaining; i++) {
+            count(reader);
+        }
+    }
+
+    /**
+     * Count CTX levels of a packed operation {@code [command, args...]} or
+     * {@code [0xff, [ctx...], [command, args...]]} and move past it
+     */
+    private void countCdtOperation(MsgPackReader reader) {
+        if (reader.nextType() != ValueType.ARRAY) {
+            reader.skipValue();
+            return;
+        }
+
+        int count = reader.enterArray();
+        if (count == 3 && reader.nextType() == ValueType.INTEGER) {
+            int position = reader.getPosition();
+            if (reader.readLong() == CDT_CONTEXT && reader.nextType() == ValueType.ARRAY) {
+                ctxLevels += reader.enterArray() / 2;
+            }
+            reader.setPosition(position);
+        }
+        reader.skipValues(count);
+    }
+
+    @Override
+    public String toString() {
+        return "EvaluationCost(nodeCount=" + nodeCount + ", binReads=" + binReads + ", metadataReads="
+                + metadataReads + ", cdtOperations=" + cdtOperations + ", ctxLevels=" + ctxLevels
+                + ", patternMatches=" + patternMatches + ")";
+    }
+}
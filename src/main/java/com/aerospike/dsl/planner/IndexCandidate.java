@@ -0,0 +1,96 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import lombok.Getter;
+
+import java.util.function.Supplier;
+
+import static com.aerospike.dsl.visitor.VisitorUtils.traverseTree;
+
+/**
+ * An expression of the parsed tree that can be replaced by a secondary index {@link Filter}
+ * on the given {@link Index}.
+ * <p>
+ * The {@link Filter} and the sizes are computed on first use, so planners that do not need them
+ * do not pay for building them.
+ */
+@Beta
+public class IndexCandidate {
+
+    /**
+     * Root of the expression tree containing the candidate expression
+     */
+    @Getter
+    private final ExpressionContainer root;
+    /**
+     * Expression that is replaced by the {@link Filter} and removed from the filter expression if chosen
+     */
+    @Getter
+    private final ExpressionContainer expression;
+    /**
+     * {@link Index} on the bin of the expression
+     */
+    @Getter
+    private final Index index;
+    private final Supplier<Filter> filterSupplier;
+    private Filter filter;
+    private boolean isFilterBuilt;
+    private int residualSize = -1;
+
+    /**
+     * @param root           Root of the expression tree
+     * @param expression     Expression within the tree that can be replaced by the {@link Filter}
+     * @param index          {@link Index} on the bin of the expression
+     * @param filterSupplier Builds the {@link Filter} for the expression, returns null if it cannot be built
+     */
+    public IndexCandidate(ExpressionContainer root, ExpressionContainer expression, Index index,
+                          Supplier<Filter> filterSupplier) {
+        this.root = root;
+        this.expression = expression;
+        this.index = index;
+        this.filterSupplier = filterSupplier;
+    }
+
+    /**
+     * @return Name of the indexed bin
+     */
+    public String getBinName() {
+        return index.getBin();
+    }
+
+    /**
+     * @return {@link Filter} replacing the expression, or null if no filter can be built for it
+     */
+    public Filter getFilter() {
+        if (!isFilterBuilt) {
+            filter = filterSupplier.get();
+            isFilterBuilt = true;
+        }
+        return filter;
+    }
+
+    /**
+     * @return Number of parts of the expression tree left in the filter expression if the candidate is chosen
+     */
+    public int getResidualSize() {
+        if (residualSize < 0) {
+            residualSize = size(root) - size(expression);
+        }
+        return residualSize;
+    }
+
+    private static int size(AbstractPart part) {
+        int[] size = {0};
+        traverseTree(part, visited -> size[0]++, null);
+        return size[0];
+    }
+
+    @Override
+    public String toString() {
+        return "IndexCandidate(bin=" + getBinName() + ", index=" + index.getName() + ")";
+    }
+}
@@ -0,0 +1,71 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.parts.ExpressionContainer;
+
+import java.util.List;
+
+/**
+ * Result of choosing a secondary index by an {@link IndexPlanner}: the chosen candidate, if any,
+ * and all scored candidates in the order of preference.
+ */
+@Beta
+public class IndexPlan {
+
+    private static final IndexPlan EMPTY = new IndexPlan(null, List.of());
+
+    private final ScoredCandidate chosen;
+    private final List<ScoredCandidate> candidates;
+
+    /**
+     * @param chosen     The chosen candidate, null if no index is used
+     * @param candidates All candidates in the order of preference, including the chosen one
+     */
+    public IndexPlan(ScoredCandidate chosen, List<ScoredCandidate> candidates) {
+        this.chosen = chosen;
+        this.candidates = List.copyOf(candidates);
+    }
+
+    /**
+     * @return Plan without index candidates
+     */
+    public static IndexPlan empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return The chosen candidate, or null if no index is used
+     */
+    public ScoredCandidate getChosen() {
+        return chosen;
+    }
+
+    /**
+     * @return Expression replaced by the secondary index {@link Filter}, or null if no index is used
+     */
+    public ExpressionContainer getChosenExpression() {
+        return chosen == null ? null : chosen.getCandidate().getExpression();
+    }
+
+    /**
+     * @return All scored candidates in the order of preference, including the chosen one
+     */
+    public List<ScoredCandidate> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * @return Candidates that were not chosen, in the order of preference
+     */
+    public List<ScoredCandidate> getAlternatives() {
+        return candidates.stream()
+                .filter(candidate -> candidate != chosen)
+                .toList();
+    }
+
+    @Override
+    public String toString() {
+        return "IndexPlan(chosen=" + chosen + ", alternatives=" + getAlternatives() + ")";
+    }
+}
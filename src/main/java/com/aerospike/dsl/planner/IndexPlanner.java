@@ -0,0 +1,27 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.query.Filter;
+
+import java.util.List;
+
+/**
+ * Chooses which expression of the parsed tree becomes the secondary index {@link Filter}.
+ * <p>
+ * The planner is given all expressions that have an index on their bin, in the order they appear in the tree.
+ * {@link LegacyIndexPlanner} is used by default, a different planner is set using
+ * {@code DSLParserImpl.builder().indexPlanner(...)}. Planners can be shared between threads.
+ */
+@Beta
+public interface IndexPlanner {
+
+    /**
+     * Choose one of the candidates.
+     *
+     * @param candidates   Candidates in the order of the expression tree, not empty
+     * @param preferredBin Bin name hint from {@link com.aerospike.dsl.IndexContext}, can be null.
+     *                     Candidates on this bin should be preferred if any of them can be used
+     * @return Plan with the chosen candidate and all scored candidates
+     */
+    IndexPlan plan(List<IndexCandidate> candidates, String preferredBin);
+}
@@ -0,0 +1,45 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.annotation.Beta;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Planner choosing the candidate with the largest {@link com.aerospike.dsl.Index#getBinValuesRatio()},
+ * then alphabetically by bin name, then the first one in the expression tree. When a preferred bin is given
+ * and has candidates, only those are considered.
+ * <p>
+ * The planner does not estimate costs: the cost of a candidate is {@code 1 / (1 + binValuesRatio)}, which only
+ * reflects the order of preference. The chosen candidate is used even if no Filter can be built for it,
+ * in which case the query has no secondary index Filter.
+ */
+@Beta
+public final class LegacyIndexPlanner implements IndexPlanner {
+
+    private static final Comparator<IndexCandidate> LEGACY_ORDER =
+            Comparator.<IndexCandidate>comparingInt(candidate -> candidate.getIndex().getBinValuesRatio())
+                    .reversed()
+                    .thenComparing(IndexCandidate::getBinName);
+
+    @Override
+    public IndexPlan plan(List<IndexCandidate> candidates, String preferredBin) {
+        boolean isHintApplicable = preferredBin != null
+                && candidates.stream().anyMatch(candidate -> preferredBin.equals(candidate.getBinName()));
+        Comparator<IndexCandidate> order = isHintApplicable
+                ? Comparator.<IndexCandidate, Boolean>comparing(candidate ->
+                        !preferredBin.equals(candidate.getBinName())).thenComparing(LEGACY_ORDER)
+                : LEGACY_ORDER;
+
+        // Sorting is stable, so the first candidate in the tree wins a tie
+        List<IndexCandidate> sorted = new ArrayList<>(candidates);
+        sorted.sort(order);
+
+        List<ScoredCandidate> scored = sorted.stream()
+                .map(candidate -> new ScoredCandidate(candidate,
+                        1.0 / (1 + candidate.getIndex().getBinValuesRatio())))
+                .toList();
+        return new IndexPlan(scored.isEmpty() ? null : scored.get(0), scored);
+    }
+}
@@ -0,0 +1,78 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Explanation of how a parsed expression is executed: the secondary index {@link Filter} and the expression
+ * it was built from, the scored index candidates, the indexes that were not used and why, and the filter
+ * {@link Exp} evaluated by the server on every record the Filter returns.
+ * <p>
+ * {@link #toString()} renders the plan as an indented tree, e.g., for a slow query log.
+ */
+@Beta
+@AllArgsConstructor
+@Getter
+public class PlanExplanation {
+
+    /**
+     * Secondary index {@link Filter}, null if the query scans all records
+     */
+    private final Filter filter;
+    /**
+     * Filter {@link Exp} that remains for the server to evaluate, null if there is none
+     */
+    private final Exp residualExp;
+    /**
+     * {@link IndexPlan} with the chosen and the alternative candidates and their costs
+     */
+    private final IndexPlan indexPlan;
+    /**
+     * Indexes of the index context that were not used, sorted by bin name and index name
+     */
+    private final List<RejectedIndex> rejectedIndexes;
+    /**
+     * Estimated per-record cost of evaluating {@link #residualExp}
+     */
+    private final EvaluationCost residualCost;
+
+    /**
+     * @return Expression of the parsed tree replaced by the {@link Filter}, or null if there is no Filter
+     */
+    public ExpressionContainer getFilterExpression() {
+        return filter == null ? null : indexPlan.getChosenExpression();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Plan\n");
+        sb.append("  Filter: ");
+        if (filter == null) {
+            sb.append("none, all records are scanned\n");
+        } else {
+            sb.append(filter.getName()).append(" [").append(filter.getBegin()).append(", ")
+                    .append(filter.getEnd()).append("] using ").append(indexPlan.getChosen()).append('\n');
+        }
+        sb.append("  Candidates:\n");
+        for (ScoredCandidate candidate : indexPlan.getCandidates()) {
+            sb.append("    ").append(candidate);
+            if (candidate == indexPlan.getChosen()) {
+                sb.append(" [chosen]");
+            }
+            sb.append('\n');
+        }
+        sb.append("  Rejected indexes:\n");
+        for (RejectedIndex rejectedIndex : rejectedIndexes) {
+            sb.append("    ").append(rejectedIndex).append('\n');
+        }
+        sb.append("  Residual expression: ").append(residualExp).append('\n');
+        sb.append("  Residual cost: ").append(residualCost);
+        return sb.toString();
+    }
+}
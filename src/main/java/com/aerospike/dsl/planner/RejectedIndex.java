@@ -0,0 +1,55 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.annotation.Beta;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * {@link Index} from the index context that was not used for the secondary index Filter, with the reason
+ */
+@Beta
+@AllArgsConstructor
+@Getter
+public class RejectedIndex {
+
+    public enum Reason {
+        /**
+         * The bin is not compared in a way that can use an index
+         */
+        NOT_COMPARED,
+        /**
+         * The bin is compared as a type that does not match the index type
+         */
+        TYPE_MISMATCH,
+        /**
+         * The comparison is within {@code or}, or under another expression excluded from secondary index Filter
+         */
+        OR_EXCLUDED,
+        /**
+         * The bin is used only in {@code in} expressions
+         */
+        IN_EXPRESSION,
+        /**
+         * The comparison cannot be expressed as a Filter, e.g., a string comparison other than equality
+         */
+        NO_FILTER,
+        /**
+         * The index could be used, but the planner preferred another candidate
+         */
+        NOT_CHOSEN
+    }
+
+    private final Index index;
+    private final Reason reason;
+    /**
+     * Details of the reason, can be null
+     */
+    private final String detail;
+
+    @Override
+    public String toString() {
+        return "%s on %s: %s%s".formatted(index.getName(), index.getBin(), reason,
+                detail == null ? "" : " (" + detail + ")");
+    }
+}
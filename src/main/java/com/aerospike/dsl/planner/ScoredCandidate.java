@@ -0,0 +1,25 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.annotation.Beta;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * {@link IndexCandidate} with the cost assigned by an {@link IndexPlanner}, lower cost is better
+ */
+@Beta
+@AllArgsConstructor
+@Getter
+public class ScoredCandidate {
+
+    private final IndexCandidate candidate;
+    /**
+     * Estimated cost, {@link Double#POSITIVE_INFINITY} if the candidate cannot be used
+     */
+    private final double cost;
+
+    @Override
+    public String toString() {
+        return candidate + " cost=" + cost;
+    }
+}
@@ -0,0 +1,99 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.Value;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexCollectionType;
+import lombok.Builder;
+
+/**
+ * {@link CostModel} estimating the number of index entries read by the {@link Filter}, adjusted for the work
+ * the server does per entry.
+ * <p>
+ * The number of entries is the number of bin values matched by the Filter multiplied by
+ * {@link Index#getBinValuesRatio()}, the number of entries per bin value. Equality matches one value,
+ * an integer range as many values as its width, up to {@code maxRangeValues}, other ranges
+ * {@code maxRangeValues}. The estimate is then multiplied by:
+ * <ul>
+ *     <li>{@code equalityFactor} for equality, as a lookup is cheaper than a scan of the same entries</li>
+ *     <li>{@code collectionFactor} for list and map indexes, which can return a record once per element</li>
+ *     <li>{@code 1 + ctxLevelFactor * depth} for indexes on nested elements, navigated using CTX</li>
+ *     <li>{@code 1 + residualPartFactor * residualSize} for the filter expression evaluated on every record
+ *     read, which is smaller when a larger expression is replaced by the Filter</li>
+ * </ul>
+ * Settings are given using {@code SelectivityCostModel.builder()}, unset ones have the default values.
+ */
+@Beta
+public final class SelectivityCostModel implements CostModel {
+
+    private final double unknownBinValuesRatio;
+    private final double maxRangeValues;
+    private final double equalityFactor;
+    private final double collectionFactor;
+    private final double ctxLevelFactor;
+    private final double residualPartFactor;
+
+    /**
+     * Create a cost model with default settings.
+     */
+    public SelectivityCostModel() {
+        this(null, null, null, null, null, null);
+    }
+
+    /**
+     * @param unknownBinValuesRatio Entries per bin value for indexes with {@code binValuesRatio} 0, default 1
+     * @param maxRangeValues        Number of values matched by ranges that are not narrower, default 1000
+     * @param equalityFactor        Multiplier for equality, default 0.5
+     * @param collectionFactor      Multiplier for list and map indexes, default 2
+     * @param ctxLevelFactor        Added multiplier per CTX level of the index, default 0.1
+     * @param residualPartFactor    Added multiplier per part of the remaining filter expression, default 0.01
+     */
+    @Builder
+    private SelectivityCostModel(Double unknownBinValuesRatio, Double maxRangeValues, Double equalityFactor,
+                                 Double collectionFactor, Double ctxLevelFactor, Double residualPartFactor) {
+        this.unknownBinValuesRatio = valueOrDefault(unknownBinValuesRatio, 1, "unknownBinValuesRatio");
+        this.maxRangeValues = valueOrDefault(maxRangeValues, 1000, "maxRangeValues");
+        this.equalityFactor = valueOrDefault(equalityFactor, 0.5, "equalityFactor");
+        this.collectionFactor = valueOrDefault(collectionFactor, 2, "collectionFactor");
+        this.ctxLevelFactor = valueOrDefault(ctxLevelFactor, 0.1, "ctxLevelFactor");
+        this.residualPartFactor = valueOrDefault(residualPartFactor, 0.01, "residualPartFactor");
+    }
+
+    private static double valueOrDefault(Double value, double defaultValue, String name) {
+        if (value == null) return defaultValue;
+        if (!(value >= 0) || value.isInfinite()) {
+            throw new IllegalArgumentException(name + " must be a finite number that is not negative");
+        }
+        return value;
+    }
+
+    @Override
+    public double cost(IndexCandidate candidate) {
+        Index index = candidate.getIndex();
+        Filter filter = candidate.getFilter();
+
+        double entriesPerValue = index.getBinValuesRatio() > 0 ? index.getBinValuesRatio() : unknownBinValuesRatio;
+        boolean isEquality = filter.getBegin().equals(filter.getEnd());
+        double cost = entriesPerValue * (isEquality ? 1 : rangeValues(filter.getBegin(), filter.getEnd()));
+
+        if (isEquality) {
+            cost *= equalityFactor;
+        }
+        if (index.getIndexCollectionType() != null && index.getIndexCollectionType() != IndexCollectionType.DEFAULT) {
+            cost *= collectionFactor;
+        }
+        if (index.getCtx() != null) {
+            cost *= 1 + ctxLevelFactor * index.getCtx().length;
+        }
+        return cost * (1 + residualPartFactor * candidate.getResidualSize());
+    }
+
+    private double rangeValues(Value begin, Value end) {
+        if (begin instanceof Value.LongValue && end instanceof Value.LongValue) {
+            double width = (double) end.toLong() - begin.toLong() + 1;
+            return Math.max(1, Math.min(width, maxRangeValues));
+        }
+        return maxRangeValues;
+    }
+}
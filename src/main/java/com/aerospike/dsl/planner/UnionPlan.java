@@ -0,0 +1,49 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.annotation.Beta;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+
+import java.util.List;
+
+/**
+ * Plan for an expression whose top-level {@code or} is answered by a union of secondary index queries
+ * instead of scanning all records: one branch per disjunct, each with a non-null secondary index {@link Filter}
+ * and the filter {@link Exp} that remains for that query.
+ * <p>
+ * Branches do not overlap: the filter {@link Exp} of each branch also requires that the disjuncts of the
+ * preceding branches are not true. So the queries can run in parallel and their records are concatenated
+ * without removing duplicates.
+ */
+@Beta
+public class UnionPlan {
+
+    private final List<ParseResult> branches;
+
+    /**
+     * @param branches Results of the disjuncts in the order of the expression, each with a non-null Filter
+     */
+    public UnionPlan(List<ParseResult> branches) {
+        this.branches = List.copyOf(branches);
+    }
+
+    /**
+     * @return Results of the disjuncts in the order of the expression, each with a non-null {@link Filter}
+     * and a filter {@link Exp} that can be null
+     */
+    public List<ParseResult> getBranches() {
+        return branches;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("UnionPlan\n");
+        for (ParseResult branch : branches) {
+            sb.append("  Filter: ").append(branch.getFilter().getName()).append(" [")
+                    .append(branch.getFilter().getBegin()).append(", ").append(branch.getFilter().getEnd())
+                    .append("], Exp: ").append(branch.getExp()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -341,20 +341,24 @@ public class PathOperandUtils {
     }
 
     /**
-     * Updates the {@link BasePath} with a CDT (Collection Data Type) type designator if necessary.
+     * Returns the {@link BasePath} with a CDT (Collection Data Type) type designator appended if necessary.
      * This is typically done for operations like {@code list.count()} or {@code map.count()} when no explicit
      * designator (e.g., {@code []} for List, {@code {}} for Map) is present, and the last CDT part is ambiguous.
+     * The given {@link BasePath} is not modified, so the same path can be processed repeatedly and concurrently.
      *
-     * @param basePath     The {@link BasePath} to be updated
+     * @param basePath     The {@link BasePath} to be checked
      * @param pathFunction The {@link PathFunction} associated with the operation
+     * @return A new {@link BasePath} with the designator appended, or the given {@link BasePath} if not required
      */
-    public static void updateWithCdtTypeDesignator(BasePath basePath, PathFunction pathFunction) {
+    public static BasePath withCdtTypeDesignator(BasePath basePath, PathFunction pathFunction) {
         if (mustHaveCdtDesignator(pathFunction, basePath.getCdtParts())) {
             // For cases like list.count() and map.count() with no explicit designator ([] is for List, {} is for Map)
             // When the last path part is CDT and potentially ambiguous, we apply List designator by default
-            AbstractPart lastPathPart = new ListTypeDesignator();
-            basePath.getCdtParts().add(lastPathPart);
+            List<AbstractPart> cdtParts = new ArrayList<>(basePath.getCdtParts());
+            cdtParts.add(new ListTypeDesignator());
+            return new BasePath(basePath.getBinPart(), cdtParts);
         }
+        return basePath;
     }
 
     /**
@@ -92,8 +92,10 @@ public class ExpressionConditionVisitor extends ConditionBaseVisitor<AbstractPar
 
         List<ExpressionContainer> expressions = new ArrayList<>();
         for (ConditionParser.ComparisonExpressionContext ec : ctx.comparisonExpression()) {
-            ExpressionContainer expr = (ExpressionContainer) visit(ec);
-            if (expr == null) return null;
+            AbstractPart part = visit(ec);
+            if (part == null) return null;
+
+            ExpressionContainer expr = toLogicalOperand(part);
 
             logicalSetBinAsBooleanExpr(expr);
             expressions.add(expr);
@@ -111,8 +113,10 @@ public class ExpressionConditionVisitor extends ConditionBaseVisitor<AbstractPar
         List<ExpressionContainer> expressions = new ArrayList<>();
         // iterate through each sub-expression
         for (ConditionParser.LogicalAndExpressionContext ec : ctx.logicalAndExpression()) {
-            ExpressionContainer expr = (ExpressionContainer) visit(ec);
-            if (expr == null) return null;
+            AbstractPart part = visit(ec);
+            if (part == null) return null;
+
+            ExpressionContainer expr = toLogicalOperand(part);
 
             logicalSetBinAsBooleanExpr(expr);
             expressions.add(expr);
@@ -122,10 +126,10 @@ public class ExpressionConditionVisitor extends ConditionBaseVisitor<AbstractPar
 
     @Override
     public AbstractPart visitNotExpression(ConditionParser.NotExpressionContext ctx) {
-        ExpressionContainer expr = (ExpressionContainer) visit(ctx.expression());
+        AbstractPart part = visit(ctx.expression());
 
-        logicalSetBinAsBooleanExpr(expr);
-        return new ExpressionContainer(expr, ExpressionContainer.ExprPartsOperation.NOT);
+        if (part instanceof ExpressionContainer expr) logicalSetBinAsBooleanExpr(expr);
+        return new ExpressionContainer(part, ExpressionContainer.ExprPartsOperation.NOT);
     }
 
     @Override
@@ -136,7 +140,7 @@ public class ExpressionConditionVisitor extends ConditionBaseVisitor<AbstractPar
         List<ExpressionContainer> expressions = new ArrayList<>();
         // iterate through each sub-expression
         for (ConditionParser.ExpressionContext ec : ctx.expression()) {
-            ExpressionContainer expr = (ExpressionContainer) visit(ec);
+            ExpressionContainer expr = toLogicalOperand(visit(ec));
             logicalSetBinAsBooleanExpr(expr);
             expressions.add(expr);
         }
@@ -3,13 +3,18 @@ package com.aerospike.dsl.visitor;
 import com.aerospike.dsl.ConditionParser;
 import com.aerospike.dsl.DslParseException;
 import com.aerospike.dsl.Index;
+import com.aerospike.dsl.ParseResult;
 import com.aerospike.dsl.PlaceholderValues;
 import com.aerospike.dsl.client.cdt.CTX;
 import com.aerospike.dsl.client.cdt.ListReturnType;
+import com.aerospike.dsl.client.command.ParticleType;
 import com.aerospike.dsl.client.exp.Exp;
 import com.aerospike.dsl.client.exp.ListExp;
 import com.aerospike.dsl.client.query.Filter;
 import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.metrics.DslMetrics;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import com.aerospike.dsl.optimizer.OptimizationReport;
 import com.aerospike.dsl.parts.AbstractPart;
 import com.aerospike.dsl.parts.ExpressionContainer;
 import com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation;
@@ -22,22 +27,35 @@ import com.aerospike.dsl.parts.operand.FunctionArgs;
 import com.aerospike.dsl.parts.operand.IntOperand;
 import com.aerospike.dsl.parts.operand.ListOperand;
 import com.aerospike.dsl.parts.operand.MetadataOperand;
+import com.aerospike.dsl.parts.operand.PlaceholderMarkers;
 import com.aerospike.dsl.parts.operand.PlaceholderOperand;
+import com.aerospike.dsl.parts.operand.PlaceholderSlot;
 import com.aerospike.dsl.parts.operand.StringOperand;
 import com.aerospike.dsl.parts.operand.LetOperand;
+import com.aerospike.dsl.parts.path.BasePath;
 import com.aerospike.dsl.parts.path.BinPart;
 import com.aerospike.dsl.parts.path.Path;
+import com.aerospike.dsl.planner.EvaluationCost;
+import com.aerospike.dsl.planner.IndexCandidate;
+import com.aerospike.dsl.planner.IndexPlan;
+import com.aerospike.dsl.planner.IndexPlanner;
+import com.aerospike.dsl.planner.LegacyIndexPlanner;
+import com.aerospike.dsl.planner.PlanExplanation;
+import com.aerospike.dsl.planner.RejectedIndex;
+import com.aerospike.dsl.planner.ScoredCandidate;
+import com.aerospike.dsl.planner.UnionPlan;
 import com.aerospike.dsl.util.TypeUtils;
+import lombok.AllArgsConstructor;
 import lombok.experimental.UtilityClass;
 import org.antlr.v4.runtime.misc.Pair;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.util.ArrayList;
 import java.util.Base64;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -74,12 +92,24 @@ public class VisitorUtils {
         MULTIPLIER,
     }
 
+    private final IndexPlanner LEGACY_PLANNER = new LegacyIndexPlanner();
+
     private final Map<Exp.Type, IndexType> expTypeToIndexType = Map.of(
             Exp.Type.INT, IndexType.NUMERIC,
             Exp.Type.STRING, IndexType.STRING,
             Exp.Type.BLOB, IndexType.BLOB
     );
 
+    private final Map<Exp.Type, Integer> expTypeToParticleType = Map.of(
+            Exp.Type.INT, ParticleType.INTEGER,
+            Exp.Type.FLOAT, ParticleType.DOUBLE,
+            Exp.Type.STRING, ParticleType.STRING,
+            Exp.Type.BLOB, ParticleType.BLOB,
+            Exp.Type.LIST, ParticleType.LIST,
+            Exp.Type.MAP, ParticleType.MAP,
+            Exp.Type.GEO, ParticleType.GEOJSON
+    );
+
     final Map<AbstractPart.PartType, Exp.Type> partTypeToExpType = Map.of(
             AbstractPart.PartType.INT_OPERAND, Exp.Type.INT,
             AbstractPart.PartType.FLOAT_OPERAND, Exp.Type.FLOAT,
@@ -153,6 +183,7 @@ public class VisitorUtils {
         return switch (exprPartsOperation) {
             case INT_NOT -> Exp::intNot;
             case NOT -> Exp::not;
+            case LOGICAL_OPERAND -> UnaryOperator.identity();
             case ABS -> Exp::abs;
             case CEIL -> Exp::ceil;
             case FLOOR -> Exp::floor;
@@ -287,6 +318,20 @@ public class VisitorUtils {
         }
     }
 
+    /**
+     * Wraps an operand of {@code and}, {@code or} or {@code exclusive} that is not an {@link ExpressionContainer}
+     * (e.g., a boolean literal, a variable or a placeholder) into a {@link ExprPartsOperation#LOGICAL_OPERAND}
+     * container, as these structures hold only {@link ExpressionContainer}s.
+     *
+     * @param part The operand
+     * @return The given part if it is an {@link ExpressionContainer}, otherwise a container with the part
+     */
+    public static ExpressionContainer toLogicalOperand(AbstractPart part) {
+        if (part instanceof ExpressionContainer expr) return expr;
+
+        return new ExpressionContainer(part, LOGICAL_OPERAND);
+    }
+
     /**
      * Determines whether a child parse tree element at a specific index within a list
      * should be visited during tree traversal.
@@ -323,56 +368,57 @@ public class VisitorUtils {
     /**
      * Creates an expression for comparing a bin with another operand.
      *
-     * @param binPart     The bin part
-     * @param anotherPart The other operand to compare with
-     * @param operator    The binary operator to apply
-     * @param isBinLeft   Whether the bin is on the left side of the comparison
+     * @param binPart        The bin part
+     * @param anotherPart    The other operand to compare with
+     * @param anotherPartExp The {@link Exp} already generated for the other operand
+     * @param operator       The binary operator to apply
+     * @param isBinLeft      Whether the bin is on the left side of the comparison
      * @return The resulting expression
      * @throws DslParseException if the operand type is not supported
      */
-    private static Exp getExpBinComparison(BinPart binPart, AbstractPart anotherPart,
+    private static Exp getExpBinComparison(BinPart binPart, AbstractPart anotherPart, Exp anotherPartExp,
                                            BinaryOperator<Exp> operator, boolean isBinLeft) {
         Exp binExp = Exp.bin(binPart.getBinName(), binPart.getExpType());
         Exp anotherExp = switch (anotherPart.getPartType()) {
             case INT_OPERAND -> {
                 validateComparableTypes(binPart.getExpType(), Exp.Type.INT);
-                yield anotherPart.getExp();
+                yield anotherPartExp;
             }
             case FLOAT_OPERAND -> {
                 validateComparableTypes(binPart.getExpType(), Exp.Type.FLOAT);
-                yield anotherPart.getExp();
+                yield anotherPartExp;
             }
             case BOOL_OPERAND -> {
                 validateComparableTypes(binPart.getExpType(), Exp.Type.BOOL);
-                yield anotherPart.getExp();
+                yield anotherPartExp;
             }
             case STRING_OPERAND -> handleStringOperandComparison(binPart, (StringOperand) anotherPart);
             case METADATA_OPERAND -> {
                 // Handle metadata comparison - type determined by metadata function
                 Exp.Type binType = Exp.Type.valueOf(((MetadataOperand) anotherPart).getMetadataType().toString());
                 binExp = Exp.bin(binPart.getBinName(), binType);
-                yield anotherPart.getExp();
+                yield anotherPartExp;
             }
             case EXPRESSION_CONTAINER -> {
                 Exp.Type resolvedType = resolveExpType(anotherPart);
                 if (resolvedType != null) {
                     validateComparableTypes(binPart.getExpType(), resolvedType);
                 }
-                yield anotherPart.getExp();
+                yield anotherPartExp;
             }
-            case PATH_OPERAND, VARIABLE_OPERAND -> anotherPart.getExp();
+            case PATH_OPERAND, VARIABLE_OPERAND -> anotherPartExp;
             case BIN_PART -> {
                 // Both are bin parts
                 validateComparableTypes(binPart.getExpType(), anotherPart.getExpType());
-                yield anotherPart.getExp();
+                yield anotherPartExp;
             }
             case LIST_OPERAND -> {
                 validateComparableTypes(binPart.getExpType(), Exp.Type.LIST);
-                yield anotherPart.getExp();
+                yield anotherPartExp;
             }
             case MAP_OPERAND -> {
                 validateComparableTypes(binPart.getExpType(), Exp.Type.MAP);
-                yield anotherPart.getExp();
+                yield anotherPartExp;
             }
             default ->
                     throw new DslParseException("Operand type not supported: %s".formatted(anotherPart.getPartType()));
@@ -394,12 +440,11 @@ public class VisitorUtils {
         if (isBlobType) {
             // Handle base64 blob comparison
             validateComparableTypes(binPart.getExpType(), Exp.Type.BLOB);
-            stringOperand.setBlob(true);
-        } else {
-            // Handle regular string comparison
-            validateComparableTypes(binPart.getExpType(), Exp.Type.STRING);
+            return markPlaceholderValue(stringOperand, stringOperand.getBlobExp(), true);
         }
-        return stringOperand.getExp();
+        // Handle regular string comparison
+        validateComparableTypes(binPart.getExpType(), Exp.Type.STRING);
+        return markPlaceholderValue(stringOperand, stringOperand.getExp(), stringOperand.isBlob());
     }
 
     /**
@@ -407,25 +452,29 @@ public class VisitorUtils {
      *
      * @param left     The {@link BinPart} on the left side of the comparison
      * @param right    The {@link AbstractPart} on the right side of the comparison
+     * @param rightExp The {@link Exp} already generated for the right operand
      * @param operator The binary operator to apply
      * @return The resulting {@link Exp} for the comparison
      * @throws DslParseException if an unsupported operand type is encountered or type validation fails
      */
-    private static Exp getExpLeftBinTypeComparison(BinPart left, AbstractPart right, BinaryOperator<Exp> operator) {
-        return getExpBinComparison(left, right, operator, true);
+    private static Exp getExpLeftBinTypeComparison(BinPart left, AbstractPart right, Exp rightExp,
+                                                   BinaryOperator<Exp> operator) {
+        return getExpBinComparison(left, right, rightExp, operator, true);
     }
 
     /**
      * Creates an expression for comparing an operand on the left with a bin on the right.
      *
      * @param left     The {@link AbstractPart} on the left side of the comparison
+     * @param leftExp  The {@link Exp} already generated for the left operand
      * @param right    The {@link BinPart} on the right side of the comparison
      * @param operator The binary operator to apply
      * @return The resulting {@link Exp} for the comparison
      * @throws DslParseException if an unsupported operand type is encountered or type validation fails
      */
-    private static Exp getExpRightBinTypeComparison(AbstractPart left, BinPart right, BinaryOperator<Exp> operator) {
-        return getExpBinComparison(right, left, operator, false);
+    private static Exp getExpRightBinTypeComparison(AbstractPart left, Exp leftExp, BinPart right,
+                                                    BinaryOperator<Exp> operator) {
+        return getExpBinComparison(right, left, leftExp, operator, false);
     }
 
     /**
@@ -694,6 +743,31 @@ public class VisitorUtils {
         return doGetFilterFromBin(binPart, operand, type, path.getCtx());
     }
 
+    /**
+     * Creates a range Filter for a {@link ExprPartsOperation#RANGE} expression.
+     *
+     * @param expr The {@link ExpressionContainer} with a bin or a path on the left and the bounds on the right
+     * @return A {@link Filter} for the inclusive range of integer values
+     * @throws NoApplicableFilterException if the left operand is neither a bin nor a path
+     * @throws DslParseException           if type validation fails
+     */
+    private static Filter getRangeFilter(ExpressionContainer expr) {
+        List<AbstractPart> bounds = ((FunctionArgs) expr.getRight()).getOperands();
+        long lowerBound = ((IntOperand) bounds.get(0)).getValue();
+        long upperBound = ((IntOperand) bounds.get(1)).getValue();
+        AbstractPart left = expr.getLeft();
+        if (left.getPartType() == BIN_PART) {
+            BinPart bin = (BinPart) left;
+            validateComparableTypes(bin.getExpType(), Exp.Type.INT);
+            return Filter.range(bin.getBinName(), lowerBound, upperBound);
+        } else if (left.getPartType() == PATH_OPERAND) {
+            BinPart bin = ((Path) left).getBasePath().getBinPart();
+            validateComparableTypes(bin.getExpType(), Exp.Type.INT);
+            return Filter.range(bin.getBinName(), lowerBound, upperBound, left.getCtx());
+        }
+        throw new NoApplicableFilterException("Operand type not supported: %s".formatted(left.getPartType()));
+    }
+
     /**
      * This method is used to generate a {@link Filter} when one of the operands is a {@link BinPart}
      * and the other is a {@link StringOperand}. It currently only supports equality (`EQ`) comparisons.
@@ -1008,6 +1082,9 @@ public class VisitorUtils {
     /**
      * Builds a secondary index {@link Filter} and a filter {@link Exp} for a given {@link ExpressionContainer}.
      * This is the main entry point for enriching the parsed expression tree with query filters.
+     * <p>
+     * The given expression tree is not modified: parts that need to change while resolving placeholders
+     * are copied, so the same tree can be built repeatedly with different values and from multiple threads.
      *
      * @param expr              The {@link ExpressionContainer} representing the expression tree
      * @param placeholderValues The {@link PlaceholderValues} to match with placeholders by index
@@ -1015,121 +1092,427 @@ public class VisitorUtils {
      * @param preferredBin      Optional bin name hint; if non-null the selection algorithm prefers
      *                          an index on this bin, falling back to cardinality-based selection
      *                          when the hint cannot be applied
-     * @return The updated {@link ExpressionContainer} with the generated {@link Filter} and {@link Exp}.
+     * @return {@link ParseResult} with the generated {@link Filter} and {@link Exp}.
      * Either of them can be null if there is no suitable filter
      */
-    public static AbstractPart buildExpr(ExpressionContainer expr, PlaceholderValues placeholderValues,
-                                         Map<String, List<Index>> indexes, String preferredBin) {
-        if (placeholderValues != null) resolvePlaceholders(expr, placeholderValues);
+    public static ParseResult buildExpr(ExpressionContainer expr, PlaceholderValues placeholderValues,
+                                        Map<String, List<Index>> indexes, String preferredBin) {
+        return buildExpr(expr, placeholderValues, indexes, preferredBin, null);
+    }
 
-        Filter secondaryIndexFilter = null;
-        try {
-            secondaryIndexFilter = getSIFilter(expr, indexes, preferredBin);
-        } catch (NoApplicableFilterException ignored) {
-        }
-        expr.setFilter(secondaryIndexFilter);
+    /**
+     * Builds a secondary index {@link Filter} and a filter {@link Exp} for a given {@link ExpressionContainer},
+     * applying the given optimizer to the expression tree once placeholders are resolved.
+     *
+     * @param expr              The {@link ExpressionContainer} representing the expression tree
+     * @param placeholderValues The {@link PlaceholderValues} to match with placeholders by index
+     * @param indexes           A map of available secondary indexes, keyed by bin name
+     * @param preferredBin      Optional bin name hint for choosing secondary index
+     * @param optimizer         {@link ExpressionOptimizer} to apply if any placeholders were resolved, can be null
+     * @return {@link ParseResult} with the generated {@link Filter} and {@link Exp}.
+     * Either of them can be null if there is no suitable filter
+     * @see #buildExpr(ExpressionContainer, PlaceholderValues, Map, String)
+     */
+    public static ParseResult buildExpr(ExpressionContainer expr, PlaceholderValues placeholderValues,
+                                        Map<String, List<Index>> indexes, String preferredBin,
+                                        ExpressionOptimizer optimizer) {
+        return buildExpr(expr, placeholderValues, indexes, preferredBin, optimizer, null);
+    }
 
-        Exp exp = getFilterExp(expr);
-        expr.setExp(exp);
-        return expr;
+    /**
+     * Builds a secondary index {@link Filter} and a filter {@link Exp} for a given {@link ExpressionContainer},
+     * applying the given optimizer and choosing the secondary index using the given planner.
+     *
+     * @param expr              The {@link ExpressionContainer} representing the expression tree
+     * @param placeholderValues The {@link PlaceholderValues} to match with placeholders by index
+     * @param indexes           A map of available secondary indexes, keyed by bin name
+     * @param preferredBin      Optional bin name hint for choosing secondary index
+     * @param optimizer         {@link ExpressionOptimizer} to apply if any placeholders were resolved, can be null
+     * @param planner           {@link IndexPlanner} choosing secondary index, {@link LegacyIndexPlanner} if null
+     * @return {@link ParseResult} with the generated {@link Filter}, {@link Exp} and {@link IndexPlan}.
+     * Filter and Exp can be null if there is no suitable filter
+     * @see #buildExpr(ExpressionContainer, PlaceholderValues, Map, String)
+     */
+    public static ParseResult buildExpr(ExpressionContainer expr, PlaceholderValues placeholderValues,
+                                        Map<String, List<Index>> indexes, String preferredBin,
+                                        ExpressionOptimizer optimizer, IndexPlanner planner) {
+        return buildExpr(expr, placeholderValues, indexes, preferredBin, optimizer, planner, DslMetrics.NOOP);
     }
 
     /**
-     * Recursively resolves all placeholders within an expression tree.
+     * Builds a secondary index {@link Filter} and a filter {@link Exp} for a given {@link ExpressionContainer}
+     * like {@link #buildExpr(ExpressionContainer, PlaceholderValues, Map, String, ExpressionOptimizer,
+     * IndexPlanner)}, recording timings of placeholder resolution, optimization, index selection
+     * and {@link Exp} generation.
+     *
+     * @param expr              The {@link ExpressionContainer} representing the expression tree
+     * @param placeholderValues The {@link PlaceholderValues} to match with placeholders by index
+     * @param indexes           A map of available secondary indexes, keyed by bin name
+     * @param preferredBin      Optional bin name hint for choosing secondary index
+     * @param optimizer         {@link ExpressionOptimizer} to apply if any placeholders were resolved, can be null
+     * @param planner           {@link IndexPlanner} choosing secondary index, {@link LegacyIndexPlanner} if null
+     * @param metrics           {@link DslMetrics} to record timings to
+     * @return {@link ParseResult} with the generated {@link Filter}, {@link Exp} and {@link IndexPlan}, and
+     * the {@link OptimizationReport} of the optimizer applied after resolving placeholders.
+     * Filter and Exp can be null if there is no suitable filter
+     */
+    public static ParseResult buildExpr(ExpressionContainer expr, PlaceholderValues placeholderValues,
+                                        Map<String, List<Index>> indexes, String preferredBin,
+                                        ExpressionOptimizer optimizer, IndexPlanner planner, DslMetrics metrics) {
+        OptimizationReport report = optimizer == null ? null : new OptimizationReport();
+        AbstractPart resolved = resolveForBuild(expr, placeholderValues, optimizer, report, metrics);
+        if (resolved.getPartType() != EXPRESSION_CONTAINER) {
+            // Optimized into a single operand
+            return new ParseResult(null, resolved.getExp(), IndexPlan.empty(), report);
+        }
+        return buildResolvedExpr((ExpressionContainer) resolved, indexes, preferredBin, planner, report, metrics);
+    }
+
+    /**
+     * Builds the same result as {@link #buildExpr(ExpressionContainer, PlaceholderValues, Map, String,
+     * ExpressionOptimizer, IndexPlanner)} and explains it: the scored index candidates, the indexes
+     * that were not used and why, and the estimated per-record cost of the remaining filter {@link Exp}.
+     *
+     * @param expr              The {@link ExpressionContainer} representing the expression tree
+     * @param placeholderValues The {@link PlaceholderValues} to match with placeholders by index
+     * @param indexes           A map of available secondary indexes, keyed by bin name
+     * @param preferredBin      Optional bin name hint for choosing secondary index
+     * @param optimizer         {@link ExpressionOptimizer} to apply if any placeholders were resolved, can be null
+     * @param planner           {@link IndexPlanner} choosing secondary index, {@link LegacyIndexPlanner} if null
+     * @return {@link PlanExplanation} of the resulting {@link Filter} and {@link Exp}
+     */
+    public static PlanExplanation explainExpr(ExpressionContainer expr, PlaceholderValues placeholderValues,
+                                              Map<String, List<Index>> indexes, String preferredBin,
+                                              ExpressionOptimizer optimizer, IndexPlanner planner) {
+        AbstractPart resolved = resolveForBuild(expr, placeholderValues, optimizer, null, DslMetrics.NOOP);
+        ParseResult result = resolved.getPartType() == EXPRESSION_CONTAINER
+                ? buildResolvedExpr((ExpressionContainer) resolved, indexes, preferredBin, planner, null,
+                DslMetrics.NOOP)
+                : new ParseResult(null, resolved.getExp());
+        return new PlanExplanation(result.getFilter(), result.getExp(), result.getIndexPlan(),
+                getRejectedIndexes(resolved, indexes, result), EvaluationCost.of(result.getExp()));
+    }
+
+    /**
+     * Plans a top-level {@code or} as a union of secondary index queries, one per disjunct. Nested {@code or}
+     * operands are flattened. The filter {@link Exp} of each branch also requires the preceding disjuncts
+     * not to be true, so branches do not overlap.
      * <p>
-     * This method traverses the expression tree starting from the root {@link ExpressionContainer}.
-     * For each node, it checks for structures like {@link ExpressionContainer},
-     * {@link WhenStructure}, and {@link LetStructure} and replaces any found placeholders with their
-     * corresponding values.
-     * </p>
+     * A record that has no bin read by a disjunct, or has it with a different type, makes the disjunct unknown
+     * rather than false, and its negation would be unknown as well. So each negation is guarded by the types
+     * of the bins the disjunct reads, and disjuncts reading values that cannot be guarded this way
+     * (e.g., list and map paths, {@code let} or {@code when} structures) can only be the last one.
      *
-     * @param expression        The root of the expression tree to traverse
-     * @param placeholderValues An object storing placeholder indexes and their resolved values
+     * @param expr              The {@link ExpressionContainer} representing the expression tree
+     * @param placeholderValues The {@link PlaceholderValues} to match with placeholders by index
+     * @param indexes           A map of available secondary indexes, keyed by bin name
+     * @param preferredBin      Optional bin name hint for choosing secondary index
+     * @param optimizer         {@link ExpressionOptimizer} to apply if any placeholders were resolved, can be null
+     * @param planner           {@link IndexPlanner} choosing secondary index, {@link LegacyIndexPlanner} if null
+     * @return {@link UnionPlan} with a branch per disjunct, or {@code null} if the expression is not
+     * an {@code or}, or a secondary index {@link Filter} cannot be built for every disjunct
+     */
+    public static UnionPlan buildUnionPlan(ExpressionContainer expr, PlaceholderValues placeholderValues,
+                                           Map<String, List<Index>> indexes, String preferredBin,
+                                           ExpressionOptimizer optimizer, IndexPlanner planner) {
+        if (indexes == null || indexes.isEmpty()) return null;
+
+        AbstractPart resolved = resolveForBuild(expr, placeholderValues, optimizer, null, DslMetrics.NOOP);
+        List<ExpressionContainer> disjuncts = new ArrayList<>();
+        collectDisjuncts(resolved, disjuncts);
+        if (disjuncts.size() < 2) return null;
+
+        List<ParseResult> branches = new ArrayList<>(disjuncts.size());
+        List<Exp> negations = new ArrayList<>(disjuncts.size() - 1);
+        for (int i = 0; i < disjuncts.size(); i++) {
+            ExpressionContainer disjunct = disjuncts.get(i);
+            ParseResult result = buildResolvedExpr(disjunct, indexes, preferredBin, planner, null,
+                    DslMetrics.NOOP);
+            if (result.getFilter() == null) return null;
+
+            List<Exp> exps = new ArrayList<>(negations.size() + 1);
+            if (result.getExp() != null) exps.add(result.getExp());
+            exps.addAll(negations);
+            Exp exp = switch (exps.size()) {
+                case 0 -> null;
+                case 1 -> exps.get(0);
+                default -> Exp.and(exps.toArray(new Exp[0]));
+            };
+            branches.add(new ParseResult(result.getFilter(), exp, result.getIndexPlan()));
+
+            if (i < disjuncts.size() - 1) {
+                Exp negation = getGuardedNegation(disjunct);
+                if (negation == null) return null;
+                negations.add(negation);
+            }
+        }
+        return new UnionPlan(branches);
+    }
+
+    /**
+     * Operations whose operands are not visited by {@link #traverseTree(AbstractPart, Consumer, Predicate)},
+     * so the bins they read are unknown
      */
-    private static void resolvePlaceholders(ExpressionContainer expression, PlaceholderValues placeholderValues) {
-        Consumer<AbstractPart> exprContainersCollector = part -> {
+    private static final EnumSet<ExprPartsOperation> UNGUARDABLE_OPERATIONS = EnumSet.of(
+            ExprPartsOperation.LET_STRUCTURE, ExprPartsOperation.WHEN_STRUCTURE,
+            ExprPartsOperation.EXCLUSIVE_STRUCTURE, ExprPartsOperation.OR_STRUCTURE);
+
+    /**
+     * Collects the operands of nested {@code or} expressions, or the part itself if it is not an {@code or}.
+     */
+    private static void collectDisjuncts(AbstractPart part, List<ExpressionContainer> disjuncts) {
+        if (part.getPartType() != EXPRESSION_CONTAINER) return;
+
+        ExpressionContainer expr = (ExpressionContainer) part;
+        if (expr.getOperationType() == OR) {
+            collectDisjuncts(expr.getLeft(), disjuncts);
+            collectDisjuncts(expr.getRight(), disjuncts);
+        } else if (expr.getOperationType() == ExprPartsOperation.OR_STRUCTURE) {
+            ((OrStructure) expr.getLeft()).getOperands().forEach(operand -> collectDisjuncts(operand, disjuncts));
+        } else {
+            disjuncts.add(expr);
+        }
+    }
+
+    /**
+     * Builds {@code not(and(binType(bin) == type..., disjunct))}, which is true for every record
+     * the disjunct is not true for, including records without the bins it reads.
+     *
+     * @return The guarded negation, or {@code null} if the disjunct reads values that cannot be guarded
+     */
+    private static Exp getGuardedNegation(ExpressionContainer disjunct) {
+        Map<String, Exp.Type> binTypes = new LinkedHashMap<>();
+        boolean[] isGuardable = {true};
+        traverseTree(disjunct, part -> {
             switch (part.getPartType()) {
-                case EXPRESSION_CONTAINER -> replacePlaceholdersInExprContainer(part, placeholderValues);
-                case WHEN_STRUCTURE -> replacePlaceholdersInWhenStructure(part, placeholderValues);
-                case LET_STRUCTURE -> replacePlaceholdersInLetStructure(part, placeholderValues);
-                case EXCLUSIVE_STRUCTURE -> replacePlaceholdersInExclusiveStructure(part, placeholderValues);
+                case BIN_PART -> {
+                    BinPart binPart = (BinPart) part;
+                    Exp.Type previous = binTypes.putIfAbsent(binPart.getBinName(), binPart.getExpType());
+                    if (!expTypeToParticleType.containsKey(binPart.getExpType())
+                            || previous != null && previous != binPart.getExpType()) {
+                        isGuardable[0] = false;
+                    }
+                }
+                case PATH_OPERAND -> isGuardable[0] = false;
+                case EXPRESSION_CONTAINER -> {
+                    if (UNGUARDABLE_OPERATIONS.contains(((ExpressionContainer) part).getOperationType())) {
+                        isGuardable[0] = false;
+                    }
+                }
+                default -> {
+                }
             }
-        };
-        traverseTree(expression, exprContainersCollector, null);
+        }, null);
+        if (!isGuardable[0]) return null;
+
+        List<Exp> exps = new ArrayList<>(binTypes.size() + 1);
+        binTypes.forEach((binName, expType) ->
+                exps.add(Exp.eq(Exp.binType(binName), Exp.val(expTypeToParticleType.get(expType)))));
+        exps.add(getFilterExp(disjunct, null));
+        return Exp.not(exps.size() == 1 ? exps.get(0) : Exp.and(exps.toArray(new Exp[0])));
     }
 
     /**
-     * Replaces placeholders within a {@link LetStructure} object.
-     * <p>
-     * This method iterates through the operands of a given {@link LetStructure}. If an operand
-     * is a {@link PlaceholderOperand}, it's resolved using the provided {@link PlaceholderValues}
-     * and replaced with the resolved {@link AbstractPart}.
-     * </p>
+     * Resolves placeholders of the expression tree and applies the optimizer if any placeholders were resolved.
      *
-     * @param part              The {@link AbstractPart} representing the {@link LetStructure}
-     * @param placeholderValues An object storing placeholder indexes and their resolved values
+     * @param report {@link OptimizationReport} to add the changes made by the optimizer to, can be null
+     * @return The resolved tree, the given expression if there is nothing to resolve
      */
-    private static void replacePlaceholdersInLetStructure(AbstractPart part, PlaceholderValues placeholderValues) {
-        LetStructure letStructure = (LetStructure) part;
-        for (LetOperand subOperand : letStructure.getOperands()) {
-            if (subOperand.getPart().getPartType() == PLACEHOLDER_OPERAND) {
-                // Replace placeholder part with the resolved operand
-                subOperand.setPart(((PlaceholderOperand) subOperand.getPart()).resolve(placeholderValues));
+    private static AbstractPart resolveForBuild(ExpressionContainer expr, PlaceholderValues placeholderValues,
+                                                ExpressionOptimizer optimizer, OptimizationReport report,
+                                                DslMetrics metrics) {
+        if (placeholderValues == null) return expr;
+
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        AbstractPart resolved = resolvePlaceholders(expr, placeholderValues, null);
+        if (metrics.isEnabled()) {
+            metrics.recordPhase(DslMetrics.Phase.RESOLVE_PLACEHOLDERS, System.nanoTime() - start);
+        }
+        if (optimizer != null && resolved != expr) {
+            start = metrics.isEnabled() ? System.nanoTime() : 0;
+            resolved = optimizer.optimize(resolved, report == null ? new OptimizationReport() : report);
+            if (metrics.isEnabled()) {
+                metrics.recordPhase(DslMetrics.Phase.OPTIMIZE, System.nanoTime() - start);
             }
         }
+        return resolved;
     }
 
     /**
-     * Replaces placeholders within a {@link WhenStructure} object.
+     * Builds a secondary index {@link Filter} and a filter {@link Exp} for an expression tree
+     * with resolved placeholders.
+     *
+     * @param report {@link OptimizationReport} of the optimization after resolving placeholders, can be null
+     */
+    private static ParseResult buildResolvedExpr(ExpressionContainer resolvedExpr, Map<String, List<Index>> indexes,
+                                                 String preferredBin, IndexPlanner planner,
+                                                 OptimizationReport report, DslMetrics metrics) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        IndexPlan indexPlan = resolvedExpr.getOperationType() == OR
+                ? IndexPlan.empty()
+                : planIndex(resolvedExpr, indexes, preferredBin, planner);
+        ExpressionContainer siFilterExpr = indexPlan.getChosenExpression();
+        Filter secondaryIndexFilter = indexPlan.getChosen() == null
+                ? null
+                : indexPlan.getChosen().getCandidate().getFilter();
+        if (metrics.isEnabled()) {
+            long end = System.nanoTime();
+            metrics.recordPhase(DslMetrics.Phase.SELECT_INDEX, end - start);
+            start = end;
+        }
+
+        Exp exp = getFilterExp(resolvedExpr, siFilterExpr);
+        if (metrics.isEnabled()) {
+            metrics.recordPhase(DslMetrics.Phase.BUILD_EXP, System.nanoTime() - start);
+        }
+        return new ParseResult(secondaryIndexFilter, exp, indexPlan, report);
+    }
+
+    /**
+     * Builds the filter {@link Exp} of an expression template without secondary index {@link Filter}.
+     * Placeholders are resolved using the given values for type inference, but their values are represented
+     * by {@code markers}, so that the resulting {@link Exp} packs the markers instead of the values.
+     *
+     * @param expr              The {@link ExpressionContainer} representing the expression tree
+     * @param placeholderValues The {@link PlaceholderValues} to match with placeholders by index
+     * @param markers           Markers to pack instead of placeholder values
+     * @return The resulting {@link Exp}, can be null
+     */
+    public static Exp buildTemplateExp(ExpressionContainer expr, PlaceholderValues placeholderValues,
+                                       PlaceholderMarkers markers) {
+        ExpressionContainer resolvedExpr = placeholderValues != null
+                ? (ExpressionContainer) resolvePlaceholders(expr, placeholderValues, markers)
+                : expr;
+        return getFilterExp(resolvedExpr, null);
+    }
+
+    /**
+     * Recursively resolves all placeholders within an expression tree.
      * <p>
-     * This method iterates through the operands of a {@link WhenStructure}. It identifies
-     * and resolves {@link PlaceholderOperand}s, replacing them with their resolved values
-     * from the {@link PlaceholderValues}. It also recursively calls
-     * {@code replacePlaceholdersInExprContainer} for any nested
-     * {@link ExpressionContainer}s.
+     * Placeholders are replaced using copy-on-write: a part that contains no placeholders is returned as is,
+     * otherwise a copy of the part is returned with resolved children. Parts whose type gets inferred
+     * from the resolved values are copied before being updated, so the original tree is never modified.
      * </p>
      *
-     * @param part              The {@link AbstractPart} representing the {@link WhenStructure}
+     * @param part              The root of the expression tree to traverse
      * @param placeholderValues An object storing placeholder indexes and their resolved values
+     * @param markers           Markers of placeholder values when building an expression template, null otherwise
+     * @return The given part if it has no placeholders, otherwise its copy with placeholders resolved
      */
-    private static void replacePlaceholdersInWhenStructure(AbstractPart part, PlaceholderValues placeholderValues) {
-        WhenStructure whenStructure = (WhenStructure) part;
-        List<AbstractPart> subOperands = new ArrayList<>(whenStructure.getOperands());
-        boolean isResolved = false;
-        for (AbstractPart subOperand : whenStructure.getOperands()) {
-            if (subOperand.getPartType() == PLACEHOLDER_OPERAND) {
-                PlaceholderOperand placeholder = (PlaceholderOperand) subOperand;
-                // Replace placeholder with the resolved operand
-                subOperands.set(subOperands.indexOf(subOperand), placeholder.resolve(placeholderValues));
-                isResolved = true;
-            } else if (subOperand.getPartType() == EXPRESSION_CONTAINER) {
-                replacePlaceholdersInExprContainer(subOperand, placeholderValues);
+    static AbstractPart resolvePlaceholders(AbstractPart part, PlaceholderValues placeholderValues,
+                                            PlaceholderMarkers markers) {
+        if (part == null) return null;
+
+        return switch (part.getPartType()) {
+            case PLACEHOLDER_OPERAND -> resolvePlaceholder((PlaceholderOperand) part, placeholderValues,
+                    markers);
+            case EXPRESSION_CONTAINER -> resolvePlaceholdersInExprContainer((ExpressionContainer) part,
+                    placeholderValues, markers);
+            case AND_STRUCTURE -> {
+                List<ExpressionContainer> operands =
+                        resolvePlaceholdersInList(((AndStructure) part).getOperands(), placeholderValues,
+                                markers);
+                yield operands == null ? part : new AndStructure(operands);
+            }
+            case OR_STRUCTURE -> {
+                List<ExpressionContainer> operands =
+                        resolvePlaceholdersInList(((OrStructure) part).getOperands(), placeholderValues,
+                                markers);
+                yield operands == null ? part : new OrStructure(operands);
+            }
+            case EXCLUSIVE_STRUCTURE -> {
+                List<ExpressionContainer> operands =
+                        resolvePlaceholdersInList(((ExclusiveStructure) part).getOperands(), placeholderValues,
+                                markers);
+                yield operands == null ? part : new ExclusiveStructure(operands);
             }
+            case WHEN_STRUCTURE -> {
+                List<AbstractPart> operands =
+                        resolvePlaceholdersInList(((WhenStructure) part).getOperands(), placeholderValues,
+                                markers);
+                yield operands == null ? part : new WhenStructure(operands);
+            }
+            case FUNCTION_ARGS -> {
+                List<AbstractPart> operands =
+                        resolvePlaceholdersInList(((FunctionArgs) part).getOperands(), placeholderValues,
+                                markers);
+                yield operands == null ? part : new FunctionArgs(operands);
+            }
+            case LET_STRUCTURE -> resolvePlaceholdersInLetStructure((LetStructure) part, placeholderValues,
+                    markers);
+            default -> part;
+        };
+    }
+
+    /**
+     * Resolves a single placeholder. When building an expression template, the resolved operand
+     * is marked with a {@link PlaceholderSlot}, so that a marker gets packed instead of its value.
+     *
+     * @param placeholder       The {@link PlaceholderOperand} to resolve
+     * @param placeholderValues An object storing placeholder indexes and their resolved values
+     * @param markers           Markers of placeholder values when building an expression template, can be null
+     * @return The resolved operand
+     */
+    private static AbstractPart resolvePlaceholder(PlaceholderOperand placeholder,
+                                                   PlaceholderValues placeholderValues,
+                                                   PlaceholderMarkers markers) {
+        AbstractPart resolved = placeholder.resolve(placeholderValues);
+        if (markers != null) {
+            resolved.setPlaceholderSlot(new PlaceholderSlot(placeholder.getIndex(), markers));
         }
+        return resolved;
+    }
 
-        if (isResolved) whenStructure.setOperands(subOperands);
+    /**
+     * Resolves placeholders in each element of the given list.
+     *
+     * @return A new list with resolved elements, or {@code null} if none of the elements has changed
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends AbstractPart> List<T> resolvePlaceholdersInList(List<T> parts,
+                                                                             PlaceholderValues placeholderValues,
+                                                                             PlaceholderMarkers markers) {
+        List<T> resolvedParts = null;
+        for (int i = 0; i < parts.size(); i++) {
+            T part = parts.get(i);
+            AbstractPart resolved = resolvePlaceholders(part, placeholderValues, markers);
+            if (resolved != part) {
+                if (resolvedParts == null) resolvedParts = new ArrayList<>(parts);
+                resolvedParts.set(i, (T) resolved);
+            }
+        }
+        return resolvedParts;
     }
 
     /**
-     * Replaces placeholders within a {@link ExclusiveStructure} object.
-     * <p>
-     * This method iterates through the operands of a given {@link ExclusiveStructure}. If an operand
-     * has a {@link PlaceholderOperand}, it's resolved using the provided {@link PlaceholderValues}
-     * and replaced with the resolved {@link AbstractPart}.
-     * </p>
+     * Resolves placeholders within a {@link LetStructure} object, both in variable definitions
+     * and in the resulting expression.
      *
-     * @param part              The {@link AbstractPart} representing the {@link ExclusiveStructure}
+     * @param letStructure      The {@link LetStructure} to resolve placeholders in
      * @param placeholderValues An object storing placeholder indexes and their resolved values
-     */
-    private static void replacePlaceholdersInExclusiveStructure(AbstractPart part, PlaceholderValues placeholderValues) {
-        ExclusiveStructure exclStructure = (ExclusiveStructure) part;
-        for (ExpressionContainer exprContainer : exclStructure.getOperands()) {
-            replacePlaceholdersInExprContainer(exprContainer, placeholderValues);
+     * @param markers           Markers of placeholder values when building an expression template, can be null
+     * @return The given {@link LetStructure} if it has no placeholders, otherwise its resolved copy
+     */
+    private static AbstractPart resolvePlaceholdersInLetStructure(LetStructure letStructure,
+                                                                  PlaceholderValues placeholderValues,
+                                                                  PlaceholderMarkers markers) {
+        List<LetOperand> operands = letStructure.getOperands();
+        List<LetOperand> resolvedOperands = null;
+        for (int i = 0; i < operands.size(); i++) {
+            LetOperand operand = operands.get(i);
+            AbstractPart resolved = resolvePlaceholders(operand.getPart(), placeholderValues, markers);
+            if (resolved != operand.getPart()) {
+                if (resolvedOperands == null) resolvedOperands = new ArrayList<>(operands);
+                LetOperand resolvedOperand = (LetOperand) operand.copy();
+                resolvedOperand.setPart(resolved);
+                resolvedOperands.set(i, resolvedOperand);
+            }
         }
+        return resolvedOperands == null ? letStructure : new LetStructure(resolvedOperands);
     }
 
     /**
-     * Replaces placeholders within an {@link ExpressionContainer}.
+     * Resolves placeholders within an {@link ExpressionContainer}.
      * <p>
      * Both the left and right operands are checked independently, so both may be
      * placeholders and both will be resolved in a single pass (e.g. {@code ?0 == ?1}).
@@ -1144,37 +1527,78 @@ public class VisitorUtils {
      *       and {@code inferBinTypeFromList} infers the left bin type.</li>
      * </ul>
      *
-     * @param part              The {@link AbstractPart} representing the {@link ExpressionContainer}
+     * @param expr              The {@link ExpressionContainer} to resolve placeholders in
      * @param placeholderValues An object storing placeholder indexes and their resolved values
+     * @param markers           Markers of placeholder values when building an expression template, can be null
+     * @return The given {@link ExpressionContainer} if it has no placeholders, otherwise its resolved copy
      */
-    private static void replacePlaceholdersInExprContainer(AbstractPart part, PlaceholderValues placeholderValues) {
-        ExpressionContainer expr = (ExpressionContainer) part;
-        boolean leftIsPlaceholder = expr.getLeft().getPartType() == PLACEHOLDER_OPERAND;
-        boolean rightIsPlaceholder = !expr.isUnary() && expr.getRight().getPartType() == PLACEHOLDER_OPERAND;
-        boolean isResolved = false;
+    private static AbstractPart resolvePlaceholdersInExprContainer(ExpressionContainer expr,
+                                                                   PlaceholderValues placeholderValues,
+                                                                   PlaceholderMarkers markers) {
+        boolean leftIsPlaceholder = expr.getLeft() != null && expr.getLeft().getPartType() == PLACEHOLDER_OPERAND;
+        boolean rightIsPlaceholder = !expr.isUnary() && expr.getRight() != null
+                && expr.getRight().getPartType() == PLACEHOLDER_OPERAND;
 
         if (expr.getOperationType() == IN && rightIsPlaceholder) {
             validateInPlaceholderValue((PlaceholderOperand) expr.getRight(), placeholderValues);
         }
 
-        if (leftIsPlaceholder) {
-            PlaceholderOperand placeholder = (PlaceholderOperand) expr.getLeft();
-            expr.setLeft(placeholder.resolve(placeholderValues));
-            isResolved = true;
-        }
-        if (rightIsPlaceholder) {
-            PlaceholderOperand placeholder = (PlaceholderOperand) expr.getRight();
-            expr.setRight(placeholder.resolve(placeholderValues));
-            isResolved = true;
+        AbstractPart left = resolvePlaceholders(expr.getLeft(), placeholderValues, markers);
+        AbstractPart right = resolvePlaceholders(expr.getRight(), placeholderValues, markers);
+        if (left == expr.getLeft() && right == expr.getRight()) {
+            return expr;
         }
 
+        boolean isResolved = leftIsPlaceholder || rightIsPlaceholder;
         if (isResolved && List.of(LT, LTEQ, GT, GTEQ, NOTEQ, EQ).contains(expr.getOperationType())) {
-            overrideTypeInfo(expr.getLeft(), expr.getRight());
+            // Type inference updates operands, so it is applied to their copies
+            left = copyForTypeInference(left);
+            right = copyForTypeInference(right);
+            overrideTypeInfo(left, right);
         }
         if (isResolved && expr.getOperationType() == IN) {
-            Exp.Type inferredType = validateListHomogeneity(expr.getRight());
-            inferBinTypeFromList(expr.getLeft(), inferredType);
+            Exp.Type inferredType = validateListHomogeneity(right);
+            left = copyForTypeInference(left);
+            inferBinTypeFromList(left, inferredType);
         }
+
+        ExpressionContainer resolvedExpr = (ExpressionContainer) expr.copy();
+        resolvedExpr.setLeft(left);
+        resolvedExpr.setRight(right);
+        return resolvedExpr;
+    }
+
+    /**
+     * Copies the parts of an operand whose Exp type can be updated by type inference:
+     * {@link BinPart}, {@link Path} with its bin and CDT parts, and nested {@link ExpressionContainer}s.
+     * Other parts are not updated by type inference and are shared.
+     *
+     * @param part The operand to copy
+     * @return A copy that can be updated without affecting the original operand
+     */
+    private static AbstractPart copyForTypeInference(AbstractPart part) {
+        if (part == null) return null;
+
+        return switch (part.getPartType()) {
+            case BIN_PART -> part.copy();
+            case PATH_OPERAND -> {
+                Path path = (Path) part;
+                BasePath basePath = path.getBasePath();
+                List<AbstractPart> cdtParts = new ArrayList<>(basePath.getCdtParts().size());
+                for (AbstractPart cdtPart : basePath.getCdtParts()) {
+                    cdtParts.add(cdtPart.copy());
+                }
+                BasePath basePathCopy = new BasePath((BinPart) basePath.getBinPart().copy(), cdtParts);
+                yield new Path(basePathCopy, path.getPathFunction());
+            }
+            case EXPRESSION_CONTAINER -> {
+                ExpressionContainer container = (ExpressionContainer) part.copy();
+                container.setLeft(copyForTypeInference(container.getLeft()));
+                container.setRight(copyForTypeInference(container.getRight()));
+                yield container;
+            }
+            default -> part;
+        };
     }
 
     /**
@@ -1328,24 +1752,27 @@ public class VisitorUtils {
     /**
      * Returns the {@link Exp} generated for a given {@link ExpressionContainer}.
      *
-     * @param expr The input {@link ExpressionContainer}
+     * @param expr         The input {@link ExpressionContainer}
+     * @param siFilterExpr The {@link ExpressionContainer} already used in creating secondary index {@link Filter},
+     *                     it is skipped. Can be null
      * @return The corresponding {@link Exp}, or {@code null} if a secondary index filter was applied
      * or if there is no suitable filter
      */
-    private static Exp getFilterExp(ExpressionContainer expr) {
+    private static Exp getFilterExp(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
         // Skip the expression already used in creating secondary index Filter
-        if (expr.hasSecondaryIndexFilter()) return null;
+        if (expr == siFilterExpr) return null;
 
         return switch (expr.getOperationType()) {
-            case OR_STRUCTURE -> orStructureToExp(expr);
-            case AND_STRUCTURE -> andStructureToExp(expr);
-            case LET_STRUCTURE -> letStructureToExp(expr);
-            case WHEN_STRUCTURE -> whenStructureToExp(expr);
-            case EXCLUSIVE_STRUCTURE -> exclStructureToExp(expr);
-            case MIN_FUNC -> variadicToExp(expr, Exp::min);
-            case MAX_FUNC -> variadicToExp(expr, Exp::max);
-            case FIND_BIT_LEFT, FIND_BIT_RIGHT -> binaryFunctionToExp(expr);
-            default -> processExpression(expr);
+            case OR_STRUCTURE -> orStructureToExp(expr, siFilterExpr);
+            case AND_STRUCTURE -> andStructureToExp(expr, siFilterExpr);
+            case LET_STRUCTURE -> letStructureToExp(expr, siFilterExpr);
+            case WHEN_STRUCTURE -> whenStructureToExp(expr, siFilterExpr);
+            case EXCLUSIVE_STRUCTURE -> exclStructureToExp(expr, siFilterExpr);
+            case RANGE -> rangeToExp(expr, siFilterExpr);
+            case MIN_FUNC -> variadicToExp(expr, Exp::min, siFilterExpr);
+            case MAX_FUNC -> variadicToExp(expr, Exp::max, siFilterExpr);
+            case FIND_BIT_LEFT, FIND_BIT_RIGHT -> binaryFunctionToExp(expr, siFilterExpr);
+            default -> processExpression(expr, siFilterExpr);
         };
     }
 
@@ -1354,11 +1781,11 @@ public class VisitorUtils {
      * Extracts operands from the {@link FunctionArgs} wrapper and passes them as an array.
      */
     private static Exp variadicToExp(ExpressionContainer expr,
-                                      Function<Exp[], Exp> expFactory) {
+                                      Function<Exp[], Exp> expFactory, ExpressionContainer siFilterExpr) {
         FunctionArgs funcArgs = (FunctionArgs) expr.getLeft();
         List<AbstractPart> operands = funcArgs.getOperands();
         Exp[] exps = operands.stream()
-                .map(VisitorUtils::getExp)
+                .map(operand -> getExp(operand, siFilterExpr))
                 .toArray(Exp[]::new);
         return expFactory.apply(exps);
     }
@@ -1368,9 +1795,9 @@ public class VisitorUtils {
      * Used only for findBitLeft/findBitRight, which take (int, bool) operands that
      * intentionally fail standard {@code validateComparableTypes} validation.
      */
-    private static Exp binaryFunctionToExp(ExpressionContainer expr) {
-        Exp leftExp = getExp(expr.getLeft());
-        Exp rightExp = getExp(expr.getRight());
+    private static Exp binaryFunctionToExp(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
+        Exp leftExp = getExp(expr.getLeft(), siFilterExpr);
+        Exp rightExp = getExp(expr.getRight(), siFilterExpr);
         BinaryOperator<Exp> operator = getExpOperator(expr.getOperationType());
         return operator.apply(leftExp, rightExp);
     }
@@ -1381,16 +1808,16 @@ public class VisitorUtils {
      * @param expr The {@link ExpressionContainer} representing LET structure
      * @return The resulting {@link Exp} expression
      */
-    private static Exp letStructureToExp(ExpressionContainer expr) {
+    private static Exp letStructureToExp(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
         List<Exp> expressions = new ArrayList<>();
         LetStructure letOperandsList = (LetStructure) expr.getLeft(); // extract unary Expr operand
         List<LetOperand> operands = letOperandsList.getOperands();
         for (LetOperand letOperand : operands) {
             if (!letOperand.isLastPart()) {
-                expressions.add(Exp.def(letOperand.getString(), getExp(letOperand.getPart())));
+                expressions.add(Exp.def(letOperand.getString(), getExp(letOperand.getPart(), siFilterExpr)));
             } else {
                 // the last expression is the action (described after "then")
-                expressions.add(getExp(letOperand.getPart()));
+                expressions.add(getExp(letOperand.getPart(), siFilterExpr));
             }
         }
         return Exp.let(expressions.toArray(new Exp[0]));
@@ -1402,12 +1829,12 @@ public class VisitorUtils {
      * @param expr The {@link ExpressionContainer} representing WHEN structure
      * @return The resulting {@link Exp} expression
      */
-    private static Exp whenStructureToExp(ExpressionContainer expr) {
+    private static Exp whenStructureToExp(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
         List<Exp> expressions = new ArrayList<>();
         WhenStructure whenOperandsList = (WhenStructure) expr.getLeft(); // extract unary Expr operand
         List<AbstractPart> operands = whenOperandsList.getOperands();
         for (AbstractPart part : operands) {
-            expressions.add(getExp(part));
+            expressions.add(getExp(part, siFilterExpr));
         }
         return Exp.cond(expressions.toArray(new Exp[0]));
     }
@@ -1418,21 +1845,35 @@ public class VisitorUtils {
      * @param expr The {@link ExpressionContainer} representing EXCLUSIVE structure
      * @return The resulting {@link Exp} expression
      */
-    private static Exp exclStructureToExp(ExpressionContainer expr) {
+    private static Exp exclStructureToExp(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
         List<Exp> expressions = new ArrayList<>();
         ExclusiveStructure exclOperandsList = (ExclusiveStructure) expr.getLeft(); // extract unary Expr operand
         List<ExpressionContainer> operands = exclOperandsList.getOperands();
         for (ExpressionContainer part : operands) {
-            expressions.add(getExp(part));
+            expressions.add(getExp(part, siFilterExpr));
         }
         return Exp.exclusive(expressions.toArray(new Exp[0]));
     }
 
-    private static Exp orStructureToExp(ExpressionContainer expr) {
+    /**
+     * Generates filter {@link Exp} for a RANGE {@link ExpressionContainer}.
+     *
+     * @param expr The {@link ExpressionContainer} with a bin or a path on the left and the bounds on the right
+     * @return The resulting {@link Exp} expression
+     */
+    private static Exp rangeToExp(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
+        Exp leftExp = processOperand(expr.getLeft(), siFilterExpr);
+        List<AbstractPart> bounds = ((FunctionArgs) expr.getRight()).getOperands();
+        return Exp.and(
+                Exp.ge(leftExp, getExp(bounds.get(0), siFilterExpr)),
+                Exp.le(leftExp, getExp(bounds.get(1), siFilterExpr)));
+    }
+
+    private static Exp orStructureToExp(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
         List<Exp> expressions = new ArrayList<>();
         List<ExpressionContainer> operands = ((OrStructure) expr.getLeft()).getOperands();
         for (ExpressionContainer part : operands) {
-            expressions.add(getExp(part));
+            expressions.add(getExp(part, siFilterExpr));
         }
         return Exp.or(expressions.toArray(new Exp[0]));
     }
@@ -1443,11 +1884,11 @@ public class VisitorUtils {
      * @param expr The {@link ExpressionContainer} representing AND structure
      * @return The resulting {@link Exp} expression
      */
-    private static Exp andStructureToExp(ExpressionContainer expr) {
+    private static Exp andStructureToExp(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
         List<Exp> expressions = new ArrayList<>();
         List<ExpressionContainer> operands = ((AndStructure) expr.getLeft()).getOperands();
         for (ExpressionContainer part : operands) {
-            Exp exp = getExp(part);
+            Exp exp = getExp(part, siFilterExpr);
             if (exp != null) expressions.add(exp); // Exp can be null if it is already used in secondary index
         }
         if (expressions.isEmpty()) {
@@ -1461,16 +1902,17 @@ public class VisitorUtils {
     /**
      * Processes an {@link ExpressionContainer} to generate the corresponding Exp.
      *
-     * @param expr The expression to process
+     * @param expr         The expression to process
+     * @param siFilterExpr The expression already used in creating secondary index Filter, can be null
      * @return The processed Exp
      * @throws DslParseException if left or right operands are null in a binary expression
      */
-    private static Exp processExpression(ExpressionContainer expr) {
+    private static Exp processExpression(ExpressionContainer expr, ExpressionContainer siFilterExpr) {
         AbstractPart left = getExistingPart(expr.getLeft(), "Unable to parse left operand");
 
         // For unary expressions
         if (expr.isUnary()) {
-            Exp operandExp = processOperand(left);
+            Exp operandExp = processOperand(left, siFilterExpr);
             if (operandExp == null) return null;
 
             UnaryOperator<Exp> operator = getUnaryExpOperator(expr.getOperationType());
@@ -1482,18 +1924,20 @@ public class VisitorUtils {
 
         // IN operation: ListExp.getByValue(EXISTS, leftExp, rightExp)
         if (expr.getOperationType() == IN) {
-            return buildInExpression(left, right);
+            return buildInExpression(left, right, siFilterExpr);
         }
 
         // Process operands
-        Exp leftExp = processOperand(left);
-        Exp rightExp = processOperand(right);
+        Exp leftExp = processOperand(left, siFilterExpr);
+        Exp rightExp = processOperand(right, siFilterExpr);
 
         // Special handling for BIN_PART
         if (left.getPartType() == BIN_PART) {
-            return getExpLeftBinTypeComparison((BinPart) left, right, getExpOperator(expr.getOperationType()));
+            return getExpLeftBinTypeComparison((BinPart) left, right, rightExp,
+                    getExpOperator(expr.getOperationType()));
         } else if (right.getPartType() == BIN_PART) {
-            return getExpRightBinTypeComparison(left, (BinPart) right, getExpOperator(expr.getOperationType()));
+            return getExpRightBinTypeComparison(left, leftExp, (BinPart) right,
+                    getExpOperator(expr.getOperationType()));
         }
 
         // Special handling for AND operation
@@ -1603,9 +2047,9 @@ public class VisitorUtils {
      * @param right the list to search in
      * @return an Exp that evaluates to true if the left value exists in the right list
      */
-    private static Exp buildInExpression(AbstractPart left, AbstractPart right) {
-        Exp leftExp = processOperand(left);
-        Exp rightExp = processOperand(right);
+    private static Exp buildInExpression(AbstractPart left, AbstractPart right, ExpressionContainer siFilterExpr) {
+        Exp leftExp = processOperand(left, siFilterExpr);
+        Exp rightExp = processOperand(right, siFilterExpr);
         return ListExp.getByValue(ListReturnType.EXISTS, leftExp, rightExp);
     }
 
@@ -1638,61 +2082,65 @@ public class VisitorUtils {
 
     /**
      * Processes an expression operand to generate its corresponding Aerospike {@link Exp}.
-     * If the operand is an {@link ExpressionContainer}, it recursively calls {@link #getFilterExp(ExpressionContainer)}
-     * to get the nested expression's {@link Exp}. Otherwise, it retrieves the {@link Exp} from the part itself.
-     * The generated {@link Exp} is set back on the {@link AbstractPart}.
+     * If the operand is an {@link ExpressionContainer}, it recursively calls
+     * {@link #getFilterExp(ExpressionContainer, ExpressionContainer)} to get the nested expression's {@link Exp}.
+     * Otherwise, it retrieves the {@link Exp} from the part itself.
      *
-     * @param part The operand to process
+     * @param part         The operand to process
+     * @param siFilterExpr The expression already used in creating secondary index Filter, can be null
      * @return The processed Exp, or {@code null} if the part is null or represents
      * an expression container that resulted in a null Exp
      */
-    private static Exp processOperand(AbstractPart part) {
+    private static Exp processOperand(AbstractPart part, ExpressionContainer siFilterExpr) {
         if (part == null) return null;
 
-        Exp exp;
-        if (part.getPartType() == EXPRESSION_CONTAINER) {
-            exp = getFilterExp((ExpressionContainer) part);
-        } else {
-            exp = part.getExp();
-        }
-        part.setExp(exp);
-        return exp;
+        return getExp(part, siFilterExpr);
     }
 
     /**
      * This method that retrieves the {@link Exp} associated with an {@link AbstractPart}.
-     * If the part is an {@link ExpressionContainer}, it calls {@link #getFilterExp(ExpressionContainer)}
-     * to get the nested expression's {@link Exp}. Otherwise, it returns the {@link Exp} stored
-     * directly in the {@link AbstractPart}.
+     * If the part is an {@link ExpressionContainer}, it calls
+     * {@link #getFilterExp(ExpressionContainer, ExpressionContainer)} to get the nested expression's {@link Exp}.
+     * Otherwise, it returns the {@link Exp} provided by the {@link AbstractPart}.
      *
-     * @param part The {@link AbstractPart} for which to get the {@link Exp}
+     * @param part         The {@link AbstractPart} for which to get the {@link Exp}
+     * @param siFilterExpr The expression already used in creating secondary index Filter, can be null
      * @return The corresponding {@link Exp} or {@code null}
      */
-    private static Exp getExp(AbstractPart part) {
+    private static Exp getExp(AbstractPart part, ExpressionContainer siFilterExpr) {
         if (part.getPartType() == EXPRESSION_CONTAINER) {
-            return getFilterExp((ExpressionContainer) part);
+            return getFilterExp((ExpressionContainer) part, siFilterExpr);
         }
-        return part.getExp();
+        boolean isBlob = part.getPartType() == STRING_OPERAND && ((StringOperand) part).isBlob();
+        return markPlaceholderValue(part, part.getExp(), isBlob);
     }
 
     /**
-     * Attempts to generate a secondary index {@link Filter} for a given {@link ExpressionContainer}.
-     * If the expression is not an OR operation (which is not supported
-     * for secondary index filters), the method attempts to find the most suitable
-     * expression within the tree to apply a filter based on index availability and cardinality.
+     * Replaces the {@link Exp} of an operand resolved while building an expression template
+     * with a marker of the placeholder value.
      *
-     * @param expr         The {@link ExpressionContainer} representing the expression tree
-     * @param indexes      A map of available secondary indexes, keyed by bin name
-     * @param preferredBin Optional bin name hint for index selection preference
+     * @param part   The operand
+     * @param exp    The {@link Exp} of the operand
+     * @param isBlob Whether the operand is a Base64 string represented as bytes
+     * @return The marker {@link Exp}, or the given one if the operand is not a resolved placeholder
+     */
+    private static Exp markPlaceholderValue(AbstractPart part, Exp exp, boolean isBlob) {
+        if (part.getPlaceholderSlot() == null) return exp;
+
+        return part.getPlaceholderSlot().getMarkerExp(isBlob);
+    }
+
+    /**
+     * Attempts to generate a secondary index {@link Filter} for the {@link ExpressionContainer}
+     * chosen by {@link #planIndex(ExpressionContainer, Map, String, IndexPlanner)}.
+     *
+     * @param chosenExpr The {@link ExpressionContainer} chosen for secondary index filtering, can be null
      * @return A secondary index {@link Filter}, or {@code null} if no applicable filter can be generated
      * @throws NoApplicableFilterException if the expression operation type is not supported
      */
-    private static Filter getSIFilter(ExpressionContainer expr, Map<String, List<Index>> indexes,
-                                      String preferredBin) {
-        if (expr.getOperationType() == OR) return null;
-
-        ExpressionContainer chosenExpr = chooseExprForFilter(expr, indexes, preferredBin);
+    private static Filter getSIFilter(ExpressionContainer chosenExpr) {
         if (chosenExpr == null) return null;
+        if (chosenExpr.getOperationType() == RANGE) return getRangeFilter(chosenExpr);
 
         return getFilterOrNull(
                 chosenExpr.getLeft(),
@@ -1702,168 +2150,258 @@ public class VisitorUtils {
     }
 
     /**
-     * Chooses the most suitable {@link ExpressionContainer} within a tree to apply a secondary index filter.
-     * Identifies all potential expressions within the tree that could utilize a secondary index.
-     * When a {@code preferredBin} hint is provided, candidates matching that bin are tried first;
-     * if none match, falls back to all candidates. Selection within a candidate set uses the
-     * largest cardinality, then alphabetical bin name as a tiebreaker. The chosen expression
-     * is marked as having a secondary index filter applied.
+     * Plans which {@link ExpressionContainer} within a tree becomes the secondary index filter.
+     * Identifies all potential expressions within the tree that could utilize a secondary index
+     * and lets the planner choose one of them. The chosen expression is then skipped when building
+     * the filter {@link Exp}.
      *
      * @param exprContainer The root {@link ExpressionContainer} of the expression tree
      * @param indexes       A map of available secondary indexes, keyed by bin name
      * @param preferredBin  Optional bin name hint for index selection preference
-     * @return The chosen {@link ExpressionContainer} for secondary index filtering,
-     * or {@code null} if no suitable expression is found
+     * @param planner       {@link IndexPlanner} choosing the expression, {@link LegacyIndexPlanner} if null
+     * @return {@link IndexPlan} with the chosen expression, empty if there are no candidates
      */
-    private static ExpressionContainer chooseExprForFilter(ExpressionContainer exprContainer,
-                                                           Map<String, List<Index>> indexes,
-                                                           String preferredBin) {
-        if (indexes == null || indexes.isEmpty()) return null;
+    private static IndexPlan planIndex(ExpressionContainer exprContainer, Map<String, List<Index>> indexes,
+                                       String preferredBin, IndexPlanner planner) {
+        if (indexes == null || indexes.isEmpty()) return IndexPlan.empty();
 
-        Map<Integer, List<ExpressionContainer>> exprsPerCardinality =
-                getExpressionsPerCardinality(exprContainer, indexes);
+        List<IndexCandidate> candidates = getIndexCandidates(exprContainer, indexes);
+        if (candidates.isEmpty()) return IndexPlan.empty();
 
-        if (preferredBin != null) {
-            Map<Integer, List<ExpressionContainer>> hintedCandidates = filterByBin(exprsPerCardinality, preferredBin);
-            ExpressionContainer hinted = selectByCardinalityThenAlpha(hintedCandidates);
-            if (hinted != null) return hinted;
-        }
+        return (planner == null ? LEGACY_PLANNER : planner).plan(candidates, preferredBin);
+    }
 
-        return selectByCardinalityThenAlpha(exprsPerCardinality);
+    /**
+     * Collects all {@link ExpressionContainer}s within an expression tree that
+     * correspond to a bin with a secondary index, once per matching index.
+     *
+     * @param exprContainer The root {@link ExpressionContainer} of the expression tree
+     * @param indexes       A map of available secondary indexes, keyed by bin name
+     * @return {@link IndexCandidate}s in the order of the expression tree
+     */
+    private static List<IndexCandidate> getIndexCandidates(ExpressionContainer exprContainer,
+                                                           Map<String, List<Index>> indexes) {
+        List<IndexCandidate> candidates = new ArrayList<>();
+        collectIndexCandidates(exprContainer, exprContainer, false, new BinPart[]{null}, indexes, candidates);
+        return candidates;
     }
 
     /**
-     * Filters a cardinality map to only include expressions whose bin matches the given name.
+     * Collects the index candidates of the tree in pre-order (root-left-right). Whether a node is excluded
+     * from secondary index Filter building, i.e., whether it is within {@code or}, is carried down
+     * the traversal, the tree is not modified.
+     *
+     * @param part          The current node (start with the root)
+     * @param exprContainer The root {@link ExpressionContainer} of the expression tree
+     * @param isExcluded    Whether the node is excluded from secondary index Filter building
+     * @param binPartPrev   Bin of the previous candidate expression, the same bin is not added twice in a row
+     * @param indexes       A map of available secondary indexes, keyed by bin name
+     * @param candidates    List of candidates to add to
      */
-    private static Map<Integer, List<ExpressionContainer>> filterByBin(
-            Map<Integer, List<ExpressionContainer>> exprsPerCardinality, String binName) {
-        Map<Integer, List<ExpressionContainer>> filtered = new HashMap<>();
-        for (Map.Entry<Integer, List<ExpressionContainer>> entry : exprsPerCardinality.entrySet()) {
-            List<ExpressionContainer> matching = entry.getValue().stream()
-                    .filter(expr -> binName.equals(getBinPart(expr, 1).getBinName()))
-                    .toList();
-            if (!matching.isEmpty()) {
-                filtered.put(entry.getKey(), matching);
+    private static void collectIndexCandidates(AbstractPart part, ExpressionContainer exprContainer,
+                                               boolean isExcluded, BinPart[] binPartPrev,
+                                               Map<String, List<Index>> indexes, List<IndexCandidate> candidates) {
+        if (part == null) return;
+
+        switch (part.getPartType()) {
+            case EXPRESSION_CONTAINER -> {
+                ExpressionContainer expr = (ExpressionContainer) part;
+                if (!isExcluded && expr.getOperationType() != IN) {
+                    BinPart binPart = findComparedBin(expr);
+                    if (binPart != null && !binPart.equals(binPartPrev[0])) {
+                        binPartPrev[0] = binPart;
+                        addIndexCandidates(candidates, exprContainer, expr, binPart, indexes);
+                    }
+                }
+                boolean isChildExcluded = isExcluded || isOr(expr);
+                collectIndexCandidates(expr.getLeft(), exprContainer, isChildExcluded, binPartPrev, indexes,
+                        candidates);
+                collectIndexCandidates(expr.getRight(), exprContainer, isChildExcluded, binPartPrev, indexes,
+                        candidates);
+            }
+            case AND_STRUCTURE -> ((AndStructure) part).getOperands()
+                    .forEach(operand -> collectIndexCandidates(operand, exprContainer, isExcluded, binPartPrev,
+                            indexes, candidates));
+            case FUNCTION_ARGS -> ((FunctionArgs) part).getOperands()
+                    .forEach(operand -> collectIndexCandidates(operand, exprContainer, isExcluded, binPartPrev,
+                            indexes, candidates));
+            default -> {
             }
         }
-        return filtered;
     }
 
     /**
-     * Selects an expression from a cardinality map using highest cardinality first,
-     * then alphabetical bin name as a tiebreaker. Marks the chosen expression with
-     * {@code hasSecondaryIndexFilter(true)}.
-     *
-     * @return The chosen expression, or {@code null} if the map is empty
+     * @return Whether the operands of the expression are combined by {@code or}
      */
-    private static ExpressionContainer selectByCardinalityThenAlpha(
-            Map<Integer, List<ExpressionContainer>> exprsPerCardinality) {
-        if (exprsPerCardinality.isEmpty()) return null;
-
-        List<ExpressionContainer> topExprs = exprsPerCardinality.entrySet().stream()
-                .max(Map.Entry.comparingByKey())
-                .map(Map.Entry::getValue)
-                .orElse(Collections.emptyList());
+    private static boolean isOr(ExpressionContainer expr) {
+        return expr.getOperationType() == OR || expr.getOperationType() == ExprPartsOperation.OR_STRUCTURE;
+    }
 
-        if (topExprs.isEmpty()) return null;
+    /**
+     * Adds a candidate for each index on the bin of the expression that matches the expression type
+     * of the {@code binPart}.
+     *
+     * @param candidates    List of candidates to add to
+     * @param exprContainer The root {@link ExpressionContainer} of the expression tree
+     * @param expr          The {@link ExpressionContainer} to be added as a candidate
+     * @param binPart       The {@link BinPart} associated with the expression, used to find
+     *                      relevant indexes and determine the expression type
+     * @param indexes       A map where keys are bin names and values are lists of
+     *                      {@link Index} objects associated with that bin
+     */
+    private static void addIndexCandidates(List<IndexCandidate> candidates, ExpressionContainer exprContainer,
+                                           ExpressionContainer expr, BinPart binPart,
+                                           Map<String, List<Index>> indexes) {
+        List<Index> indexesByBin = indexes.get(binPart.getBinName());
+        if (indexesByBin == null || indexesByBin.isEmpty()) return;
 
-        ExpressionContainer chosen = topExprs.size() > 1
-                ? topExprs.stream()
-                .min(Comparator.comparing(expr -> getBinPart(expr, 1).getBinName()))
-                .orElse(null)
-                : topExprs.get(0);
+        for (Index idx : indexesByBin) {
+            // Iterate over all indexes for the same bin
+            if (expTypeToIndexType.get(binPart.getExpType()) == idx.getIndexType()) {
+                candidates.add(new IndexCandidate(exprContainer, expr, idx, () -> getSIFilterOrNull(expr)));
+            }
+        }
+    }
 
-        if (chosen != null) {
-            chosen.hasSecondaryIndexFilter(true);
+    /**
+     * @return A secondary index {@link Filter} for the expression, or {@code null} if it cannot be generated
+     */
+    private static Filter getSIFilterOrNull(ExpressionContainer expr) {
+        try {
+            return getSIFilter(expr);
+        } catch (NoApplicableFilterException e) {
+            return null;
         }
-        return chosen;
     }
 
     /**
-     * Collects all {@link ExpressionContainer}s within an expression tree that
-     * correspond to a bin with a secondary index, grouped by the index's cardinality.
+     * Finds the indexes that were not used for the secondary index {@link Filter} of the result
+     * and the reason for each of them.
      *
-     * @param exprContainer The root {@link ExpressionContainer} of the expression tree
-     * @param indexes       A map of available secondary indexes, keyed by bin name
-     * @return A map where keys are secondary index cardinalities (bin values ratio)
-     * and values are lists of {@link ExpressionContainer}s associated with bins
-     * having that cardinality
+     * @param resolved Expression tree with resolved placeholders the result was built from
+     * @param indexes  A map of available secondary indexes, keyed by bin name, can be null
+     * @param result   {@link ParseResult} built from the expression tree
+     * @return {@link RejectedIndex}es sorted by bin name and index name
      */
-    private static Map<Integer, List<ExpressionContainer>> getExpressionsPerCardinality(
-            ExpressionContainer exprContainer, Map<String, List<Index>> indexes
-    ) {
-        Map<Integer, List<ExpressionContainer>> exprsPerCardinality = new HashMap<>();
-        final BinPart[] binPartPrev = {null};
-        Consumer<AbstractPart> exprsPerCardinalityCollector = part -> {
-            if (part.getPartType() == EXPRESSION_CONTAINER) {
-                ExpressionContainer expr = (ExpressionContainer) part;
-
-                if (expr.getOperationType() == IN) return;
+    private static List<RejectedIndex> getRejectedIndexes(AbstractPart resolved, Map<String, List<Index>> indexes,
+                                                          ParseResult result) {
+        if (indexes == null || indexes.isEmpty()) return List.of();
 
-                BinPart binPart = getBinPart(expr, 2);
+        Map<String, List<BinComparison>> comparisons = new HashMap<>();
+        collectBinComparisons(resolved, false, comparisons);
 
-                if (binPart == null) return; // no bin found
-                if (!binPart.equals(binPartPrev[0])) {
-                    binPartPrev[0] = binPart;
-                } else {
-                    return; // the same bin
-                }
+        IndexPlan indexPlan = result.getIndexPlan();
+        Index chosenIndex = result.getFilter() == null ? null : indexPlan.getChosen().getCandidate().getIndex();
+        List<RejectedIndex> rejectedIndexes = new ArrayList<>();
+        indexes.values().stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Index::getBin).thenComparing(Index::getName))
+                .filter(index -> index != chosenIndex)
+                .forEach(index -> rejectedIndexes.add(getRejectedIndex(index, indexPlan, chosenIndex,
+                        comparisons.getOrDefault(index.getBin(), List.of()))));
+        return rejectedIndexes;
+    }
 
-                updateExpressionsPerCardinality(exprsPerCardinality, expr, binPart, indexes);
+    private static RejectedIndex getRejectedIndex(Index index, IndexPlan indexPlan, Index chosenIndex,
+                                                  List<BinComparison> comparisons) {
+        List<ScoredCandidate> candidates = indexPlan.getCandidates().stream()
+                .filter(candidate -> candidate.getCandidate().getIndex() == index)
+                .toList();
+        if (!candidates.isEmpty()) {
+            ScoredCandidate usable = candidates.stream()
+                    .filter(candidate -> candidate.getCandidate().getFilter() != null)
+                    .findFirst()
+                    .orElse(null);
+            if (usable == null) {
+                return new RejectedIndex(index, RejectedIndex.Reason.NO_FILTER, null);
             }
-        };
-        traverseTree(exprContainer, exprsPerCardinalityCollector, null);
-        return exprsPerCardinality;
-    }
-
-    /**
-     * Updates a map of expression containers grouped by the cardinality of the indexes associated with an
-     * expression container's bin part.
-     * This method iterates through the indexes related to the provided {@code binPart}.
-     * For each index that matches the expression type of the {@code binPart}, it adds the given {@code expr}
-     * to the {@code exprsPerCardinality} map.
-     *
-     * @param exprsPerCardinality A map where keys are integer ratios (representing index cardinality)
-     *                            and values are lists of {@link ExpressionContainer} objects.
-     *                            The map is updated by this method
-     * @param expr                The {@link ExpressionContainer} to be added to the appropriate list
-     *                            within {@code exprsPerCardinality}
-     * @param binPart             The {@link BinPart} associated with the expression, used to find
-     *                            relevant indexes and determine the expression type
-     * @param indexes             A map where keys are bin names and values are lists of
-     *                            {@link Index} objects associated with that bin
-     */
-    private static void updateExpressionsPerCardinality(Map<Integer, List<ExpressionContainer>> exprsPerCardinality,
-                                                        ExpressionContainer expr, BinPart binPart,
-                                                        Map<String, List<Index>> indexes) {
-        List<Index> indexesByBin = indexes.get(binPart.getBinName());
-        if (indexesByBin == null || indexesByBin.isEmpty()) return;
+            String detail = "cost " + usable.getCost() + (chosenIndex == null
+                    ? ""
+                    : ", chosen index " + chosenIndex.getName() + " on " + chosenIndex.getBin());
+            return new RejectedIndex(index, RejectedIndex.Reason.NOT_CHOSEN, detail);
+        }
+
+        BinComparison mismatch = null;
+        boolean isExcluded = false;
+        boolean isIn = false;
+        for (BinComparison comparison : comparisons) {
+            if (comparison.isExcluded) {
+                isExcluded = true;
+            } else if (comparison.isIn) {
+                isIn = true;
+            } else if (mismatch == null
+                    && expTypeToIndexType.get(comparison.binPart.getExpType()) != index.getIndexType()) {
+                mismatch = comparison;
+            }
+        }
+        if (mismatch != null) {
+            return new RejectedIndex(index, RejectedIndex.Reason.TYPE_MISMATCH, "compared as "
+                    + mismatch.binPart.getExpType() + ", index type is " + index.getIndexType());
+        }
+        if (isExcluded) return new RejectedIndex(index, RejectedIndex.Reason.OR_EXCLUDED, null);
+        if (isIn) return new RejectedIndex(index, RejectedIndex.Reason.IN_EXPRESSION, null);
+        return new RejectedIndex(index, RejectedIndex.Reason.NOT_COMPARED, null);
+    }
 
-        for (Index idx : indexesByBin) {
-            // Iterate over all indexes for the same bin
-            if (expTypeToIndexType.get(binPart.getExpType()) == idx.getIndexType()) {
-                List<ExpressionContainer> exprsList = exprsPerCardinality.get(idx.getBinValuesRatio());
-                if (exprsList != null) {
-                    exprsList.add(expr);
-                } else {
-                    exprsList = new ArrayList<>();
-                    exprsList.add(expr);
+    /**
+     * A bin compared by an expression of the tree
+     */
+    @AllArgsConstructor
+    private static final class BinComparison {
+
+        private final BinPart binPart;
+        /**
+         * Whether the expression is {@code in}
+         */
+        private final boolean isIn;
+        /**
+         * Whether the expression is excluded from secondary index Filter building, e.g., within {@code or}
+         */
+        private final boolean isExcluded;
+    }
+
+    /**
+     * Collects the bins compared by the expressions of the tree, keyed by bin name.
+     *
+     * @param part        The current node (start with the root)
+     * @param isExcluded  Whether the node is excluded from secondary index Filter building
+     * @param comparisons Map to add the comparisons to
+     */
+    private static void collectBinComparisons(AbstractPart part, boolean isExcluded,
+                                              Map<String, List<BinComparison>> comparisons) {
+        if (part == null) return;
+
+        switch (part.getPartType()) {
+            case EXPRESSION_CONTAINER -> {
+                ExpressionContainer expr = (ExpressionContainer) part;
+                BinPart binPart = findComparedBin(expr);
+                if (binPart != null) {
+                    comparisons.computeIfAbsent(binPart.getBinName(), binName -> new ArrayList<>())
+                            .add(new BinComparison(binPart, expr.getOperationType() == IN, isExcluded));
                 }
-                exprsPerCardinality.put(idx.getBinValuesRatio(), exprsList);
+                boolean isChildExcluded = isExcluded || isOr(expr);
+                collectBinComparisons(expr.getLeft(), isChildExcluded, comparisons);
+                collectBinComparisons(expr.getRight(), isChildExcluded, comparisons);
+            }
+            case AND_STRUCTURE -> ((AndStructure) part).getOperands()
+                    .forEach(operand -> collectBinComparisons(operand, isExcluded, comparisons));
+            case OR_STRUCTURE -> ((OrStructure) part).getOperands()
+                    .forEach(operand -> collectBinComparisons(operand, true, comparisons));
+            case FUNCTION_ARGS -> ((FunctionArgs) part).getOperands()
+                    .forEach(operand -> collectBinComparisons(operand, isExcluded, comparisons));
+            default -> {
             }
         }
     }
 
     /**
-     * The method traverses the expression tree starting from the given {@link ExpressionContainer},
-     * searching for a {@link BinPart}. It limits the search depth and stops
-     * traversing a branch if a logical expression (AND / OR) is found.
+     * Searches the expression and its operands for a {@link BinPart}, at most two levels deep,
+     * not traversing logical expressions (AND / OR).
      *
-     * @param expr  The {@link ExpressionContainer} to start searching from
-     * @param depth The maximum depth to traverse
-     * @return The first {@link BinPart} found within the specified depth, or {@code null} if none is found
+     * @param expr The {@link ExpressionContainer} to start searching from
+     * @return The first {@link BinPart} compared by the expression, or {@code null} if none is found
      */
-    private static BinPart getBinPart(ExpressionContainer expr, int depth) {
+    private static BinPart findComparedBin(ExpressionContainer expr) {
         final BinPart[] singleBinPartArray = {null};
         Consumer<AbstractPart> binPartRetriever = part -> {
             if (part.getPartType() == BIN_PART) {
@@ -1873,30 +2411,12 @@ public class VisitorUtils {
             }
         };
         Predicate<AbstractPart> stopOnLogicalExpr = part -> {
-            if (part.getPartType() == EXPRESSION_CONTAINER) {
-                ExpressionContainer logicalExpr = (ExpressionContainer) part;
-                if (logicalExpr.isExclFromSecondaryIndexFilter()) {
-                    // All parts of the tree branch excluded from secondary index Filter building are flagged
-                    if (logicalExpr.getLeft().getPartType() == EXPRESSION_CONTAINER) {
-                        ((ExpressionContainer) logicalExpr.getLeft()).isExclFromSecondaryIndexFilter(true);
-                    }
-                    if (logicalExpr.getRight().getPartType() == EXPRESSION_CONTAINER) {
-                        ((ExpressionContainer) logicalExpr.getRight()).isExclFromSecondaryIndexFilter(true);
-                    }
-                    return true;
-                }
-                if (logicalExpr.getOperationType() == AND) return true;
-                if (logicalExpr.getOperationType() == OR) {
-                    // Both parts of OR-combined query are excluded from secondary index Filter building
-                    ((ExpressionContainer) logicalExpr.getLeft()).isExclFromSecondaryIndexFilter(true);
-                    ((ExpressionContainer) logicalExpr.getRight()).isExclFromSecondaryIndexFilter(true);
-                    return true;
-                }
-            }
-            return false;
+            if (part.getPartType() != EXPRESSION_CONTAINER) return false;
+            ExpressionContainer logicalExpr = (ExpressionContainer) part;
+            return logicalExpr.getOperationType() == AND || logicalExpr.getOperationType() == OR;
         };
 
-        traverseTree(expr, binPartRetriever, depth, stopOnLogicalExpr);
+        traverseTree(expr, binPartRetriever, 2, stopOnLogicalExpr);
         return singleBinPartArray[0];
     }
 
@@ -0,0 +1,122 @@
+package com.aerospike.dsl.client.util;
+
+import com.aerospike.dsl.client.AerospikeException;
+import com.aerospike.dsl.client.Value;
+import com.aerospike.dsl.client.cdt.CTX;
+import com.aerospike.dsl.client.cdt.MapOrder;
+import com.aerospike.dsl.client.util.MsgPackReader.ValueType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MsgPackReaderTests {
+
+    @Test
+    void scalars() {
+        List<Object> values = Arrays.asList(0L, -1L, 127L, -32L, 255L, -128L, 65535L, -32768L, 4294967295L,
+                Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, 1.5, true, false, null, "", "abc", "ü".repeat(40));
+        MsgPackReader reader = new MsgPackReader(Packer.pack(values));
+
+        assertThat(reader.enterArray()).isEqualTo(values.size());
+        for (Object value : values) {
+            if (value instanceof Number number && !(value instanceof Double)) {
+                assertThat(reader.nextType()).isEqualTo(ValueType.INTEGER);
+                assertThat(reader.readLong()).isEqualTo(number.longValue());
+            } else if (value instanceof Double doubleValue) {
+                assertThat(reader.nextType()).isEqualTo(ValueType.FLOAT);
+                assertThat(reader.readDouble()).isEqualTo(doubleValue);
+            } else if (value instanceof Boolean bool) {
+                assertThat(reader.readBoolean()).isEqualTo(bool);
+            } else if (value == null) {
+                assertThat(reader.nextType()).isEqualTo(ValueType.NIL);
+                reader.readNil();
+            } else {
+                assertThat(reader.nextType()).isEqualTo(ValueType.STRING);
+                assertThat(reader.readString()).isEqualTo(value);
+            }
+        }
+        assertThat(reader.hasNext()).isFalse();
+    }
+
+    @Test
+    void nested() {
+        Map<String, Object> map = new TreeMap<>(Map.of(
+                "a", List.of(1, List.of(2, 3), Map.of("x", "y")),
+                "b", new byte[]{1, 2, 3},
+                "c", "city"));
+        byte[] bytes = Packer.pack(map, MapOrder.KEY_ORDERED);
+        MsgPackReader reader = new MsgPackReader(bytes);
+
+        assertThat(reader.enterMap()).isEqualTo(3);
+        assertThat(reader.getFlags()).isEqualTo(MapOrder.KEY_ORDERED.attributes);
+        assertThat(reader.readString()).isEqualTo("a");
+        reader.skipValue();
+        assertThat(reader.readString()).isEqualTo("b");
+        assertThat(reader.nextType()).isEqualTo(ValueType.BYTES);
+        int length = reader.readRawLength();
+        assertThat(length).isEqualTo(3);
+        assertThat(reader.getByte(reader.getPosition() + 2)).isEqualTo((byte) 3);
+        reader.skipBytes(length);
+
+        assertThat(reader.readRawLength()).isEqualTo(1);
+        assertThat(reader.contentEquals("c".getBytes(StandardCharsets.UTF_8), 1)).isTrue();
+        reader.skipBytes(1);
+        int position = reader.getPosition();
+        assertThat(reader.readString()).isEqualTo("city");
+
+        reader.setPosition(position);
+        reader.skipValue();
+        assertThat(reader.hasNext()).isFalse();
+    }
+
+    @Test
+    void directByteBuffer() {
+        byte[] bytes = Packer.pack(List.of(7, "seven"));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2);
+        buffer.position(2);
+        buffer.put(bytes);
+        buffer.position(2);
+        MsgPackReader reader = new MsgPackReader(buffer);
+
+        assertThat(reader.enterArray()).isEqualTo(2);
+        assertThat(reader.readLong()).isEqualTo(7);
+        assertThat(reader.readString()).isEqualTo("seven");
+        assertThat(buffer.position()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidInput() {
+        byte[] bytes = Packer.pack(List.of("abc"));
+        MsgPackReader truncated = new MsgPackReader(bytes, 0, bytes.length - 1);
+        truncated.enterArray();
+
+        assertThatThrownBy(truncated::skipValue)
+                .isInstanceOf(AerospikeException.Serialize.class)
+                .hasMessageContaining("Unexpected end of input");
+        assertThatThrownBy(() -> new MsgPackReader(bytes).readLong())
+                .isInstanceOf(AerospikeException.Serialize.class)
+                .hasMessageContaining("Expected INTEGER but found ARRAY");
+    }
+
+    @Test
+    void ctxFromBytes() {
+        CTX[] ctx = {CTX.mapKey(Value.get("a")), CTX.listIndex(-1), CTX.listValue(Value.get(List.of(1, 2))),
+                CTX.mapValue(Value.get(2.5))};
+
+        CTX[] decoded = CTX.fromBytes(CTX.toBytes(ctx));
+
+        assertThat(decoded).hasSize(ctx.length);
+        for (int i = 0; i < ctx.length; i++) {
+            assertThat(decoded[i].id).isEqualTo(ctx[i].id);
+            assertThat(decoded[i].value.toString()).isEqualTo(ctx[i].value.toString());
+        }
+    }
+}
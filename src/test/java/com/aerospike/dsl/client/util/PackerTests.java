@@ -0,0 +1,154 @@
+package com.aerospike.dsl.client.util;
+
+import com.aerospike.dsl.client.Value;
+import com.aerospike.dsl.client.cdt.CTX;
+import com.aerospike.dsl.client.cdt.ListReturnType;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.ListExp;
+import com.aerospike.dsl.client.query.Filter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PackerTests {
+
+    private static final Exp EXP = Exp.and(
+            Exp.eq(Exp.stringBin("name"), Exp.val("Zoë ".repeat(100))),
+            Exp.gt(Exp.floatBin("score"), Exp.val(1.5)),
+            Exp.lt(Exp.intBin("count"), Exp.val(Long.MAX_VALUE)),
+            Exp.eq(ListExp.getByIndex(ListReturnType.VALUE, Exp.Type.STRING, Exp.val(-1), Exp.listBin("tags"),
+                    CTX.mapKey(Value.get("key"))), Exp.val("last")),
+            Exp.eq(Exp.blobBin("blob"), Exp.val(new byte[300])),
+            Exp.eq(Exp.listBin("list"), Exp.val(List.of(1, "two", 3.0, Map.of("k", true)))));
+
+    @Test
+    void heapBuffer() {
+        byte[] expected = Exp.build(EXP).getBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+
+        ByteBuffer result = Exp.build(EXP, buffer);
+
+        assertThat(result).isSameAs(buffer);
+        assertThat(result.position()).isEqualTo(expected.length);
+        assertThat(result.array()).isEqualTo(expected);
+    }
+
+    @Test
+    void directBuffer() {
+        byte[] expected = Exp.build(EXP).getBytes();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length + 10);
+
+        ByteBuffer result = Exp.build(EXP, buffer);
+
+        assertThat(result).isSameAs(buffer);
+        assertThat(toBytes(result, 0)).isEqualTo(expected);
+    }
+
+    @Test
+    void growBuffer() {
+        byte[] expected = Exp.build(EXP).getBytes();
+
+        ByteBuffer heap = Exp.build(EXP, ByteBuffer.allocate(8).position(3));
+        assertThat(heap.isDirect()).isFalse();
+        assertThat(toBytes(heap, 3)).isEqualTo(expected);
+
+        ByteBuffer direct = Exp.build(EXP, ByteBuffer.allocateDirect(8).position(3));
+        assertThat(direct.isDirect()).isTrue();
+        assertThat(toBytes(direct, 3)).isEqualTo(expected);
+    }
+
+    @Test
+    void byteOrderKept() {
+        byte[] expected = Exp.build(EXP).getBytes();
+
+        ByteBuffer buffer = Exp.build(EXP, ByteBuffer.allocate(expected.length + 4).order(ByteOrder.LITTLE_ENDIAN));
+        assertThat(buffer.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(1);
+        assertThat(buffer.get(expected.length)).isEqualTo((byte) 1);
+
+        ByteBuffer grown = Exp.build(EXP, ByteBuffer.allocateDirect(8).order(ByteOrder.LITTLE_ENDIAN));
+        assertThat(grown.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+        assertThat(toBytes(grown, 0)).isEqualTo(expected);
+    }
+
+    @Test
+    void sizeAndByteArray() {
+        Packer packer = new Packer(ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).position(5));
+        packer.packArrayBegin(3);
+        packer.packParticleString("ascii");
+        packer.packLong(-123456789012L);
+        packer.packDouble(2.25);
+
+        byte[] expected = Packer.pack(Arrays.asList("ascii", -123456789012L, 2.25));
+        assertThat(packer.size()).isEqualTo(expected.length);
+        assertThat(packer.toByteArray()).isEqualTo(expected);
+    }
+
+    @Test
+    void ctxToBytes() {
+        CTX[] ctx = {CTX.listIndex(-1), CTX.mapKey(Value.get("ключ")), CTX.mapValue(Value.get(3.5))};
+
+        ByteBuffer buffer = CTX.toBytes(ctx, ByteBuffer.allocateDirect(4));
+
+        assertThat(toBytes(buffer, 0)).isEqualTo(CTX.toBytes(ctx));
+    }
+
+    @Test
+    void filterWrite() {
+        for (Filter filter : List.of(Filter.range("intBin", -5, Long.MAX_VALUE), Filter.equal("strBin", "ключ"),
+                Filter.equal("blobBin", new byte[]{1, 2, 3}))) {
+            byte[] bytes = new byte[100];
+            byte[] expected = Arrays.copyOf(bytes, filter.write(bytes, 0));
+
+            ByteBuffer heap = filter.write(ByteBuffer.allocate(100).position(2));
+            assertThat(toBytes(heap, 2)).isEqualTo(expected);
+
+            ByteBuffer direct = filter.write(ByteBuffer.allocateDirect(4).position(2));
+            assertThat(direct.isDirect()).isTrue();
+            assertThat(toBytes(direct, 2)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void sizer() {
+        Packer packer = new Packer();
+        EXP.pack(packer);
+        byte[] expected = packer.toByteArray();
+
+        Packer sizer = Packer.sizer();
+        EXP.pack(sizer);
+        assertThat(sizer.size()).isEqualTo(expected.length);
+
+        sizer.createBuffer();
+        EXP.pack(sizer);
+        byte[] bytes = sizer.toByteArray();
+        assertThat(bytes).isEqualTo(expected);
+        assertThat(sizer.toByteArray()).isSameAs(bytes);
+        assertThat(Exp.build(EXP).getBytes()).isEqualTo(expected);
+        assertThat(Exp.buildExact(EXP).getBytes()).isEqualTo(expected);
+    }
+
+    @Test
+    void sizerMisuse() {
+        Packer sizer = Packer.sizer();
+        sizer.packNil();
+
+        assertThatThrownBy(sizer::toByteArray).isInstanceOf(IllegalStateException.class);
+        sizer.createBuffer();
+        assertThatThrownBy(sizer::createBuffer).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new Packer().createBuffer()).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer, int start) {
+        byte[] bytes = new byte[buffer.position() - start];
+        buffer.get(start, bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.aerospike.dsl.evaluator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.aerospike.dsl.util.TestUtils.assertSameResultAsInterpreter;
+import static com.aerospike.dsl.util.TestUtils.getEvaluator;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchPredicateTests {
+
+    private static final int SIZE = 130;
+
+    private static final List<String> EXPRESSIONS = List.of(
+            "$.a > 3",
+            "$.a == 5 and $.b >= 10",
+            "$.a < 3 or $.b == -1",
+            "not($.a > 3)",
+            "$.a != 7",
+            "$.a <= $.b",
+            "$.a + 1 > 5",
+            "$.a * 2 == $.b",
+            "$.a * $.a > 1000",
+            "$.a - $.b < 0",
+            "$.b / $.b == 1",
+            "max($.a, $.b) == 10",
+            "$.f > 1.0",
+            "$.f * 2.0 == 3.0",
+            "$.f + $.f < 0.0",
+            "$.f == 0.0",
+            "$.f >= 0.0",
+            "$.f != 0.0",
+            "$.a in [1, 5, 9]",
+            "$.s in ['x', 'z']",
+            "$.flag",
+            "$.s == 'x' and $.a > 1",
+            "$.a > 3 and $.missing > 1",
+            "$.missing > 1 or $.a > 3",
+            "exclusive($.a > 3, $.b > 3)",
+            "when ($.a > 3 => true, default => false)"
+    );
+
+    private static final ColumnBatch BATCH;
+    private static final List<LocalRecord> RECORDS;
+
+    static {
+        long[] a = new long[SIZE];
+        long[] b = new long[SIZE];
+        double[] f = new double[SIZE];
+        Object[] s = new Object[SIZE];
+        Object[] flag = new Object[SIZE];
+        BitSet bPresent = new BitSet();
+        RECORDS = new ArrayList<>();
+        for (int row = 0; row < SIZE; row++) {
+            a[row] = row % 3 == 0 ? Long.MAX_VALUE - row : row % 11;
+            b[row] = row % 5 - 1 + (row % 7 == 0 ? 10 : 0);
+            f[row] = row % 4 == 0 ? Double.MAX_VALUE : (row % 9) / 2.0 - 1;
+            if (row % 13 == 5) f[row] = Double.NaN;
+            if (row % 13 == 6) f[row] = -0.0;
+            s[row] = row % 6 == 0 ? null : (row % 2 == 0 ? "x" : "y");
+            flag[row] = row % 4 == 1 ? null : row % 3 == 1;
+            if (row % 8 != 3) bPresent.set(row);
+
+            Map<String, Object> bins = new HashMap<>();
+            bins.put("a", a[row]);
+            if (bPresent.get(row)) bins.put("b", b[row]);
+            bins.put("f", f[row]);
+            if (s[row] != null) bins.put("s", s[row]);
+            if (flag[row] != null) bins.put("flag", flag[row]);
+            RECORDS.add(LocalRecord.of(bins));
+        }
+        BATCH = ColumnBatch.builder(SIZE)
+                .longColumn("a", a)
+                .longColumn("b", b, bPresent)
+                .doubleColumn("f", f)
+                .objectColumn("s", s)
+                .objectColumn("flag", flag)
+                .build();
+    }
+
+    @Test
+    void sameResultAsInterpreter() {
+        assertSameResultAsInterpreter(EXPRESSIONS, RECORDS, evaluator -> {
+            BitSet selected = evaluator.compileBatch().select(BATCH);
+            return localRecord -> selected.get(RECORDS.indexOf(localRecord));
+        });
+    }
+
+    @Test
+    void emptyBatch() {
+        ColumnBatch batch = ColumnBatch.builder(0).longColumn("a", new long[0]).build();
+
+        assertThat(getEvaluator("$.a > 3").compileBatch().select(batch).isEmpty()).isTrue();
+    }
+
+    @Test
+    void shortColumn() {
+        ColumnBatch.Builder builder = ColumnBatch.builder(10);
+
+        assertThatThrownBy(() -> builder.longColumn("a", new long[5]))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Column of bin 'a' must have at least 10 values");
+    }
+}
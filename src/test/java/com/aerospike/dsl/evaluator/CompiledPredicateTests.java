@@ -0,0 +1,113 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.exp.Exp;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.aerospike.dsl.util.TestUtils.assertSameResultAsInterpreter;
+import static com.aerospike.dsl.util.TestUtils.getEvaluator;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompiledPredicateTests {
+
+    private static final List<LocalRecord> RECORDS = List.of(
+            LocalRecord.of(Map.of("a", 5, "b", 10L, "f", 1.5, "s", "x", "flag", true,
+                    "list", List.of(1, 2, 3), "map", Map.of("k", 7))),
+            LocalRecord.of(Map.of("a", Long.MAX_VALUE, "b", -1, "f", -2.0, "s", "y", "flag", false,
+                    "list", List.of(), "map", Map.of())),
+            LocalRecord.of(Map.of("a", "not a number", "b", 0, "f", 7, "s", 1)),
+            LocalRecord.of(Map.of())
+    );
+
+    private static final List<String> EXPRESSIONS = List.of(
+            "$.a > 3",
+            "$.a == 5 and $.b >= 10",
+            "$.a < 3 or $.b == -1",
+            "not($.a > 3)",
+            "$.a + 1 > 5",
+            "$.a * 2 == $.b",
+            "$.a - $.b < 0",
+            "$.b / $.b == 1",
+            "$.a % 3 == 2",
+            "abs($.b) == 1",
+            "max($.a, $.b) == 10",
+            "$.f > 1.0",
+            "$.f * 2.0 == 3.0",
+            "$.f.asInt() == 1",
+            "$.a.asFloat() > 4.5",
+            "$.a in [1, 5, 9]",
+            "$.b in [10, 20]",
+            "$.s in ['x', 'z']",
+            "$.flag",
+            "$.flag == true",
+            "exclusive($.a > 3, $.b > 3)",
+            "$.list.[0] == 1",
+            "$.list.[].count() > 2",
+            "$.map.k == 7",
+            "$.map.k + 1 == 8",
+            "$.s == 'x' and $.a > 1",
+            "($.a & 4) == 4",
+            "$.a << 1 == 10",
+            "~$.a == -6",
+            "$.a >> 1 == 2",
+            "$.a >>> 1 == 2",
+            "($.a | 2) == 7 and ($.a ^ 1) == 4",
+            "-$.b < 0",
+            "$.a / 0 == 1",
+            "$.f / 0.0 > 1.0",
+            "$.f ** 2.0 > 2.0",
+            "$.a > 3 and $.b > 3 and $.f > 1.0 and $.s == 'x'",
+            "$.a > 100 or $.b > 100 or $.f > 1.0",
+            "exclusive($.a > 3, $.b > 3, $.f > 1.0)",
+            "not(not($.a > 3))",
+            "$.ttl() > 10",
+            "$.digestModulo(3) == 1",
+            "let (x = $.a) then (${x} > 1)",
+            "when ($.a > 3 => true, default => false)"
+    );
+
+    @Test
+    void sameResultAsInterpreter() {
+        assertSameResultAsInterpreter(EXPRESSIONS, RECORDS, ExpressionEvaluator::compile);
+    }
+
+    @Test
+    void unknownResults() {
+        CompiledPredicate overflow = ExpressionEvaluator.of(
+                Exp.gt(Exp.add(Exp.intBin("a"), Exp.val(1)), Exp.val(0))).compile();
+        assertThat(overflow.test(RECORDS.get(0))).isTrue();
+        assertThat(overflow.test(RECORDS.get(1))).isFalse();
+
+        // not(unknown) is unknown, so the record does not pass either way
+        CompiledPredicate missingBin = getEvaluator("not($.missing > 1)").compile();
+        assertThat(missingBin.test(RECORDS.get(0))).isFalse();
+        assertThat(getEvaluator("$.missing > 1").compile().test(RECORDS.get(0))).isFalse();
+    }
+
+    @Test
+    void floatComparisons() {
+        LocalRecord negativeZero = LocalRecord.of(Map.of("f", -0.0));
+        assertThat(getEvaluator("$.f == 0.0").compile().test(negativeZero)).isTrue();
+        assertThat(getEvaluator("$.f < 0.0").compile().test(negativeZero)).isFalse();
+
+        LocalRecord nan = LocalRecord.of(Map.of("f", Double.NaN));
+        for (String dsl : List.of("$.f == 1.0", "$.f > 1.0", "$.f >= 1.0", "$.f < 1.0", "$.f <= 1.0")) {
+            assertThat(getEvaluator(dsl).compile().test(nan)).as(dsl).isFalse();
+        }
+        assertThat(getEvaluator("$.f != 1.0").compile().test(nan)).isTrue();
+    }
+
+    @Test
+    void in() {
+        CompiledPredicate predicate = getEvaluator("$.a in [9, 1, 5, 3]").compile();
+        Map<String, Object> bins = new HashMap<>();
+
+        for (int a = 0; a < 10; a++) {
+            bins.put("a", a);
+            assertThat(predicate.test(LocalRecord.of(bins))).isEqualTo(a == 1 || a == 3 || a == 5 || a == 9);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.Value;
+import com.aerospike.dsl.client.cdt.CTX;
+import com.aerospike.dsl.client.cdt.ListReturnType;
+import com.aerospike.dsl.client.cdt.MapReturnType;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.ListExp;
+import com.aerospike.dsl.client.exp.MapExp;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpressionEvaluatorTests {
+
+    private static final DSLParserImpl parser = new DSLParserImpl();
+    private static final LocalRecord RECORD = LocalRecord.of(Map.of(
+            "age", 30,
+            "name", "Alice",
+            "score", 7.5,
+            "active", true,
+            "tags", List.of("a", "b", "c"),
+            "scores", List.of(5, 1, 9, 3),
+            "nested", List.of(List.of(1, 2), List.of(3, List.of(4, 5))),
+            "profile", Map.of("city", "Paris", "zip", 75001, "address", Map.of("street", "Main", "number", 12))
+    ));
+
+    private static Object evaluate(String dsl) {
+        return evaluate(dsl, RECORD);
+    }
+
+    private static Object evaluate(String dsl, LocalRecord localRecord) {
+        return ExpressionEvaluator.of(parser.parseExpression(ExpressionContext.of(dsl))).evaluate(localRecord);
+    }
+
+    @Test
+    void comparisons() {
+        assertThat(evaluate("$.age > 18")).isEqualTo(true);
+        assertThat(evaluate("$.age == 30 and $.name == 'Alice'")).isEqualTo(true);
+        assertThat(evaluate("$.score < 7.0")).isEqualTo(false);
+        assertThat(evaluate("$.active == true")).isEqualTo(true);
+        assertThat(evaluate("$.name > 'Bob'")).isEqualTo(false);
+        assertThat(evaluate("$.name != 'Bob' or $.age < 0")).isEqualTo(true);
+    }
+
+    @Test
+    void floatComparisons() {
+        LocalRecord negativeZero = LocalRecord.of(Map.of("f", -0.0));
+        assertThat(evaluate("$.f == 0.0", negativeZero)).isEqualTo(true);
+        assertThat(evaluate("$.f < 0.0", negativeZero)).isEqualTo(false);
+        assertThat(evaluate("$.f >= 0.0", negativeZero)).isEqualTo(true);
+
+        LocalRecord nan = LocalRecord.of(Map.of("f", Double.NaN));
+        for (String dsl : List.of("$.f == 1.0", "$.f > 1.0", "$.f >= 1.0", "$.f < 1.0", "$.f <= 1.0")) {
+            assertThat(evaluate(dsl, nan)).as(dsl).isEqualTo(false);
+        }
+        assertThat(evaluate("$.f != 1.0", nan)).isEqualTo(true);
+    }
+
+    @Test
+    void arithmetic() {
+        assertThat(evaluate("($.age + 5) * 2 == 70")).isEqualTo(true);
+        assertThat(evaluate("$.age / 4 == 7")).isEqualTo(true);
+        assertThat(evaluate("$.age % 7 == 2")).isEqualTo(true);
+        assertThat(evaluate("$.score * 2.0 == 15.0")).isEqualTo(true);
+
+        ExpressionEvaluator overflow = ExpressionEvaluator.of(
+                Exp.add(Exp.intBin("age"), Exp.val(Long.MAX_VALUE)));
+        assertThat(overflow.evaluate(RECORD)).isSameAs(ExpressionEvaluator.UNKNOWN);
+        ExpressionEvaluator divisionByZero = ExpressionEvaluator.of(Exp.div(Exp.intBin("age"), Exp.val(0)));
+        assertThat(divisionByZero.evaluate(RECORD)).isSameAs(ExpressionEvaluator.UNKNOWN);
+        assertThat(ExpressionEvaluator.of(Exp.rshift(Exp.val(-1L), Exp.val(60))).evaluate(RECORD))
+                .isEqualTo(15L);
+        assertThat(ExpressionEvaluator.of(Exp.lscan(Exp.val(1L), Exp.val(true))).evaluate(RECORD))
+                .isEqualTo(63L);
+    }
+
+    @Test
+    void missingBin() {
+        assertThat(evaluate("$.missing > 1")).isSameAs(ExpressionEvaluator.UNKNOWN);
+        assertThat(evaluate("$.missing > 1 and $.age > 1")).isSameAs(ExpressionEvaluator.UNKNOWN);
+        assertThat(evaluate("$.age < 1 and $.missing > 1")).isEqualTo(false);
+        assertThat(evaluate("$.age > 1 or $.missing > 1")).isEqualTo(true);
+        assertThat(evaluate("not($.missing > 1)")).isSameAs(ExpressionEvaluator.UNKNOWN);
+
+        ExpressionEvaluator evaluator = ExpressionEvaluator.of(
+                parser.parseExpression(ExpressionContext.of("$.missing > 1")));
+        assertThat(evaluator.test(RECORD)).isFalse();
+    }
+
+    @Test
+    void binOfAnotherType() {
+        assertThat(evaluate("$.name > 1")).isSameAs(ExpressionEvaluator.UNKNOWN);
+        assertThat(evaluate("$.age.get(type: STRING) == 'x'")).isSameAs(ExpressionEvaluator.UNKNOWN);
+    }
+
+    @Test
+    void listPaths() {
+        assertThat(evaluate("$.scores.[0] == 5")).isEqualTo(true);
+        assertThat(evaluate("$.scores.[-1] == 3")).isEqualTo(true);
+        assertThat(evaluate("$.scores.[#-1] == 9")).isEqualTo(true);
+        assertThat(evaluate("$.scores.[=9].count() == 1")).isEqualTo(true);
+        assertThat(evaluate("$.scores.[].count() == 4")).isEqualTo(true);
+        assertThat(evaluate("$.nested.[1].[1].[0] == 4")).isEqualTo(true);
+        assertThat(evaluate("$.tags.[1] == 'b'")).isEqualTo(true);
+        assertThat(evaluate("$.scores.[10] == 1")).isSameAs(ExpressionEvaluator.UNKNOWN);
+    }
+
+    @Test
+    void mapPaths() {
+        assertThat(evaluate("$.profile.city == 'Paris'")).isEqualTo(true);
+        assertThat(evaluate("$.profile.zip == 75001")).isEqualTo(true);
+        assertThat(evaluate("$.profile.address.number == 12")).isEqualTo(true);
+        assertThat(evaluate("$.profile.{}.count() == 3")).isEqualTo(true);
+        assertThat(evaluate("$.profile.{0} == 'Main'")).isSameAs(ExpressionEvaluator.UNKNOWN);
+        assertThat(evaluate("$.profile.{1} == 'Paris'")).isEqualTo(true);
+        assertThat(evaluate("$.profile.missing == 1")).isSameAs(ExpressionEvaluator.UNKNOWN);
+    }
+
+    @Test
+    void listAndMapOperations() {
+        LocalRecord localRecord = LocalRecord.of(Map.of("list", List.of(0, 4, 5, 9, 11, 15),
+                "map", Map.of("a", 3, "b", 1, "c", 2)));
+
+        assertThat(ExpressionEvaluator.of(ListExp.getByValueRelativeRankRange(ListReturnType.VALUE, Exp.val(5),
+                Exp.val(-1), Exp.val(2), Exp.listBin("list"))).evaluate(localRecord)).isEqualTo(List.of(4L, 5L));
+        assertThat(ExpressionEvaluator.of(ListExp.getByValueRelativeRankRange(ListReturnType.VALUE, Exp.val(3),
+                Exp.val(-3), Exp.val(2), Exp.listBin("list"))).evaluate(localRecord)).isEqualTo(List.of());
+        assertThat(ExpressionEvaluator.of(ListExp.getByValueRange(ListReturnType.COUNT, Exp.val(5), Exp.val(11),
+                Exp.listBin("list"))).evaluate(localRecord)).isEqualTo(2L);
+        assertThat(ExpressionEvaluator.of(ListExp.getByIndexRange(ListReturnType.VALUE | ListReturnType.INVERTED,
+                Exp.val(1), Exp.val(4), Exp.listBin("list"))).evaluate(localRecord)).isEqualTo(List.of(0L, 15L));
+        assertThat(ExpressionEvaluator.of(MapExp.getByRank(MapReturnType.KEY, Exp.Type.STRING, Exp.val(-1),
+                Exp.mapBin("map"))).evaluate(localRecord)).isEqualTo("a");
+        assertThat(ExpressionEvaluator.of(MapExp.getByKeyRange(MapReturnType.VALUE, Exp.val("b"), null,
+                Exp.mapBin("map"))).evaluate(localRecord)).isEqualTo(List.of(1L, 2L));
+        assertThat(ExpressionEvaluator.of(MapExp.getByValue(MapReturnType.EXISTS, Exp.val(2), Exp.mapBin("map"),
+                CTX.mapKey(Value.get("x")))).evaluate(localRecord))
+                .isSameAs(ExpressionEvaluator.UNKNOWN);
+    }
+
+    @Test
+    void in() {
+        assertThat(evaluate("'b' in $.tags")).isEqualTo(true);
+        assertThat(evaluate("$.age in [10, 20, 30]")).isEqualTo(true);
+        assertThat(evaluate("$.name in ['Bob', 'Carol']")).isEqualTo(false);
+    }
+
+    @Test
+    void controlStructures() {
+        assertThat(evaluate("let (x = $.age, y = ${x} + 1) then (${x} + ${y} == 61)")).isEqualTo(true);
+        assertThat(evaluate("when ($.age < 18 => 'minor', $.age < 65 => 'adult', default => 'senior') == 'adult'"))
+                .isEqualTo(true);
+        assertThat(evaluate("exclusive($.age > 18, $.name == 'Alice')")).isEqualTo(false);
+        assertThat(evaluate("exclusive($.age > 18, $.name == 'Bob')")).isEqualTo(true);
+    }
+
+    @Test
+    void metadata() {
+        LocalRecord localRecord = new LocalRecord() {
+            @Override
+            public Object getBin(String name) {
+                return null;
+            }
+
+            @Override
+            public String getSetName() {
+                return "users";
+            }
+
+            @Override
+            public Long getTtl() {
+                return 3600L;
+            }
+
+            @Override
+            public Long getDigestModulo(int modulo) {
+                return 5L % modulo;
+            }
+        };
+
+        assertThat(evaluate("$.setName() == 'users' and $.ttl() < 86400", localRecord)).isEqualTo(true);
+        assertThat(evaluate("$.digestModulo(3) == 2", localRecord)).isEqualTo(true);
+        assertThat(evaluate("$.keyExists()", localRecord)).isEqualTo(false);
+        assertThat(evaluate("$.voidTime() == -1", localRecord)).isSameAs(ExpressionEvaluator.UNKNOWN);
+    }
+
+    @Test
+    void placeholders() {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of("$.age > ?0 and $.name == ?1"));
+
+        assertThat(ExpressionEvaluator.of(parsed, PlaceholderValues.of(18, "Alice")).test(RECORD)).isTrue();
+        assertThat(ExpressionEvaluator.of(parsed, PlaceholderValues.of(40, "Alice")).test(RECORD)).isFalse();
+    }
+
+    @Test
+    void optimized() {
+        DSLParserImpl optimizingParser = DSLParserImpl.builder().optimizer(ExpressionOptimizer.defaults()).build();
+        ParsedExpression parsed = optimizingParser.parseExpression(
+                ExpressionContext.of("$.age > 18 and $.age < 65 and 2 * 3 == 6"));
+
+        assertThat(ExpressionEvaluator.of(parsed).test(RECORD)).isTrue();
+    }
+
+    @Test
+    void secondaryIndexFilter() {
+        IndexContext indexes = IndexContext.of(NAMESPACE, List.of(
+                Index.builder().namespace(NAMESPACE).bin("age").indexType(IndexType.NUMERIC).binValuesRatio(1).build()));
+        ParsedExpression parsed = parser.parseExpression(
+                ExpressionContext.of("$.age > 18 and $.name == 'Alice'"), indexes);
+        assertThat(parsed.getResult().getFilter()).isNotNull();
+
+        ExpressionEvaluator evaluator = ExpressionEvaluator.of(parsed);
+        assertThat(evaluator.test(RECORD)).isTrue();
+        assertThat(evaluator.test(LocalRecord.of(Map.of("age", 10, "name", "Alice")))).isFalse();
+        assertThat(evaluator.test(LocalRecord.of(Map.of("age", 20, "name", "Bob")))).isFalse();
+        assertThat(evaluator.test(LocalRecord.of(Map.of("name", "Alice")))).isFalse();
+    }
+
+    @Test
+    void unsupported() {
+        assertThatThrownBy(() -> ExpressionEvaluator.of(Exp.geoCompare(Exp.geoBin("location"),
+                Exp.geo("{\"type\":\"Point\",\"coordinates\":[0,0]}"))))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
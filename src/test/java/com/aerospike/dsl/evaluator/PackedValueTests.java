@@ -0,0 +1,84 @@
+package com.aerospike.dsl.evaluator;
+
+import com.aerospike.dsl.client.cdt.MapOrder;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.util.Packer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.aerospike.dsl.util.TestUtils.assertSameResults;
+import static com.aerospike.dsl.util.TestUtils.getEvaluator;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PackedValueTests {
+
+    private static final Map<String, Object> PROFILE = Map.of(
+            "name", "Ann",
+            "address", Map.of("city", "Paris", "zip", 75001, "lines", List.of("Main", "Apt 2")),
+            "scores", List.of(5, -3, 9, 1),
+            "tags", List.of("a", "b", "ü"),
+            "nested", List.of(List.of(1, 2), List.of(3, List.of(4, 5)), Map.of("k", "seven")),
+            "ratio", 0.5
+    );
+
+    private static final List<String> EXPRESSIONS = List.of(
+            "$.profile.address.city == 'Paris'",
+            "$.profile.address.city == 'London'",
+            "$.profile.address.zip == 75001",
+            "$.profile.address.missing == 1",
+            "$.profile.address.lines.[1] == 'Apt 2'",
+            "$.profile.address.lines.[-1] == 'Apt 2'",
+            "$.profile.address.lines.[5] == 'Apt 2'",
+            "$.profile.scores.[0] == 5",
+            "$.profile.scores.[-1] == 1",
+            "$.profile.scores.[#-1] == 9",
+            "$.profile.scores.[=9].count() == 1",
+            "$.profile.scores.[].count() == 4",
+            "$.profile.tags.[2] == 'ü'",
+            "$.profile.nested.[1].[1].[0] == 4",
+            "$.profile.nested.[2].k == 'seven'",
+            "$.profile.{0}.city == 'Paris'",
+            "$.profile.{}.count() == 6",
+            "$.profile.ratio > 0.1",
+            "$.profile.name.[0] == 'A'"
+    );
+
+    @Test
+    void sameResultAsUnpacked() {
+        LocalRecord unpacked = LocalRecord.of(Map.of("profile", PROFILE));
+        LocalRecord unordered = LocalRecord.of(Map.of("profile", PackedValue.of(Packer.pack(PROFILE,
+                MapOrder.UNORDERED))));
+        LocalRecord ordered = LocalRecord.of(Map.of("profile", PackedValue.of(Packer.pack(new TreeMap<>(PROFILE),
+                MapOrder.KEY_ORDERED))));
+
+        assertSameResults(EXPRESSIONS, List.of(unordered, ordered),
+                evaluator -> localRecord -> evaluator.evaluate(unpacked), evaluator -> evaluator::evaluate);
+    }
+
+    @Test
+    void wholeValue() {
+        byte[] bytes = Packer.pack(List.of(1, 2, 3));
+        LocalRecord localRecord = LocalRecord.of(Map.of("list", PackedValue.of(bytes)));
+
+        assertThat(ExpressionEvaluator.of(Exp.eq(Exp.listBin("list"), Exp.val(List.of(1, 2, 3)))).test(localRecord))
+                .isTrue();
+        assertThat(getEvaluator("$.list.[1] == 2").test(localRecord)).isTrue();
+        assertThat(getEvaluator("$.list.{0} == 1").test(localRecord)).isFalse();
+    }
+
+    @Test
+    void slice() {
+        byte[] packed = Packer.pack(List.of(10, 20));
+        byte[] bytes = new byte[packed.length + 4];
+        System.arraycopy(packed, 0, bytes, 2, packed.length);
+        LocalRecord localRecord = LocalRecord.of(Map.of("list", PackedValue.of(bytes, 2, packed.length)));
+
+        assertThat(getEvaluator("$.list.[-1] == 20").test(localRecord)).isTrue();
+        assertThatThrownBy(() -> PackedValue.of(bytes, 2, bytes.length))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
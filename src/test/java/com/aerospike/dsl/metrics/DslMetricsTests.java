@@ -0,0 +1,99 @@
+package com.aerospike.dsl.metrics;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.impl.ParseCache;
+import com.aerospike.dsl.metrics.DslMetrics.Distribution;
+import com.aerospike.dsl.metrics.DslMetrics.Phase;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DslMetricsTests {
+
+    private static class RecordingMetrics implements DslMetrics {
+
+        private final Map<Phase, Integer> phaseCounts = new EnumMap<>(Phase.class);
+        private final Map<Distribution, List<Long>> distributions = new EnumMap<>(Distribution.class);
+
+        @Override
+        public void recordPhase(Phase phase, long durationNanos) {
+            assertThat(durationNanos).isNotNegative();
+            phaseCounts.merge(phase, 1, Integer::sum);
+        }
+
+        @Override
+        public void recordDistribution(Distribution distribution, long value) {
+            distributions.computeIfAbsent(distribution, ignored -> new ArrayList<>()).add(value);
+        }
+    }
+
+    @Test
+    void allPhasesRecorded() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        DSLParserImpl parser = DSLParserImpl.builder()
+                .optimizer(ExpressionOptimizer.defaults())
+                .metrics(metrics)
+                .build();
+        String dsl = "$.intBin1 > ?0 and $.strBin1 == 'x'";
+        IndexContext indexContext = IndexContext.of(NAMESPACE, List.of(Index.builder().namespace(NAMESPACE)
+                .bin("intBin1").indexType(IndexType.NUMERIC).binValuesRatio(1).build()));
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of(dsl), indexContext);
+        Expression expression = parsed.getExpression(PlaceholderValues.of(10));
+
+        assertThat(metrics.phaseCounts).containsOnlyKeys(Phase.values());
+        assertThat(metrics.phaseCounts.get(Phase.PARSE)).isEqualTo(1);
+        assertThat(metrics.phaseCounts.get(Phase.BUILD_TREE)).isEqualTo(1);
+        // After parsing and after resolving the placeholder
+        assertThat(metrics.phaseCounts.get(Phase.OPTIMIZE)).isEqualTo(2);
+        assertThat(metrics.distributions.get(Distribution.INPUT_LENGTH)).containsExactly((long) dsl.length());
+        assertThat(metrics.distributions.get(Distribution.TREE_SIZE).get(0)).isPositive();
+        assertThat(metrics.distributions.get(Distribution.PACKED_SIZE))
+                .containsExactly((long) expression.getBytes().length);
+    }
+
+    @Test
+    void templateBindingRecordedAsPacking() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        DSLParserImpl parser = DSLParserImpl.builder().parseCache(ParseCache.of(10, 1 << 20)).metrics(metrics)
+                .build();
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of("$.intBin1 > ?0"));
+        parsed.getExpression(PlaceholderValues.of(1));
+        parsed.getExpression(PlaceholderValues.of(2));
+        parser.parseExpression(ExpressionContext.of("$.intBin1 > ?0"));
+
+        // Parsed once, the second input is found in the parse cache
+        assertThat(metrics.phaseCounts.get(Phase.PARSE)).isEqualTo(1);
+        assertThat(metrics.distributions.get(Distribution.INPUT_LENGTH)).hasSize(2);
+        assertThat(metrics.phaseCounts.get(Phase.PACK)).isEqualTo(2);
+        assertThat(metrics.distributions.get(Distribution.PACKED_SIZE)).hasSize(2);
+    }
+
+    @Test
+    void disabledMetricsNotRecorded() {
+        RecordingMetrics metrics = new RecordingMetrics() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        };
+        DSLParserImpl parser = DSLParserImpl.builder().metrics(metrics).build();
+        parser.parseExpression(ExpressionContext.of("$.intBin1 > 1")).getExpression();
+
+        assertThat(metrics.phaseCounts).isEmpty();
+        assertThat(metrics.distributions).isEmpty();
+    }
+}
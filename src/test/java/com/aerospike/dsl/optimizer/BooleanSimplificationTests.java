@@ -0,0 +1,160 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.util.TestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BooleanSimplificationTests {
+
+    private static final DSLParserImpl parser = DSLParserImpl.builder()
+            .optimizer(ExpressionOptimizer.of(new BooleanSimplification()))
+            .build();
+
+    private static OptimizationReport assertSimplified(String dsl, Exp expected) {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of(dsl));
+        assertThat(Exp.build(parsed.getResult().getExp())).isEqualTo(Exp.build(expected));
+        return parsed.getOptimizationReport();
+    }
+
+    @Test
+    void flattening() {
+        OptimizationReport report = assertSimplified("$.a == 1 and ($.b == 2 and ($.c == 3 and $.d == 4))",
+                Exp.and(
+                        Exp.eq(Exp.intBin("a"), Exp.val(1)),
+                        Exp.eq(Exp.intBin("b"), Exp.val(2)),
+                        Exp.eq(Exp.intBin("c"), Exp.val(3)),
+                        Exp.eq(Exp.intBin("d"), Exp.val(4))));
+        assertThat(report.get(BooleanSimplification.FLATTENED_NODES)).isEqualTo(2);
+
+        assertSimplified("($.a == 1 or $.b == 2) or $.c == 3",
+                Exp.or(
+                        Exp.eq(Exp.intBin("a"), Exp.val(1)),
+                        Exp.eq(Exp.intBin("b"), Exp.val(2)),
+                        Exp.eq(Exp.intBin("c"), Exp.val(3))));
+        // Different operators are not merged
+        assertSimplified("$.a == 1 and ($.b == 2 or $.c == 3)",
+                Exp.and(
+                        Exp.eq(Exp.intBin("a"), Exp.val(1)),
+                        Exp.or(
+                                Exp.eq(Exp.intBin("b"), Exp.val(2)),
+                                Exp.eq(Exp.intBin("c"), Exp.val(3)))));
+    }
+
+    @Test
+    void duplicates() {
+        OptimizationReport report = assertSimplified("$.a == 1 or $.a == 1",
+                Exp.eq(Exp.intBin("a"), Exp.val(1)));
+        assertThat(report.get(BooleanSimplification.REMOVED_OPERANDS)).isEqualTo(1);
+
+        assertSimplified("$.a == 1 and $.b == 'x' and ($.a == 1 and $.b == 'x')",
+                Exp.and(
+                        Exp.eq(Exp.intBin("a"), Exp.val(1)),
+                        Exp.eq(Exp.stringBin("b"), Exp.val("x"))));
+        // Same bin read as another type is not a duplicate
+        assertSimplified("$.a == 1 or $.a == 1.0",
+                Exp.or(
+                        Exp.eq(Exp.intBin("a"), Exp.val(1)),
+                        Exp.eq(Exp.floatBin("a"), Exp.val(1.0))));
+    }
+
+    @Test
+    void literals() {
+        assertSimplified("true and $.x > 1", Exp.gt(Exp.intBin("x"), Exp.val(1)));
+        assertSimplified("$.x > 1 or false", Exp.gt(Exp.intBin("x"), Exp.val(1)));
+        assertSimplified("$.x > 1 and false", Exp.val(false));
+        assertSimplified("$.x > 1 or ($.y > 2 or true)", Exp.val(true));
+        assertSimplified("true and true", Exp.val(true));
+        // Only the operands of 'exclusive' are simplified
+        assertSimplified("exclusive(true, $.a == 1 and true)",
+                Exp.exclusive(Exp.val(true), Exp.eq(Exp.intBin("a"), Exp.val(1))));
+    }
+
+    @Test
+    void negation() {
+        OptimizationReport report = assertSimplified("not($.a > 1)", Exp.le(Exp.intBin("a"), Exp.val(1)));
+        assertThat(report.get(BooleanSimplification.PUSHED_NEGATIONS)).isEqualTo(1);
+
+        assertSimplified("not($.a == 'x')", Exp.ne(Exp.stringBin("a"), Exp.val("x")));
+        assertSimplified("not($.a <= 1) and not($.b != 2)",
+                Exp.and(
+                        Exp.gt(Exp.intBin("a"), Exp.val(1)),
+                        Exp.eq(Exp.intBin("b"), Exp.val(2))));
+        assertSimplified("not(not($.a == 1))", Exp.eq(Exp.intBin("a"), Exp.val(1)));
+        assertSimplified("not(not(not($.a < 1)))", Exp.ge(Exp.intBin("a"), Exp.val(1)));
+        // Ordering comparisons of floats differ for NaN
+        assertSimplified("not($.a > 1.5)", Exp.not(Exp.gt(Exp.floatBin("a"), Exp.val(1.5))));
+        assertSimplified("not($.a == 1.5)", Exp.ne(Exp.floatBin("a"), Exp.val(1.5)));
+    }
+
+    @Test
+    void contradictions() {
+        OptimizationReport report = assertSimplified("$.a == 1 and $.a == 2", Exp.val(false));
+        assertThat(report.get(BooleanSimplification.SHORT_CIRCUITS)).isEqualTo(1);
+
+        assertSimplified("$.a > 1 and $.b == 2 and $.a <= 1", Exp.val(false));
+        assertSimplified("$.a > 1 and not($.a > 1)", Exp.val(false));
+        assertSimplified("($.a == 'x' and $.a == 'y') or $.b == 1", Exp.eq(Exp.intBin("b"), Exp.val(1)));
+        assertSimplified("$.a == 1 and $.a == 1", Exp.eq(Exp.intBin("a"), Exp.val(1)));
+    }
+
+    @Test
+    void contradictions_notFoldedUnderNegation() {
+        // A missing bin makes the server result unknown rather than false, so it cannot be negated
+        assertSimplified("not($.a == 1 and $.a == 2)",
+                Exp.not(Exp.and(
+                        Exp.eq(Exp.intBin("a"), Exp.val(1)),
+                        Exp.eq(Exp.intBin("a"), Exp.val(2)))));
+        assertSimplified("not($.a == 1 and false)",
+                Exp.not(Exp.and(Exp.eq(Exp.intBin("a"), Exp.val(1)), Exp.val(false))));
+        assertSimplified("not(false and $.a == 1)", Exp.not(Exp.val(false)));
+    }
+
+    @Test
+    void placeholders() {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of("?0 and $.a == ?1 and $.a == 2"));
+
+        assertThat(Exp.build(parsed.getResult(PlaceholderValues.of(true, 2)).getExp()))
+                .isEqualTo(Exp.build(Exp.eq(Exp.intBin("a"), Exp.val(2))));
+        assertThat(Exp.build(parsed.getResult(PlaceholderValues.of(true, 3)).getExp()))
+                .isEqualTo(Exp.build(Exp.val(false)));
+        assertThat(parsed.getExpression(PlaceholderValues.of(false, 2)))
+                .isEqualTo(Exp.build(Exp.val(false)));
+    }
+
+    @Test
+    void literalOperandsWithoutOptimizer() {
+        TestUtils.parseFilterExpressionAndCompare(ExpressionContext.of("true and $.x > 1"),
+                Exp.and(Exp.val(true), Exp.gt(Exp.intBin("x"), Exp.val(1))));
+        TestUtils.parseFilterExpressionAndCompare(ExpressionContext.of("not(true)"), Exp.not(Exp.val(true)));
+        TestUtils.parseFilterExpressionAndCompare(ExpressionContext.of("let (x = true) then (${x} or $.a == 1)"),
+                Exp.let(
+                        Exp.def("x", Exp.val(true)),
+                        Exp.or(Exp.var("x"), Exp.eq(Exp.intBin("a"), Exp.val(1)))));
+    }
+
+    @Test
+    void filterFromFlattenedOperands() {
+        List<Index> indexes = List.of(
+                Index.builder().namespace(NAMESPACE).bin("b").indexType(IndexType.NUMERIC).binValuesRatio(1).build()
+        );
+        ParsedExpression parsed = parser.parseExpression(
+                ExpressionContext.of("true and ($.a == 1 and $.b == 2)"), IndexContext.of(NAMESPACE, indexes));
+
+        assertThat(parsed.getResult().getFilter()).isEqualTo(Filter.equal("b", 2));
+        assertThat(Exp.build(parsed.getResult().getExp()))
+                .isEqualTo(Exp.build(Exp.eq(Exp.intBin("a"), Exp.val(1))));
+    }
+}
@@ -0,0 +1,119 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommonSubexpressionEliminationTests {
+
+    private static final DSLParserImpl parser = DSLParserImpl.builder()
+            .optimizer(ExpressionOptimizer.of(new BooleanSimplification(), new CommonSubexpressionElimination()))
+            .build();
+    private static final DSLParserImpl plainParser = new DSLParserImpl();
+
+    private static OptimizationReport assertEliminated(String dsl, String expectedDsl) {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of(dsl));
+        Exp expected = plainParser.parseExpression(ExpressionContext.of(expectedDsl)).getResult().getExp();
+        assertThat(Exp.build(parsed.getResult().getExp())).isEqualTo(Exp.build(expected));
+        return parsed.getOptimizationReport();
+    }
+
+    private static void assertUnchanged(String dsl) {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of(dsl));
+        Exp expected = plainParser.parseExpression(ExpressionContext.of(dsl)).getResult().getExp();
+        assertThat(Exp.build(parsed.getResult().getExp())).isEqualTo(Exp.build(expected));
+        assertThat(parsed.getOptimizationReport().get(CommonSubexpressionElimination.ELIMINATED_NODES)).isZero();
+    }
+
+    @Test
+    void repeatedPath() {
+        OptimizationReport report = assertEliminated(
+                "$.m.a.b.[0].get(type: INT) > 5 and $.m.a.b.[0].get(type: INT) < 10",
+                "let (cse0 = $.m.a.b.[0].get(type: INT)) then (${cse0} > 5 and ${cse0} < 10)");
+        assertThat(report.get(CommonSubexpressionElimination.ELIMINATED_NODES)).isEqualTo(1);
+    }
+
+    @Test
+    void repeatedArithmeticAndMetadata() {
+        OptimizationReport report = assertEliminated("($.a + $.b) * 2 > 5 and ($.a + $.b) * 2 < 100",
+                "let (cse0 = ($.a + $.b) * 2) then (${cse0} > 5 and ${cse0} < 100)");
+        // Both occurrences have 5 parts: two operations, two bins and a literal
+        assertThat(report.get(CommonSubexpressionElimination.ELIMINATED_NODES)).isEqualTo(5);
+
+        assertEliminated("$.ttl() > 100 and $.ttl() < 1000",
+                "let (cse0 = $.ttl()) then (${cse0} > 100 and ${cse0} < 1000)");
+    }
+
+    @Test
+    void repeatedInWhenBranches() {
+        assertEliminated("when ($.m.a.get(type: INT) == 1 => $.m.a.get(type: INT) + 1, "
+                        + "default => $.m.a.get(type: INT) - 1) > 0",
+                "(let (cse0 = $.m.a.get(type: INT)) then "
+                        + "(when (${cse0} == 1 => ${cse0} + 1, default => ${cse0} - 1))) > 0");
+    }
+
+    @Test
+    void hoistedWithinConditionalOperand() {
+        assertEliminated("$.c == 1 and ($.l.[0].get(type: INT) > 5 or $.l.[0].get(type: INT) < -5)",
+                "$.c == 1 and (let (cse0 = $.l.[0].get(type: INT)) then (${cse0} > 5 or ${cse0} < -5))");
+    }
+
+    @Test
+    void onlyConsecutiveConjunctsGrouped() {
+        assertEliminated("$.c == 1 and $.l.[0].get(type: INT) > 5 and $.l.[0].get(type: INT) < 10 and $.d == 2",
+                "$.c == 1 and (let (cse0 = $.l.[0].get(type: INT)) then (${cse0} > 5 and ${cse0} < 10)) "
+                        + "and $.d == 2");
+    }
+
+    @Test
+    void indexFilterOnOtherConjunctKept() {
+        IndexContext indexContext = IndexContext.of(NAMESPACE, List.of(Index.builder().namespace(NAMESPACE)
+                .bin("c").indexType(IndexType.NUMERIC).binValuesRatio(1).build()));
+        ParseResult result = parser.parseExpression(ExpressionContext.of(
+                "$.c == 1 and $.l.[0].get(type: INT) > 5 and $.l.[0].get(type: INT) < 10"), indexContext).getResult();
+        assertThat(result.getFilter()).isEqualTo(Filter.equal("c", 1));
+    }
+
+    @Test
+    void conditionalOccurrencesNotHoisted() {
+        // The path is evaluated only depending on $.c, hoisting would evaluate it for every record
+        assertUnchanged("$.c == 1 or $.l.[0].get(type: INT) > 5 or $.l.[0].get(type: INT) < -5");
+        assertUnchanged("when ($.c == 1 => $.l.[0].get(type: INT), $.c == 2 => $.l.[0].get(type: INT) + 1, "
+                + "default => 0) > 5");
+        // Different paths, bins and literals
+        assertUnchanged("$.l.[0].get(type: INT) > 5 and $.l.[1].get(type: INT) < 10");
+        assertUnchanged("$.a + 1 > 5 and $.a + 2 < 10");
+        // Bins are not bound, a variable is not cheaper than a bin
+        assertUnchanged("$.a > 5 and $.a < 10 and $.a != 7");
+    }
+
+    @Test
+    void userVariableNamesNotReused() {
+        assertEliminated("let (cse0 = 1) then ($.ttl() > ${cse0}) and $.l.[0].get(type: INT) > 5 "
+                        + "and $.l.[0].get(type: INT) < 10",
+                "let (cse0 = 1) then ($.ttl() > ${cse0}) and "
+                        + "(let (cse1 = $.l.[0].get(type: INT)) then (${cse1} > 5 and ${cse1} < 10))");
+    }
+
+    @Test
+    void placeholders() {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of(
+                "$.a * ?0 > 5 and $.a * ?0 < 10"));
+        Exp expected = plainParser.parseExpression(ExpressionContext.of(
+                "let (cse0 = $.a * 3) then (${cse0} > 5 and ${cse0} < 10)")).getResult().getExp();
+        assertThat(Exp.build(parsed.getResult(PlaceholderValues.of(3)).getExp())).isEqualTo(Exp.build(expected));
+    }
+}
@@ -0,0 +1,133 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.DslParseException;
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConstantFoldingTests {
+
+    private static final DSLParserImpl parser = DSLParserImpl.builder()
+            .optimizer(ExpressionOptimizer.of(new ConstantFolding()))
+            .build();
+
+    private static void assertFolded(String dsl, Exp expected, int foldedNodes) {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of(dsl));
+        assertThat(Exp.build(parsed.getResult().getExp())).isEqualTo(Exp.build(expected));
+        assertThat(parsed.getOptimizationReport().get(ConstantFolding.FOLDED_NODES)).isEqualTo(foldedNodes);
+    }
+
+    @Test
+    void intArithmetic() {
+        assertFolded("$.a > 10 * 60 * 1000", Exp.gt(Exp.intBin("a"), Exp.val(600000)), 2);
+        assertFolded("$.a == (7 - 2) % 3 + (1 << 4)", Exp.eq(Exp.intBin("a"), Exp.val(18)), 4);
+        assertFolded("$.a == 0xff & ~0x0f", Exp.eq(Exp.intBin("a"), Exp.val(0xf0)), 2);
+        assertFolded("$.a < abs(-5) + max(1, 8, 3) - min(4, 2)", Exp.lt(Exp.intBin("a"), Exp.val(11)), 5);
+    }
+
+    @Test
+    void floatArithmetic() {
+        assertFolded("$.a > 1.5 * 2.0", Exp.gt(Exp.floatBin("a"), Exp.val(3.0)), 1);
+        assertFolded("$.a < 2.0 ** 10.0", Exp.lt(Exp.floatBin("a"), Exp.val(1024.0)), 1);
+        assertFolded("$.a >= ceil(1.2) + floor(-1.2)", Exp.ge(Exp.floatBin("a"), Exp.val(0.0)), 3);
+    }
+
+    @Test
+    void notFolded_resultDiffersOnServer() {
+        // Overflow
+        assertFolded("$.a > 9223372036854775807 + 1",
+                Exp.gt(Exp.intBin("a"), Exp.add(Exp.val(Long.MAX_VALUE), Exp.val(1))), 0);
+        // Division by zero
+        assertFolded("$.a > 1 / 0", Exp.gt(Exp.intBin("a"), Exp.div(Exp.val(1), Exp.val(0))), 0);
+        assertFolded("$.a > 1.0 / 0.0", Exp.gt(Exp.floatBin("a"), Exp.div(Exp.val(1.0), Exp.val(0.0))), 0);
+        // Shift out of range
+        assertFolded("$.a > 1 << 64", Exp.gt(Exp.intBin("a"), Exp.lshift(Exp.val(1), Exp.val(64))), 0);
+        // Operands of different types
+        assertFolded("$.a > 1 + 2.0", Exp.gt(Exp.floatBin("a"), Exp.add(Exp.val(1), Exp.val(2.0))), 0);
+    }
+
+    @Test
+    void notFolded_binOperands() {
+        assertFolded("$.a + 1 > 2", Exp.gt(Exp.add(Exp.intBin("a"), Exp.val(1)), Exp.val(2)), 0);
+    }
+
+    @Test
+    void comparisons() {
+        assertFolded("10 > 5 * 3", Exp.val(false), 2);
+        assertFolded("1.5 <= 1.5", Exp.val(true), 1);
+        assertFolded("$.a > 1 and 2 == 1 + 1",
+                Exp.and(Exp.gt(Exp.intBin("a"), Exp.val(1)), Exp.val(true)), 2);
+    }
+
+    @Test
+    void typeErrorsNotHidden() {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of("28.asFloat() == \"hello\""));
+
+        assertThatThrownBy(parsed::getResult)
+                .isInstanceOf(DslParseException.class)
+                .hasMessageContaining("Cannot compare");
+    }
+
+    @Test
+    void placeholders() {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of("$.a > ?0 * 2 and $.b < 2 + 3"));
+        PlaceholderValues values = PlaceholderValues.of(21);
+        Exp expected = Exp.and(
+                Exp.gt(Exp.intBin("a"), Exp.val(42)),
+                Exp.lt(Exp.intBin("b"), Exp.val(5)));
+
+        assertThat(parsed.getOptimizationReport().get(ConstantFolding.FOLDED_NODES)).isEqualTo(1);
+        assertThat(Exp.build(parsed.getResult(values).getExp())).isEqualTo(Exp.build(expected));
+        assertThat(parsed.getExpression(values)).isEqualTo(Exp.build(expected));
+        assertThat(parsed.getExpression(PlaceholderValues.of(5)))
+                .isEqualTo(Exp.build(Exp.and(
+                        Exp.gt(Exp.intBin("a"), Exp.val(10)),
+                        Exp.lt(Exp.intBin("b"), Exp.val(5)))));
+    }
+
+    @Test
+    void foldedOperandUsedForFilter() {
+        List<Index> indexes = List.of(
+                Index.builder().namespace(NAMESPACE).bin("a").indexType(IndexType.NUMERIC).binValuesRatio(1).build()
+        );
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of("$.a > 10 * 60"),
+                IndexContext.of(NAMESPACE, indexes));
+
+        assertThat(parsed.getResult().getFilter()).isEqualTo(Filter.range("a", 601, Long.MAX_VALUE));
+        assertThat(parsed.getResult().getExp()).isNull();
+    }
+
+    @Test
+    void disabledByDefault() {
+        ParsedExpression parsed = new DSLParserImpl().parseExpression(ExpressionContext.of("$.a > 10 * 60"));
+
+        assertThat(parsed.getOptimizationReport()).isNull();
+        assertThat(Exp.build(parsed.getResult().getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.intBin("a"), Exp.mul(Exp.val(10), Exp.val(60)))));
+    }
+
+    @Test
+    void sourceTreeNotModified() {
+        ParsedExpression parsed = new DSLParserImpl().parseExpression(ExpressionContext.of("$.a > 10 * 60"));
+        OptimizationReport report = new OptimizationReport();
+
+        ExpressionOptimizer.defaults().optimize(parsed.getExpressionTree(), report);
+
+        assertThat(report.get(ConstantFolding.FOLDED_NODES)).isEqualTo(1);
+        assertThat(Exp.build(parsed.getResult().getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.intBin("a"), Exp.mul(Exp.val(10), Exp.val(60)))));
+    }
+}
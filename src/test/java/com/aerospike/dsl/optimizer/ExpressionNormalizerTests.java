@@ -0,0 +1,118 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.NormalizedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpressionNormalizerTests {
+
+    private static final DSLParserImpl parser = new DSLParserImpl();
+
+    private static NormalizedExpression normalize(String dsl) {
+        return parser.normalizeExpression(ExpressionContext.of(dsl));
+    }
+
+    /**
+     * Assert that the expressions share the fingerprint, and the parsed expression of the first one
+     * bound with the values of each produces the same expression as the normalized expression itself
+     */
+    private static void assertShared(String... dsls) {
+        NormalizedExpression first = normalize(dsls[0]);
+        for (String dsl : dsls) {
+            NormalizedExpression normalized = normalize(dsl);
+            assertThat(normalized.getFingerprint()).as(dsl).isEqualTo(first.getFingerprint());
+            assertThat(first.getParsedExpression().getExpression(normalized.getPlaceholderValues()))
+                    .as(dsl).isEqualTo(normalized.getExpression());
+        }
+    }
+
+    private static void assertNotShared(String dsl1, String dsl2) {
+        assertThat(normalize(dsl1).getFingerprint()).isNotEqualTo(normalize(dsl2).getFingerprint());
+    }
+
+    private static void assertNormalized(String dsl, String expectedDsl, Object... expectedValues) {
+        NormalizedExpression normalized = normalize(dsl);
+        Exp expected = parser.parseExpression(ExpressionContext.of(expectedDsl)).getResult().getExp();
+        assertThat(normalized.getExpression()).isEqualTo(Exp.build(expected));
+        assertThat(normalized.getPlaceholderValues().size()).isEqualTo(expectedValues.length);
+        for (int i = 0; i < expectedValues.length; i++) {
+            assertThat(normalized.getPlaceholderValues().getValue(i)).isEqualTo(expectedValues[i]);
+        }
+    }
+
+    @Test
+    void literalsLifted() {
+        assertNormalized("$.age > 30", "$.age > 30", 30L);
+        assertShared("$.age > 30", "$.age > 31", "  $.age>32 ");
+        assertShared("$.name == 'Alice' and $.score >= 1.5", "$.name == 'Bob' and $.score >= 2.0");
+        assertShared("$.a in [1, 2, 3]", "$.a in [4]");
+        assertShared("'a' in $.listBin", "'b' in $.listBin");
+        assertShared("$.boolBin == true", "$.boolBin == false");
+        assertShared("$.m.k.get(type: STRING) == 'x' or ($.a + 1) * 2 > 10",
+                "$.m.k.get(type: STRING) == 'y' or ($.a + 5) * 3 > 100");
+        assertShared("let (x = $.a + 1) then (${x} > 10)", "let (x = $.a + 2) then (${x} > 20)");
+        assertShared("when ($.a == 1 => 'x', default => 'y') == 'x'",
+                "when ($.a == 2 => 'z', default => 'w') == 'w'");
+    }
+
+    @Test
+    void existingPlaceholders() {
+        NormalizedExpression normalized = parser.normalizeExpression(
+                ExpressionContext.of("$.a > ?1 and $.b == ?0", PlaceholderValues.of("x", 5)));
+        assertThat(normalized.getFingerprint()).isEqualTo(normalize("$.a > 1 and $.b == 'y'").getFingerprint());
+        assertThat(normalized.getExpression()).isEqualTo(normalize("$.a > 5 and $.b == 'x'").getExpression());
+        assertThat(normalize("$.a > 5 and $.b == 'x'").getExpression()).isIn(
+                Exp.build(parser.parseExpression(ExpressionContext.of("$.a > 5 and $.b == 'x'")).getResult().getExp()),
+                Exp.build(parser.parseExpression(ExpressionContext.of("$.b == 'x' and $.a > 5")).getResult().getExp()));
+    }
+
+    @Test
+    void operandOrderIgnored() {
+        assertShared("$.a == 1 and $.b == 'x'", "$.b == 'y' and $.a == 2");
+        assertShared("$.a == 1 or $.b > 2 or $.c < 3", "$.c < 4 or $.a == 5 or $.b > 6");
+        assertShared("$.a == 1 and ($.b == 2 or $.c == 3)", "($.c == 4 or $.b == 5) and $.a == 6");
+        // The same shape, values follow the operands
+        assertShared("$.a == 1 or $.a == 2", "$.a == 3 or $.a == 4");
+    }
+
+    @Test
+    void differentShapes() {
+        assertNotShared("$.age > 30", "$.age >= 30");
+        assertNotShared("$.age > 30", "$.age > 30.5");
+        assertNotShared("$.age > 30", "$.size > 30");
+        assertNotShared("$.a == 'x'", "$.a == 1");
+        assertNotShared("$.a > 1 and $.b > 1", "$.a > 1 or $.b > 1");
+        assertNotShared("$.l.[0].get(type: INT) == 1", "$.l.[1].get(type: INT) == 1");
+        // Order within 'not' and 'exclusive' is kept
+        assertNotShared("not($.a == 1 and $.b == 2)", "not($.b == 2 and $.a == 1)");
+        assertNotShared("exclusive($.a == 1, $.b == 2)", "exclusive($.b == 2, $.a == 1)");
+    }
+
+    @Test
+    void blobLiteral() {
+        assertShared("$.blobBin.get(type: BLOB) == 'AQI='", "$.blobBin.get(type: BLOB) == 'AwQF'");
+        assertNormalized("$.blobBin.get(type: BLOB) == 'AQI='", "$.blobBin.get(type: BLOB) == 'AQI='", "AQI=");
+    }
+
+    @Test
+    void sharedParsedExpressionWithOptimizer() {
+        DSLParserImpl optimizingParser = DSLParserImpl.builder().optimizer(ExpressionOptimizer.defaults()).build();
+        NormalizedExpression first = optimizingParser.normalizeExpression(
+                ExpressionContext.of("$.a > 10 and $.a < 20"));
+        NormalizedExpression second = optimizingParser.normalizeExpression(
+                ExpressionContext.of("$.a < 50 and $.a > 40"));
+        assertThat(second.getFingerprint()).isEqualTo(first.getFingerprint());
+        assertThat(Exp.build(first.getParsedExpression().getResult(second.getPlaceholderValues()).getExp()))
+                .isEqualTo(Exp.build(optimizingParser.parseExpression(ExpressionContext.of("$.a > 40 and $.a < 50"))
+                        .getResult().getExp()));
+        assertThat(List.of(second.getPlaceholderValues().getValue(0), second.getPlaceholderValues().getValue(1)))
+                .containsExactlyInAnyOrder(40L, 50L);
+    }
+}
@@ -0,0 +1,63 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PredicateReorderingTests {
+
+    private static final DSLParserImpl parser = DSLParserImpl.builder()
+            .optimizer(ExpressionOptimizer.of(new BooleanSimplification(), new PredicateReordering()))
+            .build();
+    private static final DSLParserImpl plainParser = new DSLParserImpl();
+
+    private static OptimizationReport assertReordered(String dsl, String expectedDsl) {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of(dsl));
+        Exp expected = plainParser.parseExpression(ExpressionContext.of(expectedDsl)).getResult().getExp();
+        assertThat(Exp.build(parsed.getResult().getExp())).isEqualTo(Exp.build(expected));
+        return parsed.getOptimizationReport();
+    }
+
+    private static void assertUnchanged(String dsl) {
+        OptimizationReport report = assertReordered(dsl, dsl);
+        assertThat(report.get(PredicateReordering.REORDERED_NODES)).isZero();
+    }
+
+    @Test
+    void cheapOperandsFirst() {
+        OptimizationReport report = assertReordered("$.scores.[#-1] > 90 and $.setName() == 'x'",
+                "$.setName() == 'x' and $.scores.[#-1] > 90");
+        assertThat(report.get(PredicateReordering.REORDERED_NODES)).isEqualTo(1);
+
+        // Equality on a nested map key is more likely to be false, so it outranks the cheaper arithmetic
+        assertReordered("$.m.a.{#0:2}.count() > 1 and ($.a + $.b) * 2 > 10 and $.m.b.c == 2 and $.c > 1",
+                "$.c > 1 and $.m.b.c == 2 and ($.a + $.b) * 2 > 10 and $.m.a.{#0:2}.count() > 1");
+    }
+
+    @Test
+    void selectiveOperandsFirst() {
+        // Equality is more likely to be false in 'and' and less likely to be true in 'or'
+        assertReordered("$.a != 1 and $.b > 1 and $.c == 1", "$.c == 1 and $.b > 1 and $.a != 1");
+        assertReordered("$.a == 1 or $.b > 1 or $.c != 1", "$.c != 1 or $.b > 1 or $.a == 1");
+    }
+
+    @Test
+    void nestedLogicalOperandsReordered() {
+        assertReordered("$.l.[0] == 1 and ($.m.k == 1 or $.ttl() > 100)",
+                "$.l.[0] == 1 and ($.ttl() > 100 or $.m.k == 1)");
+    }
+
+    @Test
+    void orderKept() {
+        assertUnchanged("$.a == 1 and $.b == 2 and $.c == 3");
+        assertUnchanged("$.setName() == 'x' and $.scores.[#-1] > 90");
+        // Order within 'not', comparisons, 'exclusive' and 'when' is kept
+        assertUnchanged("not($.scores.[#-1] > 90 and $.setName() == 'x')");
+        assertUnchanged("exclusive($.scores.[#-1] > 90, $.setName() == 'x')");
+        assertUnchanged("when ($.scores.[#-1] > 90 => 1, $.setName() == 'x' => 2, default => 3) == 1");
+    }
+}
@@ -0,0 +1,150 @@
+package com.aerospike.dsl.optimizer;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.cdt.CTX;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RangeMergingTests {
+
+    private static final DSLParserImpl parser = DSLParserImpl.builder()
+            .optimizer(ExpressionOptimizer.defaults())
+            .build();
+    private static final IndexContext INDEXES = IndexContext.of(NAMESPACE, List.of(
+            Index.builder().namespace(NAMESPACE).bin("age").indexType(IndexType.NUMERIC).binValuesRatio(1).build(),
+            Index.builder().namespace(NAMESPACE).bin("list").indexType(IndexType.NUMERIC).binValuesRatio(1).build()
+    ));
+
+    private static OptimizationReport assertMerged(String dsl, Exp expected) {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of(dsl));
+        assertThat(Exp.build(parsed.getResult().getExp())).isEqualTo(Exp.build(expected));
+        return parsed.getOptimizationReport();
+    }
+
+    @Test
+    void mergedIntoRange() {
+        OptimizationReport report = assertMerged("$.age > 18 and $.age < 65 and $.age >= 21",
+                Exp.and(
+                        Exp.ge(Exp.intBin("age"), Exp.val(21)),
+                        Exp.le(Exp.intBin("age"), Exp.val(64))));
+        assertThat(report.get(RangeMerging.MERGED_COMPARISONS)).isEqualTo(3);
+
+        assertMerged("$.b == 'x' and 18 < $.age and $.age <= 65",
+                Exp.and(
+                        Exp.eq(Exp.stringBin("b"), Exp.val("x")),
+                        Exp.and(
+                                Exp.ge(Exp.intBin("age"), Exp.val(19)),
+                                Exp.le(Exp.intBin("age"), Exp.val(65)))));
+    }
+
+    @Test
+    void mergedIntoComparison() {
+        assertMerged("$.a > 1 and $.a > 5 and $.b == 1",
+                Exp.and(
+                        Exp.ge(Exp.intBin("a"), Exp.val(6)),
+                        Exp.eq(Exp.intBin("b"), Exp.val(1))));
+        assertMerged("$.a < 10 and $.a <= 3", Exp.le(Exp.intBin("a"), Exp.val(3)));
+        assertMerged("$.a >= 3 and $.a <= 3", Exp.eq(Exp.intBin("a"), Exp.val(3)));
+        assertMerged("$.a == 3 and $.a < 10", Exp.eq(Exp.intBin("a"), Exp.val(3)));
+    }
+
+    @Test
+    void emptyRange() {
+        OptimizationReport report = assertMerged("$.a > 10 and $.a < 5", Exp.val(false));
+        assertThat(report.get(RangeMerging.EMPTY_RANGES)).isEqualTo(1);
+
+        assertMerged("$.a > 9223372036854775807 and $.a > 0", Exp.val(false));
+        assertMerged("($.a >= 5 and $.a < 5) or $.b == 1", Exp.eq(Exp.intBin("b"), Exp.val(1)));
+    }
+
+    @Test
+    void emptyRange_notFoldedUnderNegation() {
+        OptimizationReport report = assertMerged("not($.a > 10 and $.a < 5)",
+                Exp.not(Exp.and(
+                        Exp.gt(Exp.intBin("a"), Exp.val(10)),
+                        Exp.lt(Exp.intBin("a"), Exp.val(5)))));
+        assertThat(report.get(RangeMerging.EMPTY_RANGES)).isZero();
+    }
+
+    @Test
+    void notMerged() {
+        // Different bins
+        assertMerged("$.a > 1 and $.b < 5",
+                Exp.and(
+                        Exp.gt(Exp.intBin("a"), Exp.val(1)),
+                        Exp.lt(Exp.intBin("b"), Exp.val(5))));
+        // Disjunction
+        assertMerged("$.a > 1 or $.a < 5",
+                Exp.or(
+                        Exp.gt(Exp.intBin("a"), Exp.val(1)),
+                        Exp.lt(Exp.intBin("a"), Exp.val(5))));
+        // Floats
+        assertMerged("$.a > 1.5 and $.a < 5.5",
+                Exp.and(
+                        Exp.gt(Exp.floatBin("a"), Exp.val(1.5)),
+                        Exp.lt(Exp.floatBin("a"), Exp.val(5.5))));
+    }
+
+    @Test
+    void filter() {
+        ParseResult result = parser.parseExpression(
+                ExpressionContext.of("$.age > 18 and $.age < 65 and $.age >= 21"), INDEXES).getResult();
+
+        assertThat(result.getFilter()).isEqualTo(Filter.range("age", 21, 64));
+        assertThat(result.getExp()).isNull();
+    }
+
+    @Test
+    void filter_withRemainingOperands() {
+        ParseResult result = parser.parseExpression(
+                ExpressionContext.of("$.age >= 21 and $.name == 'x' and $.age <= 64"), INDEXES).getResult();
+
+        assertThat(result.getFilter()).isEqualTo(Filter.range("age", 21, 64));
+        assertThat(Exp.build(result.getExp())).isEqualTo(Exp.build(Exp.eq(Exp.stringBin("name"), Exp.val("x"))));
+    }
+
+    @Test
+    void filter_path() {
+        ParseResult result = parser.parseExpression(
+                ExpressionContext.of("$.list.[1] > 1 and $.list.[1] < 9"), INDEXES).getResult();
+
+        assertThat(result.getFilter()).isEqualTo(Filter.range("list", 2, 8, CTX.listIndex(1)));
+        assertThat(result.getExp()).isNull();
+    }
+
+    @Test
+    void placeholders() {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of("$.a > ?0 and $.a < ?1"));
+
+        assertThat(Exp.build(parsed.getResult(PlaceholderValues.of(1, 9)).getExp()))
+                .isEqualTo(Exp.build(Exp.and(
+                        Exp.ge(Exp.intBin("a"), Exp.val(2)),
+                        Exp.le(Exp.intBin("a"), Exp.val(8)))));
+        assertThat(parsed.getExpression(PlaceholderValues.of(9, 1))).isEqualTo(Exp.build(Exp.val(false)));
+    }
+
+    @Test
+    void emptyRange_placeholders() {
+        ParsedExpression parsed = parser.parseExpression(ExpressionContext.of("$.a > ?0 and $.a < ?1"));
+
+        ParseResult empty = parsed.getResult(PlaceholderValues.of(9, 1));
+        assertThat(Exp.build(empty.getExp())).isEqualTo(Exp.build(Exp.val(false)));
+        assertThat(empty.getOptimizationReport().get(RangeMerging.EMPTY_RANGES)).isEqualTo(1);
+        assertThat(parsed.getResult(PlaceholderValues.of(1, 9)).getOptimizationReport()
+                .get(RangeMerging.EMPTY_RANGES)).isZero();
+        assertThat(parsed.getOptimizationReport().get(RangeMerging.EMPTY_RANGES)).isZero();
+    }
+}
@@ -0,0 +1,162 @@
+package com.aerospike.dsl.parsedExpression;
+
+import com.aerospike.dsl.BatchParseResult;
+import com.aerospike.dsl.DslParseException;
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.impl.ParseCache;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import com.aerospike.dsl.optimizer.OptimizerPass;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.operand.IntOperand;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchParseTests {
+
+    @Test
+    void batch_successAndFailurePerInput() {
+        DSLParserImpl parser = new DSLParserImpl();
+        List<ExpressionContext> inputs = List.of(
+                ExpressionContext.of("$.intBin1 > 100"),
+                ExpressionContext.of("$.intBin1 >>> ==="),
+                ExpressionContext.of("$.strBin1 == ?0", PlaceholderValues.of("a"))
+        );
+
+        List<BatchParseResult> results = parser.parseExpressions(inputs, null).join();
+
+        assertThat(results).hasSize(3);
+        assertThat(results).extracting(BatchParseResult::getInput).containsExactlyElementsOf(inputs);
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(Exp.build(results.get(0).getParsedExpression().getResult().getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.intBin("intBin1"), Exp.val(100))));
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).getParsedExpression()).isNull();
+        assertThat(results.get(1).getException())
+                .isInstanceOf(DslParseException.class)
+                .hasMessageContaining("Could not parse given DSL expression input");
+        assertThat(Exp.build(results.get(2).getParsedExpression().getResult().getExp()))
+                .isEqualTo(Exp.build(Exp.eq(Exp.stringBin("strBin1"), Exp.val("a"))));
+    }
+
+    @Test
+    void batch_optimizerFailurePerInput() {
+        OptimizerPass failingPass = (expressionTree, report) -> {
+            if (expressionTree instanceof ExpressionContainer container
+                    && container.getRight() instanceof IntOperand operand && operand.getValue() == 13) {
+                throw new IllegalStateException("Unlucky literal");
+            }
+            return expressionTree;
+        };
+        DSLParserImpl parser = DSLParserImpl.builder().optimizer(ExpressionOptimizer.of(failingPass)).build();
+
+        List<BatchParseResult> results = parser.parseExpressions(List.of(
+                ExpressionContext.of("$.intBin1 > 13"),
+                ExpressionContext.of("$.intBin1 > 12")
+        ), null).join();
+
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.get(0).getException())
+                .isInstanceOf(DslParseException.class)
+                .hasRootCauseMessage("Unlucky literal");
+        assertThat(results.get(1).isSuccess()).isTrue();
+        assertThat(Exp.build(results.get(1).getParsedExpression().getResult().getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.intBin("intBin1"), Exp.val(12))));
+    }
+
+    @Test
+    void batch_identicalInputsParsedOnce() {
+        ParseCache cache = ParseCache.of(100, 1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+        List<ExpressionContext> inputs = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            inputs.add(ExpressionContext.of("$.intBin1 > ?0", PlaceholderValues.of(i)));
+            inputs.add(ExpressionContext.of("$.strBin1 == 'a'"));
+        }
+
+        List<BatchParseResult> results = parser.parseExpressions(inputs, null).join();
+
+        assertThat(results).allMatch(BatchParseResult::isSuccess);
+        assertThat(cache.getStats().getMissCount()).isEqualTo(2);
+        assertThat(cache.getStats().getHitCount()).isZero();
+        for (int i = 0; i < 50; i++) {
+            assertThat(Exp.build(results.get(2 * i).getParsedExpression().getResult().getExp()))
+                    .isEqualTo(Exp.build(Exp.gt(Exp.intBin("intBin1"), Exp.val(i))));
+        }
+    }
+
+    @Test
+    void batch_sharedIndexContext() {
+        List<Index> indexes = List.of(
+                Index.builder().namespace(NAMESPACE).bin("intBin1").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build()
+        );
+        DSLParserImpl parser = new DSLParserImpl();
+
+        List<BatchParseResult> results = parser.parseExpressions(List.of(
+                ExpressionContext.of("$.intBin1 > 100"),
+                ExpressionContext.of("$.intBin1 == 5 and $.intBin2 < 1")
+        ), IndexContext.of(NAMESPACE, indexes)).join();
+
+        assertThat(results.get(0).getParsedExpression().getResult().getFilter())
+                .isEqualTo(Filter.range("intBin1", 101, Long.MAX_VALUE));
+        ParseResult second = results.get(1).getParsedExpression().getResult();
+        assertThat(second.getFilter()).isEqualTo(Filter.equal("intBin1", 5));
+        assertThat(Exp.build(second.getExp())).isEqualTo(Exp.build(Exp.lt(Exp.intBin("intBin2"), Exp.val(1))));
+    }
+
+    @Test
+    void batch_threadPerTaskExecutor() {
+        // Same scheduling as a virtual thread per task executor
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        Executor threadPerTask = task -> new Thread(() -> {
+            threads.add(Thread.currentThread());
+            task.run();
+        }).start();
+        DSLParserImpl parser = new DSLParserImpl(ParseCache.of(1000, 1_000_000));
+        List<ExpressionContext> inputs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            inputs.add(ExpressionContext.of("$.intBin" + (i % 100) + " > ?0", PlaceholderValues.of(i)));
+        }
+
+        List<BatchParseResult> results = parser.parseExpressions(inputs, null, threadPerTask).join();
+
+        assertThat(threads).hasSize(100);
+        for (int i = 0; i < 200; i++) {
+            assertThat(Exp.build(results.get(i).getParsedExpression().getResult().getExp()))
+                    .isEqualTo(Exp.build(Exp.gt(Exp.intBin("intBin" + (i % 100)), Exp.val(i))));
+        }
+    }
+
+    @Test
+    void batch_empty() {
+        assertThat(new DSLParserImpl().parseExpressions(List.of(), null).join()).isEmpty();
+    }
+
+    @Test
+    void batch_invalidArguments() {
+        DSLParserImpl parser = new DSLParserImpl();
+        assertThatThrownBy(() -> parser.parseExpressions(null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Inputs must not be null");
+        assertThatThrownBy(() -> parser.parseExpressions(List.of(), null, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Executor must not be null");
+    }
+}
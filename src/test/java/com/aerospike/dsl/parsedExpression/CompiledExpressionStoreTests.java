@@ -0,0 +1,180 @@
+package com.aerospike.dsl.parsedExpression;
+
+import com.aerospike.dsl.CompiledExpression;
+import com.aerospike.dsl.CompiledExpressionStore;
+import com.aerospike.dsl.DslParseException;
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompiledExpressionStoreTests {
+
+    private static final DSLParserImpl PARSER = new DSLParserImpl();
+
+    @TempDir
+    Path dir;
+
+    private static Expression expected(String dsl, PlaceholderValues values) {
+        return Exp.build(PARSER.parseExpression(ExpressionContext.of(dsl, values)).getResult().getExp());
+    }
+
+    @Test
+    void entriesReadAfterReopening() throws IOException {
+        Path path = dir.resolve("expressions.bin");
+        String dsl = "$.intBin1 > 100 and $.mapBin1.a.{#-1}.get(type: STRING) == 'x'";
+        String fingerprint;
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path)) {
+            CompiledExpression compiled = store.getOrCompile(PARSER, ExpressionContext.of(dsl), null);
+            fingerprint = compiled.getFingerprint();
+            assertThat(fingerprint).isEqualTo(PARSER.normalizeExpression(ExpressionContext.of(dsl)).getFingerprint());
+            assertThat(compiled.getExpression()).isEqualTo(expected(dsl, null));
+            assertThat(store.get(ExpressionContext.of(dsl))).isSameAs(compiled);
+        }
+
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path)) {
+            CompiledExpression compiled = store.get(ExpressionContext.of(dsl));
+            assertThat(compiled.getFingerprint()).isEqualTo(fingerprint);
+            assertThat(compiled.getFilter()).isNull();
+            assertThat(compiled.getExpression()).isEqualTo(expected(dsl, null));
+            assertThat(store.get(ExpressionContext.of("$.intBin1 > 101"))).isNull();
+            assertThat(store.getStats().getLoadedCount()).isEqualTo(1);
+            assertThat(store.getStats().getHitCount()).isEqualTo(1);
+            assertThat(store.getStats().getMissCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void placeholderSlots() throws IOException {
+        Path path = dir.resolve("expressions.bin");
+        String dsl = "$.intBin1 > ?0 and $.strBin1 == ?1";
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path)) {
+            store.getOrCompile(PARSER, ExpressionContext.of(dsl, PlaceholderValues.of(1, "a")), null);
+        }
+
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path)) {
+            PlaceholderValues values = PlaceholderValues.of(5, "bcd");
+            CompiledExpression compiled = store.get(ExpressionContext.of(dsl, values));
+            assertThat(compiled.getExpression(values)).isEqualTo(expected(dsl, values));
+            assertThatThrownBy(compiled::getExpression).isInstanceOf(IllegalArgumentException.class);
+            // Values of other types are compiled separately
+            assertThat(store.get(ExpressionContext.of(dsl, PlaceholderValues.of(5.5, "bcd")))).isNull();
+        }
+    }
+
+    @Test
+    void filterStored() throws IOException {
+        Path path = dir.resolve("expressions.bin");
+        IndexContext indexContext = IndexContext.of(NAMESPACE, List.of(
+                Index.builder().namespace(NAMESPACE).bin("intBin1").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build(),
+                Index.builder().namespace(NAMESPACE).bin("strBin1").indexType(IndexType.STRING)
+                        .binValuesRatio(1).build()));
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path, "indexes-v1")) {
+            store.getOrCompile(PARSER, ExpressionContext.of("$.intBin1 > 100 and $.boolBin1 == true"), indexContext);
+            store.getOrCompile(PARSER, ExpressionContext.of("$.strBin1 == 'x'"), indexContext);
+            CompiledExpression placeholder = store.getOrCompile(PARSER,
+                    ExpressionContext.of("$.intBin1 > ?0", PlaceholderValues.of(5)), indexContext);
+            assertThat(placeholder.getFilter()).isEqualTo(Filter.range("intBin1", 6, Long.MAX_VALUE));
+        }
+
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path, "indexes-v1")) {
+            CompiledExpression range = store.get(ExpressionContext.of("$.intBin1 > 100 and $.boolBin1 == true"));
+            assertThat(range.getFilter()).isEqualTo(Filter.range("intBin1", 101, Long.MAX_VALUE));
+            assertThat(range.getExpression()).isEqualTo(Exp.build(Exp.eq(Exp.boolBin("boolBin1"), Exp.val(true))));
+
+            CompiledExpression equal = store.get(ExpressionContext.of("$.strBin1 == 'x'"));
+            assertThat(equal.getFilter()).isEqualTo(Filter.equal("strBin1", "x"));
+            assertThat(equal.getExpression()).isNull();
+            // Filter depends on the placeholder value, so it is not stored
+            assertThat(store.getStats().getSize()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void valueDependentResultNotStored() throws IOException {
+        DSLParserImpl optimizingParser = DSLParserImpl.builder().optimizer(ExpressionOptimizer.defaults()).build();
+        ExpressionContext context = ExpressionContext.of("$.intBin1 > ?0 and $.intBin1 < 10", PlaceholderValues.of(20));
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(dir.resolve("expressions.bin"))) {
+            CompiledExpression compiled = store.getOrCompile(optimizingParser, context, null);
+            // Contradicting bounds are folded to false for these values only
+            assertThat(compiled.getExpression()).isEqualTo(Exp.build(Exp.val(false)));
+            assertThat(store.get(context)).isNull();
+        }
+    }
+
+    @Test
+    void staleVersionDiscarded() throws IOException {
+        Path path = dir.resolve("expressions.bin");
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path, "indexes-v1")) {
+            store.getOrCompile(PARSER, ExpressionContext.of("$.intBin1 > 100"), null);
+        }
+
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path, "indexes-v2")) {
+            assertThat(store.get(ExpressionContext.of("$.intBin1 > 100"))).isNull();
+            assertThat(store.getStats().getDiscardedBytes()).isPositive();
+            store.getOrCompile(PARSER, ExpressionContext.of("$.intBin1 > 200"), null);
+        }
+
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path, "indexes-v2")) {
+            assertThat(store.get(ExpressionContext.of("$.intBin1 > 200")).getExpression())
+                    .isEqualTo(expected("$.intBin1 > 200", null));
+            assertThat(store.getStats().getLoadedCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void partiallyWrittenEntryOverwritten() throws IOException {
+        Path path = dir.resolve("expressions.bin");
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path)) {
+            store.getOrCompile(PARSER, ExpressionContext.of("$.intBin1 > 100"), null);
+            store.getOrCompile(PARSER, ExpressionContext.of("$.intBin1 > 200"), null);
+        }
+        // Cut the last entry
+        long size = Files.size(path);
+        try (var channel = Files.newByteChannel(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path)) {
+            assertThat(store.getStats().getLoadedCount()).isEqualTo(1);
+            assertThat(store.getStats().getDiscardedBytes()).isPositive();
+            assertThat(store.get(ExpressionContext.of("$.intBin1 > 200"))).isNull();
+            store.getOrCompile(PARSER, ExpressionContext.of("$.intBin1 > 300"), null);
+        }
+
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(path)) {
+            assertThat(store.getStats().getLoadedCount()).isEqualTo(2);
+            assertThat(store.get(ExpressionContext.of("$.intBin1 > 100"))).isNotNull();
+            assertThat(store.get(ExpressionContext.of("$.intBin1 > 300")).getExpression())
+                    .isEqualTo(expected("$.intBin1 > 300", null));
+        }
+    }
+
+    @Test
+    void parseErrorNotStored() throws IOException {
+        try (CompiledExpressionStore store = CompiledExpressionStore.open(dir.resolve("expressions.bin"))) {
+            assertThatThrownBy(() -> store.getOrCompile(PARSER, ExpressionContext.of("$.intBin1 >"), null))
+                    .isInstanceOf(DslParseException.class);
+            assertThat(store.getStats().getSize()).isZero();
+        }
+    }
+}
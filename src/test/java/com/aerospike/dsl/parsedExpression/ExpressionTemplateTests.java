@@ -0,0 +1,191 @@
+package com.aerospike.dsl.parsedExpression;
+
+import com.aerospike.dsl.DslParseException;
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.util.TestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpressionTemplateTests {
+
+    private static void assertSameAsBuilt(ParsedExpression parsedExpr, PlaceholderValues values) {
+        Exp exp = parsedExpr.getResult(values).getExp();
+        assertThat(parsedExpr.getExpression(values)).isEqualTo(Exp.build(exp));
+    }
+
+    @Test
+    void intValues_differentPackedSizes() {
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.intBin1 > ?0 and $.intBin2 < ?1"), null);
+
+        long[] values = {0, 1, -1, -33, 127, 255, 256, 65535, 65536, -40000, 4294967296L, Long.MIN_VALUE};
+        for (long value1 : values) {
+            for (long value2 : values) {
+                assertSameAsBuilt(parsedExpr, PlaceholderValues.of(value1, value2));
+            }
+        }
+        assertThat(parsedExpr.getExpression(PlaceholderValues.of(100L, 5L))).isEqualTo(Exp.build(Exp.and(
+                Exp.gt(Exp.intBin("intBin1"), Exp.val(100)),
+                Exp.lt(Exp.intBin("intBin2"), Exp.val(5)))));
+    }
+
+    @Test
+    void stringValues_differentPackedSizes() {
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.strBin1 == ?0 or $.strBin2 != ?0"), null);
+
+        for (int length : new int[]{0, 1, 30, 31, 32, 254, 255, 256, 70000}) {
+            assertSameAsBuilt(parsedExpr, PlaceholderValues.of("a".repeat(length)));
+        }
+        assertSameAsBuilt(parsedExpr, PlaceholderValues.of("ünïcödé"));
+    }
+
+    @Test
+    void blobValues() {
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.blobBin1.get(type: BLOB) > ?0"), null);
+
+        for (int length : new int[]{1, 3, 100, 1000}) {
+            byte[] data = new byte[length];
+            data[0] = (byte) length;
+            String encoded = Base64.getEncoder().encodeToString(data);
+            assertThat(parsedExpr.getExpression(PlaceholderValues.of(encoded)))
+                    .isEqualTo(Exp.build(Exp.gt(Exp.blobBin("blobBin1"), Exp.val(data))));
+        }
+    }
+
+    @Test
+    void valuesOfDifferentTypes() {
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(ExpressionContext.of("$.bin1 == ?0"), null);
+
+        for (Object value : new Object[]{1, "str", 2.5, true, 100L, "other", 1.5f, false, 3}) {
+            assertSameAsBuilt(parsedExpr, PlaceholderValues.of(value));
+        }
+    }
+
+    @Test
+    void listAndMapValues() {
+        ParsedExpression inList = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.intBin1.get(type: INT) in ?0"), null);
+        assertSameAsBuilt(inList, PlaceholderValues.of(List.of(1, 2, 3)));
+        assertSameAsBuilt(inList, PlaceholderValues.of(List.of(4, 500000)));
+        assertSameAsBuilt(inList, PlaceholderValues.of(List.of()));
+
+        ParsedExpression inBinList = TestUtils.getParsedExpression(ExpressionContext.of("?0 in $.listBin1"), null);
+        assertSameAsBuilt(inBinList, PlaceholderValues.of("a"));
+        assertSameAsBuilt(inBinList, PlaceholderValues.of(10));
+
+        ParsedExpression mapEq = TestUtils.getParsedExpression(ExpressionContext.of("$.mapBin1.get(type: MAP) == ?0"), null);
+        assertSameAsBuilt(mapEq, PlaceholderValues.of(Map.of("a", 1)));
+        assertSameAsBuilt(mapEq, PlaceholderValues.of(Map.of("b", 2, "c", 3)));
+    }
+
+    @Test
+    void structuresAndFunctions() {
+        ParsedExpression when = TestUtils.getParsedExpression(ExpressionContext.of(
+                "when ($.who == ?0 => ?1, $.who == ?2 => ?3, default => ?4)"), null);
+        assertSameAsBuilt(when, PlaceholderValues.of(1, "bob", 2, "fred", "other"));
+        assertSameAsBuilt(when, PlaceholderValues.of(100000, "b", 3, "f", "o"));
+
+        ParsedExpression let = TestUtils.getParsedExpression(ExpressionContext.of(
+                "let (x = ?0, y = ${x} + ?1) then (${y} > ?2)"), null);
+        assertSameAsBuilt(let, PlaceholderValues.of(1, 2, 3));
+        assertSameAsBuilt(let, PlaceholderValues.of(1000, -2000, 300000));
+
+        ParsedExpression functionArgs = TestUtils.getParsedExpression(ExpressionContext.of(
+                "min(?0, $.intBin1) > ?1 and exclusive($.hand == ?2, $.pun == ?3)"), null);
+        assertSameAsBuilt(functionArgs, PlaceholderValues.of(5, 1, "stand", "done"));
+        assertSameAsBuilt(functionArgs, PlaceholderValues.of(500, 100, "s", "d".repeat(40)));
+    }
+
+    @Test
+    void noPlaceholders() {
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.intBin1 > 100 and $.strBin1 == 'a'"), null);
+        Expression expected = Exp.build(Exp.and(
+                Exp.gt(Exp.intBin("intBin1"), Exp.val(100)),
+                Exp.eq(Exp.stringBin("strBin1"), Exp.val("a"))));
+
+        Expression first = parsedExpr.getExpression();
+        Expression second = parsedExpr.getExpression();
+
+        assertThat(first).isEqualTo(expected);
+        assertThat(second).isEqualTo(expected);
+        assertThat(second.getBytes()).isNotSameAs(first.getBytes());
+    }
+
+    @Test
+    void withIndexes_sameAsBuilt() {
+        List<Index> indexes = List.of(
+                Index.builder().namespace(NAMESPACE).bin("intBin1").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build()
+        );
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.intBin1 > ?0 and $.intBin2 < ?1"), IndexContext.of(NAMESPACE, indexes));
+
+        assertThat(parsedExpr.getExpression(PlaceholderValues.of(100, 200)))
+                .isEqualTo(Exp.build(Exp.lt(Exp.intBin("intBin2"), Exp.val(200))));
+    }
+
+    @Test
+    void invalidValues_sameErrors() {
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(ExpressionContext.of("$.bin1 > ?1"), null);
+        assertThatThrownBy(() -> parsedExpr.getExpression(PlaceholderValues.of(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Missing value for placeholder ?1");
+
+        ParsedExpression inList = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.intBin1.get(type: INT) in ?0"), null);
+        assertThatThrownBy(() -> inList.getExpression(PlaceholderValues.of(1)))
+                .isInstanceOf(DslParseException.class);
+        assertThatThrownBy(() -> inList.getExpression(PlaceholderValues.of(List.of(1, "a"))))
+                .isInstanceOf(DslParseException.class);
+
+        ParsedExpression unsupported = TestUtils.getParsedExpression(ExpressionContext.of("$.bin1 > ?0"), null);
+        assertThatThrownBy(() -> unsupported.getExpression(PlaceholderValues.of(new Object())))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void concurrentBinding() throws Exception {
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.bin1 == ?0 and $.bin2 > ?1"), null);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                int value = i * 1000;
+                boolean isInt = i % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    Object placeholderValue = isInt ? (Object) value : "str" + value;
+                    PlaceholderValues values = PlaceholderValues.of(placeholderValue, value);
+                    return parsedExpr.getExpression(values)
+                            .equals(Exp.build(parsedExpr.getResult(values).getExp()));
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
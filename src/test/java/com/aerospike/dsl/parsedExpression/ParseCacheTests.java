@@ -0,0 +1,197 @@
+package com.aerospike.dsl.parsedExpression;
+
+import com.aerospike.dsl.DslParseException;
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.impl.ParseCache;
+import com.aerospike.dsl.parts.AbstractPart;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.controlstructure.AndStructure;
+import com.aerospike.dsl.parts.controlstructure.OrStructure;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParseCacheTests {
+
+    @Test
+    void cachedExpression_sameResult() {
+        ParseCache cache = ParseCache.of(100, 1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+        ExpressionContext context = ExpressionContext.of("$.intBin1 > 100 and $.strBin1 == 'a'");
+        Expression expected = Exp.build(Exp.and(
+                Exp.gt(Exp.intBin("intBin1"), Exp.val(100)),
+                Exp.eq(Exp.stringBin("strBin1"), Exp.val("a"))));
+
+        assertThat(Exp.build(parser.parseExpression(context).getResult().getExp())).isEqualTo(expected);
+        assertThat(Exp.build(parser.parseExpression(context).getResult().getExp())).isEqualTo(expected);
+
+        ParseCache.Stats stats = cache.getStats();
+        assertThat(stats.getMissCount()).isEqualTo(1);
+        assertThat(stats.getHitCount()).isEqualTo(1);
+        assertThat(stats.getSize()).isEqualTo(1);
+        assertThat(stats.getWeightBytes()).isPositive();
+        assertThat(stats.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void cachedExpression_differentPlaceholderValues() {
+        ParseCache cache = ParseCache.of(100, 1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+
+        Exp exp1 = parser.parseExpression(ExpressionContext.of("$.intBin1 > ?0", PlaceholderValues.of(1)))
+                .getResult().getExp();
+        Exp exp2 = parser.parseExpression(ExpressionContext.of("$.intBin1 > ?0", PlaceholderValues.of(2)))
+                .getResult().getExp();
+
+        assertThat(Exp.build(exp1)).isEqualTo(Exp.build(Exp.gt(Exp.intBin("intBin1"), Exp.val(1))));
+        assertThat(Exp.build(exp2)).isEqualTo(Exp.build(Exp.gt(Exp.intBin("intBin1"), Exp.val(2))));
+        assertThat(cache.getStats().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedTree_notModifiedByResults() {
+        ParseCache cache = ParseCache.of(100, 1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+        List<Index> indexes = List.of(
+                Index.builder().namespace(NAMESPACE).bin("intBin1").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build(),
+                Index.builder().namespace(NAMESPACE).bin("intBin3").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build()
+        );
+        ExpressionContext context = ExpressionContext.of(
+                "($.intBin1 > ?0 or $.intBin2 < 5) and $.intBin3 == 1", PlaceholderValues.of(100));
+        AbstractPart tree = parser.parseExpression(context, IndexContext.of(NAMESPACE, indexes))
+                .getExpressionTree();
+        List<ExpressionContainer> containers = new ArrayList<>();
+        collectContainers(tree, containers);
+        List<Boolean> flags = containers.stream().map(ExpressionContainer::isExclFromSecondaryIndexFilter).toList();
+
+        ParseResult result = parser.parseExpression(context, IndexContext.of(NAMESPACE, indexes)).getResult();
+
+        assertThat(result.getFilter()).isEqualTo(Filter.equal("intBin3", 1));
+        assertThat(cache.getStats().getHitCount()).isEqualTo(1);
+        assertThat(containers.stream().map(ExpressionContainer::isExclFromSecondaryIndexFilter).toList())
+                .isEqualTo(flags);
+    }
+
+    @Test
+    void maxEntries_evictsLeastRecentlyUsed() {
+        ParseCache cache = ParseCache.of(1, 1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+
+        parser.parseExpression(ExpressionContext.of("$.intBin1 > 1"));
+        parser.parseExpression(ExpressionContext.of("$.intBin1 > 2"));
+        parser.parseExpression(ExpressionContext.of("$.intBin1 > 1"));
+
+        ParseCache.Stats stats = cache.getStats();
+        assertThat(stats.getMissCount()).isEqualTo(3);
+        assertThat(stats.getHitCount()).isZero();
+        assertThat(stats.getEvictionCount()).isEqualTo(2);
+        assertThat(stats.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void maxWeight_entryTooLarge_notCached() {
+        ParseCache cache = ParseCache.of(100, 10);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+
+        parser.parseExpression(ExpressionContext.of("$.intBin1 > 1"));
+        parser.parseExpression(ExpressionContext.of("$.intBin1 > 1"));
+
+        ParseCache.Stats stats = cache.getStats();
+        assertThat(stats.getMissCount()).isEqualTo(2);
+        assertThat(stats.getSize()).isZero();
+        assertThat(stats.getWeightBytes()).isZero();
+    }
+
+    @Test
+    void invalidExpression_notCached() {
+        ParseCache cache = ParseCache.of(100, 1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> parser.parseExpression(ExpressionContext.of("$.intBin1 >")))
+                    .isInstanceOf(DslParseException.class);
+        }
+        assertThat(cache.getStats().getSize()).isZero();
+        assertThat(cache.getStats().getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void clear_removesEntries() {
+        ParseCache cache = ParseCache.of(100, 1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+        parser.parseExpression(ExpressionContext.of("$.intBin1 > 1"));
+
+        cache.clear();
+
+        assertThat(cache.getStats().getSize()).isZero();
+        assertThat(cache.getStats().getWeightBytes()).isZero();
+    }
+
+    @Test
+    void invalidBounds() {
+        assertThatThrownBy(() -> ParseCache.of(0, 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxEntries must be positive");
+        assertThatThrownBy(() -> ParseCache.of(100, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxWeightBytes must be positive");
+    }
+
+    @Test
+    void concurrentParsing_sharedCache() throws Exception {
+        ParseCache cache = ParseCache.of(8, 1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(cache);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                int value = i % 16;
+                futures.add(executor.submit(() -> {
+                    Exp exp = parser.parseExpression(ExpressionContext.of("$.intBin1 > " + value))
+                            .getResult().getExp();
+                    return Exp.build(exp).equals(Exp.build(Exp.gt(Exp.intBin("intBin1"), Exp.val(value))));
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        ParseCache.Stats stats = cache.getStats();
+        assertThat(stats.getHitCount() + stats.getMissCount()).isEqualTo(400);
+        assertThat(stats.getSize()).isLessThanOrEqualTo(8);
+    }
+
+    private static void collectContainers(AbstractPart part, List<ExpressionContainer> containers) {
+        if (part instanceof ExpressionContainer expr) {
+            containers.add(expr);
+            collectContainers(expr.getLeft(), containers);
+            collectContainers(expr.getRight(), containers);
+        } else if (part instanceof AndStructure and) {
+            and.getOperands().forEach(operand -> collectContainers(operand, containers));
+        } else if (part instanceof OrStructure or) {
+            or.getOperands().forEach(operand -> collectContainers(operand, containers));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.aerospike.dsl.parsedExpression;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.exp.Expression;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.impl.ParseCache;
+import com.aerospike.dsl.parts.ExpressionContainer;
+import com.aerospike.dsl.parts.operand.IntOperand;
+import com.aerospike.dsl.parts.path.BinPart;
+import com.aerospike.dsl.util.TestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.AND;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.EQ;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.GT;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.LT;
+import static com.aerospike.dsl.parts.ExpressionContainer.ExprPartsOperation.OR;
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParsedExpressionReuseTests {
+
+    @Test
+    void rebind_differentValueTypes() {
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(ExpressionContext.of("$.bin1 > ?0"), null);
+
+        assertThat(Exp.build(parsedExpr.getResult(PlaceholderValues.of("str")).getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.stringBin("bin1"), Exp.val("str"))));
+        assertThat(Exp.build(parsedExpr.getResult(PlaceholderValues.of(100)).getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.intBin("bin1"), Exp.val(100))));
+        assertThat(Exp.build(parsedExpr.getResult(PlaceholderValues.of(1.5)).getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.floatBin("bin1"), Exp.val(1.5))));
+    }
+
+    @Test
+    void rebind_withIndexes() {
+        List<Index> indexes = List.of(
+                Index.builder().namespace(NAMESPACE).bin("intBin1").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build()
+        );
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.intBin1 > ?0 and $.intBin2 < ?1"), IndexContext.of(NAMESPACE, indexes));
+
+        for (int i = 0; i < 3; i++) {
+            ParseResult result = parsedExpr.getResult(PlaceholderValues.of(100 + i, 200 + i));
+            assertThat(result.getFilter()).isEqualTo(Filter.range("intBin1", 101 + i, Long.MAX_VALUE));
+            assertThat(Exp.build(result.getExp()))
+                    .isEqualTo(Exp.build(Exp.lt(Exp.intBin("intBin2"), Exp.val(200 + i))));
+        }
+    }
+
+    @Test
+    void getResult_doesNotChangeTree() {
+        List<Index> indexes = List.of(
+                Index.builder().namespace(NAMESPACE).bin("intBin1").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build()
+        );
+        ParsedExpression parsedExpr = TestUtils.getParsedExpression(
+                ExpressionContext.of("$.intBin1 > 100 and $.strBin1 == ?0 and $.listBin1.[1].count() > 2"),
+                IndexContext.of(NAMESPACE, indexes));
+        Exp expected = Exp.and(
+                Exp.eq(Exp.stringBin("strBin1"), Exp.val("a")),
+                TestUtils.parseFilterExp(ExpressionContext.of("$.listBin1.[1].count() > 2")));
+
+        ParseResult first = parsedExpr.getResult(PlaceholderValues.of("a"));
+        ParseResult second = parsedExpr.getResult(PlaceholderValues.of("a"));
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(second.getFilter()).isEqualTo(first.getFilter());
+        assertThat(Exp.build(first.getExp())).isEqualTo(Exp.build(expected));
+        assertThat(Exp.build(second.getExp())).isEqualTo(Exp.build(expected));
+    }
+
+    @Test
+    void getResult_orOperands_notFlagged() {
+        ExpressionContainer gt = new ExpressionContainer(new BinPart("intBin1"), new IntOperand(100L), GT);
+        ExpressionContainer lt = new ExpressionContainer(new BinPart("intBin2"), new IntOperand(5L), LT);
+        ExpressionContainer or = new ExpressionContainer(gt, lt, OR);
+        ExpressionContainer tree = new ExpressionContainer(or,
+                new ExpressionContainer(new BinPart("intBin3"), new IntOperand(1L), EQ), AND);
+        Map<String, List<Index>> indexes = Map.of(
+                "intBin1", List.of(Index.builder().namespace(NAMESPACE).bin("intBin1").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build()),
+                "intBin3", List.of(Index.builder().namespace(NAMESPACE).bin("intBin3").indexType(IndexType.NUMERIC)
+                        .binValuesRatio(1).build())
+        );
+        ParsedExpression parsedExpr = new ParsedExpression(tree, null, indexes);
+
+        assertThat(parsedExpr.getResult().getFilter()).isEqualTo(Filter.equal("intBin3", 1));
+        assertThat(gt.isExclFromSecondaryIndexFilter()).isFalse();
+        assertThat(lt.isExclFromSecondaryIndexFilter()).isFalse();
+    }
+
+    @Test
+    void placeholders_inOrAndFunctionArgs() {
+        TestUtils.parseFilterExpressionAndCompare(
+                ExpressionContext.of("$.intBin1 == ?0 or $.strBin1 == ?1", PlaceholderValues.of(1, "a")),
+                Exp.or(Exp.eq(Exp.intBin("intBin1"), Exp.val(1)), Exp.eq(Exp.stringBin("strBin1"), Exp.val("a"))));
+        TestUtils.parseFilterExpressionAndCompare(
+                ExpressionContext.of("min(?0, $.intBin1) > 1", PlaceholderValues.of(5)),
+                Exp.gt(Exp.min(Exp.val(5), Exp.intBin("intBin1")), Exp.val(1)));
+    }
+
+    @Test
+    void sharedTree_concurrentBinding() throws Exception {
+        DSLParserImpl parser = new DSLParserImpl(ParseCache.of(10, 1_000_000));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                int value = i;
+                futures.add(executor.submit(() -> {
+                    Object placeholderValue = value % 2 == 0 ? (Object) value : "str" + value;
+                    Exp exp = parser.parseExpression(ExpressionContext.of("$.bin1 == ?0 and $.bin2 > 10",
+                            PlaceholderValues.of(placeholderValue))).getResult().getExp();
+                    Exp binExp = value % 2 == 0 ? Exp.intBin("bin1") : Exp.stringBin("bin1");
+                    Expression expected = Exp.build(Exp.and(
+                            Exp.eq(binExp, placeholderValue instanceof Integer intValue
+                                    ? Exp.val(intValue) : Exp.val((String) placeholderValue)),
+                            Exp.gt(Exp.intBin("bin2"), Exp.val(10))));
+                    return Exp.build(exp).equals(expected);
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.aerospike.dsl.parsedExpression;
+
+import com.aerospike.dsl.DslParseException;
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.impl.PredictionCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PredictionCacheTests {
+
+    @Test
+    void warmUp_fillsCache() {
+        PredictionCache cache = PredictionCache.of(1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(null, cache);
+        assertThat(cache.getStats().getDfaStates()).isZero();
+
+        parser.warmUp();
+
+        PredictionCache.Stats stats = cache.getStats();
+        assertThat(stats.getDfaStates()).isPositive();
+        assertThat(stats.getPredictionContexts()).isPositive();
+        assertThat(stats.getResetCount()).isZero();
+        assertThat(stats.getMaxDfaStates()).isEqualTo(1_000_000);
+        assertThat(Exp.build(parser.parseExpression(ExpressionContext.of("$.intBin1 > 100")).getResult().getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.intBin("intBin1"), Exp.val(100))));
+    }
+
+    @Test
+    void warmUp_customExpressions() {
+        PredictionCache cache = PredictionCache.of(1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(null, cache);
+
+        int parsed = parser.warmUp(List.of("$.intBin1 > 100", "$.intBin1 >>>", "$.mapBin1.a.[1].get(type: INT) == 2"));
+
+        assertThat(parsed).isEqualTo(2);
+        assertThat(cache.getStats().getDfaStates()).isPositive();
+    }
+
+    @Test
+    void clear_dropsCachedStates() {
+        PredictionCache cache = PredictionCache.of(1_000_000);
+        DSLParserImpl parser = new DSLParserImpl(null, cache);
+        parser.warmUp();
+
+        cache.clear();
+
+        assertThat(cache.getStats().getDfaStates()).isZero();
+        assertThat(cache.getStats().getPredictionContexts()).isZero();
+        assertThat(Exp.build(parser.parseExpression(ExpressionContext.of("$.intBin1 > 100")).getResult().getExp()))
+                .isEqualTo(Exp.build(Exp.gt(Exp.intBin("intBin1"), Exp.val(100))));
+    }
+
+    @Test
+    void maxDfaStates_resetsCache() {
+        PredictionCache cache = PredictionCache.of(1);
+        DSLParserImpl parser = new DSLParserImpl(null, cache);
+
+        for (int i = 0; i < 1000; i++) {
+            parser.warmUp(List.of("$.intBin" + i + " > " + i + " and $.strBin1 == 'a'"));
+        }
+
+        assertThat(cache.getStats().getResetCount()).isPositive();
+        assertThatThrownBy(() -> parser.parseExpression(ExpressionContext.of("$.intBin1 >>> 1 ==")))
+                .isInstanceOf(DslParseException.class)
+                .hasMessageContaining("Could not parse given DSL expression input");
+    }
+
+    @Test
+    void invalidBound() {
+        assertThatThrownBy(() -> PredictionCache.of(0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxDfaStates must be positive");
+    }
+}
@@ -0,0 +1,150 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static com.aerospike.dsl.util.TestUtils.getParseResult;
+import static com.aerospike.dsl.util.TestUtils.index;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexPlannerTests {
+
+    private static final DSLParserImpl parser = new DSLParserImpl();
+    private static final DSLParserImpl costBasedParser = DSLParserImpl.builder()
+            .indexPlanner(new CostBasedIndexPlanner())
+            .build();
+    private static final List<Index> INDEXES = List.of(
+            index("age", IndexType.NUMERIC, 10),
+            index("city", IndexType.STRING, 5),
+            index("score", IndexType.NUMERIC, 1));
+    private static final IndexContext INDEX_CONTEXT = IndexContext.of(NAMESPACE, INDEXES);
+
+    @Test
+    void equalityPreferredOverWideRange() {
+        String dsl = "$.age > 10 and $.city == 'Paris'";
+        ParseResult legacy = getParseResult(parser, dsl, INDEX_CONTEXT);
+        assertThat(legacy.getFilter()).isEqualTo(Filter.range("age", 11, Long.MAX_VALUE));
+
+        ParseResult costBased = getParseResult(costBasedParser, dsl, INDEX_CONTEXT);
+        assertThat(costBased.getFilter()).isEqualTo(Filter.equal("city", "Paris"));
+        assertThat(Exp.build(costBased.getExp())).isEqualTo(Exp.build(Exp.gt(Exp.intBin("age"), Exp.val(10))));
+
+        IndexPlan plan = costBased.getIndexPlan();
+        assertThat(plan.getChosen().getCandidate().getBinName()).isEqualTo("city");
+        assertThat(plan.getAlternatives()).hasSize(1);
+        assertThat(plan.getAlternatives().get(0).getCandidate().getBinName()).isEqualTo("age");
+        assertThat(plan.getAlternatives().get(0).getCost()).isGreaterThan(plan.getChosen().getCost());
+    }
+
+    @Test
+    void narrowRangePreferredOverEqualityOnLessSelectiveIndex() {
+        // Comparisons of the same bin are merged into a range by the optimizer
+        DSLParserImpl optimizingParser = DSLParserImpl.builder()
+                .optimizer(ExpressionOptimizer.defaults())
+                .indexPlanner(new CostBasedIndexPlanner())
+                .build();
+        ParseResult result = getParseResult(optimizingParser, "$.score >= 1 and $.score <= 3 and $.age == 30",
+                INDEX_CONTEXT);
+
+        assertThat(result.getIndexPlan().getChosen().getCandidate().getBinName()).isEqualTo("score");
+        assertThat(result.getFilter()).isEqualTo(Filter.range("score", 1, 3));
+    }
+
+    @Test
+    void legacyPlannerReproducesDefaultSelection() {
+        DSLParserImpl explicitLegacy = DSLParserImpl.builder().indexPlanner(new LegacyIndexPlanner()).build();
+        List<Index> indexes = List.of(
+                index("a", IndexType.NUMERIC, 0),
+                index("b", IndexType.NUMERIC, 0),
+                index("c", IndexType.STRING, 3));
+        List<String> inputs = List.of(
+                "$.b > 1 and $.a > 1",
+                "$.b == 1 and $.c == 'x'",
+                "$.a > 1 and ($.b == 2 or $.c == 'x')",
+                "($.a + 1) > 5 and $.b < 3");
+
+        for (String dsl : inputs) {
+            for (IndexContext indexContext : List.of(IndexContext.of(NAMESPACE, indexes),
+                    IndexContext.withBinHint(NAMESPACE, indexes, "b"))) {
+                ParseResult expected = getParseResult(parser, dsl, indexContext);
+                ParseResult actual = getParseResult(explicitLegacy, dsl, indexContext);
+                assertThat(actual.getFilter()).isEqualTo(expected.getFilter());
+                assertThat(Exp.build(actual.getExp())).isEqualTo(Exp.build(expected.getExp()));
+            }
+        }
+    }
+
+    @Test
+    void preferredBin() {
+        IndexContext indexContext = IndexContext.withBinHint(NAMESPACE, INDEXES, "age");
+        ParseResult result = getParseResult(costBasedParser, "$.age > 10 and $.city == 'Paris'", indexContext);
+
+        assertThat(result.getFilter()).isEqualTo(Filter.range("age", 11, Long.MAX_VALUE));
+    }
+
+    @Test
+    void candidateWithoutFilterNotChosen() {
+        // String comparison other than equality cannot use the index
+        ParseResult result = getParseResult(costBasedParser, "$.city > 'M' and $.score > 10", INDEX_CONTEXT);
+
+        assertThat(result.getFilter()).isEqualTo(Filter.range("score", 11, Long.MAX_VALUE));
+        ScoredCandidate city = result.getIndexPlan().getAlternatives().get(0);
+        assertThat(city.getCandidate().getBinName()).isEqualTo("city");
+        assertThat(city.getCost()).isEqualTo(Double.POSITIVE_INFINITY);
+
+        ParseResult onlyUnusable = getParseResult(costBasedParser, "$.city > 'M'", INDEX_CONTEXT);
+        assertThat(onlyUnusable.getFilter()).isNull();
+        assertThat(onlyUnusable.getIndexPlan().getChosen()).isNull();
+        assertThat(onlyUnusable.getIndexPlan().getCandidates()).hasSize(1);
+    }
+
+    @Test
+    void noIndexes() {
+        ParseResult result = getParseResult(costBasedParser, "$.age > 10", null);
+
+        assertThat(result.getFilter()).isNull();
+        assertThat(result.getIndexPlan().getCandidates()).isEmpty();
+    }
+
+    @Test
+    void customCostModel() {
+        // Prefers the bin named last alphabetically
+        CostModel costModel = candidate -> 'z' - candidate.getBinName().charAt(0);
+        DSLParserImpl customParser = DSLParserImpl.builder()
+                .indexPlanner(new CostBasedIndexPlanner(costModel))
+                .build();
+
+        ParseResult result = getParseResult(customParser, "$.age == 1 and $.score == 2", INDEX_CONTEXT);
+
+        assertThat(result.getFilter()).isEqualTo(Filter.equal("score", 2));
+    }
+
+    @Test
+    void selectivityCostModel() {
+        SelectivityCostModel model = SelectivityCostModel.builder().maxRangeValues(100.0).build();
+        IndexPlan plan = getParseResult(costBasedParser, "$.age == 30 and $.score > 5", INDEX_CONTEXT)
+                .getIndexPlan();
+        IndexCandidate age = plan.getChosen().getCandidate();
+        IndexCandidate score = plan.getAlternatives().get(0).getCandidate();
+
+        assertThat(age.getResidualSize()).isEqualTo(score.getResidualSize());
+        double residualFactor = 1 + 0.01 * age.getResidualSize();
+        assertThat(model.cost(age)).isEqualTo(10 * 0.5 * residualFactor);
+        assertThat(model.cost(score)).isEqualTo(100 * residualFactor);
+
+        assertThatThrownBy(() -> SelectivityCostModel.builder().equalityFactor(-1.0).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("equalityFactor");
+    }
+}
@@ -0,0 +1,104 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static com.aerospike.dsl.util.TestUtils.getParsedExpression;
+import static com.aerospike.dsl.util.TestUtils.index;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlanExplanationTests {
+
+    private static final DSLParserImpl parser = new DSLParserImpl();
+    private static final List<Index> INDEXES = List.of(
+            index("age", IndexType.NUMERIC, 10),
+            index("city", IndexType.STRING, 5),
+            index("name", IndexType.NUMERIC, 1),
+            index("tags", IndexType.STRING, 1),
+            index("unused", IndexType.NUMERIC, 1));
+    private static final IndexContext INDEX_CONTEXT = IndexContext.of(NAMESPACE, INDEXES);
+
+    private static RejectedIndex rejected(PlanExplanation explanation, String bin) {
+        return explanation.getRejectedIndexes().stream()
+                .filter(rejectedIndex -> rejectedIndex.getIndex().getBin().equals(bin))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void explainsChosenFilterAndRejectedIndexes() {
+        ParsedExpression parsed = getParsedExpression(parser, "$.age > 10 and $.city == 'Paris' "
+                + "and $.name == 'Bob' and $.tags in ['a', 'b']", INDEX_CONTEXT);
+        PlanExplanation explanation = parsed.explain();
+        ParseResult result = parsed.getResult();
+
+        assertThat(explanation.getFilter()).isEqualTo(Filter.range("age", 11, Long.MAX_VALUE));
+        assertThat(explanation.getFilter()).isEqualTo(result.getFilter());
+        assertThat(Exp.build(explanation.getResidualExp())).isEqualTo(Exp.build(result.getExp()));
+        assertThat(explanation.getFilterExpression()).isSameAs(explanation.getIndexPlan().getChosenExpression());
+        assertThat(explanation.getIndexPlan().getCandidates()).hasSize(2);
+
+        assertThat(explanation.getRejectedIndexes()).extracting(rejectedIndex -> rejectedIndex.getIndex().getBin())
+                .containsExactly("city", "name", "tags", "unused");
+        assertThat(rejected(explanation, "city").getReason()).isEqualTo(RejectedIndex.Reason.NOT_CHOSEN);
+        assertThat(rejected(explanation, "name").getReason()).isEqualTo(RejectedIndex.Reason.TYPE_MISMATCH);
+        assertThat(rejected(explanation, "name").getDetail()).contains("STRING", "NUMERIC");
+        assertThat(rejected(explanation, "tags").getReason()).isEqualTo(RejectedIndex.Reason.IN_EXPRESSION);
+        assertThat(rejected(explanation, "unused").getReason()).isEqualTo(RejectedIndex.Reason.NOT_COMPARED);
+    }
+
+    @Test
+    void explainsOrExclusion() {
+        PlanExplanation explanation = getParsedExpression(parser, "$.age > 10 or $.city == 'Paris'", INDEX_CONTEXT)
+                .explain();
+
+        assertThat(explanation.getFilter()).isNull();
+        assertThat(explanation.getFilterExpression()).isNull();
+        assertThat(explanation.getIndexPlan().getCandidates()).isEmpty();
+        assertThat(rejected(explanation, "age").getReason()).isEqualTo(RejectedIndex.Reason.OR_EXCLUDED);
+        assertThat(rejected(explanation, "city").getReason()).isEqualTo(RejectedIndex.Reason.OR_EXCLUDED);
+        assertThat(explanation.toString()).contains("none, all records are scanned");
+    }
+
+    @Test
+    void explainsNestedOrExclusion() {
+        PlanExplanation explanation = getParsedExpression(parser,
+                "$.unused == 1 and ($.age > 10 or $.city == 'Paris')", INDEX_CONTEXT).explain();
+
+        assertThat(explanation.getFilter()).isEqualTo(Filter.equal("unused", 1));
+        assertThat(rejected(explanation, "age").getReason()).isEqualTo(RejectedIndex.Reason.OR_EXCLUDED);
+        assertThat(explanation.getRejectedIndexes())
+                .noneMatch(rejectedIndex -> rejectedIndex.getIndex().getBin().equals("unused"));
+    }
+
+    @Test
+    void estimatesResidualCost() {
+        PlanExplanation explanation = getParsedExpression(parser, "$.age > 10 "
+                + "and $.listBin.[0].get(type: INT) == 5 and $.ttl() > 100", INDEX_CONTEXT).explain();
+
+        EvaluationCost cost = explanation.getResidualCost();
+        assertThat(cost.getBinReads()).isEqualTo(1);
+        assertThat(cost.getCdtOperations()).isEqualTo(1);
+        assertThat(cost.getMetadataReads()).isEqualTo(1);
+        assertThat(cost.getNodeCount()).isGreaterThan(5);
+        assertThat(explanation.toString()).contains("Residual cost: EvaluationCost(");
+    }
+
+    @Test
+    void noResidualCostWithoutExp() {
+        PlanExplanation explanation = getParsedExpression(parser, "$.age > 10", INDEX_CONTEXT).explain();
+
+        assertThat(explanation.getResidualExp()).isNull();
+        assertThat(explanation.getResidualCost().getNodeCount()).isZero();
+    }
+}
@@ -0,0 +1,115 @@
+package com.aerospike.dsl.planner;
+
+import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
+import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
+import com.aerospike.dsl.ParsedExpression;
+import com.aerospike.dsl.PlaceholderValues;
+import com.aerospike.dsl.client.command.ParticleType;
+import com.aerospike.dsl.client.exp.Exp;
+import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.impl.DSLParserImpl;
+import com.aerospike.dsl.optimizer.ExpressionOptimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.aerospike.dsl.util.TestUtils.NAMESPACE;
+import static com.aerospike.dsl.util.TestUtils.getParsedExpression;
+import static com.aerospike.dsl.util.TestUtils.index;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnionPlanTests {
+
+    private static final DSLParserImpl parser = new DSLParserImpl();
+    private static final List<Index> INDEXES = List.of(
+            index("a", IndexType.NUMERIC, 1),
+            index("b", IndexType.NUMERIC, 1),
+            index("status", IndexType.STRING, 1));
+    private static final IndexContext INDEX_CONTEXT = IndexContext.of(NAMESPACE, INDEXES);
+
+    private static Exp notWithType(String bin, int particleType, Exp exp) {
+        return Exp.not(Exp.and(Exp.eq(Exp.binType(bin), Exp.val(particleType)), exp));
+    }
+
+    private static void assertBranch(ParseResult branch, Filter filter, Exp exp) {
+        assertThat(branch.getFilter()).isEqualTo(filter);
+        if (exp == null) {
+            assertThat(branch.getExp()).isNull();
+        } else {
+            assertThat(Exp.build(branch.getExp())).isEqualTo(Exp.build(exp));
+        }
+    }
+
+    @Test
+    void sameBinDisjuncts() {
+        ParsedExpression parsed = getParsedExpression(parser, "$.status == 'A' or $.status == 'B'", INDEX_CONTEXT);
+        assertThat(parsed.getResult().getFilter()).isNull();
+
+        List<ParseResult> branches = parsed.getUnionPlan().getBranches();
+        assertThat(branches).hasSize(2);
+        assertBranch(branches.get(0), Filter.equal("status", "A"), null);
+        assertBranch(branches.get(1), Filter.equal("status", "B"),
+                notWithType("status", ParticleType.STRING, Exp.eq(Exp.stringBin("status"), Exp.val("A"))));
+    }
+
+    @Test
+    void differentBinDisjunctsWithResidual() {
+        UnionPlan plan = getParsedExpression(parser, "($.a == 1 and $.c > 2) or $.b == 2 or $.a > 10",
+                INDEX_CONTEXT).getUnionPlan();
+
+        List<ParseResult> branches = plan.getBranches();
+        assertThat(branches).hasSize(3);
+        Exp notFirst = Exp.not(Exp.and(
+                Exp.eq(Exp.binType("a"), Exp.val(ParticleType.INTEGER)),
+                Exp.eq(Exp.binType("c"), Exp.val(ParticleType.INTEGER)),
+                Exp.and(Exp.eq(Exp.intBin("a"), Exp.val(1)), Exp.gt(Exp.intBin("c"), Exp.val(2)))));
+        Exp notSecond = notWithType("b", ParticleType.INTEGER, Exp.eq(Exp.intBin("b"), Exp.val(2)));
+        assertBranch(branches.get(0), Filter.equal("a", 1), Exp.gt(Exp.intBin("c"), Exp.val(2)));
+        assertBranch(branches.get(1), Filter.equal("b", 2), notFirst);
+        assertBranch(branches.get(2), Filter.range("a", 11, Long.MAX_VALUE), Exp.and(notFirst, notSecond));
+        assertThat(plan.toString()).contains("Filter: a [1, 1]", "Filter: b [2, 2]");
+    }
+
+    @Test
+    void flattenedOrStructure() {
+        DSLParserImpl optimizingParser = DSLParserImpl.builder().optimizer(ExpressionOptimizer.defaults()).build();
+        UnionPlan plan = getParsedExpression(optimizingParser, "$.a == 1 or ($.b == 2 or $.status == 'A')",
+                INDEX_CONTEXT).getUnionPlan();
+
+        assertThat(plan.getBranches()).extracting(ParseResult::getFilter)
+                .containsExactly(Filter.equal("a", 1), Filter.equal("b", 2), Filter.equal("status", "A"));
+    }
+
+    @Test
+    void placeholders() {
+        ParsedExpression parsed = getParsedExpression(parser, "$.a == ?0 or $.b == ?1", INDEX_CONTEXT);
+
+        UnionPlan plan = parsed.getUnionPlan(PlaceholderValues.of(5, 7));
+        assertBranch(plan.getBranches().get(0), Filter.equal("a", 5), null);
+        assertBranch(plan.getBranches().get(1), Filter.equal("b", 7),
+                notWithType("a", ParticleType.INTEGER, Exp.eq(Exp.intBin("a"), Exp.val(5))));
+    }
+
+    @Test
+    void noUnionPlanWhenDisjunctHasNoIndex() {
+        assertThat(getParsedExpression(parser, "$.a == 1 or $.c == 2", INDEX_CONTEXT).getUnionPlan()).isNull();
+        assertThat(getParsedExpression(parser, "$.a == 1 or $.status > 'A'", INDEX_CONTEXT).getUnionPlan()).isNull();
+    }
+
+    @Test
+    void noUnionPlanWithoutOr() {
+        assertThat(getParsedExpression(parser, "$.a == 1 and $.b == 2", INDEX_CONTEXT).getUnionPlan()).isNull();
+        assertThat(parser.parseExpression(ExpressionContext.of("$.a == 1 or $.b == 2")).getUnionPlan()).isNull();
+    }
+
+    @Test
+    void pathOnlyInLastDisjunct() {
+        assertThat(getParsedExpression(parser, "($.a == 1 and $.listBin.[0].get(type: INT) == 2) or $.b == 2",
+                INDEX_CONTEXT).getUnionPlan()).isNull();
+        assertThat(getParsedExpression(parser, "$.b == 2 or ($.a == 1 and $.listBin.[0].get(type: INT) == 2)",
+                INDEX_CONTEXT).getUnionPlan().getBranches()).hasSize(2);
+    }
+}
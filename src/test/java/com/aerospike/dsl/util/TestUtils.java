@@ -1,15 +1,25 @@
 package com.aerospike.dsl.util;
 
 import com.aerospike.dsl.ExpressionContext;
+import com.aerospike.dsl.Index;
 import com.aerospike.dsl.IndexContext;
+import com.aerospike.dsl.ParseResult;
 import com.aerospike.dsl.ParsedExpression;
 import com.aerospike.dsl.client.cdt.CTX;
 import com.aerospike.dsl.client.exp.Exp;
 import com.aerospike.dsl.client.exp.Expression;
 import com.aerospike.dsl.client.query.Filter;
+import com.aerospike.dsl.client.query.IndexType;
+import com.aerospike.dsl.evaluator.ExpressionEvaluator;
+import com.aerospike.dsl.evaluator.LocalRecord;
 import com.aerospike.dsl.impl.DSLParserImpl;
 import lombok.experimental.UtilityClass;
 
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @UtilityClass
@@ -39,6 +49,43 @@ public class TestUtils {
         return parser.parseExpression(expressionContext, indexContext);
     }
 
+    /**
+     * Parses the given DSL expression with the given parser and returns the resulting {@link ParsedExpression} object.
+     *
+     * @param parser       The {@link DSLParserImpl} to parse with, e.g., with an index planner or an optimizer
+     * @param dsl          String input representing DSL expression
+     * @param indexContext The {@link IndexContext} to be used for building secondary index filter
+     * @return The {@link ParsedExpression} object derived from the parsed expression
+     */
+    public static ParsedExpression getParsedExpression(DSLParserImpl parser, String dsl, IndexContext indexContext) {
+        return parser.parseExpression(ExpressionContext.of(dsl), indexContext);
+    }
+
+    /**
+     * Parses the given DSL expression with the given parser and returns the resulting {@link ParseResult} object.
+     *
+     * @param parser       The {@link DSLParserImpl} to parse with, e.g., with an index planner or an optimizer
+     * @param dsl          String input representing DSL expression
+     * @param indexContext The {@link IndexContext} to be used for building secondary index filter
+     * @return The {@link ParseResult} object derived from the parsed expression
+     */
+    public static ParseResult getParseResult(DSLParserImpl parser, String dsl, IndexContext indexContext) {
+        return getParsedExpression(parser, dsl, indexContext).getResult();
+    }
+
+    /**
+     * Creates an {@link Index} named {@code idx_<bin>} in {@link #NAMESPACE}.
+     *
+     * @param bin            Name of the indexed bin
+     * @param indexType      {@link IndexType} of the index
+     * @param binValuesRatio Ratio of the bin values to the records, used to estimate selectivity of the index
+     * @return The {@link Index} object
+     */
+    public static Index index(String bin, IndexType indexType, int binValuesRatio) {
+        return Index.builder().namespace(NAMESPACE).bin(bin).name("idx_" + bin).indexType(indexType)
+                .binValuesRatio(binValuesRatio).build();
+    }
+
     /**
      * Parses the given DSL expression, extracts the resulting {@link Exp} object, converts it to an {@link Expression}
      * object, and then asserts that it is equal to the {@code expected} {@link Exp} also built into an
@@ -151,4 +198,53 @@ public class TestUtils {
         CTX[] actualCtx = parser.parseCTX(pathToCtx);
         assertEquals(expected == null ? null : CTX.toBase64(expected), actualCtx == null ? null : CTX.toBase64(actualCtx));
     }
+
+    /**
+     * Parses the given DSL expression and creates an {@link ExpressionEvaluator} of the resulting {@link Exp}.
+     *
+     * @param dsl String input representing DSL expression
+     * @return The {@link ExpressionEvaluator} of the parsed expression
+     */
+    public static ExpressionEvaluator getEvaluator(String dsl) {
+        return ExpressionEvaluator.of(parser.parseExpression(ExpressionContext.of(dsl)));
+    }
+
+    /**
+     * Asserts that the predicate created by {@code compiler} for each of the given DSL expressions tests each record
+     * the same as {@link ExpressionEvaluator#test(LocalRecord)}, which interprets the expression.
+     *
+     * @param expressions String inputs representing DSL expressions
+     * @param records     Records to test
+     * @param compiler    Function creating the tested predicate from an {@link ExpressionEvaluator}
+     */
+    public static void assertSameResultAsInterpreter(List<String> expressions, List<LocalRecord> records,
+                                                     Function<ExpressionEvaluator, Predicate<LocalRecord>> compiler) {
+        assertSameResults(expressions, records, evaluator -> evaluator::test,
+                evaluator -> compiler.apply(evaluator)::test);
+    }
+
+    /**
+     * Asserts that {@code actual} gives the same result for each of the given DSL expressions and each record
+     * as {@code expected}.
+     *
+     * @param expressions String inputs representing DSL expressions
+     * @param records     Records to evaluate
+     * @param expected    Function creating the expected evaluation of a record from an {@link ExpressionEvaluator}
+     * @param actual      Function creating the tested evaluation of a record from an {@link ExpressionEvaluator}
+     */
+    public static void assertSameResults(List<String> expressions, List<LocalRecord> records,
+                                         Function<ExpressionEvaluator, Function<LocalRecord, Object>> expected,
+                                         Function<ExpressionEvaluator, Function<LocalRecord, Object>> actual) {
+        for (String dsl : expressions) {
+            ExpressionEvaluator evaluator = getEvaluator(dsl);
+            Function<LocalRecord, Object> expectedEvaluation = expected.apply(evaluator);
+            Function<LocalRecord, Object> actualEvaluation = actual.apply(evaluator);
+
+            for (int i = 0; i < records.size(); i++) {
+                assertThat(actualEvaluation.apply(records.get(i)))
+                        .as("%s for record %d", dsl, i)
+                        .isEqualTo(expectedEvaluation.apply(records.get(i)));
+            }
+        }
+    }
 }